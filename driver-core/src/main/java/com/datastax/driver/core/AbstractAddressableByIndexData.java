@@ -27,6 +27,9 @@ abstract class AbstractAddressableByIndexData<T extends SettableByIndexData<T>>
 
     final ByteBuffer[] values;
 
+    // Set when this value was deserialized from a UDT or tuple, until a field is set: see LazyFields.
+    private LazyFields lazyFields;
+
     protected AbstractAddressableByIndexData(ProtocolVersion protocolVersion, int size) {
         super(protocolVersion);
         this.values = new ByteBuffer[size];
@@ -34,14 +37,31 @@ abstract class AbstractAddressableByIndexData<T extends SettableByIndexData<T>>
 
     @SuppressWarnings("unchecked")
     protected T setValue(int i, ByteBuffer value) {
+        if (lazyFields != null) {
+            lazyFields.splitAll(values);
+            lazyFields = null;
+        }
         values[i] = value;
         return (T) this;
     }
 
     protected ByteBuffer getValue(int i) {
+        if (lazyFields != null)
+            lazyFields.splitUpTo(i, values);
         return values[i];
     }
 
+    void deserializeLazily(ByteBuffer serialized) {
+        lazyFields = new LazyFields(serialized);
+    }
+
+    /**
+     * Returns the bytes this value was deserialized from, or {@code null} if it was modified since.
+     */
+    ByteBuffer serializedIfUnchanged() {
+        return lazyFields == null ? null : lazyFields.serialized();
+    }
+
     public T setBool(int i, boolean v) {
         checkType(i, DataType.Name.BOOLEAN);
         return setValue(i, TypeCodec.booleanCodec.serializeNoBoxing(v));
@@ -184,6 +204,21 @@ abstract class AbstractAddressableByIndexData<T extends SettableByIndexData<T>>
         return setValue(i, type.codec(protocolVersion).serialize(v));
     }
 
+    public T setIntArray(int i, int[] v) {
+        checkPrimitiveCollection(i, DataType.Name.INT);
+        return setValue(i, v == null ? null : TypeCodec.serializeIntArray(v, protocolVersion));
+    }
+
+    public T setLongArray(int i, long[] v) {
+        checkPrimitiveCollection(i, DataType.Name.BIGINT);
+        return setValue(i, v == null ? null : TypeCodec.serializeLongArray(v, protocolVersion));
+    }
+
+    public T setDoubleArray(int i, double[] v) {
+        checkPrimitiveCollection(i, DataType.Name.DOUBLE);
+        return setValue(i, v == null ? null : TypeCodec.serializeDoubleArray(v, protocolVersion));
+    }
+
     public T setUDTValue(int i, UDTValue v) {
         DataType type = getType(i);
         if (type.getName() != DataType.Name.UDT)
@@ -212,6 +247,12 @@ abstract class AbstractAddressableByIndexData<T extends SettableByIndexData<T>>
         return setValue(i, null);
     }
 
+    @Override
+    public <V> T set(int i, V v, Class<V> sourceClass) {
+        Codec<V> codec = getCodecRegistry().codecFor(getType(i), sourceClass);
+        return setValue(i, codec.serialize(v, protocolVersion));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof AbstractAddressableByIndexData))
@@ -231,10 +272,12 @@ abstract class AbstractAddressableByIndexData<T extends SettableByIndexData<T>>
             if (!thisType.equals(thatType))
                 return false;
 
-            if ((values[i] == null) != (that.values[i] == null))
+            ByteBuffer thisValue = getValue(i);
+            ByteBuffer thatValue = that.getValue(i);
+            if ((thisValue == null) != (thatValue == null))
                 return false;
 
-            if (values[i] != null && !(thisType.deserialize(values[i], protocolVersion).equals(thatType.deserialize(that.values[i], protocolVersion))))
+            if (thisValue != null && !(thisType.deserialize(thisValue, protocolVersion).equals(thatType.deserialize(thatValue, protocolVersion))))
                 return false;
         }
         return true;
@@ -244,8 +287,10 @@ abstract class AbstractAddressableByIndexData<T extends SettableByIndexData<T>>
     public int hashCode() {
         // Same as equals
         int hash = 31;
-        for (int i = 0; i < values.length; i++)
-            hash += values[i] == null ? 1 : getType(i).deserialize(values[i], protocolVersion).hashCode();
+        for (int i = 0; i < values.length; i++) {
+            ByteBuffer value = getValue(i);
+            hash += value == null ? 1 : getType(i).deserialize(value, protocolVersion).hashCode();
+        }
         return hash;
     }
 }
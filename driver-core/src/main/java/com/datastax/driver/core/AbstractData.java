@@ -29,6 +29,9 @@ abstract class AbstractData<T extends SettableData<T>> extends AbstractGettableD
     final T wrapped;
     final ByteBuffer[] values;
 
+    // Set when this value was deserialized from a UDT or tuple, until a field is set: see LazyFields.
+    private LazyFields lazyFields;
+
     // Ugly, we coould probably clean that: it is currently needed however because we sometimes
     // want wrapped to be 'this' (UDTValue), and sometimes some other object (in BoundStatement).
     @SuppressWarnings("unchecked")
@@ -51,14 +54,31 @@ abstract class AbstractData<T extends SettableData<T>> extends AbstractGettableD
     protected abstract int[] getAllIndexesOf(String name);
 
     private T setValue(int i, ByteBuffer value) {
+        if (lazyFields != null) {
+            lazyFields.splitAll(values);
+            lazyFields = null;
+        }
         values[i] = value;
         return wrapped;
     }
 
     protected ByteBuffer getValue(int i) {
+        if (lazyFields != null)
+            lazyFields.splitUpTo(i, values);
         return values[i];
     }
 
+    void deserializeLazily(ByteBuffer serialized) {
+        lazyFields = new LazyFields(serialized);
+    }
+
+    /**
+     * Returns the bytes this value was deserialized from, or {@code null} if it was modified since.
+     */
+    ByteBuffer serializedIfUnchanged() {
+        return lazyFields == null ? null : lazyFields.serialized();
+    }
+
     protected int getIndexOf(String name) {
         return getAllIndexesOf(name)[0];
     }
@@ -368,6 +388,42 @@ abstract class AbstractData<T extends SettableData<T>> extends AbstractGettableD
         return wrapped;
     }
 
+    public T setIntArray(int i, int[] v) {
+        checkPrimitiveCollection(i, DataType.Name.INT);
+        return setValue(i, v == null ? null : TypeCodec.serializeIntArray(v, protocolVersion));
+    }
+
+    public T setIntArray(String name, int[] v) {
+        int[] indexes = getAllIndexesOf(name);
+        for (int i = 0; i < indexes.length; i++)
+            setIntArray(indexes[i], v);
+        return wrapped;
+    }
+
+    public T setLongArray(int i, long[] v) {
+        checkPrimitiveCollection(i, DataType.Name.BIGINT);
+        return setValue(i, v == null ? null : TypeCodec.serializeLongArray(v, protocolVersion));
+    }
+
+    public T setLongArray(String name, long[] v) {
+        int[] indexes = getAllIndexesOf(name);
+        for (int i = 0; i < indexes.length; i++)
+            setLongArray(indexes[i], v);
+        return wrapped;
+    }
+
+    public T setDoubleArray(int i, double[] v) {
+        checkPrimitiveCollection(i, DataType.Name.DOUBLE);
+        return setValue(i, v == null ? null : TypeCodec.serializeDoubleArray(v, protocolVersion));
+    }
+
+    public T setDoubleArray(String name, double[] v) {
+        int[] indexes = getAllIndexesOf(name);
+        for (int i = 0; i < indexes.length; i++)
+            setDoubleArray(indexes[i], v);
+        return wrapped;
+    }
+
     public T setUDTValue(int i, UDTValue v) {
         DataType type = getType(i);
         if (type.getName() != DataType.Name.UDT)
@@ -421,6 +477,20 @@ abstract class AbstractData<T extends SettableData<T>> extends AbstractGettableD
         return wrapped;
     }
 
+    @Override
+    public <V> T set(int i, V v, Class<V> sourceClass) {
+        Codec<V> codec = getCodecRegistry().codecFor(getType(i), sourceClass);
+        return setValue(i, codec.serialize(v, protocolVersion));
+    }
+
+    @Override
+    public <V> T set(String name, V v, Class<V> sourceClass) {
+        int[] indexes = getAllIndexesOf(name);
+        for (int i = 0; i < indexes.length; i++)
+            set(indexes[i], v, sourceClass);
+        return wrapped;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof AbstractData))
@@ -440,10 +510,12 @@ abstract class AbstractData<T extends SettableData<T>> extends AbstractGettableD
             if (!thisType.equals(thatType))
                 return false;
 
-            if ((values[i] == null) != (that.values[i] == null))
+            ByteBuffer thisValue = getValue(i);
+            ByteBuffer thatValue = that.getValue(i);
+            if ((thisValue == null) != (thatValue == null))
                 return false;
 
-            if (values[i] != null && !(thisType.deserialize(values[i], protocolVersion).equals(thatType.deserialize(that.values[i], protocolVersion))))
+            if (thisValue != null && !(thisType.deserialize(thisValue, protocolVersion).equals(thatType.deserialize(thatValue, protocolVersion))))
                 return false;
         }
         return true;
@@ -453,8 +525,10 @@ abstract class AbstractData<T extends SettableData<T>> extends AbstractGettableD
     public int hashCode() {
         // Same as equals
         int hash = 31;
-        for (int i = 0; i < values.length; i++)
-            hash += values[i] == null ? 1 : getType(i).deserialize(values[i], protocolVersion).hashCode();
+        for (int i = 0; i < values.length; i++) {
+            ByteBuffer value = getValue(i);
+            hash += value == null ? 1 : getType(i).deserialize(value, protocolVersion).hashCode();
+        }
         return hash;
     }
 }
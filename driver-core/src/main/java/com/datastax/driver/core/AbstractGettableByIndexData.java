@@ -59,6 +59,13 @@ abstract class AbstractGettableByIndexData implements GettableByIndexData {
      */
     protected abstract ByteBuffer getValue(int i);
 
+    /**
+     * Returns the codec registry used by {@link #get(int, Class)}.
+     */
+    CodecRegistry getCodecRegistry() {
+        return CodecRegistry.BUILT_IN;
+    }
+
     // Note: we avoid having a vararg method to avoid the array allocation that comes with it.
     protected void checkType(int i, DataType.Name name) {
         DataType defined = getType(i);
@@ -399,6 +406,41 @@ abstract class AbstractGettableByIndexData implements GettableByIndexData {
         return Collections.unmodifiableMap((Map<K, V>) type.codec(protocolVersion).deserialize(value));
     }
 
+    // Used by the primitive array accessors, which only handle lists and sets of fixed-size numbers
+    void checkPrimitiveCollection(int i, DataType.Name elementType) {
+        DataType type = getType(i);
+        DataType.Name name = type.getName();
+        if ((name != DataType.Name.LIST && name != DataType.Name.SET) || type.getTypeArguments().get(0).getName() != elementType)
+            throw new InvalidTypeException(String.format("Column %s is of type %s, expecting a list or set of %s", getName(i), type, elementType));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int[] getIntArray(int i) {
+        checkPrimitiveCollection(i, DataType.Name.INT);
+        return TypeCodec.deserializeIntArray(getValue(i), protocolVersion);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long[] getLongArray(int i) {
+        checkPrimitiveCollection(i, DataType.Name.BIGINT);
+        return TypeCodec.deserializeLongArray(getValue(i), protocolVersion);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getDoubleArray(int i) {
+        checkPrimitiveCollection(i, DataType.Name.DOUBLE);
+        return TypeCodec.deserializeDoubleArray(getValue(i), protocolVersion);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -456,4 +498,13 @@ abstract class AbstractGettableByIndexData implements GettableByIndexData {
         else
             return type.deserialize(raw, protocolVersion);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <V> V get(int i, Class<V> targetClass) {
+        Codec<V> codec = getCodecRegistry().codecFor(getType(i), targetClass);
+        return codec.deserialize(getValue(i), protocolVersion);
+    }
 }
@@ -216,6 +216,30 @@ public abstract class AbstractGettableData extends AbstractGettableByIndexData i
         return getMap(getIndexOf(name), keysType, valuesType);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int[] getIntArray(String name) {
+        return getIntArray(getIndexOf(name));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long[] getLongArray(String name) {
+        return getLongArray(getIndexOf(name));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double[] getDoubleArray(String name) {
+        return getDoubleArray(getIndexOf(name));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -239,4 +263,12 @@ public abstract class AbstractGettableData extends AbstractGettableByIndexData i
     public Object getObject(String name) {
         return getObject(getIndexOf(name));
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <V> V get(String name, Class<V> targetClass) {
+        return get(getIndexOf(name), targetClass);
+    }
 }
@@ -19,6 +19,7 @@ import com.google.common.base.Function;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.Uninterruptibles;
+import org.reactivestreams.Publisher;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutionException;
@@ -70,6 +71,14 @@ public abstract class AbstractSession implements Session, AsyncInitSession {
         return executeAsync(new SimpleStatement(query, values));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Publisher<Row> executeReactive(Statement statement) {
+        return new ResultSetPublisher(this, statement);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -17,6 +17,8 @@ package com.datastax.driver.core;
 
 import com.datastax.driver.core.exceptions.DriverInternalError;
 import com.datastax.driver.core.utils.MoreFutures;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.Uninterruptibles;
@@ -43,11 +45,15 @@ abstract class ArrayBackedResultSet implements ResultSet {
     private final boolean wasApplied;
 
     protected final ProtocolVersion protocolVersion;
+    protected final CodecRegistry codecRegistry;
+    private final StringCache[] stringCaches;
 
-    private ArrayBackedResultSet(ColumnDefinitions metadata, Token.Factory tokenFactory, List<ByteBuffer> firstRow, ProtocolVersion protocolVersion) {
+    private ArrayBackedResultSet(ColumnDefinitions metadata, Token.Factory tokenFactory, List<ByteBuffer> firstRow, ProtocolVersion protocolVersion, CodecRegistry codecRegistry) {
         this.metadata = metadata;
         this.protocolVersion = protocolVersion;
         this.tokenFactory = tokenFactory;
+        this.codecRegistry = codecRegistry;
+        this.stringCaches = codecRegistry.stringCachesFor(metadata);
         this.wasApplied = checkWasApplied(firstRow, metadata);
     }
 
@@ -71,13 +77,15 @@ abstract class ArrayBackedResultSet implements ResultSet {
 
                 Token.Factory tokenFactory = (session == null) ? null
                         : session.getCluster().manager.metadata.tokenFactory();
+                CodecRegistry codecRegistry = (session == null) ? CodecRegistry.BUILT_IN
+                        : session.getCluster().manager.configuration.getCodecRegistry();
 
                 // info can be null only for internal calls, but we don't page those. We assert
                 // this explicitly because MultiPage implementation don't support info == null.
                 assert r.metadata.pagingState == null || info != null;
                 return r.metadata.pagingState == null
-                        ? new SinglePage(columnDefs, tokenFactory, protocolVersion, r.data, info)
-                        : new MultiPage(columnDefs, tokenFactory, protocolVersion, r.data, info, r.metadata.pagingState, session, statement);
+                        ? new SinglePage(columnDefs, tokenFactory, protocolVersion, codecRegistry, r.data, info)
+                        : new MultiPage(columnDefs, tokenFactory, protocolVersion, codecRegistry, r.data, info, r.metadata.pagingState, session, statement);
 
             case SET_KEYSPACE:
             case SCHEMA_CHANGE:
@@ -97,7 +105,7 @@ abstract class ArrayBackedResultSet implements ResultSet {
 
     private static ArrayBackedResultSet empty(ExecutionInfo info) {
         // We could pass the protocol version but we know we won't need it so passing a bogus value (null)
-        return new SinglePage(ColumnDefinitions.EMPTY, null, null, EMPTY_QUEUE, info);
+        return new SinglePage(ColumnDefinitions.EMPTY, null, null, CodecRegistry.BUILT_IN, EMPTY_QUEUE, info);
     }
 
     public ColumnDefinitions getColumnDefinitions() {
@@ -116,6 +124,77 @@ abstract class ArrayBackedResultSet implements ResultSet {
         return result;
     }
 
+    /**
+     * Returns the data of the next row, fetching the next page if needed, or {@code null} if the
+     * result set is exhausted.
+     */
+    protected abstract List<ByteBuffer> pollData();
+
+    /**
+     * Stops this result set from prefetching pages by itself, for callers that fetch them on their
+     * own terms (see {@link ResultSetPublisher}).
+     *
+     * @return the prefetch threshold that was in use (0 if prefetching was disabled).
+     */
+    int disablePrefetching() {
+        return 0;
+    }
+
+    public Row one() {
+        return ArrayBackedRow.fromData(metadata, tokenFactory, protocolVersion, codecRegistry, stringCaches, pollData());
+    }
+
+    public void visit(RowVisitor visitor) {
+        ArrayBackedRow row = ArrayBackedRow.reusable(metadata, tokenFactory, protocolVersion, codecRegistry, stringCaches);
+        List<ByteBuffer> data;
+        while ((data = pollData()) != null) {
+            if (!visitor.visit(row.setData(data)))
+                return;
+        }
+    }
+
+    public ListenableFuture<Void> visitAsync(RowVisitor visitor) {
+        SettableFuture<Void> future = SettableFuture.create();
+        visitAvailable(ArrayBackedRow.reusable(metadata, tokenFactory, protocolVersion, codecRegistry, stringCaches), visitor, future);
+        return future;
+    }
+
+    private void visitAvailable(final ArrayBackedRow row, final RowVisitor visitor, final SettableFuture<Void> future) {
+        try {
+            while (true) {
+                int available = getAvailableWithoutFetching();
+                if (available == 0) {
+                    if (isFullyFetched()) {
+                        future.set(null);
+                        return;
+                    }
+                    // Resume once the next page is there
+                    Futures.addCallback(fetchMoreResults(), new FutureCallback<Void>() {
+                        @Override
+                        public void onSuccess(Void result) {
+                            visitAvailable(row, visitor, future);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            future.setException(t);
+                        }
+                    });
+                    return;
+                }
+                // Those rows are already fetched so pollData() won't block
+                for (int i = 0; i < available; i++) {
+                    if (!visitor.visit(row.setData(pollData()))) {
+                        future.set(null);
+                        return;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            future.setException(e);
+        }
+    }
+
     @Override
     public Iterator<Row> iterator() {
         return new Iterator<Row>() {
@@ -158,9 +237,10 @@ abstract class ArrayBackedResultSet implements ResultSet {
         private SinglePage(ColumnDefinitions metadata,
                            Token.Factory tokenFactory,
                            ProtocolVersion protocolVersion,
+                           CodecRegistry codecRegistry,
                            Queue<List<ByteBuffer>> rows,
                            ExecutionInfo info) {
-            super(metadata, tokenFactory, rows.peek(), protocolVersion);
+            super(metadata, tokenFactory, rows.peek(), protocolVersion, codecRegistry);
             this.info = info;
             this.rows = rows;
         }
@@ -169,8 +249,8 @@ abstract class ArrayBackedResultSet implements ResultSet {
             return rows.isEmpty();
         }
 
-        public Row one() {
-            return ArrayBackedRow.fromData(metadata, tokenFactory, protocolVersion, rows.poll());
+        protected List<ByteBuffer> pollData() {
+            return rows.poll();
         }
 
         public int getAvailableWithoutFetching() {
@@ -219,9 +299,15 @@ abstract class ArrayBackedResultSet implements ResultSet {
         private final SessionManager session;
         private final Statement statement;
 
+        // Fetch the next page in the background once fewer than prefetchThreshold rows remain (0 = disabled),
+        // as long as fewer than maxPrefetchedPages are already buffered.
+        private volatile int prefetchThreshold;
+        private final int maxPrefetchedPages;
+
         private MultiPage(ColumnDefinitions metadata,
                           Token.Factory tokenFactory,
                           ProtocolVersion protocolVersion,
+                          CodecRegistry codecRegistry,
                           Queue<List<ByteBuffer>> rows,
                           ExecutionInfo info,
                           ByteBuffer pagingState,
@@ -231,13 +317,18 @@ abstract class ArrayBackedResultSet implements ResultSet {
             // Note: as of Cassandra 2.1.0, it turns out that the result of a CAS update is never paged, so
             // we could hard-code the result of wasApplied in this class to "true". However, we can not be sure
             // that this will never change, so apply the generic check by peeking at the first row.
-            super(metadata, tokenFactory, rows.peek(), protocolVersion);
+            super(metadata, tokenFactory, rows.peek(), protocolVersion, codecRegistry);
             this.currentPage = rows;
             this.infos.offer(info.withPagingState(pagingState, protocolVersion).withStatement(statement));
 
             this.fetchState = new FetchingState(pagingState, null);
             this.session = session;
             this.statement = statement;
+
+            QueryOptions queryOptions = session.configuration().getQueryOptions();
+            int threshold = statement.getPrefetchThreshold();
+            this.prefetchThreshold = threshold < 0 ? queryOptions.getPrefetchThreshold() : threshold;
+            this.maxPrefetchedPages = queryOptions.getMaxPrefetchedPages();
         }
 
         public boolean isExhausted() {
@@ -245,9 +336,26 @@ abstract class ArrayBackedResultSet implements ResultSet {
             return currentPage.isEmpty();
         }
 
-        public Row one() {
+        protected List<ByteBuffer> pollData() {
             prepareNextRow();
-            return ArrayBackedRow.fromData(metadata, tokenFactory, protocolVersion, currentPage.poll());
+            List<ByteBuffer> data = currentPage.poll();
+            maybePrefetch();
+            return data;
+        }
+
+        @Override
+        int disablePrefetching() {
+            int threshold = prefetchThreshold;
+            prefetchThreshold = 0;
+            return threshold;
+        }
+
+        private void maybePrefetch() {
+            if (prefetchThreshold <= 0 || currentPage.size() >= prefetchThreshold)
+                return;
+            FetchingState fetchingState = this.fetchState;
+            if (fetchingState != null && fetchingState.nextStart != null && nextPages.size() < maxPrefetchedPages)
+                fetchMoreResults(fetchingState);
         }
 
         public int getAvailableWithoutFetching() {
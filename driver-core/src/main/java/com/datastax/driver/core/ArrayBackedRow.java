@@ -27,20 +27,44 @@ class ArrayBackedRow extends AbstractGettableData implements Row {
 
     private final ColumnDefinitions metadata;
     private final Token.Factory tokenFactory;
-    private final List<ByteBuffer> data;
+    private final CodecRegistry codecRegistry;
+    // null if no column is cached
+    private final StringCache[] stringCaches;
+    private List<ByteBuffer> data;
 
-    private ArrayBackedRow(ColumnDefinitions metadata, Token.Factory tokenFactory, ProtocolVersion protocolVersion, List<ByteBuffer> data) {
+    private ArrayBackedRow(ColumnDefinitions metadata, Token.Factory tokenFactory, ProtocolVersion protocolVersion, CodecRegistry codecRegistry, StringCache[] stringCaches, List<ByteBuffer> data) {
         super(protocolVersion);
         this.metadata = metadata;
         this.tokenFactory = tokenFactory;
+        this.codecRegistry = codecRegistry;
+        this.stringCaches = stringCaches;
         this.data = data;
     }
 
-    static Row fromData(ColumnDefinitions metadata, Token.Factory tokenFactory, ProtocolVersion protocolVersion, List<ByteBuffer> data) {
+    static Row fromData(ColumnDefinitions metadata, Token.Factory tokenFactory, ProtocolVersion protocolVersion, CodecRegistry codecRegistry, List<ByteBuffer> data) {
+        return fromData(metadata, tokenFactory, protocolVersion, codecRegistry, codecRegistry.stringCachesFor(metadata), data);
+    }
+
+    /**
+     * @param stringCaches the result of {@link CodecRegistry#stringCachesFor}, resolved once for all the rows of a result set.
+     */
+    static Row fromData(ColumnDefinitions metadata, Token.Factory tokenFactory, ProtocolVersion protocolVersion, CodecRegistry codecRegistry, StringCache[] stringCaches, List<ByteBuffer> data) {
         if (data == null)
             return null;
 
-        return new ArrayBackedRow(metadata, tokenFactory, protocolVersion, data);
+        return new ArrayBackedRow(metadata, tokenFactory, protocolVersion, codecRegistry, stringCaches, data);
+    }
+
+    /**
+     * Creates a row with no data, to be pointed at successive rows with {@link #setData}.
+     */
+    static ArrayBackedRow reusable(ColumnDefinitions metadata, Token.Factory tokenFactory, ProtocolVersion protocolVersion, CodecRegistry codecRegistry, StringCache[] stringCaches) {
+        return new ArrayBackedRow(metadata, tokenFactory, protocolVersion, codecRegistry, stringCaches, null);
+    }
+
+    ArrayBackedRow setData(List<ByteBuffer> data) {
+        this.data = data;
+        return this;
     }
 
     @Override
@@ -63,6 +87,30 @@ class ArrayBackedRow extends AbstractGettableData implements Row {
         return data.get(i);
     }
 
+    @Override
+    CodecRegistry getCodecRegistry() {
+        return codecRegistry;
+    }
+
+    @Override
+    public String getString(int i) {
+        StringCache cache = stringCaches == null ? null : stringCaches[i];
+        if (cache == null)
+            return super.getString(i);
+
+        DataType.Name type = checkType(i, DataType.Name.VARCHAR,
+                DataType.Name.TEXT,
+                DataType.Name.ASCII);
+
+        ByteBuffer value = getValue(i);
+        if (value == null)
+            return null;
+
+        return cache.get(value, type == DataType.Name.ASCII
+                ? TypeCodec.asciiStringCodec
+                : TypeCodec.utf8StringCodec);
+    }
+
     @Override
     protected int getIndexOf(String name) {
         return metadata.getFirstIdx(name);
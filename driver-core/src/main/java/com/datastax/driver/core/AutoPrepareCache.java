@@ -0,0 +1,188 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.datastax.driver.core.exceptions.SyntaxError;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the query strings executed through {@link SimpleStatement}s in a session, and turns the
+ * frequent ones into {@link BoundStatement}s once they've been prepared.
+ *
+ * @see QueryOptions#setAutoPrepareThreshold(int)
+ */
+class AutoPrepareCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutoPrepareCache.class);
+
+    // After a transient failure, a query is prepared again after a delay that doubles on each attempt
+    private static final int MAX_PREPARE_ATTEMPTS = 5;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final SessionManager session;
+    private final Cache<Key, Entry> entries;
+
+    volatile Clock clock = new SystemClock();
+
+    AutoPrepareCache(SessionManager session, int maxSize) {
+        this.session = session;
+        this.entries = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Returns the statement to execute in place of {@code statement}: either a {@link BoundStatement}
+     * if its query has been prepared, or {@code statement} itself.
+     */
+    Statement maybeBind(Statement statement) {
+        int threshold = session.cluster.manager.configuration.getQueryOptions().getAutoPrepareThreshold();
+        // Subclasses of SimpleStatement (e.g. query builder statements) may compute their query string
+        // on the fly, and a paging state is only valid for the exact statement it was returned for.
+        if (threshold == 0 || statement.getClass() != SimpleStatement.class || statement.getPagingState() != null)
+            return statement;
+
+        SimpleStatement simple = (SimpleStatement) statement;
+        Key key = new Key(session.getLoggedKeyspace(), simple.getQueryString());
+        Entry entry = entries.getIfPresent(key);
+        if (entry == null) {
+            Entry previous = entries.asMap().putIfAbsent(key, entry = new Entry());
+            if (previous != null)
+                entry = previous;
+        }
+
+        BoundStatement bound = entry.prepared == null ? null : bind(entry.prepared, simple);
+        if (bound == null && entry.prepared == null && entry.count.incrementAndGet() > threshold)
+            prepare(key, entry);
+
+        Metrics metrics = session.cluster.manager.metrics;
+        if (metrics != null) {
+            if (bound == null)
+                metrics.getAutoPrepareMisses().inc();
+            else
+                metrics.getAutoPrepareHits().inc();
+        }
+        return bound == null ? statement : bound;
+    }
+
+    int size() {
+        return (int) entries.size();
+    }
+
+    private void prepare(final Key key, final Entry entry) {
+        if (entry.preparing.get() || (entry.failures > 0 && clock.currentTime() < entry.nextAttempt))
+            return;
+        if (!entry.preparing.compareAndSet(false, true))
+            return;
+
+        ListenableFuture<PreparedStatement> future = session.prepareAsync(key.query);
+        Futures.addCallback(future, new FutureCallback<PreparedStatement>() {
+            @Override
+            public void onSuccess(PreparedStatement prepared) {
+                // The logged keyspace might have changed while the query was being prepared
+                if (Objects.equal(key.keyspace, prepared.getQueryKeyspace()))
+                    entry.prepared = prepared;
+                else
+                    entry.preparing.set(false);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // On errors that would happen again (or too many failures), keep the preparing flag set:
+                // the query will just keep being executed as is.
+                if (t instanceof SyntaxError || t instanceof InvalidQueryException) {
+                    logger.debug(String.format("Could not auto-prepare query '%s', it will not be retried", key.query), t);
+                } else if (entry.failures + 1 >= MAX_PREPARE_ATTEMPTS) {
+                    logger.debug(String.format("Could not auto-prepare query '%s' after %d attempts, it will not be retried",
+                            key.query, MAX_PREPARE_ATTEMPTS), t);
+                } else {
+                    long delay = RETRY_DELAY_MILLIS << entry.failures;
+                    logger.debug(String.format("Could not auto-prepare query '%s', it will be retried in %d ms", key.query, delay), t);
+                    entry.nextAttempt = clock.currentTime() + delay;
+                    entry.failures += 1;
+                    entry.preparing.set(false);
+                }
+            }
+        });
+    }
+
+    private static BoundStatement bind(PreparedStatement prepared, SimpleStatement simple) {
+        Object[] values = simple.getRawValues();
+        int count = values == null ? 0 : values.length;
+        if (count != prepared.getVariables().size())
+            return null;
+
+        BoundStatement bound = new BoundStatement(prepared);
+        try {
+            if (values != null)
+                bound.bind(values);
+        } catch (InvalidTypeException e) {
+            // The values don't match the types of the bind variables (e.g. an Integer for a bigint
+            // column): executing the simple statement as is lets Cassandra decide.
+            return null;
+        }
+        simple.copyOptionsTo(bound);
+        ByteBuffer routingKey = simple.getRoutingKey();
+        if (routingKey != null)
+            bound.setRoutingKey(routingKey);
+        return bound;
+    }
+
+    private static class Key {
+        final String keyspace;
+        final String query;
+
+        Key(String keyspace, String query) {
+            this.keyspace = keyspace;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this)
+                return true;
+            if (!(other instanceof Key))
+                return false;
+            Key that = (Key) other;
+            return Objects.equal(keyspace, that.keyspace) && query.equals(that.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(keyspace, query);
+        }
+    }
+
+    private static class Entry {
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicBoolean preparing = new AtomicBoolean();
+        volatile PreparedStatement prepared;
+        // Only updated by the thread that holds the preparing flag
+        volatile int failures;
+        volatile long nextAttempt;
+    }
+}
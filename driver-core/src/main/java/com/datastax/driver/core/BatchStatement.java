@@ -66,6 +66,11 @@ public class BatchStatement extends Statement {
     final Type batchType;
     private final List<Statement> statements = new ArrayList<Statement>();
 
+    private volatile int maxSizeInBytes;
+    // The encoded size of each statement, only tracked if maxSizeInBytes > 0
+    private List<Integer> sizes;
+    private int sizeInBytes;
+
     /**
      * Creates a new {@code LOGGED} batch statement.
      */
@@ -95,7 +100,7 @@ public class BatchStatement extends Statement {
                 assert statement instanceof BoundStatement;
                 BoundStatement st = (BoundStatement) statement;
                 idAndVals.ids.add(st.statement.getPreparedId().id);
-                idAndVals.values.add(Arrays.asList(st.wrapper.values));
+                idAndVals.values.add(st.wrapper.valueList());
             }
         }
         return idAndVals;
@@ -139,10 +144,18 @@ public class BatchStatement extends Statement {
             if (statements.size() >= 0xFFFF)
                 throw new IllegalStateException("Batch statement cannot contain more than " + 0xFFFF + " statements.");
             statements.add(statement);
+            if (sizes != null)
+                trackSize(statement);
         }
         return this;
     }
 
+    private void trackSize(Statement statement) {
+        int size = sizeOf(statement, ProtocolVersion.NEWEST_SUPPORTED);
+        sizes.add(size);
+        sizeInBytes += size;
+    }
+
     /**
      * Adds multiple statements to this batch.
      * <p/>
@@ -175,6 +188,10 @@ public class BatchStatement extends Statement {
      */
     public BatchStatement clear() {
         statements.clear();
+        if (sizes != null) {
+            sizes.clear();
+            sizeInBytes = 0;
+        }
         return this;
     }
 
@@ -187,6 +204,97 @@ public class BatchStatement extends Statement {
         return statements.size();
     }
 
+    /**
+     * Sets the maximum size of the batches sent for this statement.
+     * <p/>
+     * Cassandra logs a warning for batches bigger than its {@code batch_size_warn_threshold_in_kb}
+     * (5KB by default), and rejects those bigger than {@code batch_size_fail_threshold_in_kb} (50KB
+     * by default, since Cassandra 2.2). With a maximum size set, this batch keeps track of the encoded
+     * size of its statements as they are added, and if the total exceeds the maximum when it gets
+     * executed, it is transparently split into several batches of at most that size (in the order the
+     * statements were added), executed in parallel with the options of this batch. They all get the
+     * same default timestamp (this batch's, or else one from the {@link TimestampGenerator}), so that
+     * conflicting mutations resolve as they would in a single batch. The {@code ResultSet} of the
+     * execution then holds the rows of all the batches (there are rows only for conditional batches);
+     * if any batch fails, the execution fails with a
+     * {@link com.datastax.driver.core.exceptions.SplitBatchException} that gives the
+     * outcome of each batch.
+     * <p/>
+     * Note that the size is computed when a statement is added: changing a statement after adding it
+     * is not reflected. It is also an approximation of the size that Cassandra checks (the size of the
+     * mutations), which is why the limit should be set with some margin. A statement that is bigger
+     * than the limit on its own is sent alone.
+     * <p/>
+     * Also beware that splitting a {@code LOGGED} batch makes it lose its atomicity as a whole: each
+     * batch is still atomic, but some of them may be applied and not the others if there are errors.
+     * Splitting a batch with conditions (lightweight transactions) is generally not possible, as
+     * they must all apply to the same partition.
+     *
+     * @param maxSizeInBytes the maximum size, or 0 to never split this batch (the default).
+     * @return this batch statement.
+     * @throws IllegalArgumentException if {@code maxSizeInBytes < 0}.
+     */
+    public BatchStatement setMaxSizeInBytes(int maxSizeInBytes) {
+        if (maxSizeInBytes < 0)
+            throw new IllegalArgumentException("Invalid maximum size, should be >= 0, got " + maxSizeInBytes);
+        if (maxSizeInBytes > 0 && sizes == null) {
+            sizes = new ArrayList<Integer>(statements.size());
+            for (Statement statement : statements)
+                trackSize(statement);
+        }
+        this.maxSizeInBytes = maxSizeInBytes;
+        return this;
+    }
+
+    /**
+     * Returns the maximum size of the batches sent for this statement.
+     *
+     * @return the maximum size in bytes, or 0 if this batch is never split.
+     * @see #setMaxSizeInBytes(int)
+     */
+    public int getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    /**
+     * Returns the encoded size of the statements of this batch.
+     * <p/>
+     * If a maximum size is set, this is the size tracked as statements are added (see
+     * {@link #setMaxSizeInBytes(int)}); otherwise, it is computed by this call.
+     *
+     * @return the size, in bytes, that the statements take in a batch request.
+     */
+    public int getSizeInBytes() {
+        return sizes != null ? sizeInBytes : sizeOf(this, ProtocolVersion.NEWEST_SUPPORTED);
+    }
+
+    /**
+     * Splits this batch according to its maximum size.
+     *
+     * @return the batches to execute instead of this one, or {@code null} if this batch does not
+     * need to be split.
+     */
+    List<BatchStatement> split() {
+        if (maxSizeInBytes <= 0 || sizeInBytes <= maxSizeInBytes || statements.size() <= 1)
+            return null;
+
+        List<BatchStatement> batches = new ArrayList<BatchStatement>();
+        BatchStatement batch = null;
+        int batchSize = 0;
+        for (int i = 0; i < statements.size(); i++) {
+            int size = sizes.get(i);
+            if (batch == null || batchSize + size > maxSizeInBytes) {
+                batch = new BatchStatement(batchType);
+                copyOptionsTo(batch);
+                batches.add(batch);
+                batchSize = 0;
+            }
+            batch.statements.add(statements.get(i));
+            batchSize += size;
+        }
+        return batches;
+    }
+
     /**
      * Sets the serial consistency level for the query.
      * <p/>
@@ -227,6 +335,29 @@ public class BatchStatement extends Statement {
         return null;
     }
 
+    /**
+     * Returns the number of bytes that {@code statement} takes in the body of a batch request,
+     * encoded with {@code protocolVersion}. The options of the batch are not included.
+     */
+    static int sizeOf(Statement statement, ProtocolVersion protocolVersion) {
+        if (statement instanceof BatchStatement) {
+            int size = 0;
+            for (Statement child : ((BatchStatement) statement).statements)
+                size += sizeOf(child, protocolVersion);
+            return size;
+        } else if (statement instanceof RegularStatement) {
+            RegularStatement st = (RegularStatement) statement;
+            String query = st.getQueryString();
+            int queryLength = TypeCodec.StringCodec.utf8Length(query);
+            ByteBuffer[] vals = st.getValues(protocolVersion);
+            return 1 + 4 + (queryLength < 0 ? 3 * query.length() : queryLength)
+                    + CBUtil.sizeOfValueList(vals == null ? Collections.<ByteBuffer>emptyList() : Arrays.asList(vals));
+        } else {
+            BoundStatement st = (BoundStatement) statement;
+            return 1 + 2 + st.statement.getPreparedId().id.bytes.length + CBUtil.sizeOfValueList(st.wrapper.valueList());
+        }
+    }
+
     void ensureAllSet() {
         for (Statement statement : statements)
             if (statement instanceof BoundStatement)
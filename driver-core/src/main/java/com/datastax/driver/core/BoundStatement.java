@@ -17,6 +17,8 @@ package com.datastax.driver.core;
 
 import com.datastax.driver.core.exceptions.InvalidTypeException;
 import com.google.common.reflect.TypeToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -45,6 +47,8 @@ import java.util.*;
 public class BoundStatement extends Statement implements SettableData<BoundStatement>, GettableData {
     private static final ByteBuffer UNSET = ByteBuffer.allocate(0);
 
+    private static final boolean DISABLE_DEFERRED_SERIALIZATION = SystemProperties.getBoolean("com.datastax.driver.DISABLE_DEFERRED_SERIALIZATION", false);
+
     final PreparedStatement statement;
 
     // Statement is already an abstract class, so we can't make it extend AbstractData directly. But
@@ -99,7 +103,7 @@ public class BoundStatement extends Statement implements SettableData<BoundState
      * @throws IndexOutOfBoundsException if {@code i < 0 || i >= this.preparedStatement().variables().size()}.
      */
     public boolean isSet(int i) {
-        return wrapper.getValue(i) != UNSET;
+        return wrapper.values[i] != UNSET;
     }
 
     /**
@@ -113,7 +117,7 @@ public class BoundStatement extends Statement implements SettableData<BoundState
      *                                  variable, that is if {@code !this.preparedStatement().variables().names().contains(name)}.
      */
     public boolean isSet(String name) {
-        return wrapper.getValue(wrapper.getIndexOf(name)) != UNSET;
+        return wrapper.values[wrapper.getIndexOf(name)] != UNSET;
     }
 
     /**
@@ -262,11 +266,11 @@ public class BoundStatement extends Statement implements SettableData<BoundState
         int[] rkIndexes = statement.getPreparedId().routingKeyIndexes;
         if (rkIndexes != null) {
             if (rkIndexes.length == 1) {
-                return wrapper.values[rkIndexes[0]];
+                return wrapper.getValue(rkIndexes[0]);
             } else {
                 ByteBuffer[] components = new ByteBuffer[rkIndexes.length];
                 for (int i = 0; i < components.length; ++i) {
-                    ByteBuffer value = wrapper.values[rkIndexes[i]];
+                    ByteBuffer value = wrapper.getValue(rkIndexes[i]);
                     if (value == null)
                         return null;
                     components[i] = value;
@@ -910,6 +914,102 @@ public class BoundStatement extends Statement implements SettableData<BoundState
         return wrapper.setSet(name, v);
     }
 
+    /**
+     * Sets the {@code i}th value, a list or set of {@code INT}, to the elements of the provided array.
+     * <p/>
+     * The elements are encoded directly from the array, without boxing them.
+     *
+     * @param i the index of the variable to set.
+     * @param v the value to set.
+     * @return this BoundStatement.
+     * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this BoundStatement.
+     * @throws InvalidTypeException      if value {@code i} is not a list or set of {@code INT}.
+     */
+    public BoundStatement setIntArray(int i, int[] v) {
+        return wrapper.setIntArray(i, v);
+    }
+
+    /**
+     * Sets the value for (all occurrences of) variable {@code name}, a list or set of
+     * {@code INT}, to the elements of the provided array.
+     *
+     * @param name the name of the variable to set; if {@code name} is present multiple
+     *             times, all its values are set.
+     * @param v    the value to set.
+     * @return this BoundStatement.
+     * @throws IllegalArgumentException if {@code name} is not a prepared variable, that is, if
+     *                                  {@code !this.preparedStatement().variables().names().contains(name)}.
+     * @throws InvalidTypeException     if (any occurrence of) {@code name} is not a list or
+     *                                  set of {@code INT}.
+     */
+    public BoundStatement setIntArray(String name, int[] v) {
+        return wrapper.setIntArray(name, v);
+    }
+
+    /**
+     * Sets the {@code i}th value, a list or set of {@code BIGINT}, to the elements of the provided array.
+     * <p/>
+     * The elements are encoded directly from the array, without boxing them.
+     *
+     * @param i the index of the variable to set.
+     * @param v the value to set.
+     * @return this BoundStatement.
+     * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this BoundStatement.
+     * @throws InvalidTypeException      if value {@code i} is not a list or set of {@code BIGINT}.
+     */
+    public BoundStatement setLongArray(int i, long[] v) {
+        return wrapper.setLongArray(i, v);
+    }
+
+    /**
+     * Sets the value for (all occurrences of) variable {@code name}, a list or set of
+     * {@code BIGINT}, to the elements of the provided array.
+     *
+     * @param name the name of the variable to set; if {@code name} is present multiple
+     *             times, all its values are set.
+     * @param v    the value to set.
+     * @return this BoundStatement.
+     * @throws IllegalArgumentException if {@code name} is not a prepared variable, that is, if
+     *                                  {@code !this.preparedStatement().variables().names().contains(name)}.
+     * @throws InvalidTypeException     if (any occurrence of) {@code name} is not a list or
+     *                                  set of {@code BIGINT}.
+     */
+    public BoundStatement setLongArray(String name, long[] v) {
+        return wrapper.setLongArray(name, v);
+    }
+
+    /**
+     * Sets the {@code i}th value, a list or set of {@code DOUBLE}, to the elements of the provided array.
+     * <p/>
+     * The elements are encoded directly from the array, without boxing them.
+     *
+     * @param i the index of the variable to set.
+     * @param v the value to set.
+     * @return this BoundStatement.
+     * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this BoundStatement.
+     * @throws InvalidTypeException      if value {@code i} is not a list or set of {@code DOUBLE}.
+     */
+    public BoundStatement setDoubleArray(int i, double[] v) {
+        return wrapper.setDoubleArray(i, v);
+    }
+
+    /**
+     * Sets the value for (all occurrences of) variable {@code name}, a list or set of
+     * {@code DOUBLE}, to the elements of the provided array.
+     *
+     * @param name the name of the variable to set; if {@code name} is present multiple
+     *             times, all its values are set.
+     * @param v    the value to set.
+     * @return this BoundStatement.
+     * @throws IllegalArgumentException if {@code name} is not a prepared variable, that is, if
+     *                                  {@code !this.preparedStatement().variables().names().contains(name)}.
+     * @throws InvalidTypeException     if (any occurrence of) {@code name} is not a list or
+     *                                  set of {@code DOUBLE}.
+     */
+    public BoundStatement setDoubleArray(String name, double[] v) {
+        return wrapper.setDoubleArray(name, v);
+    }
+
     /**
      * Sets the {@code i}th value to the provided UDT value.
      *
@@ -1307,6 +1407,48 @@ public class BoundStatement extends Statement implements SettableData<BoundState
         return wrapper.getTupleValue(name);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public int[] getIntArray(int i) {
+        return wrapper.getIntArray(i);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int[] getIntArray(String name) {
+        return wrapper.getIntArray(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long[] getLongArray(int i) {
+        return wrapper.getLongArray(i);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long[] getLongArray(String name) {
+        return wrapper.getLongArray(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public double[] getDoubleArray(int i) {
+        return wrapper.getDoubleArray(i);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public double[] getDoubleArray(String name) {
+        return wrapper.getDoubleArray(name);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1321,12 +1463,300 @@ public class BoundStatement extends Statement implements SettableData<BoundState
         return wrapper.getObject(name);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public <V> V get(int i, Class<V> targetClass) {
+        return wrapper.get(i, targetClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <V> V get(String name, Class<V> targetClass) {
+        return wrapper.get(name, targetClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <V> BoundStatement set(int i, V v, Class<V> sourceClass) {
+        return wrapper.set(i, v, sourceClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public <V> BoundStatement set(String name, V v, Class<V> sourceClass) {
+        return wrapper.set(name, v, sourceClass);
+    }
+
     static class DataWrapper extends AbstractData<BoundStatement> {
 
+        // Marks a value that is held in primitives or strings rather than in values
+        private static final ByteBuffer DEFERRED = ByteBuffer.allocate(0);
+
+        // Values of fixed-size primitive types and strings are not serialized by the setters: they are
+        // written directly to the outgoing frame when the request is encoded (see DeferredValueList), and
+        // only serialized to a buffer if something else needs it (getters, routing key...).
+        // primitives holds the raw bits of the value, or the encoded length for strings.
+        private long[] primitives;
+        private String[] strings;
+
         DataWrapper(BoundStatement wrapped, int size) {
             super(wrapped.statement.getPreparedId().protocolVersion, wrapped, size);
         }
 
+        @Override
+        protected ByteBuffer getValue(int i) {
+            ByteBuffer value = values[i];
+            if (value == DEFERRED) {
+                value = serializeDeferred(i);
+                values[i] = value;
+            }
+            return value;
+        }
+
+        /**
+         * Returns all the values, serializing the deferred ones first.
+         */
+        ByteBuffer[] serializedValues() {
+            for (int i = 0; i < values.length; i++)
+                getValue(i);
+            return values;
+        }
+
+        /**
+         * Returns the values to send with the request. Deferred values are encoded directly
+         * to the frame by {@link CBUtil#writeValueList}.
+         */
+        List<ByteBuffer> valueList() {
+            return primitives == null && strings == null
+                    ? Arrays.asList(values)
+                    : new DeferredValueList();
+        }
+
+        private BoundStatement defer(int i, long bits) {
+            if (primitives == null)
+                primitives = new long[values.length];
+            primitives[i] = bits;
+            values[i] = DISABLE_DEFERRED_SERIALIZATION ? serializeDeferred(i) : DEFERRED;
+            return wrapped;
+        }
+
+        private BoundStatement defer(int i, String value, int size) {
+            if (strings == null)
+                strings = new String[values.length];
+            strings[i] = value;
+            return defer(i, size);
+        }
+
+        private ByteBuffer serializeDeferred(int i) {
+            long bits = primitives[i];
+            switch (getType(i).getName()) {
+                case BOOLEAN:
+                    return TypeCodec.booleanCodec.serializeNoBoxing(bits != 0);
+                case INT:
+                    return TypeCodec.intCodec.serializeNoBoxing((int) bits);
+                case FLOAT:
+                    return TypeCodec.floatCodec.serializeNoBoxing(Float.intBitsToFloat((int) bits));
+                case BIGINT:
+                case COUNTER:
+                case TIMESTAMP:
+                    return TypeCodec.longCodec.serializeNoBoxing(bits);
+                case DOUBLE:
+                    return TypeCodec.doubleCodec.serializeNoBoxing(Double.longBitsToDouble(bits));
+                case ASCII:
+                    return TypeCodec.asciiStringCodec.serialize(strings[i]);
+                case TEXT:
+                case VARCHAR:
+                    return TypeCodec.utf8StringCodec.serialize(strings[i]);
+                default:
+                    throw new AssertionError();
+            }
+        }
+
+        private int sizeOfDeferred(int i) {
+            switch (getType(i).getName()) {
+                case BOOLEAN:
+                    return 1;
+                case INT:
+                case FLOAT:
+                    return 4;
+                case BIGINT:
+                case COUNTER:
+                case TIMESTAMP:
+                case DOUBLE:
+                    return 8;
+                case ASCII:
+                case TEXT:
+                case VARCHAR:
+                    return (int) primitives[i];
+                default:
+                    throw new AssertionError();
+            }
+        }
+
+        private void writeDeferred(int i, ByteBuf dest) {
+            long bits = primitives[i];
+            dest.writeInt(sizeOfDeferred(i));
+            switch (getType(i).getName()) {
+                case BOOLEAN:
+                    dest.writeByte((int) bits);
+                    break;
+                case INT:
+                case FLOAT:
+                    dest.writeInt((int) bits);
+                    break;
+                case BIGINT:
+                case COUNTER:
+                case TIMESTAMP:
+                case DOUBLE:
+                    dest.writeLong(bits);
+                    break;
+                case ASCII:
+                    ByteBufUtil.writeAscii(dest, strings[i]);
+                    break;
+                case TEXT:
+                case VARCHAR:
+                    ByteBufUtil.writeUtf8(dest, strings[i]);
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+
+        class DeferredValueList extends AbstractList<ByteBuffer> {
+            @Override
+            public ByteBuffer get(int i) {
+                return getValue(i);
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+            // A value can get serialized concurrently (by a getter), but its size is the same either way
+            int encodedSize() {
+                int size = 2;
+                for (int i = 0; i < values.length; i++) {
+                    ByteBuffer value = values[i];
+                    size += value == DEFERRED ? 4 + sizeOfDeferred(i) : CBUtil.sizeOfValue(value);
+                }
+                return size;
+            }
+
+            void encode(ByteBuf dest) {
+                dest.writeShort(values.length);
+                for (int i = 0; i < values.length; i++) {
+                    ByteBuffer value = values[i];
+                    if (value == DEFERRED)
+                        writeDeferred(i, dest);
+                    else
+                        CBUtil.writeValue(value, dest);
+                }
+            }
+        }
+
+        @Override
+        public BoundStatement setBool(int i, boolean v) {
+            checkType(i, DataType.Name.BOOLEAN);
+            return defer(i, v ? 1 : 0);
+        }
+
+        @Override
+        public BoundStatement setBool(String name, boolean v) {
+            for (int i : getAllIndexesOf(name))
+                setBool(i, v);
+            return wrapped;
+        }
+
+        @Override
+        public BoundStatement setInt(int i, int v) {
+            checkType(i, DataType.Name.INT);
+            return defer(i, v);
+        }
+
+        @Override
+        public BoundStatement setInt(String name, int v) {
+            for (int i : getAllIndexesOf(name))
+                setInt(i, v);
+            return wrapped;
+        }
+
+        @Override
+        public BoundStatement setLong(int i, long v) {
+            checkType(i, DataType.Name.BIGINT, DataType.Name.COUNTER);
+            return defer(i, v);
+        }
+
+        @Override
+        public BoundStatement setLong(String name, long v) {
+            for (int i : getAllIndexesOf(name))
+                setLong(i, v);
+            return wrapped;
+        }
+
+        @Override
+        public BoundStatement setDate(int i, Date v) {
+            if (v == null)
+                return super.setDate(i, null);
+            checkType(i, DataType.Name.TIMESTAMP);
+            return defer(i, v.getTime());
+        }
+
+        @Override
+        public BoundStatement setDate(String name, Date v) {
+            for (int i : getAllIndexesOf(name))
+                setDate(i, v);
+            return wrapped;
+        }
+
+        @Override
+        public BoundStatement setFloat(int i, float v) {
+            checkType(i, DataType.Name.FLOAT);
+            return defer(i, Float.floatToRawIntBits(v));
+        }
+
+        @Override
+        public BoundStatement setFloat(String name, float v) {
+            for (int i : getAllIndexesOf(name))
+                setFloat(i, v);
+            return wrapped;
+        }
+
+        @Override
+        public BoundStatement setDouble(int i, double v) {
+            checkType(i, DataType.Name.DOUBLE);
+            return defer(i, Double.doubleToRawLongBits(v));
+        }
+
+        @Override
+        public BoundStatement setDouble(String name, double v) {
+            for (int i : getAllIndexesOf(name))
+                setDouble(i, v);
+            return wrapped;
+        }
+
+        @Override
+        public BoundStatement setString(int i, String v) {
+            if (v == null)
+                return super.setString(i, null);
+            DataType.Name type = checkType(i, DataType.Name.VARCHAR, DataType.Name.TEXT, DataType.Name.ASCII);
+            int size = type == DataType.Name.ASCII
+                    ? TypeCodec.StringCodec.asciiLength(v)
+                    : TypeCodec.StringCodec.utf8Length(v);
+            return size < 0 ? super.setString(i, v) : defer(i, v, size);
+        }
+
+        @Override
+        public BoundStatement setString(String name, String v) {
+            for (int i : getAllIndexesOf(name))
+                setString(i, v);
+            return wrapped;
+        }
+
         protected int[] getAllIndexesOf(String name) {
             return wrapped.statement.getVariables().getAllIdx(name);
         }
@@ -1338,6 +1768,13 @@ public class BoundStatement extends Statement implements SettableData<BoundState
         protected String getName(int i) {
             return wrapped.statement.getVariables().getName(i);
         }
+
+        @Override
+        CodecRegistry getCodecRegistry() {
+            return wrapped.statement instanceof DefaultPreparedStatement
+                    ? ((DefaultPreparedStatement) wrapped.statement).codecRegistry
+                    : CodecRegistry.BUILT_IN;
+        }
     }
 
     void ensureAllSet() {
@@ -0,0 +1,617 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.policies.RetryPolicy;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes a large number of statements with a bounded number of requests in flight.
+ * <p/>
+ * Statements are pulled from an {@link Iterator} only while fewer than the configured number of
+ * statements are pending, so the producer is naturally slowed down to the pace of the cluster, and at
+ * most that many statements (and their results) are held in memory at any time. When a per-host limit
+ * is set, the statements of a host that has reached it wait in a backlog for that host, while the
+ * statements of the other hosts keep being sent:
+ * <pre>
+ * BulkExecutor executor = BulkExecutor.builder(session)
+ *     .withMaxInFlight(512)
+ *     .withMaxInFlightPerHost(128)
+ *     .build();
+ * BulkExecutor.Result result = executor.execute(statements);
+ * if (result.getFailed() &gt; 0)
+ *     ...
+ * </pre>
+ * <p/>
+ * Each statement is executed with {@link Session#executeAsync(Statement)}, so the
+ * {@link RetryPolicy} of the statement (or of the cluster) applies first; a {@link FailureHandler}
+ * then decides what to do with the statements that still fail: retry them, skip them, or stop the
+ * whole execution. Failed statements are reported in the {@link Result}, and progress can be
+ * monitored while {@link #execute} runs with the counters of this object.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class BulkExecutor {
+
+    /**
+     * Decides what to do when a statement fails.
+     * <p/>
+     * Note that this is called on a driver thread: implementations must not block.
+     */
+    public interface FailureHandler {
+
+        /**
+         * What to do with a failed statement.
+         */
+        enum Decision {
+            /**
+             * Execute the statement again, after a delay (see {@link Builder#withRetryDelay(long, TimeUnit)}).
+             */
+            RETRY,
+            /**
+             * Report the statement as failed and move on.
+             */
+            SKIP,
+            /**
+             * Report the statement as failed, and stop executing new statements: {@link #execute}
+             * returns once the requests in flight have completed.
+             */
+            ABORT
+        }
+
+        /**
+         * Called when a statement has failed.
+         *
+         * @param statement the statement.
+         * @param error     the error (after the driver's {@link RetryPolicy} was applied).
+         * @param attempts  the number of times the statement has been executed so far.
+         * @return what to do with the statement.
+         */
+        Decision onFailure(Statement statement, Throwable error, int attempts);
+    }
+
+    /**
+     * A failure handler that skips failed statements.
+     */
+    public static final FailureHandler SKIP_FAILURES = new FailureHandler() {
+        @Override
+        public Decision onFailure(Statement statement, Throwable error, int attempts) {
+            return Decision.SKIP;
+        }
+    };
+
+    /**
+     * A statement that failed, and its last error.
+     */
+    public static class Failure {
+        private final Statement statement;
+        private final Throwable error;
+
+        Failure(Statement statement, Throwable error) {
+            this.statement = statement;
+            this.error = error;
+        }
+
+        /**
+         * @return the statement that failed.
+         */
+        public Statement getStatement() {
+            return statement;
+        }
+
+        /**
+         * @return the last error of the statement.
+         */
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+    /**
+     * The outcome of a call to {@link #execute}.
+     */
+    public static class Result {
+        private final long succeeded;
+        private final long failed;
+        private final boolean aborted;
+        private final List<Failure> failures;
+
+        Result(long succeeded, long failed, boolean aborted, List<Failure> failures) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.aborted = aborted;
+            this.failures = failures;
+        }
+
+        /**
+         * @return the number of statements that were executed successfully.
+         */
+        public long getSucceeded() {
+            return succeeded;
+        }
+
+        /**
+         * @return the number of statements that failed.
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * @return whether the execution was stopped by the {@link FailureHandler}, in which case
+         * some statements were not executed.
+         */
+        public boolean isAborted() {
+            return aborted;
+        }
+
+        /**
+         * Returns the statements that failed, in the order they failed, up to the limit set with
+         * {@link Builder#withMaxReportedFailures(int)}.
+         *
+         * @return the failures (an immutable list).
+         */
+        public List<Failure> getFailures() {
+            return failures;
+        }
+    }
+
+    /**
+     * The default maximum number of requests in flight: 1024.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+    /**
+     * The default maximum number of failures reported in a {@link Result}: 1000.
+     */
+    public static final int DEFAULT_MAX_REPORTED_FAILURES = 1000;
+
+    /**
+     * The default delay before the first retry of a statement: 100 milliseconds.
+     */
+    public static final long DEFAULT_RETRY_DELAY_MILLIS = 100;
+
+    // The retry delay doubles with each attempt, up to 2^MAX_RETRY_DELAY_SHIFT times the initial delay
+    private static final int MAX_RETRY_DELAY_SHIFT = 6;
+
+    private final Session session;
+    private final int maxInFlight;
+    private final int maxInFlightPerHost;
+    private final FailureHandler failureHandler;
+    private final int maxReportedFailures;
+    private final long retryDelayNanos;
+    private volatile ScheduledExecutorService scheduler;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private BulkExecutor(Session session, int maxInFlight, int maxInFlightPerHost, FailureHandler failureHandler, int maxReportedFailures, long retryDelayNanos, ScheduledExecutorService scheduler) {
+        this.session = session;
+        this.maxInFlight = maxInFlight;
+        this.maxInFlightPerHost = maxInFlightPerHost;
+        this.failureHandler = failureHandler;
+        this.maxReportedFailures = maxReportedFailures;
+        this.retryDelayNanos = retryDelayNanos;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Creates a new {@link Builder} instance.
+     *
+     * @param session the session to execute statements with.
+     * @return the new builder.
+     */
+    public static BulkExecutor.Builder builder(Session session) {
+        return new Builder(session);
+    }
+
+    /**
+     * Executes statements, and waits until they have all completed.
+     *
+     * @param statements the statements to execute.
+     * @return the outcome of the execution.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     * @see #execute(Iterator)
+     */
+    public Result execute(Iterable<? extends Statement> statements) throws InterruptedException {
+        return execute(statements.iterator());
+    }
+
+    /**
+     * Executes statements, and waits until they have all completed.
+     * <p/>
+     * The iterator is consumed by the calling thread, one statement each time a pending statement
+     * completes. The limits apply to each call separately: concurrent calls on the same executor do
+     * not share them.
+     * <p/>
+     * If the calling thread is interrupted, the execution stops: no other statement is executed or
+     * retried, and the requests already in flight complete in the background.
+     *
+     * @param statements the statements to execute.
+     * @return the outcome of the execution.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public Result execute(Iterator<? extends Statement> statements) throws InterruptedException {
+        Execution execution = new Execution();
+        try {
+            while (true) {
+                // Only pull the next statement once it can be held
+                execution.permits.acquire();
+                if (execution.aborted || !statements.hasNext()) {
+                    execution.permits.release();
+                    break;
+                }
+                Statement statement = statements.next();
+                HostQueue hostQueue = execution.hostQueue(statement);
+                if (hostQueue == null) {
+                    execution.start(statement, null);
+                } else {
+                    // Never wait for a busy host here, that would also hold back the statements of the other hosts
+                    hostQueue.backlog.add(statement);
+                    hostQueue.drain();
+                }
+            }
+            // Wait for the pending statements
+            execution.permits.acquire(maxInFlight);
+        } catch (InterruptedException e) {
+            execution.aborted = true;
+            throw e;
+        }
+        return new Result(execution.succeeded.get(), execution.failed.get(), execution.aborted,
+                Collections.unmodifiableList(new ArrayList<Failure>(execution.failures)));
+    }
+
+    /**
+     * @return the number of statements submitted for execution so far, by all calls to
+     * {@link #execute} (not counting retries).
+     */
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    /**
+     * @return the number of statements executed successfully so far, by all calls to {@link #execute}.
+     */
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    /**
+     * @return the number of statements that have failed so far, by all calls to {@link #execute}.
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return the number of times a statement was retried because of the {@link FailureHandler} so
+     * far, by all calls to {@link #execute}.
+     */
+    public long getRetried() {
+        return retried.get();
+    }
+
+    /**
+     * @return the number of statements currently being executed, by all calls to {@link #execute}.
+     */
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    private ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            // Use the cluster's executor for user tasks, it only exists once the cluster is initialized
+            Cluster cluster = session.getCluster();
+            cluster.init();
+            scheduler = cluster.manager.userTasksExecutor;
+        }
+        return scheduler;
+    }
+
+    private class Execution {
+        // One permit per pending statement, whether in flight or in the backlog of its host
+        final Semaphore permits = new Semaphore(maxInFlight);
+        final ConcurrentMap<Host, HostQueue> hostQueues = new ConcurrentHashMap<Host, HostQueue>();
+        final AtomicLong succeeded = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final Queue<Failure> failures = new ConcurrentLinkedQueue<Failure>();
+        final AtomicInteger reportedFailures = new AtomicInteger();
+        volatile boolean aborted;
+
+        // The per-host limit applies to the first replica of the statement (the one that owns its
+        // token), since we can't know which host the load balancing policy will pick.
+        HostQueue hostQueue(Statement statement) {
+            if (maxInFlightPerHost <= 0)
+                return null;
+            Host host = session.getCluster().getMetadata().getFirstReplica(statement);
+            if (host == null)
+                return null;
+            HostQueue hostQueue = hostQueues.get(host);
+            if (hostQueue == null) {
+                HostQueue previous = hostQueues.putIfAbsent(host, hostQueue = new HostQueue(this));
+                if (previous != null)
+                    hostQueue = previous;
+            }
+            return hostQueue;
+        }
+
+        // Sends a statement for the first time
+        void start(Statement statement, HostQueue hostQueue) {
+            submitted.incrementAndGet();
+            inFlight.incrementAndGet();
+            send(statement, hostQueue, 1);
+        }
+
+        void send(final Statement statement, final HostQueue hostQueue, final int attempt) {
+            ResultSetFuture future;
+            try {
+                future = session.executeAsync(statement);
+            } catch (RuntimeException e) {
+                future = null;
+                onFailure(statement, hostQueue, attempt, e);
+            }
+            if (future == null)
+                return;
+
+            Futures.addCallback(future, new FutureCallback<ResultSet>() {
+                @Override
+                public void onSuccess(ResultSet rs) {
+                    succeeded.incrementAndGet();
+                    BulkExecutor.this.succeeded.incrementAndGet();
+                    release(hostQueue);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    Execution.this.onFailure(statement, hostQueue, attempt, t);
+                }
+            });
+        }
+
+        void onFailure(Statement statement, HostQueue hostQueue, int attempt, Throwable error) {
+            FailureHandler.Decision decision;
+            try {
+                decision = failureHandler.onFailure(statement, error, attempt);
+            } catch (RuntimeException e) {
+                decision = FailureHandler.Decision.ABORT;
+            }
+            if (decision == FailureHandler.Decision.RETRY && !aborted) {
+                retried.incrementAndGet();
+                // Keep the permits
+                scheduleRetry(statement, hostQueue, attempt, error);
+                return;
+            }
+            if (decision == FailureHandler.Decision.ABORT)
+                aborted = true;
+            fail(statement, hostQueue, error);
+        }
+
+        // Never retry inline: the failure may have been signaled on the stack of send(), and would recurse
+        void scheduleRetry(final Statement statement, final HostQueue hostQueue, final int attempt, final Throwable error) {
+            long delay = retryDelayNanos << Math.min(attempt - 1, MAX_RETRY_DELAY_SHIFT);
+            try {
+                scheduler().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (aborted)
+                            fail(statement, hostQueue, error);
+                        else
+                            send(statement, hostQueue, attempt + 1);
+                    }
+                }, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // The scheduler was shut down
+                fail(statement, hostQueue, error);
+            }
+        }
+
+        void fail(Statement statement, HostQueue hostQueue, Throwable error) {
+            failed.incrementAndGet();
+            BulkExecutor.this.failed.incrementAndGet();
+            if (reportedFailures.incrementAndGet() <= maxReportedFailures)
+                failures.add(new Failure(statement, error));
+            release(hostQueue);
+        }
+
+        void release(HostQueue hostQueue) {
+            inFlight.decrementAndGet();
+            permits.release();
+            if (hostQueue != null) {
+                hostQueue.permits.release();
+                // The host has room for the next statement of its backlog
+                hostQueue.drain();
+            }
+        }
+    }
+
+    /**
+     * The statements of a host that are waiting for one of its requests in flight to complete.
+     */
+    private class HostQueue {
+        final Execution execution;
+        final Semaphore permits;
+        final Queue<Statement> backlog = new ConcurrentLinkedQueue<Statement>();
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        HostQueue(Execution execution) {
+            this.execution = execution;
+            this.permits = new Semaphore(maxInFlightPerHost);
+        }
+
+        // Sends statements from the backlog as long as the host has room for them. Callbacks of requests that
+        // complete immediately re-enter this method: in that case the outer call takes care of the next statements.
+        void drain() {
+            while (!backlog.isEmpty() && permits.availablePermits() > 0) {
+                if (!draining.compareAndSet(false, true))
+                    return;
+                try {
+                    while (!backlog.isEmpty() && permits.tryAcquire()) {
+                        Statement statement = backlog.poll();
+                        if (execution.aborted) {
+                            // Never sent
+                            permits.release();
+                            execution.permits.release();
+                        } else {
+                            execution.start(statement, this);
+                        }
+                    }
+                } finally {
+                    draining.set(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper class to build {@link BulkExecutor} instances with a fluent API.
+     */
+    public static class Builder {
+
+        private final Session session;
+
+        private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+        private int maxInFlightPerHost;
+
+        private FailureHandler failureHandler = SKIP_FAILURES;
+
+        private int maxReportedFailures = DEFAULT_MAX_REPORTED_FAILURES;
+
+        private long retryDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_RETRY_DELAY_MILLIS);
+
+        private ScheduledExecutorService scheduler;
+
+        public Builder(Session session) {
+            this.session = session;
+        }
+
+        /**
+         * Sets the maximum number of pending statements: the requests in flight, and the statements
+         * waiting for their host (see {@link #withMaxInFlightPerHost(int)}).
+         *
+         * @param maxInFlight the maximum. It must be strictly positive.
+         *                    The default value is {@link #DEFAULT_MAX_IN_FLIGHT}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withMaxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0)
+                throw new IllegalArgumentException("Invalid maxInFlight, should be > 0, got " + maxInFlight);
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests in flight for the statements owned by a given host.
+         * <p/>
+         * A statement counts against the limit of the first of its replicas (see
+         * {@link Metadata#getReplicas(String, java.nio.ByteBuffer)}); statements without a keyspace or a
+         * routing key are only subject to {@link #withMaxInFlight(int) the global limit}.
+         * <p/>
+         * The statements of a host that has reached the limit are kept aside until one of its requests
+         * completes, without delaying the statements of the other hosts.
+         *
+         * @param maxInFlightPerHost the maximum, or 0 for no per-host limit (the default).
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withMaxInFlightPerHost(int maxInFlightPerHost) {
+            if (maxInFlightPerHost < 0)
+                throw new IllegalArgumentException("Invalid maxInFlightPerHost, should be >= 0, got " + maxInFlightPerHost);
+            this.maxInFlightPerHost = maxInFlightPerHost;
+            return this;
+        }
+
+        /**
+         * Sets the handler that decides what to do with failed statements.
+         *
+         * @param failureHandler the handler. The default is {@link #SKIP_FAILURES}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withFailureHandler(FailureHandler failureHandler) {
+            if (failureHandler == null)
+                throw new IllegalArgumentException("failureHandler cannot be null");
+            this.failureHandler = failureHandler;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of failures reported in a {@link Result} (the others are only
+         * counted).
+         *
+         * @param maxReportedFailures the maximum. The default value is {@link #DEFAULT_MAX_REPORTED_FAILURES}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withMaxReportedFailures(int maxReportedFailures) {
+            if (maxReportedFailures < 0)
+                throw new IllegalArgumentException("Invalid maxReportedFailures, should be >= 0, got " + maxReportedFailures);
+            this.maxReportedFailures = maxReportedFailures;
+            return this;
+        }
+
+        /**
+         * Sets the delay before a statement is retried, when the {@link FailureHandler} decides to.
+         * The delay doubles with each attempt of the same statement, up to 64 times this value.
+         *
+         * @param retryDelay the delay before the first retry. The default value is
+         *                   {@link #DEFAULT_RETRY_DELAY_MILLIS} milliseconds.
+         * @param unit       the unit of {@code retryDelay}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withRetryDelay(long retryDelay, TimeUnit unit) {
+            if (retryDelay < 0)
+                throw new IllegalArgumentException("Invalid retryDelay, should be >= 0, got " + retryDelay);
+            this.retryDelayNanos = unit.toNanos(retryDelay);
+            return this;
+        }
+
+        /**
+         * Sets the executor that retries statements.
+         *
+         * @param scheduler the executor, or {@code null} to use a single-threaded executor of the
+         *                  {@link Cluster}, shared with the driver's other helpers but not with its
+         *                  internal tasks (the default).
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withScheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Build the {@link BulkExecutor} instance.
+         *
+         * @return the {@link BulkExecutor} instance.
+         */
+        public BulkExecutor build() {
+            return new BulkExecutor(session, maxInFlight, maxInFlightPerHost, failureHandler, maxReportedFailures, retryDelayNanos, scheduler);
+        }
+    }
+}
@@ -291,12 +291,18 @@ abstract class CBUtil { // TODO rename
     }
 
     public static void writeValueList(List<ByteBuffer> values, ByteBuf cb) {
+        if (values instanceof BoundStatement.DataWrapper.DeferredValueList) {
+            ((BoundStatement.DataWrapper.DeferredValueList) values).encode(cb);
+            return;
+        }
         cb.writeShort(values.size());
         for (ByteBuffer value : values)
             CBUtil.writeValue(value, cb);
     }
 
     public static int sizeOfValueList(List<ByteBuffer> values) {
+        if (values instanceof BoundStatement.DataWrapper.DeferredValueList)
+            return ((BoundStatement.DataWrapper.DeferredValueList) values).encodedSize();
         int size = 2;
         for (ByteBuffer value : values)
             size += CBUtil.sizeOfValue(value);
@@ -17,6 +17,10 @@ package com.datastax.driver.core;
 
 import com.datastax.driver.core.exceptions.DriverInternalError;
 import com.datastax.driver.core.utils.Bytes;
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,8 +32,10 @@ import java.util.*;
  * DataType.
  *
  * This is modified (and simplified) from Cassandra's TypeParser class to suit
- * our needs. In particular it's not very efficient, but it doesn't really matter
- * since it's rarely used and never in a critical path.
+ * our needs. It is used for every column on every schema refresh, and most
+ * columns of a schema share a small number of distinct (but sometimes long)
+ * type strings, so results are memoized in a bounded cache. This is safe since
+ * the parsed DataType instances are immutable.
  *
  * Note that those methods all throw DriverInternalError when there is a parsing
  * problem because in theory we'll only parse class names coming from Cassandra and
@@ -68,7 +74,26 @@ class CassandraTypeParser {
                     .put("org.apache.cassandra.db.marshal.TimeUUIDType", DataType.timeuuid())
                     .build();
 
+    private static final int CACHE_SIZE = SystemProperties.getInt("com.datastax.driver.TYPE_PARSER_CACHE_SIZE", 1000);
+
+    private static final Cache<String, DataType> dataTypeCache = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build();
+
+    private static final Cache<String, ParseResult> parseResultCache = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build();
+
     static DataType parseOne(String className) {
+        DataType type = dataTypeCache.getIfPresent(className);
+        if (type == null) {
+            type = doParseOne(className);
+            dataTypeCache.put(className, type);
+        }
+        return type;
+    }
+
+    private static DataType doParseOne(String className) {
         boolean frozen = false;
         if (isReversed(className)) {
             // Just skip the ReversedType part, we don't care
@@ -101,7 +126,7 @@ class CassandraTypeParser {
 
             String keyspace = parser.readOne();
             parser.skipBlankAndComma();
-            String typeName = TypeCodec.utf8StringCodec.deserialize(Bytes.fromHexString("0x" + parser.readOne()));
+            String typeName = decodeHexName(parser.readOne());
             parser.skipBlankAndComma();
             Map<String, String> rawFields = parser.getNameAndTypeParameters();
             List<UserType.Field> fields = new ArrayList<UserType.Field>(rawFields.size());
@@ -157,7 +182,23 @@ class CassandraTypeParser {
         return className.startsWith(COLLECTION_TYPE);
     }
 
+    // Names (UDT names, field names and collection column names) are hex-encoded UTF-8 strings
+    private static String decodeHexName(String hex) {
+        if ((hex.length() & 1) == 1)
+            throw new NumberFormatException("Hex-encoded name must have an even length: " + hex);
+        return new String(Bytes.fromRawHexString(hex, 0), Charsets.UTF_8);
+    }
+
     static ParseResult parseWithComposite(String className) {
+        ParseResult result = parseResultCache.getIfPresent(className);
+        if (result == null) {
+            result = doParseWithComposite(className);
+            parseResultCache.put(className, result);
+        }
+        return result;
+    }
+
+    private static ParseResult doParseWithComposite(String className) {
         Parser parser = new Parser(className, 0);
 
         String next = parser.parseNextName();
@@ -167,7 +208,8 @@ class CassandraTypeParser {
         List<String> subClassNames = parser.getTypeParameters();
         int count = subClassNames.size();
         String last = subClassNames.get(count - 1);
-        Map<String, DataType> collections = new HashMap<String, DataType>();
+        // Results are cached and shared, so make sure they can't be modified
+        ImmutableMap.Builder<String, DataType> collections = ImmutableMap.builder();
         if (isCollection(last)) {
             count--;
             Parser collectionParser = new Parser(last, 0);
@@ -177,14 +219,14 @@ class CassandraTypeParser {
                 collections.put(entry.getKey(), parseOne(entry.getValue()));
         }
 
-        List<DataType> types = new ArrayList<DataType>(count);
-        List<Boolean> reversed = new ArrayList<Boolean>(count);
+        ImmutableList.Builder<DataType> types = ImmutableList.builder();
+        ImmutableList.Builder<Boolean> reversed = ImmutableList.builder();
         for (int i = 0; i < count; i++) {
             types.add(parseOne(subClassNames.get(i)));
             reversed.add(isReversed(subClassNames.get(i)));
         }
 
-        return new ParseResult(true, types, reversed, collections);
+        return new ParseResult(true, types.build(), reversed.build(), collections.build());
     }
 
     static class ParseResult {
@@ -224,9 +266,14 @@ class CassandraTypeParser {
         }
 
         public String readOne() {
-            String name = parseNextName();
+            skipBlank();
+            int start = idx;
+            String name = readNextIdentifier();
+            int nameEnd = idx;
             String args = readRawArguments();
-            return name + args;
+            // In the common case there is no blank between the name and its arguments, so we can
+            // return a single substring instead of concatenating both parts
+            return (nameEnd == idx - args.length()) ? str.substring(start, idx) : name + args;
         }
 
         // Assumes we have just read a class name and read it's potential arguments
@@ -315,7 +362,7 @@ class CassandraTypeParser {
                 String bbHex = readNextIdentifier();
                 String name = null;
                 try {
-                    name = TypeCodec.utf8StringCodec.deserialize(Bytes.fromHexString("0x" + bbHex));
+                    name = decodeHexName(bbHex);
                 } catch (NumberFormatException e) {
                     throwSyntaxError(e.getMessage());
                 }
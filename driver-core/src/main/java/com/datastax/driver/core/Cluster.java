@@ -80,6 +80,13 @@ public class Cluster implements Closeable {
 
     private static final int NOTIF_LOCK_TIMEOUT_SECONDS = SystemProperties.getInt("com.datastax.driver.NOTIF_LOCK_TIMEOUT_SECONDS", 60);
 
+    // When a host comes up, the hottest REPREPARE_HOT_SET_SIZE statements are re-prepared before it is
+    // used, the others in the background. Each uses up to REPREPARE_CONNECTIONS connections, with up to
+    // REPREPARE_MAX_IN_FLIGHT requests in flight on each of them.
+    private static final int REPREPARE_HOT_SET_SIZE = SystemProperties.getInt("com.datastax.driver.REPREPARE_HOT_SET_SIZE", 500);
+    private static final int REPREPARE_CONNECTIONS = SystemProperties.getInt("com.datastax.driver.REPREPARE_CONNECTIONS", 2);
+    private static final int REPREPARE_MAX_IN_FLIGHT = SystemProperties.getInt("com.datastax.driver.REPREPARE_MAX_IN_FLIGHT", 64);
+
     final Manager manager;
 
     /**
@@ -672,6 +679,7 @@ public class Cluster implements Closeable {
         private QueryOptions queryOptions;
 
         private NettyOptions nettyOptions = NettyOptions.DEFAULT_INSTANCE;
+        private CodecRegistry codecRegistry;
 
         private Collection<Host.StateListener> listeners;
 
@@ -1217,6 +1225,24 @@ public class Cluster implements Closeable {
             return this;
         }
 
+        /**
+         * Sets the {@link CodecRegistry} to use for the newly created Cluster.
+         * <p/>
+         * The registry is used to convert values with the {@code get(..., Class)} and
+         * {@code set(..., Class)} methods of rows and bound statements, so that application
+         * types can be read from and written to the wire format directly (see {@link Codec}).
+         * <p/>
+         * If no registry is set through this method, a new registry, that only knows about
+         * the driver's built-in conversions, will be used.
+         *
+         * @param codecRegistry the {@link CodecRegistry} to use.
+         * @return this builder.
+         */
+        public Builder withCodecRegistry(CodecRegistry codecRegistry) {
+            this.codecRegistry = codecRegistry;
+            return this;
+        }
+
         /**
          * The configuration that will be used for the new cluster.
          * <p/>
@@ -1242,7 +1268,8 @@ public class Cluster implements Closeable {
                     socketOptions == null ? new SocketOptions() : socketOptions,
                     metricsEnabled ? new MetricsOptions(jmxEnabled) : null,
                     queryOptions == null ? new QueryOptions() : queryOptions,
-                    nettyOptions);
+                    nettyOptions,
+                    codecRegistry == null ? new CodecRegistry() : codecRegistry);
         }
 
         @Override
@@ -1295,11 +1322,23 @@ public class Cluster implements Closeable {
         Connection.Factory connectionFactory;
         ControlConnection controlConnection;
 
-        final ConvictionPolicy.Factory convictionPolicyFactory = new ConvictionPolicy.DefaultConvictionPolicy.Factory();
+        final ConvictionPolicy.Factory convictionPolicyFactory;
 
         ScheduledThreadPoolExecutor reconnectionExecutor;
         ScheduledThreadPoolExecutor scheduledTasksExecutor;
 
+        // See REPREPARE_HOT_SET_SIZE (tests lower these to observe the limits)
+        @VisibleForTesting
+        volatile int reprepareHotSetSize = REPREPARE_HOT_SET_SIZE;
+        @VisibleForTesting
+        volatile int reprepareConnections = REPREPARE_CONNECTIONS;
+        @VisibleForTesting
+        volatile int reprepareMaxInFlight = REPREPARE_MAX_IN_FLIGHT;
+
+        // Timers of helpers used by client code (TokenAwareBatcher, CounterAggregator). Kept apart from
+        // scheduledTasksExecutor so that they can't delay internal tasks; its thread is only started on first use.
+        ScheduledThreadPoolExecutor userTasksExecutor;
+
         // Executor used for tasks that shouldn't be executed on an IO thread. Used for short-lived, generally non-blocking tasks
         ListeningExecutorService executor;
 
@@ -1320,7 +1359,7 @@ public class Cluster implements Closeable {
         // new one join the cluster).
         // Note: we could move this down to the session level, but since prepared statement are global to a node,
         // this would yield a slightly less clear behavior.
-        ConcurrentMap<MD5Digest, PreparedStatement> preparedQueries;
+        PreparedStatementRegistry preparedQueries;
 
         final Set<Host.StateListener> listeners;
         final Set<LatencyTracker> trackers = new CopyOnWriteArraySet<LatencyTracker>();
@@ -1335,6 +1374,10 @@ public class Cluster implements Closeable {
             this.configuration = configuration;
             this.contactPoints = contactPoints;
             this.listeners = new CopyOnWriteArraySet<Host.StateListener>(listeners);
+            PoolingOptions poolingOptions = configuration.getPoolingOptions();
+            this.convictionPolicyFactory = poolingOptions.getConvictionPhiThreshold() > 0
+                    ? new ConvictionPolicy.PhiAccrualConvictionPolicy.Factory(poolingOptions, this)
+                    : new ConvictionPolicy.DefaultConvictionPolicy.Factory();
         }
 
         // Initialization is not too performance intensive and in practice there shouldn't be contention
@@ -1357,13 +1400,14 @@ public class Cluster implements Closeable {
             // scheduledTasksExecutor is used to process C* notifications. So having it mono-threaded ensures notifications are
             // applied in the order received.
             this.scheduledTasksExecutor = new ScheduledThreadPoolExecutor(1, threadFactory("scheduled-task-worker"));
+            this.userTasksExecutor = new ScheduledThreadPoolExecutor(1, threadFactory("user-task-worker"));
 
             this.reaper = new ConnectionReaper(this);
             this.metadata = new Metadata(this);
             this.connectionFactory = new Connection.Factory(this, configuration);
             this.controlConnection = new ControlConnection(this);
             this.metrics = configuration.getMetricsOptions() == null ? null : new Metrics(this);
-            this.preparedQueries = new MapMaker().weakValues().makeMap();
+            this.preparedQueries = new PreparedStatementRegistry();
 
             // create debouncers - at this stage, they are not running yet
             QueryOptions queryOptions = configuration.getQueryOptions();
@@ -1563,6 +1607,7 @@ public class Cluster implements Closeable {
                 // delivery or blocking tasks so we use shutdownNow
                 shutdownNow(reconnectionExecutor);
                 shutdownNow(scheduledTasksExecutor);
+                shutdownNow(userTasksExecutor);
                 shutdownNow(blockingExecutor);
 
                 // but for the worker executor, we want to let submitted tasks finish unless the shutdown is forced.
@@ -2097,8 +2142,8 @@ public class Cluster implements Closeable {
         }
 
         public PreparedStatement addPrepared(PreparedStatement stmt) {
-            PreparedStatement previous = preparedQueries.putIfAbsent(stmt.getPreparedId().id, stmt);
-            if (previous != null) {
+            PreparedStatement previous = preparedQueries.add(stmt);
+            if (previous != stmt) {
                 logger.warn("Re-preparing already prepared query {}. Please note that preparing the same query more than once is "
                         + "generally an anti-pattern and will likely affect performance. Consider preparing the statement only once.", stmt.getQueryString());
 
@@ -2110,16 +2155,24 @@ public class Cluster implements Closeable {
         }
 
         /**
+         * Re-prepares the hottest prepared statements on a host before it gets used (see
+         * {@link PreparedStatementRegistry#byUsage()}), and schedules the others in the background.
+         *
          * @param reusedConnection an existing connection (from a reconnection attempt) that we want to
          *                         reuse to prepare the statements (might be null).
          * @return a connection that the rest of the initialization process can use (it will be made part
          * of a connection pool). Can be reusedConnection, or one that was open in the method.
          */
-        private Connection prepareAllQueries(Host host, Connection reusedConnection) throws InterruptedException, UnsupportedProtocolVersionException, ClusterNameMismatchException {
+        private Connection prepareAllQueries(final Host host, Connection reusedConnection) throws InterruptedException, UnsupportedProtocolVersionException, ClusterNameMismatchException {
             if (preparedQueries.isEmpty())
                 return reusedConnection;
 
-            logger.debug("Preparing {} prepared queries on newly up node {}", preparedQueries.size(), host);
+            List<PreparedStatement> statements = preparedQueries.byUsage();
+            int hotSetSize = Math.min(statements.size(), reprepareHotSetSize);
+            final List<PreparedStatement> coldSet = statements.subList(hotSetSize, statements.size());
+
+            logger.debug("Preparing {} prepared queries on newly up node {} ({} in the background)", statements.size(), host, coldSet.size());
+            long start = System.nanoTime();
             Connection connection = null;
             try {
                 connection = (reusedConnection == null)
@@ -2132,44 +2185,30 @@ public class Cluster implements Closeable {
                     // As below, just move on
                 }
 
-                // Furthermore, along with each prepared query we keep the current keyspace at the time of preparation
-                // as we need to make it is the same when we re-prepare on new/restarted nodes. Most query will use the
-                // same keyspace so keeping it each time is slightly wasteful, but this doesn't really matter and is
-                // simpler. Besides, we do avoid in prepareAllQueries to not set the current keyspace more than needed.
-
-                // We need to make sure we prepared every query with the right current keyspace, i.e. the one originally
-                // used for preparing it. However, since we are likely that all prepared query belong to only a handful
-                // of different keyspace (possibly only one), and to avoid setting the current keyspace more than needed,
-                // we first sort the query per keyspace.
-                SetMultimap<String, String> perKeyspace = HashMultimap.create();
-                for (PreparedStatement ps : preparedQueries.values()) {
-                    // It's possible for a query to not have a current keyspace. But since null doesn't work well as
-                    // map keys, we use the empty string instead (that is not a valid keyspace name).
-                    String keyspace = ps.getQueryKeyspace() == null ? "" : ps.getQueryKeyspace();
-                    perKeyspace.put(keyspace, ps.getQueryString());
-                }
-
-                for (String keyspace : perKeyspace.keySet()) {
-                    // Empty string mean no particular keyspace to set
-                    if (!keyspace.isEmpty())
-                        connection.setKeyspace(keyspace);
-
-                    List<Connection.Future> futures = new ArrayList<Connection.Future>(preparedQueries.size());
-                    for (String query : perKeyspace.get(keyspace)) {
-                        futures.add(connection.write(new Requests.Prepare(query)));
-                    }
-                    for (Connection.Future future : futures) {
-                        try {
-                            future.get();
-                        } catch (ExecutionException e) {
-                            // This "might" happen if we drop a CF but haven't removed it's prepared queries (which we don't do
-                            // currently). It's not a big deal however as if it's a more serious problem it'll show up later when
-                            // the query is tried for execution.
-                            logger.debug("Unexpected error while preparing queries on new/newly up host", e);
+                reprepare(host, connection, statements.subList(0, hotSetSize));
+                if (metrics != null)
+                    metrics.getReprepareOnUpTimer().update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                if (!coldSet.isEmpty()) {
+                    blockingExecutor.submit(new ExceptionCatchingRunnable() {
+                        @Override
+                        public void runMayThrow() throws Exception {
+                            Connection connection = null;
+                            try {
+                                connection = connectionFactory.open(host);
+                                reprepare(host, connection, coldSet);
+                            } catch (ConnectionException e) {
+                                // Not a big deal, the statements will be re-prepared on the fly if needed
+                                logger.debug("Error while preparing queries in the background on newly up host", e);
+                            } catch (BusyConnectionException e) {
+                                logger.debug("Error while preparing queries in the background on newly up host", e);
+                            } finally {
+                                if (connection != null)
+                                    connection.closeAsync();
+                            }
                         }
-                    }
+                    });
                 }
-
                 return connection;
             } catch (ConnectionException e) {
                 // Ignore, not a big deal
@@ -2191,6 +2230,85 @@ public class Cluster implements Closeable {
             }
         }
 
+        /**
+         * Prepares the given statements on a host, in order, using {@code connection} and up to
+         * {@code reprepareConnections - 1} additional connections (that are closed before returning).
+         */
+        private void reprepare(Host host, Connection connection, List<PreparedStatement> statements)
+                throws ConnectionException, BusyConnectionException, InterruptedException, UnsupportedProtocolVersionException, ClusterNameMismatchException {
+            if (statements.isEmpty())
+                return;
+
+            // Along with each prepared query we keep the current keyspace at the time of preparation, as we need
+            // to make sure it is the same when we re-prepare on new/restarted nodes. Queries are likely to belong
+            // to only a handful of different keyspaces (possibly only one), so to avoid setting the current keyspace
+            // more than needed we group them per keyspace, in order of their hottest query.
+            Map<String, List<String>> perKeyspace = new LinkedHashMap<String, List<String>>();
+            for (PreparedStatement ps : statements) {
+                // It's possible for a query to not have a current keyspace. But since null doesn't work well as
+                // map keys, we use the empty string instead (that is not a valid keyspace name).
+                String keyspace = ps.getQueryKeyspace() == null ? "" : ps.getQueryKeyspace();
+                List<String> queries = perKeyspace.get(keyspace);
+                if (queries == null)
+                    perKeyspace.put(keyspace, queries = new ArrayList<String>());
+                queries.add(ps.getQueryString());
+            }
+
+            int maxInFlight = reprepareMaxInFlight;
+            List<Connection> connections = new ArrayList<Connection>();
+            connections.add(connection);
+            int wanted = Math.min(reprepareConnections, (statements.size() + maxInFlight - 1) / maxInFlight);
+            try {
+                for (int i = 1; i < wanted; i++) {
+                    try {
+                        connections.add(connectionFactory.open(host));
+                    } catch (ConnectionException e) {
+                        // Make do with the connections we have
+                        break;
+                    } catch (AuthenticationException e) {
+                        break;
+                    }
+                }
+
+                final Semaphore inFlight = new Semaphore(maxInFlight * connections.size());
+                Runnable release = new Runnable() {
+                    @Override
+                    public void run() {
+                        inFlight.release();
+                    }
+                };
+                for (Map.Entry<String, List<String>> entry : perKeyspace.entrySet()) {
+                    String keyspace = entry.getKey();
+                    // Empty string mean no particular keyspace to set
+                    if (!keyspace.isEmpty())
+                        for (Connection c : connections)
+                            c.setKeyspace(keyspace);
+
+                    List<Connection.Future> futures = new ArrayList<Connection.Future>(entry.getValue().size());
+                    int i = 0;
+                    for (String query : entry.getValue()) {
+                        inFlight.acquire();
+                        Connection.Future future = connections.get(i++ % connections.size()).write(new Requests.Prepare(query));
+                        future.addListener(release, MoreExecutors.sameThreadExecutor());
+                        futures.add(future);
+                    }
+                    for (Connection.Future future : futures) {
+                        try {
+                            future.get();
+                        } catch (ExecutionException e) {
+                            // This "might" happen if we drop a CF but haven't removed it's prepared queries (which we don't do
+                            // currently). It's not a big deal however as if it's a more serious problem it'll show up later when
+                            // the query is tried for execution.
+                            logger.debug("Unexpected error while preparing queries on new/newly up host", e);
+                        }
+                    }
+                }
+            } finally {
+                for (int i = 1; i < connections.size(); i++)
+                    connections.get(i).closeAsync();
+            }
+        }
+
         ListenableFuture<Void> submitSchemaRefresh(final SchemaElement targetType, final String targetKeyspace, final String targetName) {
             SchemaRefreshRequest request = new SchemaRefreshRequest(targetType, targetKeyspace, targetName);
             logger.trace("Submitting schema refresh: {}", request);
@@ -2421,6 +2539,7 @@ public class Cluster implements Closeable {
                         try {
                             reconnectionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
                             scheduledTasksExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+                            userTasksExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
                             executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
                             blockingExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
 
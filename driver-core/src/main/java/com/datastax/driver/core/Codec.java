@@ -0,0 +1,96 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts between a CQL type and a Java type.
+ * <p/>
+ * The driver comes with built-in conversions between each CQL type and the Java type returned by
+ * {@link DataType#asJavaClass()}. Implementing this class allows to convert directly between a CQL
+ * type and an application-specific type instead (for example, a CQL {@code timestamp} and a Joda
+ * {@code DateTime}, or a CQL {@code text} holding JSON and a domain object), without going through
+ * an intermediary object. Codecs are registered with a {@link CodecRegistry}, and are used by the
+ * {@code get(..., Class)} and {@code set(..., Class)} methods of {@link GettableData} and
+ * {@link SettableData} implementations of rows and bound statements.
+ * <p/>
+ * Implementations must be thread-safe.
+ *
+ * @param <T> the Java type handled by this codec.
+ */
+public abstract class Codec<T> {
+
+    private final DataType cqlType;
+    private final Class<T> javaType;
+
+    /**
+     * Creates a new codec.
+     *
+     * @param cqlType  the CQL type handled by this codec.
+     * @param javaType the Java type handled by this codec.
+     */
+    protected Codec(DataType cqlType, Class<T> javaType) {
+        if (cqlType == null || javaType == null)
+            throw new NullPointerException("cqlType and javaType can't be null");
+        this.cqlType = cqlType;
+        this.javaType = javaType;
+    }
+
+    /**
+     * Returns the CQL type handled by this codec.
+     *
+     * @return the CQL type.
+     */
+    public DataType getCqlType() {
+        return cqlType;
+    }
+
+    /**
+     * Returns the Java type handled by this codec.
+     *
+     * @return the Java type.
+     */
+    public Class<T> getJavaType() {
+        return javaType;
+    }
+
+    /**
+     * Serializes a value into the binary format of the CQL type.
+     *
+     * @param value           the value to serialize. It can be {@code null}.
+     * @param protocolVersion the protocol version in use.
+     * @return the serialized value, or {@code null} to represent a CQL {@code NULL}.
+     */
+    public abstract ByteBuffer serialize(T value, ProtocolVersion protocolVersion);
+
+    /**
+     * Deserializes a value from the binary format of the CQL type.
+     * <p/>
+     * Implementations must not modify the position of {@code bytes}.
+     *
+     * @param bytes           the bytes to deserialize. It is {@code null} (or empty for some types)
+     *                        if the value is a CQL {@code NULL}.
+     * @param protocolVersion the protocol version in use.
+     * @return the deserialized value.
+     */
+    public abstract T deserialize(ByteBuffer bytes, ProtocolVersion protocolVersion);
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s <-> %s]", getClass().getSimpleName(), cqlType, javaType.getName());
+    }
+}
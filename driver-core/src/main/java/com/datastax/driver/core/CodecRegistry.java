@@ -0,0 +1,203 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A registry of {@link Codec}s, used to find the codec to convert between a given CQL type and a
+ * given Java type.
+ * <p/>
+ * A registry always knows about the driver's built-in conversions (between each CQL type and the
+ * Java type returned by {@link DataType#asJavaClass()}). Additional codecs can be registered with
+ * {@link #register(Codec[])}; when several codecs handle the same pair of types, the last one
+ * registered wins, and a registered codec also takes precedence over the built-in conversion.
+ * <p/>
+ * Each {@link Cluster} has its own registry (see {@link Cluster.Builder#withCodecRegistry(CodecRegistry)}
+ * and {@link Configuration#getCodecRegistry()}). The result of each lookup is cached, so codecs
+ * should preferably be registered before the cluster is used.
+ * <p/>
+ * A registry can also cache the decoded values of low-cardinality text columns, see
+ * {@link #cacheStrings(String, String, String, int)}.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class CodecRegistry {
+
+    // Only used where no cluster is available
+    static final CodecRegistry BUILT_IN = new CodecRegistry();
+
+    private final CopyOnWriteArrayList<Codec<?>> codecs = new CopyOnWriteArrayList<Codec<?>>();
+
+    // Two levels so that a lookup doesn't need to allocate a composite key.
+    // Replaced (not cleared) when codecs are registered: a lookup that started before can only
+    // populate the map it read, which is discarded, so it can't leave a stale entry behind.
+    private volatile ConcurrentMap<DataType, ConcurrentMap<Class<?>, Codec<?>>> cache = new ConcurrentHashMap<DataType, ConcurrentMap<Class<?>, Codec<?>>>();
+
+    static final int MAX_STRING_CACHE_SIZE = 65536;
+
+    // keyed by keyspace.table.column
+    private final ConcurrentMap<String, StringCache> stringCaches = new ConcurrentHashMap<String, StringCache>();
+
+    /**
+     * Registers new codecs.
+     *
+     * @param codecs the codecs to register.
+     * @return this registry.
+     */
+    public synchronized CodecRegistry register(Codec<?>... codecs) {
+        for (Codec<?> codec : codecs) {
+            if (codec == null)
+                throw new NullPointerException("codec can't be null");
+            // Most recently registered first
+            this.codecs.add(0, codec);
+        }
+        cache = new ConcurrentHashMap<DataType, ConcurrentMap<Class<?>, Codec<?>>>();
+        return this;
+    }
+
+    /**
+     * Returns the codec to convert between the given CQL and Java types.
+     *
+     * @param cqlType  the CQL type.
+     * @param javaType the Java type.
+     * @param <T>      the Java type.
+     * @return the codec.
+     * @throws InvalidTypeException if no codec can handle the two types.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> codecFor(DataType cqlType, Class<T> javaType) {
+        // Read the cache before the codecs, see register()
+        ConcurrentMap<DataType, ConcurrentMap<Class<?>, Codec<?>>> cache = this.cache;
+        ConcurrentMap<Class<?>, Codec<?>> byJavaType = cache.get(cqlType);
+        if (byJavaType != null) {
+            Codec<?> codec = byJavaType.get(javaType);
+            if (codec != null)
+                return (Codec<T>) codec;
+        }
+
+        Codec<T> codec = lookup(cqlType, javaType);
+        if (byJavaType == null) {
+            byJavaType = new ConcurrentHashMap<Class<?>, Codec<?>>();
+            ConcurrentMap<Class<?>, Codec<?>> previous = cache.putIfAbsent(cqlType, byJavaType);
+            if (previous != null)
+                byJavaType = previous;
+        }
+        byJavaType.putIfAbsent(javaType, codec);
+        return codec;
+    }
+
+    /**
+     * Caches the decoded values of a text column.
+     * <p/>
+     * This is intended for columns that hold a small set of distinct values (status, country or type
+     * codes...) but are read very often: {@link Row#getString} then returns the same {@code String}
+     * instance for all the cells that hold the same value, instead of decoding each cell. This
+     * saves both the decoding and the memory retained by the rows that are kept around.
+     * <p/>
+     * The cache is bounded: once {@code maxValues} distinct values have been cached, any other value
+     * is decoded as usual. Calling this method again for the same column replaces its cache.
+     *
+     * @param keyspace  the keyspace of the column's table, as returned by {@link ColumnDefinitions#getKeyspace(int)}.
+     * @param table     the column's table, as returned by {@link ColumnDefinitions#getTable(int)}.
+     * @param column    the column, as returned by {@link ColumnDefinitions#getName(int)}.
+     * @param maxValues the maximum number of distinct values to cache.
+     * @return this registry.
+     * @throws IllegalArgumentException if {@code maxValues} is not strictly positive, or greater than 65536.
+     */
+    public CodecRegistry cacheStrings(String keyspace, String table, String column, int maxValues) {
+        if (maxValues <= 0 || maxValues > MAX_STRING_CACHE_SIZE)
+            throw new IllegalArgumentException(String.format("Invalid maxValues %d, must be between 1 and %d", maxValues, MAX_STRING_CACHE_SIZE));
+        stringCaches.put(stringCacheKey(keyspace, table, column), new StringCache(maxValues));
+        return this;
+    }
+
+    /**
+     * Returns the string caches for each column of {@code metadata}, or {@code null} if there are none.
+     * This is done once per result set, not once per row.
+     */
+    StringCache[] stringCachesFor(ColumnDefinitions metadata) {
+        if (stringCaches.isEmpty())
+            return null;
+
+        StringCache[] caches = null;
+        for (int i = 0; i < metadata.size(); i++) {
+            StringCache cache = stringCaches.get(stringCacheKey(metadata.getKeyspace(i), metadata.getTable(i), metadata.getName(i)));
+            if (cache != null) {
+                if (caches == null)
+                    caches = new StringCache[metadata.size()];
+                caches[i] = cache;
+            }
+        }
+        return caches;
+    }
+
+    private static String stringCacheKey(String keyspace, String table, String column) {
+        return keyspace + '.' + table + '.' + column;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Codec<T> lookup(DataType cqlType, Class<T> javaType) {
+        for (Codec<?> codec : codecs) {
+            if (codec.getCqlType().equals(cqlType) && codec.getJavaType().equals(javaType))
+                return (Codec<T>) codec;
+        }
+        if (cqlType.asJavaClass().equals(javaType))
+            return new BuiltInCodec<T>(cqlType, javaType);
+
+        throw new InvalidTypeException(String.format("No codec found to convert between CQL type %s and Java type %s", cqlType, javaType.getName()));
+    }
+
+    /**
+     * Exposes the driver's internal conversion for a CQL type.
+     */
+    private static class BuiltInCodec<T> extends Codec<T> {
+
+        BuiltInCodec(DataType cqlType, Class<T> javaType) {
+            super(cqlType, javaType);
+        }
+
+        @Override
+        public ByteBuffer serialize(T value, ProtocolVersion protocolVersion) {
+            return value == null ? null : getCqlType().serialize(value, protocolVersion);
+        }
+
+        @Override
+        public T deserialize(ByteBuffer bytes, ProtocolVersion protocolVersion) {
+            DataType cqlType = getCqlType();
+            if (bytes == null) {
+                // Consistent with GettableByIndexData#getObject
+                switch (cqlType.getName()) {
+                    case LIST:
+                        return getJavaType().cast(Collections.emptyList());
+                    case SET:
+                        return getJavaType().cast(Collections.emptySet());
+                    case MAP:
+                        return getJavaType().cast(Collections.emptyMap());
+                    default:
+                        return null;
+                }
+            }
+            return getJavaType().cast(cqlType.deserialize(bytes, protocolVersion));
+        }
+    }
+}
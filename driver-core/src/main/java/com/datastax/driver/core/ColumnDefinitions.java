@@ -60,23 +60,66 @@ public class ColumnDefinitions implements Iterable<ColumnDefinitions.Definition>
     static final ColumnDefinitions EMPTY = new ColumnDefinitions(new Definition[0]);
 
     private final Definition[] byIdx;
+
+    // Name lookups are resolved once here rather than on each by-name access, so that the common
+    // cases don't allocate. byName is keyed by the exact (unquoted) names of the columns, which map
+    // to all the columns with the same name modulo case, and by their double-quoted names, which map
+    // to the columns with exactly that name. byNameIgnoreCase handles the remaining unquoted names.
     private final Map<String, int[]> byName;
+    private final Map<String, int[]> byNameIgnoreCase;
 
     ColumnDefinitions(Definition[] defs) {
 
         this.byIdx = defs;
-        this.byName = new HashMap<String, int[]>(defs.length);
 
+        Map<String, int[]> byLowerCaseName = new HashMap<String, int[]>(defs.length);
         for (int i = 0; i < defs.length; i++) {
             // Be optimistic, 99% of the time, previous will be null.
-            int[] previous = this.byName.put(defs[i].name.toLowerCase(), new int[]{i});
+            int[] previous = byLowerCaseName.put(defs[i].name.toLowerCase(), new int[]{i});
             if (previous != null) {
                 int[] indexes = new int[previous.length + 1];
                 System.arraycopy(previous, 0, indexes, 0, previous.length);
                 indexes[indexes.length - 1] = i;
-                this.byName.put(defs[i].name.toLowerCase(), indexes);
+                byLowerCaseName.put(defs[i].name.toLowerCase(), indexes);
             }
         }
+
+        this.byName = new HashMap<String, int[]>(defs.length * 2);
+        this.byNameIgnoreCase = new TreeMap<String, int[]>(String.CASE_INSENSITIVE_ORDER);
+        for (Definition def : defs) {
+            // A name that looks quoted is always looked up as a quoted name
+            if (isQuoted(def.name))
+                continue;
+            int[] indexes = byLowerCaseName.get(def.name.toLowerCase());
+            byName.put(def.name, indexes);
+            byNameIgnoreCase.put(def.name, indexes);
+        }
+        for (Definition def : defs)
+            byName.put('"' + def.name + '"', exactMatches(def.name, byLowerCaseName.get(def.name.toLowerCase())));
+    }
+
+    private static boolean isQuoted(String name) {
+        return name.length() >= 2 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"';
+    }
+
+    private int[] exactMatches(String name, int[] indexes) {
+        // First, optimistic and assume all are matching
+        int nbMatch = 0;
+        for (int i = 0; i < indexes.length; i++)
+            if (name.equals(byIdx[indexes[i]].name))
+                nbMatch++;
+
+        if (nbMatch == indexes.length)
+            return indexes;
+
+        int[] result = new int[nbMatch];
+        int j = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            int idx = indexes[i];
+            if (name.equals(byIdx[idx].name))
+                result[j++] = idx;
+        }
+        return result;
     }
 
     /**
@@ -230,34 +273,12 @@ public class ColumnDefinitions implements Iterable<ColumnDefinitions.Definition>
     }
 
     int[] findAllIdx(String name) {
-        boolean caseSensitive = false;
-        if (name.length() >= 2 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"') {
-            name = name.substring(1, name.length() - 1);
-            caseSensitive = true;
-        }
-
-        int[] indexes = byName.get(name.toLowerCase());
-        if (!caseSensitive || indexes == null)
-            return indexes;
-
-        // First, optimistic and assume all are matching
-        int nbMatch = 0;
-        for (int i = 0; i < indexes.length; i++)
-            if (name.equals(byIdx[indexes[i]].name))
-                nbMatch++;
-
-        if (nbMatch == indexes.length)
+        int[] indexes = byName.get(name);
+        if (indexes != null)
             return indexes;
 
-        int[] result = new int[nbMatch];
-        int j = 0;
-        for (int i = 0; i < indexes.length; i++) {
-            int idx = indexes[i];
-            if (name.equals(byIdx[idx].name))
-                result[j++] = idx;
-        }
-
-        return result;
+        // A quoted name must match exactly, so it would have been found above
+        return isQuoted(name) ? null : byNameIgnoreCase.get(name);
     }
 
     int[] getAllIdx(String name) {
@@ -27,6 +27,7 @@ import com.datastax.driver.core.policies.Policies;
  * <li>Metrics related options.</li>
  * <li>Query related options (default consistency level, fetchSize, ...).</li>
  * <li>Netty layer customization options.</li>
+ * <li>Codecs for custom conversions between CQL and Java types.</li>
  * </ul>
  * This is also where you get the configured policies, though those cannot be changed
  * (they are set during the built of the Cluster object).
@@ -41,6 +42,7 @@ public class Configuration {
     private final MetricsOptions metricsOptions;
     private final QueryOptions queryOptions;
     private final NettyOptions nettyOptions;
+    private final CodecRegistry codecRegistry;
 
     /*
      * Creates a configuration object.
@@ -52,7 +54,8 @@ public class Configuration {
                 new SocketOptions(),
                 new MetricsOptions(),
                 new QueryOptions(),
-                NettyOptions.DEFAULT_INSTANCE);
+                NettyOptions.DEFAULT_INSTANCE,
+                new CodecRegistry());
     }
 
     /**
@@ -65,6 +68,7 @@ public class Configuration {
      * @param metricsOptions  the metrics options, or null to disable metrics.
      * @param queryOptions    defaults related to queries.
      * @param nettyOptions    the {@link NettyOptions} instance to use
+     * @param codecRegistry   the {@link CodecRegistry} instance to use
      */
     public Configuration(Policies policies,
                          ProtocolOptions protocolOptions,
@@ -72,7 +76,8 @@ public class Configuration {
                          SocketOptions socketOptions,
                          MetricsOptions metricsOptions,
                          QueryOptions queryOptions,
-                         NettyOptions nettyOptions) {
+                         NettyOptions nettyOptions,
+                         CodecRegistry codecRegistry) {
         this.policies = policies;
         this.protocolOptions = protocolOptions;
         this.poolingOptions = poolingOptions;
@@ -80,6 +85,22 @@ public class Configuration {
         this.metricsOptions = metricsOptions;
         this.queryOptions = queryOptions;
         this.nettyOptions = nettyOptions;
+        this.codecRegistry = codecRegistry;
+    }
+
+    /**
+     * @deprecated this constructor is provided for backward compatibility.
+     */
+    @Deprecated
+    public Configuration(Policies policies,
+                         ProtocolOptions protocolOptions,
+                         PoolingOptions poolingOptions,
+                         SocketOptions socketOptions,
+                         MetricsOptions metricsOptions,
+                         QueryOptions queryOptions,
+                         NettyOptions nettyOptions) {
+        this(policies, protocolOptions, poolingOptions, socketOptions, metricsOptions, queryOptions,
+                nettyOptions, new CodecRegistry());
     }
 
     /**
@@ -93,7 +114,7 @@ public class Configuration {
                          MetricsOptions metricsOptions,
                          QueryOptions queryOptions) {
         this(policies, protocolOptions, poolingOptions, socketOptions, metricsOptions, queryOptions,
-                NettyOptions.DEFAULT_INSTANCE);
+                NettyOptions.DEFAULT_INSTANCE, new CodecRegistry());
     }
 
     void register(Cluster.Manager manager) {
@@ -167,4 +188,13 @@ public class Configuration {
     public NettyOptions getNettyOptions() {
         return nettyOptions;
     }
+
+    /**
+     * Returns the {@link CodecRegistry} instance for this configuration.
+     *
+     * @return the {@link CodecRegistry} instance for this configuration.
+     */
+    public CodecRegistry getCodecRegistry() {
+        return codecRegistry;
+    }
 }
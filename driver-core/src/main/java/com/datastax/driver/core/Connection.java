@@ -97,6 +97,9 @@ class Connection {
 
     private final AtomicReference<Owner> ownerRef = new AtomicReference<Owner>();
 
+    // The conviction policy of the host, resolved on the first response
+    private volatile ConvictionPolicy convictionPolicy;
+
     /**
      * /**
      * Create a new connection to a Cassandra node and associate it with the given pool.
@@ -570,6 +573,17 @@ class Connection {
         };
     }
 
+    private void signalResponse() {
+        ConvictionPolicy policy = convictionPolicy;
+        if (policy == null) {
+            Host host = factory.manager.metadata.getHost(address);
+            if (host == null)
+                return;
+            convictionPolicy = policy = host.convictionPolicy;
+        }
+        policy.signalResponse(this);
+    }
+
     boolean hasOwner() {
         return this.ownerRef.get() != null;
     }
@@ -1002,6 +1016,7 @@ class Connection {
                 return;
             }
             handler.cancelTimeout();
+            signalResponse();
             handler.callback.onSet(Connection.this, response, System.nanoTime() - handler.startTime, handler.retryCount);
 
             // If we happen to be closed and we're the last outstanding request, we need to terminate the connection
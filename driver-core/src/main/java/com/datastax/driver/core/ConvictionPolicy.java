@@ -16,7 +16,10 @@
 package com.datastax.driver.core;
 
 import com.datastax.driver.core.policies.ReconnectionPolicy;
+import com.google.common.annotations.VisibleForTesting;
 
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -51,6 +54,14 @@ abstract class ConvictionPolicy {
      */
     abstract boolean signalConnectionFailure(Connection connection);
 
+    /**
+     * Called when a response (including a heartbeat response) is received on a connection to the host
+     * this policy applies to.
+     * <p/>
+     * This is called for every response, so implementations should be cheap.
+     */
+    abstract void signalResponse(Connection connection);
+
     abstract boolean canReconnectNow();
 
     /**
@@ -70,12 +81,12 @@ abstract class ConvictionPolicy {
     static class DefaultConvictionPolicy extends ConvictionPolicy {
         private final Host host;
         private final ReconnectionPolicy reconnectionPolicy;
-        private final AtomicInteger openConnections = new AtomicInteger();
+        final AtomicInteger openConnections = new AtomicInteger();
 
         private volatile long nextReconnectionTime = Long.MIN_VALUE;
         private ReconnectionPolicy.ReconnectionSchedule reconnectionSchedule;
 
-        private DefaultConvictionPolicy(Host host, ReconnectionPolicy reconnectionPolicy) {
+        DefaultConvictionPolicy(Host host, ReconnectionPolicy reconnectionPolicy) {
             this.host = host;
             this.reconnectionPolicy = reconnectionPolicy;
         }
@@ -119,11 +130,16 @@ abstract class ConvictionPolicy {
             nextReconnectionTime = now + NANOSECONDS.convert(nextDelayMs, MILLISECONDS);
         }
 
-        private synchronized void resetReconnectionTime() {
+        synchronized void resetReconnectionTime() {
             reconnectionSchedule = null;
             nextReconnectionTime = Long.MIN_VALUE;
         }
 
+        @Override
+        void signalResponse(Connection connection) {
+            // nothing to do
+        }
+
         @Override
         boolean canReconnectNow() {
             return nextReconnectionTime == Long.MIN_VALUE ||
@@ -138,4 +154,195 @@ abstract class ConvictionPolicy {
             }
         }
     }
+
+    /**
+     * A policy that uses a phi-accrual failure detector to decide whether a host should be convicted
+     * when its last connection fails.
+     * <p/>
+     * The arrival times of the responses received from the host (including heartbeat responses, see
+     * {@link PoolingOptions#setHeartbeatIntervalSeconds(int)}) are sampled. When the last connection
+     * to the host fails, the host is only considered down if the suspicion level phi, computed from the
+     * time elapsed since the last response, reaches {@link PoolingOptions#getConvictionPhiThreshold()}.
+     * Otherwise the host is only suspected: it stays up, the pool tries to replace the failed connection(s)
+     * right away, and the host is convicted later if it still has no connections once phi reaches the threshold.
+     * <p/>
+     * This policy is never more aggressive than {@link DefaultConvictionPolicy}: if there are not enough
+     * samples yet, or if the threshold is reset to 0, it behaves exactly like it.
+     */
+    static class PhiAccrualConvictionPolicy extends DefaultConvictionPolicy {
+
+        // Assuming exponentially distributed inter-arrival times (like Cassandra's own FailureDetector does),
+        // phi = -log10(e^(-t/mean)) = t / mean * log10(e)
+        private static final double PHI_FACTOR = 1.0 / Math.log(10.0);
+
+        private static final int SAMPLE_WINDOW_SIZE = 1000;
+        private static final int MIN_SAMPLES = 10;
+
+        // Under load, responses arrive at a very high rate. Sampling at most that often keeps the overhead
+        // negligible, and prevents a tiny mean interval from making phi over-sensitive to short pauses.
+        private static final long MIN_SAMPLE_INTERVAL_NANOS = NANOSECONDS.convert(100, MILLISECONDS);
+
+        private final Host host;
+        private final PoolingOptions poolingOptions;
+        private final Cluster.Manager manager;
+        private final AtomicBoolean recheckScheduled = new AtomicBoolean();
+
+        // Ring buffer of the last inter-arrival times (in nanoseconds), guarded by this
+        private final long[] intervals = new long[SAMPLE_WINDOW_SIZE];
+        private int nextInterval;
+        private int intervalCount;
+        private long intervalSum;
+
+        private volatile long lastArrival = Long.MIN_VALUE;
+
+        private PhiAccrualConvictionPolicy(Host host, ReconnectionPolicy reconnectionPolicy, PoolingOptions poolingOptions, Cluster.Manager manager) {
+            super(host, reconnectionPolicy);
+            this.host = host;
+            this.poolingOptions = poolingOptions;
+            this.manager = manager;
+        }
+
+        @Override
+        void signalResponse(Connection connection) {
+            long now = System.nanoTime();
+            long last = lastArrival;
+            if (last != Long.MIN_VALUE && now - last < MIN_SAMPLE_INTERVAL_NANOS)
+                return;
+            recordArrival(now);
+        }
+
+        @VisibleForTesting
+        synchronized void recordArrival(long now) {
+            long last = lastArrival;
+            if (last != Long.MIN_VALUE) {
+                long interval = now - last;
+                if (interval < MIN_SAMPLE_INTERVAL_NANOS)
+                    // Someone else recorded an arrival before us
+                    return;
+                if (intervalCount == SAMPLE_WINDOW_SIZE)
+                    intervalSum -= intervals[nextInterval];
+                else
+                    intervalCount += 1;
+                intervals[nextInterval] = interval;
+                intervalSum += interval;
+                nextInterval = (nextInterval + 1) % SAMPLE_WINDOW_SIZE;
+            }
+            lastArrival = now;
+        }
+
+        /**
+         * Returns the current suspicion level for the host, or 0 if there are not enough samples
+         * to compute it.
+         */
+        double phi() {
+            return phi(System.nanoTime());
+        }
+
+        @VisibleForTesting
+        synchronized double phi(long now) {
+            if (intervalCount < MIN_SAMPLES)
+                return 0;
+            double meanInterval = (double) intervalSum / intervalCount;
+            return PHI_FACTOR * (now - lastArrival) / meanInterval;
+        }
+
+        /**
+         * Returns how long it will take for phi to reach {@code threshold} if no response arrives in the meantime.
+         */
+        @VisibleForTesting
+        synchronized long nanosUntilConviction(long now, double threshold) {
+            double meanInterval = (double) intervalSum / intervalCount;
+            return lastArrival + (long) (threshold / PHI_FACTOR * meanInterval) - now;
+        }
+
+        private synchronized boolean hasEnoughSamples() {
+            return intervalCount >= MIN_SAMPLES;
+        }
+
+        private synchronized void resetSamples() {
+            nextInterval = 0;
+            intervalCount = 0;
+            intervalSum = 0;
+            lastArrival = Long.MIN_VALUE;
+        }
+
+        @Override
+        boolean signalConnectionFailure(Connection connection) {
+            boolean noConnectionsLeft = super.signalConnectionFailure(connection);
+            if (!noConnectionsLeft)
+                return false;
+
+            double threshold = poolingOptions.getConvictionPhiThreshold();
+            if (threshold > 0 && hasEnoughSamples()) {
+                double phi = phi();
+                if (phi < threshold) {
+                    Host.statesLogger.debug("[{}] suspected but not convicted (phi = {}, threshold = {})", host, phi, threshold);
+                    // The failure delayed new connections, but the host is still up: let the pool reconnect right away
+                    resetReconnectionTime();
+                    scheduleRecheck(threshold);
+                    return false;
+                }
+                Host.statesLogger.debug("[{}] convicted (phi = {}, threshold = {})", host, phi, threshold);
+            }
+            // The host will be marked down: the downtime should not be taken into account once it comes back up
+            resetSamples();
+            return true;
+        }
+
+        private void scheduleRecheck(double threshold) {
+            if (!recheckScheduled.compareAndSet(false, true))
+                return;
+            long delay = Math.max(nanosUntilConviction(System.nanoTime(), threshold), MIN_SAMPLE_INTERVAL_NANOS);
+            try {
+                manager.reconnectionExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        recheckScheduled.set(false);
+                        recheck();
+                    }
+                }, delay, NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // The cluster is shutting down
+                recheckScheduled.set(false);
+            }
+        }
+
+        /**
+         * Convicts a suspected host if it still has no connections, and phi has reached the threshold.
+         */
+        @VisibleForTesting
+        void recheck() {
+            if (host.state == Host.State.DOWN || openConnections.get() > 0)
+                // Either already convicted, or reconnected (in which case further failures will be signaled as usual)
+                return;
+
+            double threshold = poolingOptions.getConvictionPhiThreshold();
+            if (threshold > 0 && hasEnoughSamples()) {
+                double phi = phi();
+                if (phi < threshold) {
+                    scheduleRecheck(threshold);
+                    return;
+                }
+                Host.statesLogger.debug("[{}] convicted (phi = {}, threshold = {})", host, phi, threshold);
+            }
+            resetSamples();
+            manager.triggerOnDown(host, true);
+        }
+
+        static class Factory implements ConvictionPolicy.Factory {
+
+            private final PoolingOptions poolingOptions;
+            private final Cluster.Manager manager;
+
+            Factory(PoolingOptions poolingOptions, Cluster.Manager manager) {
+                this.poolingOptions = poolingOptions;
+                this.manager = manager;
+            }
+
+            @Override
+            public ConvictionPolicy create(Host host, ReconnectionPolicy reconnectionPolicy) {
+                return new PhiAccrualConvictionPolicy(host, reconnectionPolicy, poolingOptions, manager);
+            }
+        }
+    }
 }
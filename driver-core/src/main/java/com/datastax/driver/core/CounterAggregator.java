@@ -0,0 +1,430 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregates counter increments on the client, to write the sum of the increments of each counter
+ * instead of each increment.
+ * <p/>
+ * Increments are given with a prepared counter update, whose first variable is the delta and the
+ * others identify the counter:
+ * <pre>
+ * PreparedStatement incr = session.prepare("UPDATE page_views SET views = views + ? WHERE page = ? AND day = ?");
+ * CounterAggregator aggregator = CounterAggregator.builder(session).build();
+ * ...
+ * aggregator.increment(incr, 1, "/index.html", day);
+ * </pre>
+ * The deltas are summed per statement and key in a concurrent map (which is lock-striped, so
+ * increments from many threads don't contend on a single lock), and flushed periodically (see
+ * {@link Builder#withFlushInterval(long, TimeUnit)}), when there are too many pending counters
+ * (see {@link Builder#withMaxPendingCounters(int)}), or when {@link #flush()} is called. A flush writes
+ * one update per counter, grouped into {@code COUNTER} batches per partition by a
+ * {@link TokenAwareBatcher}, so that each batch can be sent directly to a replica.
+ * <p/>
+ * Counter updates are not idempotent: the updates of a failed batch are not retried (they may or
+ * may not have been applied). Failures are logged, counted (see {@link #getFailedWrites()}), and
+ * reported by the future returned by {@link #flush()}. Increments that were not flushed yet are
+ * lost if the process dies: {@link #close()} the aggregator to flush them on shutdown.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class CounterAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CounterAggregator.class);
+
+    /**
+     * The default interval between two periodic flushes: 1000 milliseconds.
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The default number of pending counters that triggers a flush: 10000.
+     */
+    public static final int DEFAULT_MAX_PENDING_COUNTERS = 10000;
+
+    // Marks a delta that is being flushed: increments retry until it's removed from the map
+    private static final long FLUSHING = Long.MIN_VALUE;
+
+    private static final Function<List<ResultSet>, Void> TO_VOID = new Function<List<ResultSet>, Void>() {
+        @Override
+        public Void apply(List<ResultSet> input) {
+            return null;
+        }
+    };
+
+    private static final FutureCallback<Void> WARN_ON_FAILURE = new FutureCallback<Void>() {
+        @Override
+        public void onSuccess(Void result) {
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            logger.warn("Error while writing aggregated counters", t);
+        }
+    };
+
+    private final Session session;
+    private final TokenAwareBatcher batcher;
+    private final long flushIntervalNanos;
+    private final int maxPendingCounters;
+    private volatile ScheduledExecutorService scheduler;
+
+    private final ConcurrentMap<Key, AtomicLong> deltas = new ConcurrentHashMap<Key, AtomicLong>();
+    private final AtomicInteger pendingCounters = new AtomicInteger();
+    private final AtomicLong increments = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+
+    private final Object flushTaskLock = new Object();
+    private ScheduledFuture<?> flushTask;
+    private volatile boolean closed;
+
+    private CounterAggregator(Builder builder) {
+        this.session = builder.session;
+        this.batcher = TokenAwareBatcher.builder(builder.session)
+                .withBatchType(BatchStatement.Type.COUNTER)
+                .withGrouping(builder.grouping)
+                .withMaxStatements(builder.maxBatchStatements)
+                .withLinger(0, TimeUnit.MILLISECONDS)
+                .withConsistencyLevel(builder.consistencyLevel)
+                .build();
+        this.flushIntervalNanos = builder.flushIntervalNanos;
+        this.maxPendingCounters = builder.maxPendingCounters;
+        this.scheduler = builder.scheduler;
+    }
+
+    /**
+     * Creates a new {@link Builder} instance.
+     *
+     * @param session the session to write the counters with.
+     * @return the new builder.
+     */
+    public static CounterAggregator.Builder builder(Session session) {
+        return new Builder(session);
+    }
+
+    /**
+     * Adds a delta to a counter.
+     *
+     * @param statement the counter update. Its first variable is the delta, and the others the key.
+     * @param delta     the delta.
+     * @param key       the values of the other variables of {@code statement}.
+     * @throws IllegalStateException                                    if this aggregator is closed.
+     * @throws com.datastax.driver.core.exceptions.InvalidTypeException if the key does not match the
+     *                                                                  variables of {@code statement}.
+     */
+    public void increment(PreparedStatement statement, long delta, Object... key) {
+        if (closed)
+            throw new IllegalStateException("Cannot increment counters once the aggregator is closed");
+        Key k = new Key(statement, key);
+        while (true) {
+            AtomicLong counter = deltas.get(k);
+            if (counter == null) {
+                // Fail now, rather than when flushing, if the key can't be bound
+                k.bind(delta);
+                // The map keeps a copy of the key, the caller may reuse its array
+                if (deltas.putIfAbsent(k.copy(), new AtomicLong(delta)) == null) {
+                    increments.incrementAndGet();
+                    // If closed, close() raced with this call and its flush may have missed the new counter
+                    if (pendingCounters.incrementAndGet() >= maxPendingCounters || closed)
+                        Futures.addCallback(flush(), WARN_ON_FAILURE);
+                    else
+                        maybeScheduleFlushes();
+                    return;
+                }
+            } else {
+                long current = counter.get();
+                if (current != FLUSHING && counter.compareAndSet(current, current + delta)) {
+                    increments.incrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all the pending counters.
+     *
+     * @return a future that completes when all the counters are written, or fails if a batch failed.
+     */
+    public ListenableFuture<Void> flush() {
+        List<ListenableFuture<ResultSet>> futures = new ArrayList<ListenableFuture<ResultSet>>();
+        for (Map.Entry<Key, AtomicLong> entry : deltas.entrySet()) {
+            AtomicLong counter = entry.getValue();
+            long delta = counter.getAndSet(FLUSHING);
+            if (delta == FLUSHING)
+                continue; // Flushed by another thread
+            deltas.remove(entry.getKey(), counter);
+            pendingCounters.decrementAndGet();
+            if (delta == 0)
+                continue;
+            writes.incrementAndGet();
+            ListenableFuture<ResultSet> future = batcher.add(entry.getKey().bind(delta));
+            Futures.addCallback(future, new FutureCallback<ResultSet>() {
+                @Override
+                public void onSuccess(ResultSet result) {
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    failedWrites.incrementAndGet();
+                }
+            });
+            futures.add(future);
+        }
+        batcher.flush();
+        return Futures.transform(Futures.allAsList(futures), TO_VOID);
+    }
+
+    /**
+     * Stops the periodic flushes, and writes all the pending counters.
+     * <p/>
+     * Counters can't be incremented once this method was called. Increments that are concurrent
+     * with this call may be written by a later flush, not covered by the returned future (failures
+     * are still logged and counted in {@link #getFailedWrites()}).
+     *
+     * @return a future that completes when all the counters are written, or fails if a batch failed.
+     */
+    public ListenableFuture<Void> close() {
+        closed = true;
+        synchronized (flushTaskLock) {
+            if (flushTask != null)
+                flushTask.cancel(false);
+        }
+        return flush();
+    }
+
+    private void maybeScheduleFlushes() {
+        if (flushIntervalNanos == 0)
+            return;
+        synchronized (flushTaskLock) {
+            if (flushTask != null || closed)
+                return;
+            if (scheduler == null) {
+                // Use the cluster's executor for user tasks, it only exists once the cluster is initialized
+                Cluster cluster = session.getCluster();
+                cluster.init();
+                scheduler = cluster.manager.userTasksExecutor;
+            }
+            flushTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    Futures.addCallback(flush(), WARN_ON_FAILURE);
+                }
+            }, flushIntervalNanos, flushIntervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Returns the number of increments received so far.
+     * <p/>
+     * The ratio between this and {@link #getWrites()} is how much the increments were merged.
+     *
+     * @return the number of calls to {@link #increment(PreparedStatement, long, Object...)}.
+     */
+    public long getIncrements() {
+        return increments.get();
+    }
+
+    /**
+     * Returns the number of counter updates written so far (or being written).
+     *
+     * @return the number of updates.
+     */
+    public long getWrites() {
+        return writes.get();
+    }
+
+    /**
+     * Returns the number of counter updates that failed (as part of a failed batch).
+     *
+     * @return the number of failed updates.
+     */
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    /**
+     * Returns the number of counters with increments that were not flushed yet.
+     *
+     * @return the number of pending counters.
+     */
+    public int getPendingCounters() {
+        return pendingCounters.get();
+    }
+
+    private static class Key {
+        private final PreparedStatement statement;
+        private final Object[] values;
+
+        Key(PreparedStatement statement, Object[] values) {
+            this.statement = statement;
+            this.values = values;
+        }
+
+        Key copy() {
+            return new Key(statement, values.clone());
+        }
+
+        BoundStatement bind(long delta) {
+            Object[] variables = new Object[values.length + 1];
+            variables[0] = delta;
+            System.arraycopy(values, 0, variables, 1, values.length);
+            return statement.bind(variables);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this)
+                return true;
+            if (!(other instanceof Key))
+                return false;
+            Key that = (Key) other;
+            return this.statement == that.statement && Arrays.equals(this.values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(statement) + Arrays.hashCode(values);
+        }
+    }
+
+    /**
+     * Helper class to build {@link CounterAggregator} instances with a fluent API.
+     */
+    public static class Builder {
+
+        private final Session session;
+        private long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_FLUSH_INTERVAL_MILLIS);
+        private int maxPendingCounters = DEFAULT_MAX_PENDING_COUNTERS;
+        private TokenAwareBatcher.Grouping grouping = TokenAwareBatcher.Grouping.PARTITION;
+        private int maxBatchStatements = TokenAwareBatcher.DEFAULT_MAX_STATEMENTS;
+        private ConsistencyLevel consistencyLevel;
+        private ScheduledExecutorService scheduler;
+
+        public Builder(Session session) {
+            this.session = session;
+        }
+
+        /**
+         * Sets the interval between two periodic flushes.
+         *
+         * @param flushInterval the interval, or 0 to only flush when there are too many pending
+         *                      counters or on {@link CounterAggregator#flush()}. The default value is
+         *                      {@link #DEFAULT_FLUSH_INTERVAL_MILLIS} milliseconds.
+         * @param unit          the unit of {@code flushInterval}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withFlushInterval(long flushInterval, TimeUnit unit) {
+            if (flushInterval < 0)
+                throw new IllegalArgumentException("Invalid flushInterval, should be >= 0, got " + flushInterval);
+            this.flushIntervalNanos = unit.toNanos(flushInterval);
+            return this;
+        }
+
+        /**
+         * Sets the number of pending counters that triggers a flush.
+         *
+         * @param maxPendingCounters the number of counters. It must be strictly positive.
+         *                           The default value is {@link #DEFAULT_MAX_PENDING_COUNTERS}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withMaxPendingCounters(int maxPendingCounters) {
+            if (maxPendingCounters <= 0)
+                throw new IllegalArgumentException("Invalid maxPendingCounters, should be > 0, got " + maxPendingCounters);
+            this.maxPendingCounters = maxPendingCounters;
+            return this;
+        }
+
+        /**
+         * Sets how counter updates are grouped into batches.
+         *
+         * @param grouping the grouping. The default is {@link TokenAwareBatcher.Grouping#PARTITION}.
+         * @return this {@link Builder} instance (for method chaining).
+         * @see TokenAwareBatcher.Builder#withGrouping(TokenAwareBatcher.Grouping)
+         */
+        public Builder withGrouping(TokenAwareBatcher.Grouping grouping) {
+            if (grouping == null)
+                throw new IllegalArgumentException("grouping cannot be null");
+            this.grouping = grouping;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of counter updates in a batch.
+         *
+         * @param maxBatchStatements the maximum. It must be strictly positive.
+         *                           The default value is {@link TokenAwareBatcher#DEFAULT_MAX_STATEMENTS}.
+         * @return this {@link Builder} instance (for method chaining).
+         * @see TokenAwareBatcher.Builder#withMaxStatements(int)
+         */
+        public Builder withMaxBatchStatements(int maxBatchStatements) {
+            if (maxBatchStatements <= 0 || maxBatchStatements > 0xFFFF)
+                throw new IllegalArgumentException("Invalid maxBatchStatements, should be > 0 and <= 65535, got " + maxBatchStatements);
+            this.maxBatchStatements = maxBatchStatements;
+            return this;
+        }
+
+        /**
+         * Sets the consistency level of the counter batches.
+         *
+         * @param consistencyLevel the consistency level, or {@code null} to use the default one
+         *                         (see {@link QueryOptions#getConsistencyLevel()}).
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withConsistencyLevel(ConsistencyLevel consistencyLevel) {
+            this.consistencyLevel = consistencyLevel;
+            return this;
+        }
+
+        /**
+         * Sets the executor that runs the periodic flushes.
+         *
+         * @param scheduler the executor, or {@code null} to use a single-threaded executor of the
+         *                  {@link Cluster}, shared with the driver's other helpers but not with its
+         *                  internal tasks (the default).
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withScheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Builds the {@link CounterAggregator} instance.
+         *
+         * @return the {@link CounterAggregator} instance.
+         */
+        public CounterAggregator build() {
+            return new CounterAggregator(this);
+        }
+    }
+}
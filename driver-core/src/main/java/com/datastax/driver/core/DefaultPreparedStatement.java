@@ -35,19 +35,37 @@ public class DefaultPreparedStatement implements IdempotenceAwarePreparedStateme
     volatile RetryPolicy retryPolicy;
     volatile Boolean idempotent;
 
-    private DefaultPreparedStatement(PreparedId id, String query, String queryKeyspace) {
+    final CodecRegistry codecRegistry;
+
+    // Usage statistics, to re-prepare the hottest statements first when a host comes back up (see
+    // PreparedStatementRegistry). They are plain fields updated without synchronization on each
+    // execution, so the count is approximate under contention, which is fine for that purpose. The
+    // time of last use is only refreshed every LAST_USED_SAMPLING executions.
+    long uses;
+    long lastUsed;
+
+    private static final int LAST_USED_SAMPLING = 64;
+
+    private DefaultPreparedStatement(PreparedId id, String query, String queryKeyspace, CodecRegistry codecRegistry) {
         this.preparedId = id;
         this.query = query;
         this.queryKeyspace = queryKeyspace;
+        this.codecRegistry = codecRegistry;
+    }
+
+    void recordUsage() {
+        long uses = ++this.uses;
+        if (uses % LAST_USED_SAMPLING == 1)
+            lastUsed = System.currentTimeMillis();
     }
 
-    static DefaultPreparedStatement fromMessage(Responses.Result.Prepared msg, Metadata clusterMetadata, ProtocolVersion protocolVersion, String query, String queryKeyspace) {
+    static DefaultPreparedStatement fromMessage(Responses.Result.Prepared msg, Metadata clusterMetadata, ProtocolVersion protocolVersion, CodecRegistry codecRegistry, String query, String queryKeyspace) {
         assert msg.metadata.columns != null;
 
         ColumnDefinitions defs = msg.metadata.columns;
 
         if (defs.size() == 0)
-            return new DefaultPreparedStatement(new PreparedId(msg.statementId, defs, msg.resultMetadata.columns, null, protocolVersion), query, queryKeyspace);
+            return new DefaultPreparedStatement(new PreparedId(msg.statementId, defs, msg.resultMetadata.columns, null, protocolVersion), query, queryKeyspace, codecRegistry);
 
         List<ColumnMetadata> partitionKeyColumns = null;
         int[] pkIndexes = null;
@@ -68,7 +86,7 @@ public class DefaultPreparedStatement implements IdempotenceAwarePreparedStateme
 
         PreparedId prepId = new PreparedId(msg.statementId, defs, msg.resultMetadata.columns, allSet(pkIndexes) ? pkIndexes : null, protocolVersion);
 
-        return new DefaultPreparedStatement(prepId, query, queryKeyspace);
+        return new DefaultPreparedStatement(prepId, query, queryKeyspace, codecRegistry);
     }
 
     private static void maybeGetIndex(String name, int j, List<ColumnMetadata> pkColumns, int[] pkIndexes) {
@@ -309,6 +309,48 @@ public interface GettableByIndexData {
      */
     public <K, V> Map<K, V> getMap(int i, TypeToken<K> keysType, TypeToken<V> valuesType);
 
+    /**
+     * Returns the {@code i}th value, a list or set of {@code INT}, as an array of {@code int}.
+     * <p/>
+     * The elements are decoded directly into the array, which makes this method much
+     * cheaper than {@code getList(i, Integer.class)} for large collections.
+     *
+     * @param i the index ({@code 0 <= i < size()}) to retrieve.
+     * @return the value of the {@code i}th element as an array. If the value is NULL,
+     * an empty array is returned.
+     * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this object.
+     * @throws InvalidTypeException      if value {@code i} is not a list or set of {@code INT}.
+     */
+    public int[] getIntArray(int i);
+
+    /**
+     * Returns the {@code i}th value, a list or set of {@code BIGINT}, as an array of {@code long}.
+     * <p/>
+     * The elements are decoded directly into the array, which makes this method much
+     * cheaper than {@code getList(i, Long.class)} for large collections.
+     *
+     * @param i the index ({@code 0 <= i < size()}) to retrieve.
+     * @return the value of the {@code i}th element as an array. If the value is NULL,
+     * an empty array is returned.
+     * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this object.
+     * @throws InvalidTypeException      if value {@code i} is not a list or set of {@code BIGINT}.
+     */
+    public long[] getLongArray(int i);
+
+    /**
+     * Returns the {@code i}th value, a list or set of {@code DOUBLE}, as an array of {@code double}.
+     * <p/>
+     * The elements are decoded directly into the array, which makes this method much
+     * cheaper than {@code getList(i, Double.class)} for large collections.
+     *
+     * @param i the index ({@code 0 <= i < size()}) to retrieve.
+     * @return the value of the {@code i}th element as an array. If the value is NULL,
+     * an empty array is returned.
+     * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this object.
+     * @throws InvalidTypeException      if value {@code i} is not a list or set of {@code DOUBLE}.
+     */
+    public double[] getDoubleArray(int i);
+
     /**
      * Return the {@code i}th value as a UDT value.
      *
@@ -341,4 +383,22 @@ public interface GettableByIndexData {
      * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this object.
      */
     public Object getObject(int i);
-}
\ No newline at end of file
+
+    /**
+     * Returns the {@code i}th value converted to the given Java type.
+     * <p/>
+     * The conversion is done by the {@link Codec} that the {@link CodecRegistry} in use
+     * returns for the CQL type of the value and {@code targetClass}. This can be a
+     * built-in conversion (if {@code targetClass} is the class returned by
+     * {@link DataType#asJavaClass()}) or a user-registered codec.
+     *
+     * @param i           the index to retrieve.
+     * @param targetClass the Java type to convert to.
+     * @param <V>         the Java type to convert to.
+     * @return the value of the {@code i}th value converted to {@code targetClass}.
+     * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this object.
+     * @throws InvalidTypeException      if no codec can convert the CQL type of value {@code i}
+     *                                   to {@code targetClass}.
+     */
+    public <V> V get(int i, Class<V> targetClass);
+}
@@ -308,6 +308,45 @@ public interface GettableByNameData {
      */
     public <K, V> Map<K, V> getMap(String name, TypeToken<K> keysType, TypeToken<V> valuesType);
 
+    /**
+     * Returns the value for {@code name}, a list or set of {@code INT}, as an array of {@code int}.
+     * <p/>
+     * See {@link GettableByIndexData#getIntArray(int)} for details.
+     *
+     * @param name the name to retrieve.
+     * @return the value for {@code name} as an array. If the value is NULL,
+     * an empty array is returned.
+     * @throws IllegalArgumentException if {@code name} is not a valid name for this object.
+     * @throws InvalidTypeException     if value {@code name} is not a list or set of {@code INT}.
+     */
+    public int[] getIntArray(String name);
+
+    /**
+     * Returns the value for {@code name}, a list or set of {@code BIGINT}, as an array of {@code long}.
+     * <p/>
+     * See {@link GettableByIndexData#getLongArray(int)} for details.
+     *
+     * @param name the name to retrieve.
+     * @return the value for {@code name} as an array. If the value is NULL,
+     * an empty array is returned.
+     * @throws IllegalArgumentException if {@code name} is not a valid name for this object.
+     * @throws InvalidTypeException     if value {@code name} is not a list or set of {@code BIGINT}.
+     */
+    public long[] getLongArray(String name);
+
+    /**
+     * Returns the value for {@code name}, a list or set of {@code DOUBLE}, as an array of {@code double}.
+     * <p/>
+     * See {@link GettableByIndexData#getDoubleArray(int)} for details.
+     *
+     * @param name the name to retrieve.
+     * @return the value for {@code name} as an array. If the value is NULL,
+     * an empty array is returned.
+     * @throws IllegalArgumentException if {@code name} is not a valid name for this object.
+     * @throws InvalidTypeException     if value {@code name} is not a list or set of {@code DOUBLE}.
+     */
+    public double[] getDoubleArray(String name);
+
     /**
      * Return the value for {@code name} as a UDT value.
      *
@@ -340,4 +379,19 @@ public interface GettableByNameData {
      * @throws IllegalArgumentException if {@code name} is not a valid name for this object.
      */
     Object getObject(String name);
-}
\ No newline at end of file
+
+    /**
+     * Returns the value for {@code name} converted to the given Java type.
+     * <p/>
+     * See {@link GettableByIndexData#get(int, Class)} for details.
+     *
+     * @param name        the name to retrieve.
+     * @param targetClass the Java type to convert to.
+     * @param <V>         the Java type to convert to.
+     * @return the value for {@code name} converted to {@code targetClass}.
+     * @throws IllegalArgumentException if {@code name} is not a valid name for this object.
+     * @throws InvalidTypeException     if no codec can convert the CQL type of value {@code name}
+     *                                  to {@code targetClass}.
+     */
+    public <V> V get(String name, Class<V> targetClass);
+}
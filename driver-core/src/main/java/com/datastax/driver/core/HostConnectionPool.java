@@ -535,7 +535,10 @@ class HostConnectionPool implements Connection.Owner {
 
         // Don't try to replace the connection now. Connection.defunct already signaled the failure,
         // and either the host will be marked DOWN (which destroys all pools), or we want to prevent
-        // new connections for some time
+        // new connections for some time. The exception is a host that the conviction policy only
+        // suspects: it allows new connections right away, so restore the pool without waiting for a request.
+        if (connections.isEmpty() && host.state != Host.State.DOWN && host.convictionPolicy.canReconnectNow())
+            ensureCoreConnections();
     }
 
     void cleanupIdleConnections(long now) {
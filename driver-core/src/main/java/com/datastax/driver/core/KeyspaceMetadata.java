@@ -15,11 +15,12 @@
  */
 package com.datastax.driver.core;
 
+import com.google.common.collect.ImmutableMap;
+
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Describes a keyspace defined in this cluster.
@@ -37,8 +38,10 @@ public class KeyspaceMetadata {
     private final ReplicationStrategy strategy;
     private final Map<String, String> replication;
 
-    final Map<String, TableMetadata> tables = new ConcurrentHashMap<String, TableMetadata>();
-    final Map<String, UserType> userTypes = new ConcurrentHashMap<String, UserType>();
+    // Immutable snapshots, replaced as a whole on updates (see Metadata#rebuildSchema). Updates
+    // must be done while holding this object's monitor.
+    volatile Map<String, TableMetadata> tables = ImmutableMap.of();
+    volatile Map<String, UserType> userTypes = ImmutableMap.of();
 
     private KeyspaceMetadata(String name, boolean durableWrites, Map<String, String> replication) {
         this.name = name;
@@ -100,8 +103,11 @@ public class KeyspaceMetadata {
         return tables.get(Metadata.handleId(name));
     }
 
-    TableMetadata removeTable(String table) {
-        return tables.remove(table);
+    synchronized TableMetadata removeTable(String table) {
+        TableMetadata removed = tables.get(table);
+        if (removed != null)
+            tables = without(tables, table);
+        return removed;
     }
 
     /**
@@ -135,8 +141,20 @@ public class KeyspaceMetadata {
         return Collections.<UserType>unmodifiableCollection(userTypes.values());
     }
 
-    UserType removeUserType(String userType) {
-        return userTypes.remove(userType);
+    synchronized UserType removeUserType(String userType) {
+        UserType removed = userTypes.get(userType);
+        if (removed != null)
+            userTypes = without(userTypes, userType);
+        return removed;
+    }
+
+    private static <T> Map<String, T> without(Map<String, T> map, String name) {
+        ImmutableMap.Builder<String, T> builder = ImmutableMap.builder();
+        for (Map.Entry<String, T> entry : map.entrySet()) {
+            if (!entry.getKey().equals(name))
+                builder.put(entry);
+        }
+        return builder.build();
     }
 
     /**
@@ -227,12 +245,14 @@ public class KeyspaceMetadata {
         return result;
     }
 
-    void add(TableMetadata tm) {
-        tables.put(tm.getName(), tm);
-    }
-
-    void add(UserType type) {
-        userTypes.put(type.getTypeName(), type);
+    /**
+     * Whether this keyspace has the same definition as {@code other}, not taking its tables and
+     * user types into account.
+     */
+    boolean hasSameDefinition(KeyspaceMetadata other) {
+        return name.equals(other.name)
+                && durableWrites == other.durableWrites
+                && replication.equals(other.replication);
     }
 
     ReplicationStrategy replicationStrategy() {
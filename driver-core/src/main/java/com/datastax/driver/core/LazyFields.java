@@ -0,0 +1,70 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The serialized form of a UDT or tuple value, split into fields only as they get accessed.
+ * <p/>
+ * Even though field values are only decoded by the getters, locating them in the serialized form
+ * means walking all the fields and creating a buffer for each one of them, when wide UDTs are often
+ * read for a couple of fields. So fields are located lazily, up to the last one accessed. As long as
+ * no field is set, the original bytes can also be written back as is.
+ * <p/>
+ * Splitting is synchronized, since values read from a row are commonly shared between threads.
+ */
+class LazyFields {
+
+    private final ByteBuffer serialized;
+    // The fields that haven't been split yet
+    private final ByteBuffer input;
+    // Number of fields split so far (the values of all these fields are set)
+    private volatile int split;
+
+    LazyFields(ByteBuffer serialized) {
+        this.serialized = serialized;
+        this.input = serialized.duplicate();
+    }
+
+    /**
+     * Makes sure the fields up to {@code i} (included) have been split in {@code values}.
+     */
+    void splitUpTo(int i, ByteBuffer[] values) {
+        if (i < split)
+            return;
+
+        synchronized (this) {
+            int n = split;
+            while (n <= i && n < values.length && input.hasRemaining()) {
+                int size = input.getInt();
+                values[n++] = size < 0 ? null : TypeCodec.readBytes(input, size);
+            }
+            // Trailing fields can be omitted, they are null
+            if (!input.hasRemaining())
+                n = values.length;
+            split = n;
+        }
+    }
+
+    void splitAll(ByteBuffer[] values) {
+        splitUpTo(values.length - 1, values);
+    }
+
+    ByteBuffer serialized() {
+        return serialized.duplicate();
+    }
+}
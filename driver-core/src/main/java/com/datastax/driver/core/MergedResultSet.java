@@ -0,0 +1,201 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.google.common.util.concurrent.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A view on the rows of several result sets of the same query, one after the other.
+ * <p/>
+ * Each result set is paged on its own.
+ */
+class MergedResultSet implements ResultSet {
+
+    private final List<ResultSet> resultSets;
+    // The first result set that may still have rows
+    private int current;
+
+    MergedResultSet(List<ResultSet> resultSets) {
+        if (resultSets.isEmpty())
+            throw new IllegalArgumentException("Cannot merge an empty list of result sets");
+        this.resultSets = resultSets;
+    }
+
+    private ResultSet current() {
+        while (current < resultSets.size() - 1 && resultSets.get(current).isExhausted())
+            current += 1;
+        return resultSets.get(current);
+    }
+
+    @Override
+    public ColumnDefinitions getColumnDefinitions() {
+        return resultSets.get(0).getColumnDefinitions();
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return current().isExhausted();
+    }
+
+    @Override
+    public Row one() {
+        return current().one();
+    }
+
+    @Override
+    public List<Row> all() {
+        List<Row> rows = new ArrayList<Row>();
+        for (int i = current; i < resultSets.size(); i++)
+            rows.addAll(resultSets.get(i).all());
+        current = resultSets.size() - 1;
+        return rows;
+    }
+
+    @Override
+    public Iterator<Row> iterator() {
+        return new Iterator<Row>() {
+
+            @Override
+            public boolean hasNext() {
+                return !isExhausted();
+            }
+
+            @Override
+            public Row next() {
+                return one();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public int getAvailableWithoutFetching() {
+        // Only count the rows up to the first result set that would have to fetch
+        int available = 0;
+        for (int i = current; i < resultSets.size(); i++) {
+            ResultSet rs = resultSets.get(i);
+            available += rs.getAvailableWithoutFetching();
+            if (!rs.isFullyFetched())
+                break;
+        }
+        return available;
+    }
+
+    @Override
+    public boolean isFullyFetched() {
+        for (int i = current; i < resultSets.size(); i++)
+            if (!resultSets.get(i).isFullyFetched())
+                return false;
+        return true;
+    }
+
+    @Override
+    public ListenableFuture<Void> fetchMoreResults() {
+        for (int i = current; i < resultSets.size(); i++) {
+            ResultSet rs = resultSets.get(i);
+            if (!rs.isFullyFetched())
+                return rs.fetchMoreResults();
+        }
+        return Futures.immediateFuture(null);
+    }
+
+    @Override
+    public void visit(RowVisitor visitor) {
+        StopTracker tracker = new StopTracker(visitor);
+        while (true) {
+            current().visit(tracker);
+            if (tracker.stopped || current == resultSets.size() - 1)
+                return;
+        }
+    }
+
+    @Override
+    public ListenableFuture<Void> visitAsync(RowVisitor visitor) {
+        SettableFuture<Void> future = SettableFuture.create();
+        visitAsync(new StopTracker(visitor), future);
+        return future;
+    }
+
+    private void visitAsync(final StopTracker tracker, final SettableFuture<Void> future) {
+        Futures.addCallback(current().visitAsync(tracker), new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                if (tracker.stopped || current == resultSets.size() - 1)
+                    future.set(null);
+                else
+                    visitAsync(tracker, future);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.setException(t);
+            }
+        });
+    }
+
+    @Override
+    public ExecutionInfo getExecutionInfo() {
+        return current().getExecutionInfo();
+    }
+
+    @Override
+    public List<ExecutionInfo> getAllExecutionInfo() {
+        List<ExecutionInfo> infos = new ArrayList<ExecutionInfo>();
+        for (ResultSet rs : resultSets)
+            infos.addAll(rs.getAllExecutionInfo());
+        return infos;
+    }
+
+    @Override
+    public boolean wasApplied() {
+        for (ResultSet rs : resultSets)
+            if (!rs.wasApplied())
+                return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultSet[ exhausted: " + isExhausted() + ", " + getColumnDefinitions() + ", merged from " + resultSets.size() + ']';
+    }
+
+    // Remembers whether the visitor asked to stop, so that the visit does not go on with the next result set
+    private static class StopTracker implements RowVisitor {
+        private final RowVisitor visitor;
+        volatile boolean stopped;
+
+        StopTracker(RowVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public boolean visit(Row row) {
+            if (!visitor.visit(row)) {
+                stopped = true;
+                return false;
+            }
+            return true;
+        }
+    }
+}
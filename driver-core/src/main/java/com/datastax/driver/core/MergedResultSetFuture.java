@@ -0,0 +1,111 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.SplitBatchException;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@code ResultSetFuture} for the batches split from a batch: it completes when all of them complete,
+ * with a {@link MergedResultSet} of their results, or with a {@link SplitBatchException} giving the outcome
+ * of each batch if any of them failed.
+ */
+class MergedResultSetFuture extends AbstractFuture<ResultSet> implements ResultSetFuture {
+
+    private final List<BatchStatement> batches;
+    private final List<ResultSetFuture> sources;
+    private final ResultSet[] results;
+    private final Throwable[] errors;
+    private final AtomicInteger remaining;
+
+    MergedResultSetFuture(List<BatchStatement> batches, List<ResultSetFuture> sources) {
+        this.batches = batches;
+        this.sources = sources;
+        this.results = new ResultSet[sources.size()];
+        this.errors = new Throwable[sources.size()];
+        this.remaining = new AtomicInteger(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            final int index = i;
+            Futures.addCallback(sources.get(i), new FutureCallback<ResultSet>() {
+                @Override
+                public void onSuccess(ResultSet result) {
+                    results[index] = result;
+                    maybeComplete();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    errors[index] = t;
+                    maybeComplete();
+                }
+            });
+        }
+    }
+
+    // The AtomicInteger makes the writes to the arrays visible to the thread that completes the future
+    private void maybeComplete() {
+        if (remaining.decrementAndGet() > 0)
+            return;
+        for (Throwable error : errors) {
+            if (error != null) {
+                setException(new SplitBatchException(batches, Arrays.asList(errors)));
+                return;
+            }
+        }
+        List<ResultSet> resultSets = new ArrayList<ResultSet>(results.length);
+        for (ResultSet result : results)
+            resultSets.add(result);
+        set(new MergedResultSet(resultSets));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!super.cancel(mayInterruptIfRunning))
+            return false;
+        for (ResultSetFuture source : sources)
+            source.cancel(mayInterruptIfRunning);
+        return true;
+    }
+
+    @Override
+    public ResultSet getUninterruptibly() {
+        try {
+            return Uninterruptibles.getUninterruptibly(this);
+        } catch (ExecutionException e) {
+            throw DriverThrowables.propagateCause(e);
+        }
+    }
+
+    @Override
+    public ResultSet getUninterruptibly(long timeout, TimeUnit unit) throws TimeoutException {
+        try {
+            return Uninterruptibles.getUninterruptibly(this, timeout, unit);
+        } catch (ExecutionException e) {
+            throw DriverThrowables.propagateCause(e);
+        }
+    }
+}
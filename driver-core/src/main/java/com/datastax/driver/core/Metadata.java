@@ -56,11 +56,11 @@ public class Metadata {
         Map<String, List<Row>> tableRows = groupByKeyspace(cfs);
         Map<String, List<Row>> udtRows = groupByKeyspace(udts);
         Map<String, Map<String, Map<String, ColumnMetadata.Raw>>> colsDefs = groupByKeyspaceAndTable(cols, cassandraVersion);
+        SchemaDiff diff = new SchemaDiff();
         if (targetType == null || targetType == KEYSPACE) {
             // building the whole schema or a keyspace
             assert ks != null;
-            Map<String, KeyspaceMetadata> keyspaces = buildKeyspaces(ks, tableRows, colsDefs, udtRows, cassandraVersion);
-            updateKeyspaces(this.keyspaces, keyspaces, targetKeyspace);
+            updateKeyspaces(ks, tableRows, colsDefs, udtRows, cassandraVersion, targetKeyspace, diff);
         } else if (targetType == TABLE) {
             assert targetKeyspace != null;
             KeyspaceMetadata keyspace = this.keyspaces.get(targetKeyspace);
@@ -73,7 +73,7 @@ public class Metadata {
             }
             if (tableRows.containsKey(targetKeyspace)) {
                 Map<String, TableMetadata> tables = buildTables(keyspace, tableRows.get(targetKeyspace), colsDefs.get(targetKeyspace), cassandraVersion);
-                updateTables(keyspace.tables, tables, targetName);
+                updateTables(keyspace, tables, targetName, diff);
             }
         } else if (targetType == TYPE) {
             assert targetKeyspace != null;
@@ -85,9 +85,11 @@ public class Metadata {
             }
             if (udtRows.containsKey(targetKeyspace)) {
                 Map<String, UserType> userTypes = buildUserTypes(udtRows.get(targetKeyspace));
-                updateUserTypes(keyspace.userTypes, userTypes, targetName);
+                updateUserTypes(keyspace, userTypes, targetName, diff);
             }
         }
+        // Only notify once the new snapshot is fully in place, so that listeners observe a consistent schema
+        diff.notifyListeners();
     }
 
     private Map<String, List<Row>> groupByKeyspace(ResultSet rows) {
@@ -131,27 +133,6 @@ public class Metadata {
         return groupedRows;
     }
 
-    private Map<String, KeyspaceMetadata> buildKeyspaces(ResultSet keyspaceRows,
-                                                         Map<String, List<Row>> tableRows,
-                                                         Map<String, Map<String, Map<String, ColumnMetadata.Raw>>> colsDefs,
-                                                         Map<String, List<Row>> udtRows,
-                                                         VersionNumber cassandraVersion) {
-        Map<String, KeyspaceMetadata> keyspaces = new LinkedHashMap<String, KeyspaceMetadata>();
-        for (Row keyspaceRow : keyspaceRows) {
-            KeyspaceMetadata keyspace = KeyspaceMetadata.build(keyspaceRow);
-            Map<String, TableMetadata> tables = buildTables(keyspace, tableRows.get(keyspace.getName()), colsDefs.get(keyspace.getName()), cassandraVersion);
-            for (TableMetadata table : tables.values()) {
-                keyspace.add(table);
-            }
-            Map<String, UserType> userTypes = buildUserTypes(udtRows.get(keyspace.getName()));
-            for (UserType userType : userTypes.values()) {
-                keyspace.add(userType);
-            }
-            keyspaces.put(keyspace.getName(), keyspace);
-        }
-        return keyspaces;
-    }
-
     private Map<String, TableMetadata> buildTables(KeyspaceMetadata keyspace, List<Row> tableRows, Map<String, Map<String, ColumnMetadata.Raw>> colsDefs, VersionNumber cassandraVersion) {
         Map<String, TableMetadata> tables = new LinkedHashMap<String, TableMetadata>();
         if (tableRows != null) {
@@ -203,93 +184,188 @@ public class Metadata {
     }
 
     /**
-     * Update {@code oldKeyspaces} with the changes contained in {@code newKeyspaces}.
-     * This method also takes care of triggering the relevant events
-     * as the updates take place.
+     * Updates the keyspaces with the definitions read from the schema tables.
+     * <p/>
+     * A keyspace whose own definition (replication and durable writes) didn't change keeps its
+     * {@code KeyspaceMetadata} instance, and only the tables and user types that actually changed
+     * are replaced in it. The differences are recorded in {@code diff}, which is used to notify
+     * the listeners once the update is complete.
      *
-     * @param oldKeyspaces      the set of keyspaces to be updated.
-     * @param newKeyspaces      the temporary set of keyspaces built with information gathered
-     *                          from schema tables.
+     * @param keyspaceRows      the rows read from the keyspaces schema table.
      * @param keyspaceToRebuild If we are rebuilding just one keyspace, the update operation will be limited
-     *                          to this keyspace only (in which case {@code newKeyspaces} shoudl contain only one entry for it)
+     *                          to this keyspace only (in which case {@code keyspaceRows} should contain only one row for it)
+     * @param diff              where to record the differences with the previous schema.
      */
-    private void updateKeyspaces(Map<String, KeyspaceMetadata> oldKeyspaces, Map<String, KeyspaceMetadata> newKeyspaces, String keyspaceToRebuild) {
-        Iterator<KeyspaceMetadata> it = oldKeyspaces.values().iterator();
+    private void updateKeyspaces(ResultSet keyspaceRows,
+                                 Map<String, List<Row>> tableRows,
+                                 Map<String, Map<String, Map<String, ColumnMetadata.Raw>>> colsDefs,
+                                 Map<String, List<Row>> udtRows,
+                                 VersionNumber cassandraVersion,
+                                 String keyspaceToRebuild,
+                                 SchemaDiff diff) {
+        Set<String> seen = new HashSet<String>();
+        for (Row keyspaceRow : keyspaceRows) {
+            KeyspaceMetadata newKeyspace = KeyspaceMetadata.build(keyspaceRow);
+            String keyspaceName = newKeyspace.getName();
+            seen.add(keyspaceName);
+
+            KeyspaceMetadata oldKeyspace = keyspaces.get(keyspaceName);
+            Map<String, UserType> userTypes = buildUserTypes(udtRows.get(keyspaceName));
+            if (oldKeyspace != null && oldKeyspace.hasSameDefinition(newKeyspace)) {
+                // Tables are built with the existing instance as parent, so that they can be shared with the previous snapshot
+                Map<String, TableMetadata> tables = buildTables(oldKeyspace, tableRows.get(keyspaceName), colsDefs.get(keyspaceName), cassandraVersion);
+                updateTables(oldKeyspace, tables, null, diff);
+                updateUserTypes(oldKeyspace, userTypes, null, diff);
+                continue;
+            }
+
+            // New keyspace or changed definition: since tables reference their keyspace, they can't be reused. User types
+            // don't, so we can still reuse those that didn't change.
+            Map<String, TableMetadata> tables = buildTables(newKeyspace, tableRows.get(keyspaceName), colsDefs.get(keyspaceName), cassandraVersion);
+            Map<String, TableMetadata> oldTables = oldKeyspace == null ? Collections.<String, TableMetadata>emptyMap() : oldKeyspace.tables;
+            Map<String, UserType> oldTypes = oldKeyspace == null ? Collections.<String, UserType>emptyMap() : oldKeyspace.userTypes;
+            diffElements(oldTables, tables, null, diff.tables);
+            newKeyspace.tables = ImmutableMap.copyOf(tables);
+            newKeyspace.userTypes = diffElements(oldTypes, userTypes, null, diff.userTypes);
+
+            keyspaces.put(keyspaceName, newKeyspace);
+            if (oldKeyspace == null)
+                diff.keyspaces.added(newKeyspace);
+            else
+                diff.keyspaces.changed(newKeyspace, oldKeyspace);
+        }
+
+        Iterator<KeyspaceMetadata> it = keyspaces.values().iterator();
         while (it.hasNext()) {
             KeyspaceMetadata oldKeyspace = it.next();
             String keyspaceName = oldKeyspace.getName();
             // If we're rebuilding only a single keyspace, we should only consider that one
-            // because newKeyspaces will only contain that keyspace.
-            if ((keyspaceToRebuild == null || keyspaceToRebuild.equals(keyspaceName)) && !newKeyspaces.containsKey(keyspaceName)) {
+            // because keyspaceRows will only contain that keyspace.
+            if ((keyspaceToRebuild == null || keyspaceToRebuild.equals(keyspaceName)) && !seen.contains(keyspaceName)) {
                 it.remove();
-                triggerOnKeyspaceRemoved(oldKeyspace);
-            }
-        }
-        for (KeyspaceMetadata newKeyspace : newKeyspaces.values()) {
-            KeyspaceMetadata oldKeyspace = oldKeyspaces.put(newKeyspace.getName(), newKeyspace);
-            if (oldKeyspace == null) {
-                triggerOnKeyspaceAdded(newKeyspace);
-            } else if (!oldKeyspace.equals(newKeyspace)) {
-                triggerOnKeyspaceChanged(newKeyspace, oldKeyspace);
+                diff.keyspaces.removed(oldKeyspace);
             }
-            Map<String, TableMetadata> oldTables = oldKeyspace == null ? new HashMap<String, TableMetadata>() : oldKeyspace.tables;
-            updateTables(oldTables, newKeyspace.tables, null);
-            Map<String, UserType> oldTypes = oldKeyspace == null ? new HashMap<String, UserType>() : oldKeyspace.userTypes;
-            updateUserTypes(oldTypes, newKeyspace.userTypes, null);
         }
     }
 
     /**
-     * Update {@code oldTables} with the changes contained in {@code newTables}.
-     * This method also takes care of triggering the relevant events
-     * as the updates take place.
+     * Update the tables of {@code keyspace} with the changes contained in {@code newTables}.
      *
-     * @param oldTables      the set of tables to be updated.
+     * @param keyspace       the keyspace to update.
      * @param newTables      the temporary set of tables built with information gathered
      *                       from schema tables.
      * @param tableToRebuild If we are rebuilding just one table, the update operation will be limited
-     *                       to this table only (in which case {@code newTables} shoudl contain only one entry for it)
+     *                       to this table only (in which case {@code newTables} should contain only one entry for it)
+     * @param diff           where to record the differences with the previous schema.
      */
-    private void updateTables(Map<String, TableMetadata> oldTables, Map<String, TableMetadata> newTables, String tableToRebuild) {
-        Iterator<TableMetadata> it = oldTables.values().iterator();
-        while (it.hasNext()) {
-            TableMetadata oldTable = it.next();
-            String tableName = oldTable.getName();
-            // If we're rebuilding only a single table, we should only consider that one
-            // because newTables will only contain that table.
-            if ((tableToRebuild == null || tableToRebuild.equals(tableName)) && !newTables.containsKey(tableName)) {
-                it.remove();
-                triggerOnTableRemoved(oldTable);
-            }
+    private void updateTables(KeyspaceMetadata keyspace, Map<String, TableMetadata> newTables, String tableToRebuild, SchemaDiff diff) {
+        synchronized (keyspace) {
+            keyspace.tables = diffElements(keyspace.tables, newTables, tableToRebuild, diff.tables);
         }
-        for (TableMetadata newTable : newTables.values()) {
-            TableMetadata oldTable = oldTables.put(newTable.getName(), newTable);
-            if (oldTable == null) {
-                triggerOnTableAdded(newTable);
-            } else if (!oldTable.equals(newTable)) {
-                triggerOnTableChanged(newTable, oldTable);
-            }
+    }
+
+    private void updateUserTypes(KeyspaceMetadata keyspace, Map<String, UserType> newTypes, String typeToRebuild, SchemaDiff diff) {
+        synchronized (keyspace) {
+            keyspace.userTypes = diffElements(keyspace.userTypes, newTypes, typeToRebuild, diff.userTypes);
         }
     }
 
-    private void updateUserTypes(Map<String, UserType> oldTypes, Map<String, UserType> newTypes, String typeToRebuild) {
-        Iterator<UserType> it = oldTypes.values().iterator();
-        while (it.hasNext()) {
-            UserType oldType = it.next();
-            String typeName = oldType.getTypeName();
-            if ((typeToRebuild == null || typeToRebuild.equals(typeName)) && !newTypes.containsKey(typeName)) {
-                it.remove();
-                triggerOnUserTypeRemoved(oldType);
+    /**
+     * Computes the new snapshot of a set of schema elements (tables or user types).
+     * <p/>
+     * Elements that are equal to their previous version keep the previous instance, and if nothing
+     * changed at all the previous snapshot itself is returned.
+     *
+     * @param oldElements      the previous (immutable) snapshot.
+     * @param newElements      the elements built with information gathered from schema tables.
+     * @param elementToRebuild If we are rebuilding just one element, the update will be limited
+     *                         to this element only.
+     * @param changes          where to record the differences.
+     * @return the new (immutable) snapshot.
+     */
+    private static <T> Map<String, T> diffElements(Map<String, T> oldElements, Map<String, T> newElements, String elementToRebuild, Changes<T> changes) {
+        ImmutableMap.Builder<String, T> builder = ImmutableMap.builder();
+        boolean modified = false;
+        for (Map.Entry<String, T> entry : oldElements.entrySet()) {
+            String name = entry.getKey();
+            T oldElement = entry.getValue();
+            if (elementToRebuild != null && !elementToRebuild.equals(name)) {
+                builder.put(name, oldElement);
+                continue;
+            }
+            T newElement = newElements.get(name);
+            if (newElement == null) {
+                changes.removed(oldElement);
+                modified = true;
+            } else if (newElement.equals(oldElement)) {
+                builder.put(name, oldElement);
+            } else {
+                changes.changed(newElement, oldElement);
+                builder.put(name, newElement);
+                modified = true;
             }
         }
-        for (UserType newType : newTypes.values()) {
-            UserType oldType = oldTypes.put(newType.getTypeName(), newType);
-            if (oldType == null) {
-                triggerOnUserTypeAdded(newType);
-            } else if (!newType.equals(oldType)) {
-                triggerOnUserTypeChanged(newType, oldType);
+        for (Map.Entry<String, T> entry : newElements.entrySet()) {
+            if (!oldElements.containsKey(entry.getKey())) {
+                changes.added(entry.getValue());
+                builder.put(entry.getKey(), entry.getValue());
+                modified = true;
             }
         }
+        return modified ? builder.build() : ImmutableMap.copyOf(oldElements);
+    }
+
+    /**
+     * The differences between two versions of the schema, accumulated during a refresh.
+     */
+    private class SchemaDiff {
+        final Changes<KeyspaceMetadata> keyspaces = new Changes<KeyspaceMetadata>();
+        final Changes<TableMetadata> tables = new Changes<TableMetadata>();
+        final Changes<UserType> userTypes = new Changes<UserType>();
+
+        void notifyListeners() {
+            for (KeyspaceMetadata keyspace : keyspaces.removed)
+                triggerOnKeyspaceRemoved(keyspace);
+            for (KeyspaceMetadata keyspace : keyspaces.added)
+                triggerOnKeyspaceAdded(keyspace);
+            for (int i = 0; i < keyspaces.current.size(); i++)
+                triggerOnKeyspaceChanged(keyspaces.current.get(i), keyspaces.previous.get(i));
+
+            for (TableMetadata table : tables.removed)
+                triggerOnTableRemoved(table);
+            for (TableMetadata table : tables.added)
+                triggerOnTableAdded(table);
+            for (int i = 0; i < tables.current.size(); i++)
+                triggerOnTableChanged(tables.current.get(i), tables.previous.get(i));
+
+            for (UserType type : userTypes.removed)
+                triggerOnUserTypeRemoved(type);
+            for (UserType type : userTypes.added)
+                triggerOnUserTypeAdded(type);
+            for (int i = 0; i < userTypes.current.size(); i++)
+                triggerOnUserTypeChanged(userTypes.current.get(i), userTypes.previous.get(i));
+        }
+    }
+
+    private static class Changes<T> {
+        final List<T> added = new ArrayList<T>();
+        final List<T> removed = new ArrayList<T>();
+        // current.get(i) replaces previous.get(i)
+        final List<T> current = new ArrayList<T>();
+        final List<T> previous = new ArrayList<T>();
+
+        void added(T element) {
+            added.add(element);
+        }
+
+        void removed(T element) {
+            removed.add(element);
+        }
+
+        void changed(T current, T previous) {
+            this.current.add(current);
+            this.previous.add(previous);
+        }
     }
 
     void triggerOnKeyspaceAdded(KeyspaceMetadata keyspace) {
@@ -512,6 +588,50 @@ public class Metadata {
         }
     }
 
+    /**
+     * Returns the set of hosts that are replica for a given token.
+     * <p/>
+     * Note that this information is refreshed asynchronously by the control
+     * connection, when schema or ring topology changes. It might occasionally
+     * be stale (or even empty).
+     *
+     * @param keyspace the name of the keyspace to get replicas for.
+     * @param token    the token.
+     * @return the (immutable) set of replicas for {@code token} as known by the driver.
+     * Note that the result might be stale or empty if metadata was explicitly disabled
+     * with {@link QueryOptions#setMetadataEnabled(boolean)}.
+     */
+    public Set<Host> getReplicas(String keyspace, Token token) {
+        keyspace = handleId(keyspace);
+        TokenMap current = tokenMap;
+        if (current == null) {
+            return Collections.emptySet();
+        } else {
+            Set<Host> hosts = current.getReplicas(keyspace, token);
+            return hosts == null ? Collections.<Host>emptySet() : hosts;
+        }
+    }
+
+    /**
+     * Returns the first replica of the partition (or token) that {@code statement} targets, or
+     * {@code null} if the statement has no keyspace, routing key or routing token, or if its
+     * replicas are not known.
+     */
+    Host getFirstReplica(Statement statement) {
+        String keyspace = statement.getKeyspace();
+        if (keyspace == null)
+            return null;
+        ByteBuffer routingKey = statement.getRoutingKey();
+        Set<Host> replicas;
+        if (routingKey != null)
+            replicas = getReplicas(quote(keyspace), routingKey);
+        else if (statement.getRoutingToken() != null)
+            replicas = getReplicas(quote(keyspace), statement.getRoutingToken());
+        else
+            return null;
+        return replicas.isEmpty() ? null : replicas.iterator().next();
+    }
+
     /**
      * Returns the set of hosts that are replica for a given token range.
      * <p/>
@@ -18,7 +18,10 @@ package com.datastax.driver.core;
 import com.codahale.metrics.*;
 import com.datastax.driver.core.policies.SpeculativeExecutionPolicy;
 
+import java.net.InetSocketAddress;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -42,6 +45,11 @@ public class Metrics {
 
     private final Timer requests = registry.timer("requests");
 
+    private final Counter autoPrepareHits = registry.counter("auto-prepare-hits");
+    private final Counter autoPrepareMisses = registry.counter("auto-prepare-misses");
+
+    private final Timer reprepareOnUp = registry.timer("reprepare-on-up");
+
     private final Gauge<Integer> knownHosts = registry.register("known-hosts", new Gauge<Integer>() {
         @Override
         public Integer getValue() {
@@ -106,6 +114,32 @@ public class Metrics {
         }
     });
 
+    private final Gauge<Map<InetSocketAddress, Double>> convictionPhi = registry.register("conviction-phi", new Gauge<Map<InetSocketAddress, Double>>() {
+        @Override
+        public Map<InetSocketAddress, Double> getValue() {
+            Map<InetSocketAddress, Double> phis = new HashMap<InetSocketAddress, Double>();
+            for (Host host : manager.metadata.allHosts()) {
+                if (host.convictionPolicy instanceof ConvictionPolicy.PhiAccrualConvictionPolicy)
+                    phis.put(host.getSocketAddress(), ((ConvictionPolicy.PhiAccrualConvictionPolicy) host.convictionPolicy).phi());
+            }
+            return phis;
+        }
+    });
+
+    private final Gauge<Integer> preparedStatements = registry.register("prepared-statements", new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+            return manager.preparedQueries.size();
+        }
+    });
+
+    private final Gauge<Map<String, Long>> preparedStatementsUsage = registry.register("prepared-statements-usage", new Gauge<Map<String, Long>>() {
+        @Override
+        public Map<String, Long> getValue() {
+            return manager.preparedQueries.usage();
+        }
+    });
+
     Metrics(Cluster.Manager manager) {
         this.manager = manager;
         if (manager.configuration.getMetricsOptions().isJMXReportingEnabled()) {
@@ -184,6 +218,27 @@ public class Metrics {
         return errors;
     }
 
+    /**
+     * Returns the number of {@link SimpleStatement}s that were executed as an automatically
+     * prepared statement (see {@link QueryOptions#setAutoPrepareThreshold(int)}).
+     *
+     * @return the number of auto-prepare hits.
+     */
+    public Counter getAutoPrepareHits() {
+        return autoPrepareHits;
+    }
+
+    /**
+     * Returns the number of {@link SimpleStatement}s that were executed as is while auto-prepare
+     * was enabled (see {@link QueryOptions#setAutoPrepareThreshold(int)}), because their query
+     * string had not been prepared (yet), or could not be.
+     *
+     * @return the number of auto-prepare misses.
+     */
+    public Counter getAutoPrepareMisses() {
+        return autoPrepareMisses;
+    }
+
     /**
      * Returns the number of Cassandra hosts currently known by the driver (that is
      * whether they are currently considered up or down).
@@ -257,6 +312,53 @@ public class Metrics {
         return taskSchedulerQueueSize;
     }
 
+    /**
+     * Returns the current suspicion level (phi) of each known host, as computed by the phi-accrual
+     * failure detector.
+     * <p/>
+     * The map is empty unless phi-accrual failure detection is enabled with
+     * {@link PoolingOptions#setConvictionPhiThreshold(double)}. A value of 0 means that there are
+     * not enough samples yet for the host.
+     *
+     * @return The phi value of each known host, by address.
+     */
+    public Gauge<Map<InetSocketAddress, Double>> getConvictionPhi() {
+        return convictionPhi;
+    }
+
+    /**
+     * Returns the number of prepared statements currently known by the driver (statements that
+     * are not referenced by the client anymore are eventually removed).
+     *
+     * @return the number of prepared statements.
+     */
+    public Gauge<Integer> getPreparedStatements() {
+        return preparedStatements;
+    }
+
+    /**
+     * Returns how many times each prepared statement currently known by the driver was executed.
+     * <p/>
+     * When a host comes back up, the most executed statements get re-prepared on it first (see
+     * {@link QueryOptions#setReprepareOnUp(boolean)}).
+     *
+     * @return the number of executions of each prepared statement, by query string.
+     */
+    public Gauge<Map<String, Long>> getPreparedStatementsUsage() {
+        return preparedStatementsUsage;
+    }
+
+    /**
+     * Returns the timer measuring how long it takes to re-prepare the hottest prepared
+     * statements on a host that comes back up, before the driver starts using it (see
+     * {@link QueryOptions#setReprepareOnUp(boolean)}).
+     *
+     * @return the re-prepare timer.
+     */
+    public Timer getReprepareOnUpTimer() {
+        return reprepareOnUp;
+    }
+
     void shutdown() {
         if (jmxReporter != null)
             jmxReporter.stop();
@@ -0,0 +1,415 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.google.common.util.concurrent.*;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Fetches a set of partitions or rows by key, spreading the reads over the replicas that own them.
+ * <p/>
+ * Reading many keys with a single {@code IN} query makes one coordinator do all the work, and
+ * issuing all the reads at once can overwhelm the hosts that own many of the keys. This class
+ * instead executes one single-partition read per key, grouped by the first replica of each key (as
+ * known by the driver, see {@link Metadata#getReplicas(String, java.nio.ByteBuffer)}), with a
+ * bounded number of reads in flight per replica and overall. Each read carries the routing key of
+ * its partition, so a {@link com.datastax.driver.core.policies.TokenAwarePolicy} sends it directly
+ * to a replica.
+ * <pre>
+ * PreparedStatement ps = session.prepare("SELECT * FROM users WHERE id = ?");
+ * List&lt;MultiGet.Result&gt; results = MultiGet.builder(session).build().execute(ps, keys);
+ * </pre>
+ * Results are returned in the order of the keys, each with its own result set or error.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class MultiGet {
+
+    /**
+     * The result of the read for one key.
+     */
+    public static class Result {
+        private final Statement statement;
+        private volatile ResultSet resultSet;
+        private volatile Throwable error;
+        private Host replica; // used for the per-host limit
+
+        Result(Statement statement) {
+            this.statement = statement;
+        }
+
+        /**
+         * @return the statement that was executed for the key, or {@code null} if the key could
+         * not be bound.
+         */
+        public Statement getStatement() {
+            return statement;
+        }
+
+        /**
+         * @return whether the read succeeded.
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * @return the result of the read, or {@code null} if it failed.
+         */
+        public ResultSet getResultSet() {
+            return resultSet;
+        }
+
+        /**
+         * @return the error of the read, or {@code null} if it succeeded.
+         */
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+    /**
+     * The default maximum number of reads in flight: 256.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    /**
+     * The default maximum number of reads in flight for the keys owned by a given host: 32.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT_PER_HOST = 32;
+
+    private final Session session;
+    private final int maxInFlight;
+    private final int maxInFlightPerHost;
+
+    private MultiGet(Session session, int maxInFlight, int maxInFlightPerHost) {
+        this.session = session;
+        this.maxInFlight = maxInFlight;
+        this.maxInFlightPerHost = maxInFlightPerHost;
+    }
+
+    /**
+     * Creates a new {@link Builder} instance.
+     *
+     * @param session the session to execute reads with.
+     * @return the new builder.
+     */
+    public static MultiGet.Builder builder(Session session) {
+        return new Builder(session);
+    }
+
+    /**
+     * Reads a set of keys, and waits for the results.
+     *
+     * @param statement the prepared read.
+     * @param keys      the values to bind to {@code statement} for each key.
+     * @return the result for each key, in the order of {@code keys}.
+     * @see #executeAsync(PreparedStatement, Collection)
+     */
+    public List<Result> execute(PreparedStatement statement, Collection<Object[]> keys) {
+        try {
+            return Uninterruptibles.getUninterruptibly(executeAsync(statement, keys));
+        } catch (ExecutionException e) {
+            throw DriverThrowables.propagateCause(e);
+        }
+    }
+
+    /**
+     * Reads a set of keys asynchronously.
+     * <p/>
+     * A key that can't be bound to {@code statement} gets a failed result; the others are still read.
+     *
+     * @param statement the prepared read.
+     * @param keys      the values to bind to {@code statement} for each key.
+     * @return a future on the result for each key, in the order of {@code keys}. It never fails:
+     * errors are reported per key.
+     */
+    public ListenableFuture<List<Result>> executeAsync(PreparedStatement statement, Collection<Object[]> keys) {
+        List<Result> results = new ArrayList<Result>(keys.size());
+        for (Object[] key : keys) {
+            try {
+                results.add(new Result(statement.bind(key)));
+            } catch (RuntimeException e) {
+                Result result = new Result(null);
+                result.error = e;
+                results.add(result);
+            }
+        }
+        return new Execution(results).start();
+    }
+
+    /**
+     * Executes a set of reads, and waits for the results.
+     *
+     * @param statements the reads.
+     * @return the result of each read, in the order of {@code statements}.
+     * @see #executeAsync(Collection)
+     */
+    public List<Result> execute(Collection<? extends Statement> statements) {
+        try {
+            return Uninterruptibles.getUninterruptibly(executeAsync(statements));
+        } catch (ExecutionException e) {
+            throw DriverThrowables.propagateCause(e);
+        }
+    }
+
+    /**
+     * Executes a set of reads asynchronously.
+     * <p/>
+     * This is for reads that are not all bound from the same prepared statement; each one should
+     * target a single partition.
+     *
+     * @param statements the reads.
+     * @return a future on the result of each read, in the order of {@code statements}. It never
+     * fails: errors are reported per read.
+     */
+    public ListenableFuture<List<Result>> executeAsync(Collection<? extends Statement> statements) {
+        List<Result> results = new ArrayList<Result>(statements.size());
+        for (Statement statement : statements)
+            results.add(new Result(statement));
+        return new Execution(results).start();
+    }
+
+    /**
+     * Executes a set of reads of the same query, and waits for all their rows.
+     *
+     * @param statements the reads.
+     * @return the rows of all the reads, in the order of {@code statements}.
+     * @see #executeMergedAsync(Collection)
+     */
+    public ResultSet executeMerged(Collection<? extends Statement> statements) {
+        try {
+            return Uninterruptibles.getUninterruptibly(executeMergedAsync(statements));
+        } catch (ExecutionException e) {
+            throw DriverThrowables.propagateCause(e);
+        }
+    }
+
+    /**
+     * Executes a set of reads of the same query asynchronously, and merges their rows.
+     * <p/>
+     * This is typically used with the statements returned by
+     * {@link com.datastax.driver.core.querybuilder.Select#splitPartitionKeyIn()}: the reads of the
+     * partitions of an IN query are sent directly to their replicas, and the result is the same as the
+     * one of the original query. Unlike {@link #executeAsync(Collection)}, this fails if any read
+     * fails.
+     * <p/>
+     * The returned {@code ResultSet} iterates over the rows of each read in turn; each one keeps its
+     * own paging, so only the first page of each read has been fetched when the future completes.
+     *
+     * @param statements the reads. They should all select the same columns.
+     * @return a future on the rows of all the reads, in the order of {@code statements}. It fails with
+     * the error of the first read (in the order of {@code statements}) that failed, if any.
+     * @throws IllegalArgumentException if {@code statements} is empty.
+     */
+    public ListenableFuture<ResultSet> executeMergedAsync(Collection<? extends Statement> statements) {
+        if (statements.isEmpty())
+            throw new IllegalArgumentException("Cannot merge the results of no statements");
+        return Futures.transform(executeAsync(statements), new AsyncFunction<List<Result>, ResultSet>() {
+            @Override
+            public ListenableFuture<ResultSet> apply(List<Result> results) {
+                List<ResultSet> resultSets = new ArrayList<ResultSet>(results.size());
+                for (Result result : results) {
+                    if (!result.isSuccess())
+                        return Futures.immediateFailedFuture(result.getError());
+                    resultSets.add(result.getResultSet());
+                }
+                return Futures.<ResultSet>immediateFuture(new MergedResultSet(resultSets));
+            }
+        });
+    }
+
+    private class Execution {
+        private final List<Result> results;
+        private final SettableFuture<List<Result>> future = SettableFuture.create();
+
+        // Reads waiting to be sent, per first replica (null for unknown), in round-robin order.
+        private final Map<Host, Queue<Result>> queues = new LinkedHashMap<Host, Queue<Result>>();
+        private final Map<Host, Integer> inFlightPerHost = new HashMap<Host, Integer>();
+        private Iterator<Map.Entry<Host, Queue<Result>>> cursor;
+        private int inFlight;
+        private int remaining;
+        private boolean draining;
+
+        Execution(List<Result> results) {
+            this.results = results;
+        }
+
+        ListenableFuture<List<Result>> start() {
+            // Not getMetadata(), which would block until the cluster is initialized (until then,
+            // replicas are unknown)
+            Metadata metadata = session.getCluster().manager.metadata;
+            synchronized (this) {
+                for (Result result : results) {
+                    if (result.statement == null)
+                        continue;
+                    result.replica = metadata == null ? null : metadata.getFirstReplica(result.statement);
+                    Queue<Result> queue = queues.get(result.replica);
+                    if (queue == null)
+                        queues.put(result.replica, queue = new ArrayDeque<Result>());
+                    queue.add(result);
+                    remaining += 1;
+                }
+            }
+            if (remaining == 0)
+                future.set(Collections.unmodifiableList(results));
+            else
+                drain();
+            return future;
+        }
+
+        // Sends as many reads as the limits allow. Callbacks of reads that complete immediately
+        // re-enter this method: in that case the outer call takes care of sending the next reads.
+        private void drain() {
+            synchronized (this) {
+                if (draining)
+                    return;
+                draining = true;
+            }
+            while (true) {
+                List<Result> toSend = new ArrayList<Result>();
+                synchronized (this) {
+                    pickReads(toSend);
+                    if (toSend.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                }
+                for (Result result : toSend)
+                    send(result);
+            }
+        }
+
+        // Must be called while holding the lock
+        private void pickReads(List<Result> toSend) {
+            int skipped = 0;
+            while (inFlight < maxInFlight && !queues.isEmpty() && skipped < queues.size()) {
+                if (cursor == null || !cursor.hasNext())
+                    cursor = queues.entrySet().iterator();
+                Map.Entry<Host, Queue<Result>> entry = cursor.next();
+                Host host = entry.getKey();
+                Integer hostInFlight = inFlightPerHost.get(host);
+                int n = hostInFlight == null ? 0 : hostInFlight;
+                if (host != null && n >= maxInFlightPerHost) {
+                    skipped += 1;
+                    continue;
+                }
+                skipped = 0;
+                toSend.add(entry.getValue().poll());
+                inFlightPerHost.put(host, n + 1);
+                inFlight += 1;
+                if (entry.getValue().isEmpty()) {
+                    cursor.remove();
+                    cursor = null;
+                }
+            }
+        }
+
+        private void send(final Result result) {
+            ResultSetFuture rsFuture;
+            try {
+                rsFuture = session.executeAsync(result.statement);
+            } catch (RuntimeException e) {
+                complete(result, null, e);
+                return;
+            }
+            Futures.addCallback(rsFuture, new FutureCallback<ResultSet>() {
+                @Override
+                public void onSuccess(ResultSet rs) {
+                    complete(result, rs, null);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    complete(result, null, t);
+                }
+            });
+        }
+
+        private void complete(Result result, ResultSet rs, Throwable error) {
+            result.resultSet = rs;
+            result.error = error;
+            boolean done;
+            synchronized (this) {
+                inFlight -= 1;
+                inFlightPerHost.put(result.replica, inFlightPerHost.get(result.replica) - 1);
+                remaining -= 1;
+                done = remaining == 0;
+            }
+            if (done)
+                future.set(Collections.unmodifiableList(results));
+            else
+                drain();
+        }
+    }
+
+    /**
+     * Helper class to build {@link MultiGet} instances with a fluent API.
+     */
+    public static class Builder {
+
+        private final Session session;
+
+        private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+        private int maxInFlightPerHost = DEFAULT_MAX_IN_FLIGHT_PER_HOST;
+
+        public Builder(Session session) {
+            this.session = session;
+        }
+
+        /**
+         * Sets the maximum number of reads in flight, for each call to {@code execute}.
+         *
+         * @param maxInFlight the maximum. It must be strictly positive.
+         *                    The default value is {@link #DEFAULT_MAX_IN_FLIGHT}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withMaxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0)
+                throw new IllegalArgumentException("Invalid maxInFlight, should be > 0, got " + maxInFlight);
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of reads in flight for the keys owned by a given host, for each
+         * call to {@code execute}. Reads whose replicas are unknown are only subject to
+         * {@link #withMaxInFlight(int) the global limit}.
+         *
+         * @param maxInFlightPerHost the maximum. It must be strictly positive.
+         *                           The default value is {@link #DEFAULT_MAX_IN_FLIGHT_PER_HOST}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withMaxInFlightPerHost(int maxInFlightPerHost) {
+            if (maxInFlightPerHost <= 0)
+                throw new IllegalArgumentException("Invalid maxInFlightPerHost, should be > 0, got " + maxInFlightPerHost);
+            this.maxInFlightPerHost = maxInFlightPerHost;
+            return this;
+        }
+
+        /**
+         * Build the {@link MultiGet} instance.
+         *
+         * @return the {@link MultiGet} instance.
+         */
+        public MultiGet build() {
+            return new MultiGet(session, maxInFlight, maxInFlightPerHost);
+        }
+    }
+}
@@ -96,6 +96,7 @@ public class PoolingOptions {
     private volatile int idleTimeoutSeconds = DEFAULT_IDLE_TIMEOUT_SECONDS;
     private volatile int poolTimeoutMillis = DEFAULT_POOL_TIMEOUT_MILLIS;
     private volatile int heartbeatIntervalSeconds = DEFAULT_HEARTBEAT_INTERVAL_SECONDS;
+    private volatile double convictionPhiThreshold = 0;
 
     private volatile Executor initializationExecutor = DEFAULT_INITIALIZATION_EXECUTOR;
 
@@ -397,6 +398,47 @@ public class PoolingOptions {
         return this;
     }
 
+    /**
+     * Returns the phi threshold above which a host is considered down when its last connection fails.
+     *
+     * @return the threshold, or 0 if phi-accrual failure detection is disabled.
+     * @see #setConvictionPhiThreshold(double)
+     */
+    public double getConvictionPhiThreshold() {
+        return convictionPhiThreshold;
+    }
+
+    /**
+     * Sets the phi threshold above which a host is considered down when its last connection fails.
+     * <p/>
+     * By default, the driver marks a host down as soon as all its connections have failed. When this option
+     * is set, the driver also samples the arrival times of the responses received from each host (including
+     * heartbeats, see {@link #setHeartbeatIntervalSeconds(int)}) and computes a suspicion level phi from the
+     * time elapsed since the last response. The host is then only marked down if phi reaches this threshold;
+     * otherwise it stays up, its failed connections are replaced right away, and it is marked down later if it
+     * still has no connections once phi reaches the threshold. This avoids marking hosts down (and emptying their
+     * pools) because of short network blips.
+     * <p/>
+     * A threshold of 8 is a reasonable starting point (this is Cassandra's own default for {@code phi_convict_threshold}).
+     * The phi value of each host is exposed by {@link Metrics#getConvictionPhi()}.
+     * <p/>
+     * Phi-accrual failure detection must be enabled (with a positive value) before the {@code Cluster} is built;
+     * once it is, the threshold can be adjusted at runtime, and setting it back to 0 disables it.
+     * <p/>
+     * The default value for this option is 0 (disabled).
+     *
+     * @param convictionPhiThreshold the new value.
+     * @return this {@code PoolingOptions}
+     * @throws IllegalArgumentException if the threshold is negative.
+     */
+    public PoolingOptions setConvictionPhiThreshold(double convictionPhiThreshold) {
+        if (convictionPhiThreshold < 0)
+            throw new IllegalArgumentException("Conviction phi threshold must be positive");
+
+        this.convictionPhiThreshold = convictionPhiThreshold;
+        return this;
+    }
+
     /**
      * Returns the executor to use for connection initialization.
      *
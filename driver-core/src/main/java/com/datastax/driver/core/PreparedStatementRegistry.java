@@ -0,0 +1,121 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.google.common.collect.MapMaker;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The prepared statements of a cluster, by id, with how often and how recently each one was executed.
+ * <p/>
+ * Statements are weakly referenced: they get removed once the client doesn't reference them anymore.
+ */
+class PreparedStatementRegistry {
+
+    private final ConcurrentMap<MD5Digest, PreparedStatement> statements = new MapMaker().weakValues().makeMap();
+
+    /**
+     * Registers a statement.
+     *
+     * @return the statement that was already registered with the same id if there was one (this is
+     * the instance that should be handed to the client, since it's the one we reference), or
+     * {@code statement} otherwise.
+     */
+    PreparedStatement add(PreparedStatement statement) {
+        PreparedStatement previous = statements.putIfAbsent(statement.getPreparedId().id, statement);
+        return previous == null ? statement : previous;
+    }
+
+    PreparedStatement get(MD5Digest id) {
+        return statements.get(id);
+    }
+
+    boolean contains(MD5Digest id) {
+        return statements.containsKey(id);
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    boolean isEmpty() {
+        return statements.isEmpty();
+    }
+
+    /**
+     * Returns a snapshot of the registered statements, hottest first.
+     */
+    List<PreparedStatement> byUsage() {
+        // Sort a copy of the statistics: they keep changing while we sort, which would break the comparator's contract
+        List<Usage> usages = new ArrayList<Usage>(statements.size());
+        for (PreparedStatement statement : statements.values())
+            usages.add(new Usage(statement));
+        Collections.sort(usages);
+
+        List<PreparedStatement> snapshot = new ArrayList<PreparedStatement>(usages.size());
+        for (Usage usage : usages)
+            snapshot.add(usage.statement);
+        return snapshot;
+    }
+
+    /**
+     * Returns the number of executions of each registered query string (statements prepared on
+     * different keyspaces with the same query string are summed up).
+     */
+    Map<String, Long> usage() {
+        Map<String, Long> usage = new HashMap<String, Long>();
+        for (PreparedStatement statement : statements.values()) {
+            Long previous = usage.get(statement.getQueryString());
+            usage.put(statement.getQueryString(), uses(statement) + (previous == null ? 0 : previous));
+        }
+        return usage;
+    }
+
+    static void recordUsage(PreparedStatement statement) {
+        if (statement instanceof DefaultPreparedStatement)
+            ((DefaultPreparedStatement) statement).recordUsage();
+    }
+
+    private static long uses(PreparedStatement statement) {
+        return statement instanceof DefaultPreparedStatement ? ((DefaultPreparedStatement) statement).uses : 0;
+    }
+
+    private static long lastUsed(PreparedStatement statement) {
+        return statement instanceof DefaultPreparedStatement ? ((DefaultPreparedStatement) statement).lastUsed : 0;
+    }
+
+    private static class Usage implements Comparable<Usage> {
+        final PreparedStatement statement;
+        final long uses;
+        final long lastUsed;
+
+        Usage(PreparedStatement statement) {
+            this.statement = statement;
+            this.uses = uses(statement);
+            this.lastUsed = lastUsed(statement);
+        }
+
+        // Hottest first: most executed, then most recently executed.
+        @Override
+        public int compareTo(Usage that) {
+            if (this.uses != that.uses)
+                return this.uses > that.uses ? -1 : 1;
+            return this.lastUsed == that.lastUsed ? 0 : (this.lastUsed > that.lastUsed ? -1 : 1);
+        }
+    }
+}
@@ -42,6 +42,26 @@ public class QueryOptions {
      */
     public static final boolean DEFAULT_IDEMPOTENCE = false;
 
+    /**
+     * The default prefetch threshold for paged result sets: 0 (prefetching disabled).
+     */
+    public static final int DEFAULT_PREFETCH_THRESHOLD = 0;
+
+    /**
+     * The default maximum number of pages that can be prefetched ahead of the current page: 1.
+     */
+    public static final int DEFAULT_MAX_PREFETCHED_PAGES = 1;
+
+    /**
+     * The default auto-prepare threshold: 0 (auto-prepare disabled).
+     */
+    public static final int DEFAULT_AUTO_PREPARE_THRESHOLD = 0;
+
+    /**
+     * The default maximum number of query strings tracked for auto-prepare, per session: 1000.
+     */
+    public static final int DEFAULT_AUTO_PREPARE_CACHE_SIZE = 1000;
+
     public static final int DEFAULT_MAX_PENDING_REFRESH_NODE_LIST_REQUESTS = 20;
 
     public static final int DEFAULT_MAX_PENDING_REFRESH_NODE_REQUESTS = 20;
@@ -58,6 +78,10 @@ public class QueryOptions {
     private volatile ConsistencyLevel serialConsistency = DEFAULT_SERIAL_CONSISTENCY_LEVEL;
     private volatile int fetchSize = DEFAULT_FETCH_SIZE;
     private volatile boolean defaultIdempotence = DEFAULT_IDEMPOTENCE;
+    private volatile int prefetchThreshold = DEFAULT_PREFETCH_THRESHOLD;
+    private volatile int maxPrefetchedPages = DEFAULT_MAX_PREFETCHED_PAGES;
+    private volatile int autoPrepareThreshold = DEFAULT_AUTO_PREPARE_THRESHOLD;
+    private volatile int autoPrepareCacheSize = DEFAULT_AUTO_PREPARE_CACHE_SIZE;
 
     private volatile boolean metadataEnabled = true;
 
@@ -170,6 +194,132 @@ public class QueryOptions {
         return fetchSize;
     }
 
+    /**
+     * Sets the default prefetch threshold for paged result sets.
+     * <p/>
+     * When iterating over a {@link ResultSet} that has more pages to fetch, the driver
+     * will start fetching the next page in the background as soon as fewer than
+     * {@code prefetchThreshold} rows remain in the current page, instead of waiting for
+     * the current page to be exhausted. This hides most of the paging latency for
+     * clients that consume large result sets sequentially, at the cost of keeping more
+     * rows in memory.
+     * <p/>
+     * The threshold set through this method will be used for statements that don't
+     * explicitly have one, i.e. when {@link Statement#getPrefetchThreshold} is negative.
+     *
+     * @param prefetchThreshold the new prefetch threshold to set as default. Use 0 to
+     *                          disable prefetching (the default).
+     * @return this {@code QueryOptions} instance.
+     * @throws IllegalArgumentException if {@code prefetchThreshold < 0}.
+     */
+    public QueryOptions setPrefetchThreshold(int prefetchThreshold) {
+        if (prefetchThreshold < 0)
+            throw new IllegalArgumentException("Invalid prefetchThreshold, should be >= 0, got " + prefetchThreshold);
+        this.prefetchThreshold = prefetchThreshold;
+        return this;
+    }
+
+    /**
+     * The default prefetch threshold used by paged result sets.
+     *
+     * @return the default prefetch threshold.
+     */
+    public int getPrefetchThreshold() {
+        return prefetchThreshold;
+    }
+
+    /**
+     * Sets the maximum number of pages that a result set can prefetch ahead of the
+     * page currently being consumed.
+     * <p/>
+     * This only matters when prefetching is enabled (see {@link #setPrefetchThreshold(int)}),
+     * and bounds the memory used by a result set that is consumed more slowly than
+     * pages are fetched.
+     *
+     * @param maxPrefetchedPages the new maximum. It must be strictly positive.
+     * @return this {@code QueryOptions} instance.
+     * @throws IllegalArgumentException if {@code maxPrefetchedPages <= 0}.
+     */
+    public QueryOptions setMaxPrefetchedPages(int maxPrefetchedPages) {
+        if (maxPrefetchedPages <= 0)
+            throw new IllegalArgumentException("Invalid maxPrefetchedPages, should be > 0, got " + maxPrefetchedPages);
+        this.maxPrefetchedPages = maxPrefetchedPages;
+        return this;
+    }
+
+    /**
+     * The maximum number of pages that a result set can prefetch ahead of the page
+     * currently being consumed.
+     *
+     * @return the maximum number of prefetched pages.
+     */
+    public int getMaxPrefetchedPages() {
+        return maxPrefetchedPages;
+    }
+
+    /**
+     * Sets the number of executions after which a {@link SimpleStatement} gets prepared
+     * automatically.
+     * <p/>
+     * When this is enabled, each session counts the executions of each query string (and logged
+     * keyspace) through plain {@link SimpleStatement}s. Once a query string has been executed more
+     * than {@code autoPrepareThreshold} times, it gets prepared in the background, and subsequent
+     * executions are sent as {@link BoundStatement}s: the query doesn't have to be parsed by
+     * Cassandra each time, and the values are serialized with the actual types of the bind variables
+     * instead of types guessed from the Java values. The execution options of the statement
+     * (consistency levels, fetch size, etc.) are carried over; statements that have a paging state,
+     * or whose values don't match the prepared variables, are executed as is.
+     * <p/>
+     * Hits and misses are reported by {@link Metrics#getAutoPrepareHits()} and
+     * {@link Metrics#getAutoPrepareMisses()}.
+     *
+     * @param autoPrepareThreshold the number of executions after which queries are prepared.
+     *                             Use 0 to disable auto-prepare (the default).
+     * @return this {@code QueryOptions} instance.
+     * @throws IllegalArgumentException if {@code autoPrepareThreshold < 0}.
+     */
+    public QueryOptions setAutoPrepareThreshold(int autoPrepareThreshold) {
+        if (autoPrepareThreshold < 0)
+            throw new IllegalArgumentException("Invalid autoPrepareThreshold, should be >= 0, got " + autoPrepareThreshold);
+        this.autoPrepareThreshold = autoPrepareThreshold;
+        return this;
+    }
+
+    /**
+     * The number of executions after which a {@link SimpleStatement} gets prepared automatically.
+     *
+     * @return the auto-prepare threshold, 0 if auto-prepare is disabled.
+     */
+    public int getAutoPrepareThreshold() {
+        return autoPrepareThreshold;
+    }
+
+    /**
+     * Sets the maximum number of query strings tracked for auto-prepare, per session (see
+     * {@link #setAutoPrepareThreshold(int)}). The least recently used ones are evicted first.
+     * <p/>
+     * This is read when a session is created, changing it has no effect on existing sessions.
+     *
+     * @param autoPrepareCacheSize the new maximum. It must be strictly positive.
+     * @return this {@code QueryOptions} instance.
+     * @throws IllegalArgumentException if {@code autoPrepareCacheSize <= 0}.
+     */
+    public QueryOptions setAutoPrepareCacheSize(int autoPrepareCacheSize) {
+        if (autoPrepareCacheSize <= 0)
+            throw new IllegalArgumentException("Invalid autoPrepareCacheSize, should be > 0, got " + autoPrepareCacheSize);
+        this.autoPrepareCacheSize = autoPrepareCacheSize;
+        return this;
+    }
+
+    /**
+     * The maximum number of query strings tracked for auto-prepare, per session.
+     *
+     * @return the maximum number of query strings.
+     */
+    public int getAutoPrepareCacheSize() {
+        return autoPrepareCacheSize;
+    }
+
     /**
      * Sets the default idempotence for queries.
      * <p/>
@@ -251,6 +401,11 @@ public class QueryOptions {
      * re-prepared on the fly the first time they get executed; this causes a performance
      * penalty (one extra roundtrip to resend the query to prepare, and another to retry
      * the execution).
+     * <p/>
+     * Statements are re-prepared hottest first (the most executed ones, see
+     * {@link Metrics#getPreparedStatementsUsage()}), in parallel over a few connections. Only
+     * the first 500 of them delay the moment the host starts being used, the others are
+     * re-prepared in the background.
      *
      * @param reprepareOnUp whether the driver should re-prepare when marking a node up.
      * @return this {@code QueryOptions} instance.
@@ -158,6 +158,36 @@ public interface ResultSet extends Iterable<Row> {
      */
     public ListenableFuture<Void> fetchMoreResults();
 
+    /**
+     * Passes all the remaining rows in this ResultSet to the provided visitor, without
+     * allocating a {@code Row} object per row.
+     * <p/>
+     * Like iterating over this ResultSet, this method will block to fetch the next
+     * page of results when needed. The visit stops when the ResultSet is exhausted or
+     * when the visitor returns {@code false}; in the latter case, the rows that were
+     * not visited remain available in this ResultSet.
+     *
+     * @param visitor the visitor. Note that the {@code Row} it receives is reused for
+     *                every row (see {@link RowVisitor}).
+     */
+    public void visit(RowVisitor visitor);
+
+    /**
+     * Passes all the remaining rows in this ResultSet to the provided visitor, fetching
+     * the next pages of results asynchronously.
+     * <p/>
+     * This is the non-blocking equivalent of {@link #visit(RowVisitor)}: the rows that
+     * are readily available are visited by the calling thread, and the rows of each
+     * following page are visited by the thread that completes its fetch (generally
+     * one of the driver's I/O threads, so the visitor should not block).
+     *
+     * @param visitor the visitor. Note that the {@code Row} it receives is reused for
+     *                every row (see {@link RowVisitor}).
+     * @return a future that completes when the visit is over, or fails if the fetch
+     * of a page or the visitor itself fails.
+     */
+    public ListenableFuture<Void> visitAsync(RowVisitor visitor);
+
     /**
      * Returns information on the execution of the last query made for this ResultSet.
      * <p/>
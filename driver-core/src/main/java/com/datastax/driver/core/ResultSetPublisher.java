@@ -0,0 +1,194 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Publisher} implementation that fetches the pages of a {@link ResultSet} as subscribers
+ * request rows.
+ * <p/>
+ * Pages are never fetched beyond the demand of the subscriber: if the statement is configured to
+ * prefetch pages (see {@link Statement#setPrefetchThreshold(int)}), the next page is fetched in the
+ * background only when the rows already requested can't be served from the current one.
+ * <p/>
+ * Signals are generally delivered on one of the driver's I/O threads: subscribers must not block
+ * in their callbacks.
+ */
+class ResultSetPublisher implements Publisher<Row> {
+
+    private final Session session;
+    private final Statement statement;
+
+    ResultSetPublisher(Session session, Statement statement) {
+        this.session = session;
+        this.statement = statement;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Row> subscriber) {
+        if (subscriber == null)
+            throw new NullPointerException("subscriber can't be null");
+        RowSubscription subscription = new RowSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Stops {@code rs} from prefetching pages by itself (the subscription will do it, within the limits
+     * of the subscriber's demand), and returns the prefetch threshold that it was using.
+     */
+    int takeOverPrefetching(ResultSet rs) {
+        return (rs instanceof ArrayBackedResultSet)
+                ? ((ArrayBackedResultSet) rs).disablePrefetching()
+                : 0;
+    }
+
+    private class RowSubscription implements Subscription, FutureCallback<Object> {
+
+        private final Subscriber<? super Row> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // Serializes drain(): only the thread that increments it from 0 emits, others just flag more work
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile ResultSet rs;
+        private volatile int prefetchThreshold;
+        private volatile boolean fetching;
+        private volatile Throwable error;
+        private volatile boolean cancelled;
+        private boolean done;
+
+        RowSubscription(Subscriber<? super Row> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested number of rows must be strictly positive, got " + n);
+            } else {
+                long current, next;
+                do {
+                    current = demand.get();
+                    next = current + n;
+                    if (next < 0)
+                        next = Long.MAX_VALUE;
+                } while (!demand.compareAndSet(current, next));
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            rs = null;
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0)
+                return;
+            int missed = 1;
+            do {
+                emit();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            while (!done && !cancelled) {
+                Throwable error = this.error;
+                if (error != null) {
+                    done = true;
+                    subscriber.onError(error);
+                    return;
+                }
+
+                ResultSet rs = this.rs;
+                if (rs == null) {
+                    if (demand.get() > 0 && !fetching) {
+                        fetching = true;
+                        addCallback(session.executeAsync(statement));
+                    }
+                    return;
+                }
+
+                int available = rs.getAvailableWithoutFetching();
+                if (available == 0 && rs.isFullyFetched()) {
+                    done = true;
+                    subscriber.onComplete();
+                    return;
+                }
+
+                // Only fetch the next page once the current one is consumed and rows are still wanted
+                if (demand.get() == 0)
+                    return;
+                if (available == 0) {
+                    if (!fetching) {
+                        fetching = true;
+                        addCallback(rs.fetchMoreResults());
+                    }
+                    return;
+                }
+
+                Row row = rs.one();
+                if (demand.get() != Long.MAX_VALUE)
+                    demand.decrementAndGet();
+                subscriber.onNext(row);
+                maybePrefetch(rs);
+            }
+        }
+
+        // Fetch the next page in the background if the rows already requested can't be served from the current one
+        private void maybePrefetch(ResultSet rs) {
+            if (prefetchThreshold == 0 || fetching || rs.isFullyFetched())
+                return;
+            int available = rs.getAvailableWithoutFetching();
+            if (available < prefetchThreshold && demand.get() > available) {
+                fetching = true;
+                addCallback(rs.fetchMoreResults());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void addCallback(ListenableFuture<?> future) {
+            Futures.addCallback((ListenableFuture<Object>) future, this);
+        }
+
+        @Override
+        public void onSuccess(Object result) {
+            if (result instanceof ResultSet && !cancelled) {
+                prefetchThreshold = takeOverPrefetching((ResultSet) result);
+                rs = (ResultSet) result;
+            }
+            fetching = false;
+            drain();
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            error = t;
+            fetching = false;
+            drain();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+/**
+ * A callback invoked for each row of a {@link ResultSet} by {@link ResultSet#visit(RowVisitor)}
+ * and {@link ResultSet#visitAsync(RowVisitor)}.
+ * <p/>
+ * To avoid allocating an object per row, the {@link Row} passed to {@link #visit(Row)} is a
+ * view that is reused for every row of the result set: it is only valid for the duration of
+ * the call, and must not be stored or used once the method returns. Extract the values you need
+ * from it instead (accessing columns by index, e.g. {@code row.getLong(0)}, is the cheapest way).
+ */
+public interface RowVisitor {
+
+    /**
+     * Called for each row.
+     *
+     * @param row a view on the current row, only valid during this call.
+     * @return {@code true} to continue with the next row, {@code false} to stop the visit.
+     */
+    boolean visit(Row row);
+}
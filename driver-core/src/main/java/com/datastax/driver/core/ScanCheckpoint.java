@@ -0,0 +1,219 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.utils.Bytes;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The checkpoint file of a {@link TableScanner} scan.
+ * <p/>
+ * The file is append-only, one record per line, each ending with the CRC32 of the rest of the line:
+ * <pre>
+ * page &lt;start token&gt; &lt;end token&gt; &lt;paging state (hex)&gt; &lt;crc (hex)&gt;
+ * done &lt;start token&gt; &lt;end token&gt; &lt;crc (hex)&gt;
+ * </pre>
+ * A {@code page} record means that the rows of the sub-range up to the given paging state were
+ * consumed, a {@code done} record that all of them were. The last record of a sub-range wins. Records
+ * whose checksum doesn't match are ignored, as well as a last line without a line break (if the process
+ * died while writing it), which is also removed when the file is opened again.
+ * <p/>
+ * Writes are flushed to the operating system immediately, and synced to disk at most one sync
+ * interval later (and when the file is closed), even if no other record is written.
+ */
+class ScanCheckpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanCheckpoint.class);
+
+    private final File file;
+    private final long syncIntervalNanos;
+
+    private final Set<String> completed = new HashSet<String>();
+    private final Map<String, byte[]> pagingStates = new HashMap<String, byte[]>();
+
+    private FileOutputStream out;
+    private Writer writer;
+    private long lastSync;
+    private boolean dirty;
+    private ScheduledFuture<?> syncTask;
+
+    private ScanCheckpoint(File file, long syncIntervalMillis) {
+        this.file = file;
+        this.syncIntervalNanos = syncIntervalMillis * 1000000;
+    }
+
+    /**
+     * Loads the checkpoint file if it exists, and opens it to append new records.
+     *
+     * @param scheduler the executor that syncs the records that were not synced when they were written
+     *                  (unused if {@code syncIntervalMillis} is 0).
+     */
+    static ScanCheckpoint open(File file, long syncIntervalMillis, ScheduledExecutorService scheduler) {
+        final ScanCheckpoint checkpoint = new ScanCheckpoint(file, syncIntervalMillis);
+        try {
+            long length = file.exists() ? checkpoint.load() : 0;
+            checkpoint.out = new FileOutputStream(file, true);
+            // Drop a partially written record, so that the next one starts on its own line
+            if (length < checkpoint.out.getChannel().size())
+                checkpoint.out.getChannel().truncate(length);
+            checkpoint.writer = new BufferedWriter(new OutputStreamWriter(checkpoint.out, Charsets.UTF_8));
+            checkpoint.lastSync = System.nanoTime();
+        } catch (IOException e) {
+            throw new DriverException("Cannot open scan checkpoint file " + file, e);
+        }
+        if (syncIntervalMillis > 0) {
+            try {
+                checkpoint.syncTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        checkpoint.syncIfDirty();
+                    }
+                }, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                checkpoint.close(false);
+                throw new DriverException("Cannot schedule the syncs of scan checkpoint file " + file, e);
+            }
+        }
+        return checkpoint;
+    }
+
+    // Returns the length of the complete lines
+    private long load() throws IOException {
+        byte[] data = Files.toByteArray(file);
+        int length = data.length;
+        while (length > 0 && data[length - 1] != '\n')
+            length -= 1;
+        for (String line : new String(data, 0, length, Charsets.UTF_8).split("\n")) {
+            int crcStart = line.lastIndexOf(' ');
+            if (crcStart < 0 || !line.substring(crcStart + 1).equals(crc(line.substring(0, crcStart))))
+                continue;
+            String[] fields = line.substring(0, crcStart).split(" ");
+            if (fields.length == 3 && fields[0].equals("done")) {
+                String key = fields[1] + ' ' + fields[2];
+                completed.add(key);
+                pagingStates.remove(key);
+            } else if (fields.length == 4 && fields[0].equals("page")) {
+                String key = fields[1] + ' ' + fields[2];
+                pagingStates.put(key, Bytes.getArray(Bytes.fromHexString(fields[3])));
+                completed.remove(key);
+            }
+        }
+        return length;
+    }
+
+    private static String crc(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(Charsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static String key(TokenRange range) {
+        return range.getStart().toString() + ' ' + range.getEnd();
+    }
+
+    synchronized boolean isCompleted(TokenRange range) {
+        return completed.contains(key(range));
+    }
+
+    /**
+     * Returns the paging state to resume the scan of a sub-range from, or {@code null} to start from
+     * the beginning.
+     */
+    synchronized byte[] getPagingState(TokenRange range) {
+        return pagingStates.get(key(range));
+    }
+
+    synchronized void pageConsumed(TokenRange range, byte[] nextPagingState) {
+        append("page " + key(range) + ' ' + Bytes.toHexString(nextPagingState));
+    }
+
+    synchronized void rangeCompleted(TokenRange range) {
+        append("done " + key(range));
+    }
+
+    private void append(String record) {
+        if (writer == null)
+            return;
+        try {
+            writer.write(record);
+            writer.write(' ');
+            writer.write(crc(record));
+            writer.write('\n');
+            writer.flush();
+            dirty = true;
+            if (System.nanoTime() - lastSync >= syncIntervalNanos)
+                sync();
+        } catch (IOException e) {
+            throw new DriverException("Cannot write to scan checkpoint file " + file, e);
+        }
+    }
+
+    private void sync() throws IOException {
+        out.getFD().sync();
+        lastSync = System.nanoTime();
+        dirty = false;
+    }
+
+    // Called periodically, for the records written since the last sync when no other record followed
+    synchronized void syncIfDirty() {
+        if (writer == null || !dirty)
+            return;
+        try {
+            sync();
+        } catch (IOException e) {
+            // Keep the task scheduled: the next write or sync will try again, and fail the scan if it can't write
+            logger.warn("Cannot sync scan checkpoint file " + file, e);
+        }
+    }
+
+    /**
+     * Syncs and closes the file.
+     *
+     * @param delete whether to delete the file (once the scan is complete).
+     */
+    synchronized void close(boolean delete) {
+        if (writer == null)
+            return;
+        if (syncTask != null)
+            syncTask.cancel(false);
+        try {
+            if (dirty)
+                out.getFD().sync();
+            writer.close();
+        } catch (IOException e) {
+            throw new DriverException("Cannot close scan checkpoint file " + file, e);
+        } finally {
+            writer = null;
+        }
+        if (delete && !file.delete())
+            throw new DriverException("Cannot delete scan checkpoint file " + file);
+    }
+}
@@ -43,7 +43,10 @@ public interface SchemaChangeListener {
     void onKeyspaceRemoved(KeyspaceMetadata keyspace);
 
     /**
-     * Called when a keyspace has changed.
+     * Called when the definition of a keyspace (replication or durable writes) has changed.
+     * <p/>
+     * Changes to the tables or user types of the keyspace alone are only notified to the
+     * corresponding methods (such as {@link #onTableChanged(TableMetadata, TableMetadata)}).
      *
      * @param current  the keyspace that has changed, in its current form (after the change).
      * @param previous the keyspace that has changed, in its previous form (before the change).
@@ -17,6 +17,7 @@ package com.datastax.driver.core;
 
 import com.datastax.driver.core.exceptions.*;
 import com.google.common.util.concurrent.ListenableFuture;
+import org.reactivestreams.Publisher;
 
 import java.io.Closeable;
 import java.util.Collection;
@@ -197,6 +198,27 @@ public interface Session extends Closeable {
      */
     public ResultSetFuture executeAsync(Statement statement);
 
+    /**
+     * Returns a publisher that executes the provided query and emits its rows as they are
+     * requested.
+     * <p/>
+     * Contrarily to {@link #execute(Statement)} and {@link #executeAsync(Statement)}, the query is
+     * not executed immediately: it is executed (asynchronously) when a subscriber subscribes to the
+     * returned publisher and first requests rows. The following pages of the result are only fetched
+     * when the subscriber's demand requires them, so no more than one page (two if the statement
+     * prefetches pages, see {@link Statement#setPrefetchThreshold(int)}) is buffered per subscription,
+     * and a cancelled subscription stops fetching pages altogether.
+     * <p/>
+     * This is suited to consuming large results from non-blocking code, and the returned
+     * {@link Publisher} can be used with any <a href="http://www.reactive-streams.org">Reactive Streams</a>
+     * library. Note that rows are generally delivered on one of the driver's I/O threads: subscribers
+     * must not block in their callbacks.
+     *
+     * @param statement the CQL query to execute (that can be any {@code Statement}).
+     * @return a publisher of the rows of the query.
+     */
+    public Publisher<Row> executeReactive(Statement statement);
+
     /**
      * Prepares the provided query string.
      *
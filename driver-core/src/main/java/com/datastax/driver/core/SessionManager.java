@@ -52,6 +52,8 @@ class SessionManager extends AbstractSession {
     private final AtomicReference<ListenableFuture<Session>> initFuture = new AtomicReference<ListenableFuture<Session>>();
     final AtomicReference<CloseFuture> closeFuture = new AtomicReference<CloseFuture>();
 
+    final AutoPrepareCache autoPrepareCache;
+
     private volatile boolean isInit;
     private volatile boolean isClosing;
 
@@ -60,6 +62,7 @@ class SessionManager extends AbstractSession {
         this.cluster = cluster;
         this.pools = new ConcurrentHashMap<Host, HostConnectionPool>();
         this.poolsState = new HostConnectionPool.PoolState();
+        this.autoPrepareCache = new AutoPrepareCache(this, cluster.manager.configuration.getQueryOptions().getAutoPrepareCacheSize());
     }
 
     public Session init() {
@@ -122,9 +125,26 @@ class SessionManager extends AbstractSession {
     }
 
     public ResultSetFuture executeAsync(final Statement statement) {
+        if (statement instanceof BatchStatement) {
+            List<BatchStatement> batches = ((BatchStatement) statement).split();
+            if (batches != null) {
+                // The batches run in parallel: with the same timestamp, conflicting mutations resolve the same way
+                // as in the original batch, whatever the order the batches are applied in
+                long defaultTimestamp = statement.getDefaultTimestamp();
+                if (defaultTimestamp == Long.MIN_VALUE)
+                    defaultTimestamp = cluster.getConfiguration().getPolicies().getTimestampGenerator().next();
+                List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(batches.size());
+                for (BatchStatement batch : batches) {
+                    batch.setDefaultTimestamp(defaultTimestamp);
+                    futures.add(executeAsync(batch));
+                }
+                return new MergedResultSetFuture(batches, futures);
+            }
+        }
         if (isInit) {
-            DefaultResultSetFuture future = new DefaultResultSetFuture(this, cluster.manager.protocolVersion(), makeRequestMessage(statement, null));
-            new RequestHandler(this, future, statement).sendRequest();
+            Statement actual = autoPrepareCache.maybeBind(statement);
+            DefaultResultSetFuture future = new DefaultResultSetFuture(this, cluster.manager.protocolVersion(), makeRequestMessage(actual, null));
+            new RequestHandler(this, future, actual).sendRequest();
             return future;
         } else {
             // If the session is not initialized, we can't call makeRequestMessage() synchronously, because it
@@ -189,7 +209,7 @@ class SessionManager extends AbstractSession {
                         switch (rm.kind) {
                             case PREPARED:
                                 Responses.Result.Prepared pmsg = (Responses.Result.Prepared) rm;
-                                PreparedStatement stmt = DefaultPreparedStatement.fromMessage(pmsg, cluster.getMetadata(), cluster.getConfiguration().getProtocolOptions().getProtocolVersionEnum(), query, poolsState.keyspace);
+                                PreparedStatement stmt = DefaultPreparedStatement.fromMessage(pmsg, cluster.getMetadata(), cluster.getConfiguration().getProtocolOptions().getProtocolVersionEnum(), cluster.getConfiguration().getCodecRegistry(), query, poolsState.keyspace);
                                 stmt = cluster.manager.addPrepared(stmt);
                                 if (cluster.getConfiguration().getQueryOptions().isPrepareOnAllHosts()) {
                                     // All Sessions are connected to the same nodes so it's enough to prepare only the nodes of this session.
@@ -541,13 +561,14 @@ class SessionManager extends AbstractSession {
             return new Requests.Query(qString, options, statement.isTracing());
         } else if (statement instanceof BoundStatement) {
             BoundStatement bs = (BoundStatement) statement;
-            if (!cluster.manager.preparedQueries.containsKey(bs.statement.getPreparedId().id)) {
+            if (!cluster.manager.preparedQueries.contains(bs.statement.getPreparedId().id)) {
                 throw new InvalidQueryException(String.format("Tried to execute unknown prepared query : %s. "
                         + "You may have used a PreparedStatement that was created with another Cluster instance.", bs.statement.getPreparedId().id));
             }
+            PreparedStatementRegistry.recordUsage(bs.statement);
             bs.ensureAllSet();
             boolean skipMetadata = version != ProtocolVersion.V1 && bs.statement.getPreparedId().resultSetMetadata != null;
-            Requests.QueryProtocolOptions options = new Requests.QueryProtocolOptions(consistency, Arrays.asList(bs.wrapper.values), skipMetadata,
+            Requests.QueryProtocolOptions options = new Requests.QueryProtocolOptions(consistency, bs.wrapper.valueList(), skipMetadata,
                     fetchSize, usedPagingState, serialConsistency, defaultTimestamp);
             return new Requests.Execute(bs.statement.getPreparedId().id, options, statement.isTracing());
         } else {
@@ -233,6 +233,48 @@ public interface SettableByIndexData<T extends SettableByIndexData<T>> {
      */
     public <E> T setSet(int i, Set<E> v);
 
+    /**
+     * Sets the {@code i}th value, a list or set of {@code INT}, to the elements of the provided array.
+     * <p/>
+     * The elements are encoded directly from the array, without boxing them. If the
+     * value is a set, the array should not contain duplicates.
+     *
+     * @param i the index of the value to set.
+     * @param v the value to set.
+     * @return this object.
+     * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this object.
+     * @throws InvalidTypeException      if value {@code i} is not a list or set of {@code INT}.
+     */
+    public T setIntArray(int i, int[] v);
+
+    /**
+     * Sets the {@code i}th value, a list or set of {@code BIGINT}, to the elements of the provided array.
+     * <p/>
+     * The elements are encoded directly from the array, without boxing them. If the
+     * value is a set, the array should not contain duplicates.
+     *
+     * @param i the index of the value to set.
+     * @param v the value to set.
+     * @return this object.
+     * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this object.
+     * @throws InvalidTypeException      if value {@code i} is not a list or set of {@code BIGINT}.
+     */
+    public T setLongArray(int i, long[] v);
+
+    /**
+     * Sets the {@code i}th value, a list or set of {@code DOUBLE}, to the elements of the provided array.
+     * <p/>
+     * The elements are encoded directly from the array, without boxing them. If the
+     * value is a set, the array should not contain duplicates.
+     *
+     * @param i the index of the value to set.
+     * @param v the value to set.
+     * @return this object.
+     * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this object.
+     * @throws InvalidTypeException      if value {@code i} is not a list or set of {@code DOUBLE}.
+     */
+    public T setDoubleArray(int i, double[] v);
+
     /**
      * Sets the {@code i}th value to the provided UDT value.
      *
@@ -267,4 +309,23 @@ public interface SettableByIndexData<T extends SettableByIndexData<T>> {
      * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this object.
      */
     public T setToNull(int i);
-}
\ No newline at end of file
+
+    /**
+     * Sets the {@code i}th value to the provided value of the given Java type.
+     * <p/>
+     * The value is serialized by the {@link Codec} that the {@link CodecRegistry} in use
+     * returns for the CQL type of the value and {@code sourceClass}. This can be a
+     * built-in conversion (if {@code sourceClass} is the class returned by
+     * {@link DataType#asJavaClass()}) or a user-registered codec.
+     *
+     * @param i           the index of the value to set.
+     * @param v           the value to set.
+     * @param sourceClass the Java type of {@code v}.
+     * @param <V>         the Java type of {@code v}.
+     * @return this object.
+     * @throws IndexOutOfBoundsException if {@code i} is not a valid index for this object.
+     * @throws InvalidTypeException      if no codec can convert {@code sourceClass} to the CQL
+     *                                   type of value {@code i}.
+     */
+    public <V> T set(int i, V v, Class<V> sourceClass);
+}
@@ -272,6 +272,54 @@ public interface SettableByNameData<T extends SettableData<T>> {
      */
     public <E> T setSet(String name, Set<E> v);
 
+    /**
+     * Sets the value for (all occurrences of) variable {@code name}, a list or set of
+     * {@code INT}, to the elements of the provided array.
+     * <p/>
+     * See {@link SettableByIndexData#setIntArray(int, int[])} for details.
+     *
+     * @param name the name of the value to set; if {@code name} is present multiple
+     *             times, all its values are set.
+     * @param v    the value to set.
+     * @return this object.
+     * @throws IllegalArgumentException if {@code name} is not a valid name for this object.
+     * @throws InvalidTypeException     if (any occurrence of) {@code name} is not a list or
+     *                                  set of {@code INT}.
+     */
+    public T setIntArray(String name, int[] v);
+
+    /**
+     * Sets the value for (all occurrences of) variable {@code name}, a list or set of
+     * {@code BIGINT}, to the elements of the provided array.
+     * <p/>
+     * See {@link SettableByIndexData#setLongArray(int, long[])} for details.
+     *
+     * @param name the name of the value to set; if {@code name} is present multiple
+     *             times, all its values are set.
+     * @param v    the value to set.
+     * @return this object.
+     * @throws IllegalArgumentException if {@code name} is not a valid name for this object.
+     * @throws InvalidTypeException     if (any occurrence of) {@code name} is not a list or
+     *                                  set of {@code BIGINT}.
+     */
+    public T setLongArray(String name, long[] v);
+
+    /**
+     * Sets the value for (all occurrences of) variable {@code name}, a list or set of
+     * {@code DOUBLE}, to the elements of the provided array.
+     * <p/>
+     * See {@link SettableByIndexData#setDoubleArray(int, double[])} for details.
+     *
+     * @param name the name of the value to set; if {@code name} is present multiple
+     *             times, all its values are set.
+     * @param v    the value to set.
+     * @return this object.
+     * @throws IllegalArgumentException if {@code name} is not a valid name for this object.
+     * @throws InvalidTypeException     if (any occurrence of) {@code name} is not a list or
+     *                                  set of {@code DOUBLE}.
+     */
+    public T setDoubleArray(String name, double[] v);
+
     /**
      * Sets the value for (all occurrences of) variable {@code name} to the
      * provided UDT value.
@@ -315,4 +363,22 @@ public interface SettableByNameData<T extends SettableData<T>> {
      * @throws IllegalArgumentException if {@code name} is not a valid name for this object.
      */
     public T setToNull(String name);
-}
\ No newline at end of file
+
+    /**
+     * Sets the value for (all occurrences of) variable {@code name} to the provided value
+     * of the given Java type.
+     * <p/>
+     * See {@link SettableByIndexData#set(int, Object, Class)} for details.
+     *
+     * @param name        the name of the value to set; if {@code name} is present multiple
+     *                    times, all its values are set.
+     * @param v           the value to set.
+     * @param sourceClass the Java type of {@code v}.
+     * @param <V>         the Java type of {@code v}.
+     * @return this object.
+     * @throws IllegalArgumentException if {@code name} is not a valid name for this object.
+     * @throws InvalidTypeException     if no codec can convert {@code sourceClass} to the CQL
+     *                                  type of value {@code name}.
+     */
+    public <V> T set(String name, V v, Class<V> sourceClass);
+}
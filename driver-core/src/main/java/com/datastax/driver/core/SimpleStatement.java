@@ -132,6 +132,13 @@ public class SimpleStatement extends RegularStatement {
         return values != null && values.length > 0;
     }
 
+    /**
+     * The values as they were provided, or {@code null} if there are none.
+     */
+    Object[] getRawValues() {
+        return values;
+    }
+
     /**
      * Returns the {@code i}th value as the Java type matching its CQL type.
      *
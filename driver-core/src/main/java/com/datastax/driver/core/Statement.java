@@ -48,9 +48,11 @@ public abstract class Statement {
     private volatile ConsistencyLevel serialConsistency;
     private volatile boolean traceQuery;
     private volatile int fetchSize;
+    private volatile int prefetchThreshold = -1;
     private volatile long defaultTimestamp = Long.MIN_VALUE;
     private volatile RetryPolicy retryPolicy;
     private volatile ByteBuffer pagingState;
+    private volatile Token routingToken;
     protected volatile Boolean idempotent;
 
     // We don't want to expose the constructor, because the code relies on this being only sub-classed by RegularStatement, BoundStatement and BatchStatement
@@ -173,6 +175,35 @@ public abstract class Statement {
      */
     public abstract ByteBuffer getRoutingKey();
 
+    /**
+     * Sets the token to use for token-aware routing of this query, when it has no routing key.
+     * <p/>
+     * This is for queries that target a token rather than a partition, such as range queries
+     * ({@code SELECT ... WHERE token(pk) > ? AND token(pk) <= ?}): routing them with the end
+     * token of their range sends them to a replica of that range.
+     *
+     * @param routingToken the token, or {@code null} to route this query with its routing key only.
+     * @return this {@code Statement} object.
+     * @see #getRoutingToken()
+     */
+    public Statement setRoutingToken(Token routingToken) {
+        this.routingToken = routingToken;
+        return this;
+    }
+
+    /**
+     * Returns the token to use for token-aware routing of this query.
+     * <p/>
+     * Like the routing key, this is only a hint for token-aware routing (see
+     * {@link com.datastax.driver.core.policies.TokenAwarePolicy}); it is only used if
+     * {@link #getRoutingKey()} returns {@code null}.
+     *
+     * @return the routing token for this query, or {@code null} if it was not set.
+     */
+    public Token getRoutingToken() {
+        return routingToken;
+    }
+
     /**
      * Returns the keyspace this query operates on.
      * <p/>
@@ -261,6 +292,35 @@ public abstract class Statement {
         return fetchSize;
     }
 
+    /**
+     * Sets the prefetch threshold for this query.
+     * <p/>
+     * If the result of this query spans multiple pages, the next page will be fetched
+     * in the background as soon as fewer than {@code prefetchThreshold} rows remain in
+     * the page currently being consumed. See {@link QueryOptions#setPrefetchThreshold(int)}
+     * for more details.
+     *
+     * @param prefetchThreshold the prefetch threshold to use. If {@code prefetchThreshold < 0},
+     *                          the default prefetch threshold will be used. Use 0 to disable
+     *                          prefetching for this query.
+     * @return this {@code Statement} object.
+     */
+    public Statement setPrefetchThreshold(int prefetchThreshold) {
+        this.prefetchThreshold = prefetchThreshold;
+        return this;
+    }
+
+    /**
+     * The prefetch threshold for this query.
+     *
+     * @return the prefetch threshold for this query. If that value is negative
+     * (the default unless {@link #setPrefetchThreshold} is used), the default
+     * prefetch threshold will be used.
+     */
+    public int getPrefetchThreshold() {
+        return prefetchThreshold;
+    }
+
     /**
      * Sets the default timestamp for this query (in microseconds since the epoch).
      * <p/>
@@ -439,6 +499,22 @@ public abstract class Statement {
         return idempotent;
     }
 
+    /**
+     * Copies the execution options of this statement to {@code other}, except the paging state
+     * (which is only valid for this statement).
+     */
+    void copyOptionsTo(Statement other) {
+        other.consistency = consistency;
+        other.serialConsistency = serialConsistency;
+        other.traceQuery = traceQuery;
+        other.fetchSize = fetchSize;
+        other.prefetchThreshold = prefetchThreshold;
+        other.routingToken = routingToken;
+        other.defaultTimestamp = defaultTimestamp;
+        other.retryPolicy = retryPolicy;
+        other.idempotent = idempotent;
+    }
+
     boolean isIdempotentWithDefault(QueryOptions queryOptions) {
         Boolean myValue = this.isIdempotent();
         if (myValue != null)
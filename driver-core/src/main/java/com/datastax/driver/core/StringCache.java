@@ -0,0 +1,104 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.utils.Bytes;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded cache of the decoded values of a low-cardinality text column: all the cells that hold
+ * the same bytes are decoded once, and share the same {@code String} instance.
+ * <p/>
+ * Values are never evicted: once {@code maxSize} distinct values have been cached, other values
+ * are simply decoded on each access.
+ * <p/>
+ * This class is thread-safe.
+ */
+class StringCache {
+
+    private final int maxSize;
+    // Open addressing with linear probing. The table is at least twice as big as maxSize, so there
+    // is always an empty slot to end a lookup.
+    private final AtomicReferenceArray<Entry> table;
+    private final AtomicInteger size = new AtomicInteger();
+
+    StringCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.table = new AtomicReferenceArray<Entry>(Integer.highestOneBit(maxSize) << 2);
+    }
+
+    String get(ByteBuffer bytes, TypeCodec<String> codec) {
+        int hash = hash(bytes);
+        int mask = table.length() - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Entry entry = table.get(i);
+            if (entry == null)
+                return decodeAndCache(i, hash, bytes, codec);
+            if (entry.hash == hash && entry.matches(bytes))
+                return entry.value;
+        }
+    }
+
+    private String decodeAndCache(int slot, int hash, ByteBuffer bytes, TypeCodec<String> codec) {
+        String value = codec.deserialize(bytes);
+        if (size.get() < maxSize && size.incrementAndGet() <= maxSize) {
+            // If another thread took the slot, don't bother probing again: the next lookup will
+            // either find the value or cache it.
+            if (!table.compareAndSet(slot, null, new Entry(hash, Bytes.getArray(bytes), value)))
+                size.decrementAndGet();
+        }
+        return value;
+    }
+
+    int size() {
+        return Math.min(size.get(), maxSize);
+    }
+
+    private static int hash(ByteBuffer bytes) {
+        int h = 1;
+        for (int i = bytes.position(); i < bytes.limit(); i++)
+            h = 31 * h + bytes.get(i);
+        // Spread the high bits, since the index only uses the low ones
+        return h ^ (h >>> 16);
+    }
+
+    private static class Entry {
+        final int hash;
+        final byte[] bytes;
+        final String value;
+
+        Entry(int hash, byte[] bytes, String value) {
+            this.hash = hash;
+            this.bytes = bytes;
+            this.value = value;
+        }
+
+        boolean matches(ByteBuffer other) {
+            int length = other.remaining();
+            if (length != bytes.length)
+                return false;
+            int position = other.position();
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != other.get(position + i))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,728 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Reads all the rows of a table, by scanning its token ranges in parallel.
+ * <p/>
+ * The ring is split into sub-ranges (the token ranges of the cluster, optionally split further,
+ * see {@link Builder#withSplitsPerRange(int)}), and each sub-range is read with a range query
+ * ({@code SELECT ... WHERE token(pk) > ? AND token(pk) <= ?}) that is routed to one of its replicas
+ * (see {@link Statement#setRoutingToken(Token)}). Sub-ranges are ordered so that consecutive ones
+ * belong to different replicas, and a bounded number of them is read concurrently.
+ * <pre>
+ * TableScanner scanner = TableScanner.builder(session, table).withMaxConcurrentRanges(16).build();
+ * TableScanner.Scan scan = scanner.scan();
+ * while (scan.hasNext()) {
+ *     Row row = scan.next();
+ *     ...
+ * }
+ * </pre>
+ * Rows are pulled by the caller: the next page of a sub-range is only requested once the previous
+ * one was handed to the caller, so a slow consumer slows down the scan instead of accumulating rows
+ * in memory (at most one page per sub-range being read, plus the page being consumed). Rows of
+ * different sub-ranges are interleaved, and the rows of a sub-range come in token order.
+ * <p/>
+ * A page request that fails is retried from the same page after a growing delay, up to a number of
+ * times (see {@link Builder#withMaxRetries(int)} and {@link Builder#withRetryDelay(long, TimeUnit)});
+ * after that, the scan fails.
+ * <p/>
+ * A scan can be made resumable with a checkpoint file (see {@link Builder#withCheckpointFile(File)}):
+ * the progress of each sub-range is recorded there as its rows are consumed, and a scan started with
+ * the same file after a failure (or a crash of the process) skips the sub-ranges that were completed,
+ * and resumes the others from their last consumed page.
+ * <p/>
+ * This class is thread-safe, and can be used for several scans.
+ */
+public class TableScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TableScanner.class);
+
+    /**
+     * The default maximum number of sub-ranges read concurrently: 8.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_RANGES = 8;
+
+    /**
+     * The default number of sub-ranges each token range of the cluster is split into: 1.
+     * <p/>
+     * With virtual nodes, the token ranges of the cluster are already small and numerous enough.
+     */
+    public static final int DEFAULT_SPLITS_PER_RANGE = 1;
+
+    /**
+     * The default number of times a failed page request is retried: 3.
+     */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    /**
+     * The default delay before the first retry of a failed page request: 100 milliseconds.
+     */
+    public static final long DEFAULT_RETRY_DELAY_MILLIS = 100;
+
+    /**
+     * The default maximum interval between two syncs of the checkpoint file to disk: 1000 milliseconds.
+     */
+    public static final long DEFAULT_CHECKPOINT_SYNC_INTERVAL_MILLIS = 1000;
+
+    /**
+     * A listener notified of the progress of a scan.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called when all the rows of a sub-range were handed to the caller.
+         * <p/>
+         * This is called by the thread that consumes the rows, from {@link Scan#hasNext()}.
+         *
+         * @param range the sub-range.
+         * @param rows  the number of rows of the sub-range.
+         * @param scan  the scan, to get its overall progress.
+         */
+        void onRangeCompleted(TokenRange range, long rows, Scan scan);
+    }
+
+    private final Session session;
+    private final TableMetadata table;
+    private final String query;
+    private final Collection<TokenRange> ranges;
+    private final int splitsPerRange;
+    private final int maxConcurrentRanges;
+    private final int maxRetries;
+    private final long retryDelayNanos;
+    private volatile ScheduledExecutorService scheduler;
+    private final int fetchSize;
+    private final ConsistencyLevel consistencyLevel;
+    private final ProgressListener listener;
+    private final File checkpointFile;
+    private final long checkpointSyncIntervalMillis;
+
+    private volatile PreparedStatement prepared;
+
+    private TableScanner(Builder builder) {
+        this.session = builder.session;
+        this.table = builder.table;
+        this.query = buildQuery(builder.table, builder.columns);
+        this.ranges = builder.ranges;
+        this.splitsPerRange = builder.splitsPerRange;
+        this.maxConcurrentRanges = builder.maxConcurrentRanges;
+        this.maxRetries = builder.maxRetries;
+        this.retryDelayNanos = builder.retryDelayNanos;
+        this.scheduler = builder.scheduler;
+        this.fetchSize = builder.fetchSize;
+        this.consistencyLevel = builder.consistencyLevel;
+        this.listener = builder.listener;
+        this.checkpointFile = builder.checkpointFile;
+        this.checkpointSyncIntervalMillis = builder.checkpointSyncIntervalMillis;
+    }
+
+    /**
+     * Creates a new {@link Builder} instance.
+     *
+     * @param session the session to scan with.
+     * @param table   the table to scan.
+     * @return the new builder.
+     */
+    public static TableScanner.Builder builder(Session session, TableMetadata table) {
+        return new Builder(session, table);
+    }
+
+    /**
+     * Returns the range query executed for each sub-range.
+     *
+     * @return the query, with two bind markers for the start (exclusive) and end (inclusive) tokens.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Starts a new scan of the table.
+     * <p/>
+     * This prepares the range query if needed, and sends the requests of the first sub-ranges. If a
+     * checkpoint file was configured and exists, the scan resumes from it.
+     * <p/>
+     * Only one scan at a time should use a given checkpoint file.
+     *
+     * @return the scan, to iterate over the rows.
+     * @throws com.datastax.driver.core.exceptions.DriverException if the checkpoint file can't be read
+     *                                                             or opened.
+     */
+    public Scan scan() {
+        PreparedStatement ps = prepared;
+        if (ps == null)
+            prepared = ps = session.prepare(query);
+        List<TokenRange> ranges = splitRanges();
+        ScanCheckpoint checkpoint = null;
+        if (checkpointFile != null)
+            checkpoint = ScanCheckpoint.open(checkpointFile, checkpointSyncIntervalMillis,
+                    checkpointSyncIntervalMillis == 0 ? null : scheduler());
+        Scan scan = new Scan(ps, ranges, checkpoint);
+        scan.start();
+        return scan;
+    }
+
+    private static String buildQuery(TableMetadata table, List<String> columns) {
+        StringBuilder partitionKey = new StringBuilder();
+        for (ColumnMetadata column : table.getPartitionKey()) {
+            if (partitionKey.length() > 0)
+                partitionKey.append(',');
+            partitionKey.append(Metadata.escapeId(column.getName()));
+        }
+        StringBuilder sb = new StringBuilder("SELECT ");
+        if (columns == null) {
+            sb.append('*');
+        } else {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0)
+                    sb.append(',');
+                sb.append(Metadata.escapeId(columns.get(i)));
+            }
+        }
+        return sb.append(" FROM ")
+                .append(Metadata.escapeId(table.getKeyspace().getName())).append('.').append(Metadata.escapeId(table.getName()))
+                .append(" WHERE token(").append(partitionKey).append(") > ? AND token(").append(partitionKey).append(") <= ?")
+                .toString();
+    }
+
+    private ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            // Use the cluster's executor for user tasks, it only exists once the cluster is initialized
+            Cluster cluster = session.getCluster();
+            cluster.init();
+            scheduler = cluster.manager.userTasksExecutor;
+        }
+        return scheduler;
+    }
+
+    // The sub-ranges to read, interleaving the replicas
+    List<TokenRange> splitRanges() {
+        // Not getMetadata() if ranges were given, as it would block until the cluster is initialized
+        Metadata metadata = ranges == null ? session.getCluster().getMetadata() : session.getCluster().manager.metadata;
+        Collection<TokenRange> toScan = ranges;
+        if (toScan == null) {
+            toScan = new TreeSet<TokenRange>(metadata.getTokenRanges());
+            if (toScan.isEmpty())
+                throw new IllegalStateException("The token ranges are unknown (is token metadata disabled?)");
+        }
+
+        Map<Host, Queue<TokenRange>> perReplica = new LinkedHashMap<Host, Queue<TokenRange>>();
+        String keyspace = Metadata.quote(table.getKeyspace().getName());
+        for (TokenRange range : toScan) {
+            Host replica = null;
+            if (metadata != null) {
+                Set<Host> replicas = metadata.getReplicas(keyspace, range);
+                if (!replicas.isEmpty())
+                    replica = replicas.iterator().next();
+            }
+            Queue<TokenRange> queue = perReplica.get(replica);
+            if (queue == null)
+                perReplica.put(replica, queue = new ArrayDeque<TokenRange>());
+            for (TokenRange split : splitsPerRange == 1 ? Collections.singletonList(range) : range.splitEvenly(splitsPerRange))
+                queue.addAll(split.unwrap());
+        }
+
+        List<TokenRange> result = new ArrayList<TokenRange>();
+        while (!perReplica.isEmpty()) {
+            Iterator<Queue<TokenRange>> it = perReplica.values().iterator();
+            while (it.hasNext()) {
+                Queue<TokenRange> queue = it.next();
+                result.add(queue.poll());
+                if (queue.isEmpty())
+                    it.remove();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A scan in progress.
+     * <p/>
+     * The rows are consumed with the {@link Iterator} methods, by a single thread; the progress methods
+     * and {@link #cancel()} can be called from any thread.
+     */
+    public class Scan implements Iterator<Row> {
+
+        private final PreparedStatement statement;
+        private final ScanCheckpoint checkpoint;
+        private final Queue<RangeTask> pending = new ArrayDeque<RangeTask>();
+        private final int totalRanges;
+        // Pages and errors, as they arrive
+        private final BlockingQueue<Object> ready = new LinkedBlockingQueue<Object>();
+
+        // The sub-ranges with a page request in flight or a page waiting in ready; only accessed by the consumer
+        private int active;
+        private Page current;
+
+        private volatile int completedRanges;
+        private volatile long rows;
+        private volatile boolean cancelled;
+
+        Scan(PreparedStatement statement, List<TokenRange> ranges, ScanCheckpoint checkpoint) {
+            this.statement = statement;
+            this.checkpoint = checkpoint;
+            int skipped = 0;
+            for (TokenRange range : ranges) {
+                if (checkpoint != null && checkpoint.isCompleted(range)) {
+                    skipped += 1;
+                    continue;
+                }
+                RangeTask task = new RangeTask(range);
+                if (checkpoint != null)
+                    task.pagingState = checkpoint.getPagingState(range);
+                pending.add(task);
+            }
+            this.totalRanges = ranges.size();
+            this.completedRanges = skipped;
+        }
+
+        void start() {
+            while (active < maxConcurrentRanges && !pending.isEmpty() && !cancelled) {
+                active += 1;
+                fetch(pending.poll());
+            }
+        }
+
+        private void fetch(final RangeTask task) {
+            BoundStatement bs = statement.bind()
+                    .setToken(0, task.range.getStart())
+                    .setToken(1, task.range.getEnd());
+            bs.setRoutingToken(task.range.getEnd());
+            bs.setIdempotent(true);
+            // Pages are requested by this class, as the consumer progresses
+            bs.setPrefetchThreshold(0);
+            if (fetchSize > 0)
+                bs.setFetchSize(fetchSize);
+            if (consistencyLevel != null)
+                bs.setConsistencyLevel(consistencyLevel);
+            if (task.pagingState != null)
+                bs.setPagingStateUnsafe(task.pagingState);
+
+            Futures.addCallback(session.executeAsync(bs), new FutureCallback<ResultSet>() {
+                @Override
+                public void onSuccess(ResultSet rs) {
+                    task.attempts = 0;
+                    ready.add(new Page(task, rs, rs.getAvailableWithoutFetching(), rs.getExecutionInfo().getPagingStateUnsafe()));
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    if (!cancelled && task.attempts < maxRetries) {
+                        task.attempts += 1;
+                        logger.debug("Error while scanning {}, retrying ({}/{})", task.range, task.attempts, maxRetries, t);
+                        scheduleRetry(task, t);
+                    } else {
+                        ready.add(t);
+                    }
+                }
+            });
+        }
+
+        // Give an overloaded or unavailable replica some time, rather than retrying right away
+        private void scheduleRetry(final RangeTask task, final Throwable error) {
+            long delay = retryDelayNanos << Math.min(task.attempts - 1, MAX_RETRY_DELAY_SHIFT);
+            try {
+                scheduler().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!cancelled)
+                            fetch(task);
+                    }
+                }, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // The scheduler was shut down
+                ready.add(error);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p/>
+         * This blocks until the next page of rows is available, if needed.
+         *
+         * @throws com.datastax.driver.core.exceptions.DriverException if the page request of a
+         *                                                             sub-range failed more times than allowed.
+         */
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                if (cancelled)
+                    return false;
+                if (current != null) {
+                    if (current.remaining > 0)
+                        return true;
+                    consumed(current);
+                    current = null;
+                }
+                if (active == 0 && ready.isEmpty()) {
+                    // All the rows were consumed
+                    if (checkpoint != null)
+                        checkpoint.close(true);
+                    return false;
+                }
+                Object next = Uninterruptibles.takeUninterruptibly(ready);
+                if (next == CANCELLED)
+                    return false;
+                if (next instanceof Throwable) {
+                    cancel();
+                    throw DriverThrowables.propagateCause(new ExecutionException((Throwable) next));
+                }
+                current = taken((Page) next);
+            }
+        }
+
+        // Called when a page is handed to the consumer: request the next one, or start another sub-range
+        private Page taken(Page page) {
+            if (page.nextPagingState != null) {
+                page.task.pagingState = page.nextPagingState;
+                fetch(page.task);
+            } else {
+                active -= 1;
+                start();
+            }
+            return page;
+        }
+
+        // Called once the consumer got all the rows of a page
+        private void consumed(Page page) {
+            if (page.nextPagingState != null) {
+                if (checkpoint != null)
+                    checkpoint.pageConsumed(page.task.range, page.nextPagingState);
+            } else {
+                if (checkpoint != null)
+                    checkpoint.rangeCompleted(page.task.range);
+                completedRanges += 1;
+                if (listener != null)
+                    listener.onRangeCompleted(page.task.range, page.task.rows, this);
+            }
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            current.remaining -= 1;
+            current.task.rows += 1;
+            rows += 1;
+            return current.rs.one();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Stops this scan: no more requests are sent, and {@link #hasNext()} returns {@code false}.
+         * <p/>
+         * If the scan has a checkpoint file, it is kept, so that a new scan can resume from it.
+         */
+        public void cancel() {
+            if (cancelled)
+                return;
+            cancelled = true;
+            if (checkpoint != null)
+                checkpoint.close(false);
+            // Wake up the consumer if it is waiting
+            ready.add(CANCELLED);
+        }
+
+        /**
+         * @return the number of sub-ranges to scan.
+         */
+        public int getTotalRanges() {
+            return totalRanges;
+        }
+
+        /**
+         * @return the number of sub-ranges whose rows were all handed to the caller (including, for a
+         * resumed scan, those that were completed before).
+         */
+        public int getCompletedRanges() {
+            return completedRanges;
+        }
+
+        /**
+         * @return the number of rows handed to the caller so far.
+         */
+        public long getRows() {
+            return rows;
+        }
+    }
+
+    private static final Object CANCELLED = new Object();
+
+    // The retry delay doubles with each attempt, up to 2^MAX_RETRY_DELAY_SHIFT times the initial delay
+    private static final int MAX_RETRY_DELAY_SHIFT = 6;
+
+    // The state of the scan of a sub-range; only one page request is in flight at a time for a given sub-range
+    static class RangeTask {
+        final TokenRange range;
+        volatile byte[] pagingState;
+        volatile int attempts;
+        long rows;
+
+        RangeTask(TokenRange range) {
+            this.range = range;
+        }
+    }
+
+    private static class Page {
+        final RangeTask task;
+        final ResultSet rs;
+        final byte[] nextPagingState;
+        int remaining;
+
+        Page(RangeTask task, ResultSet rs, int remaining, byte[] nextPagingState) {
+            this.task = task;
+            this.rs = rs;
+            this.remaining = remaining;
+            this.nextPagingState = nextPagingState;
+        }
+    }
+
+    /**
+     * Helper class to build {@link TableScanner} instances with a fluent API.
+     */
+    public static class Builder {
+
+        private final Session session;
+        private final TableMetadata table;
+        private List<String> columns;
+        private Collection<TokenRange> ranges;
+        private int splitsPerRange = DEFAULT_SPLITS_PER_RANGE;
+        private int maxConcurrentRanges = DEFAULT_MAX_CONCURRENT_RANGES;
+        private int maxRetries = DEFAULT_MAX_RETRIES;
+        private long retryDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_RETRY_DELAY_MILLIS);
+        private ScheduledExecutorService scheduler;
+        private int fetchSize;
+        private ConsistencyLevel consistencyLevel;
+        private ProgressListener listener;
+        private File checkpointFile;
+        private long checkpointSyncIntervalMillis = DEFAULT_CHECKPOINT_SYNC_INTERVAL_MILLIS;
+
+        public Builder(Session session, TableMetadata table) {
+            this.session = session;
+            this.table = table;
+        }
+
+        /**
+         * Sets the columns to read.
+         *
+         * @param columns the names of the columns. By default, all columns are read.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withColumns(String... columns) {
+            if (columns.length == 0)
+                throw new IllegalArgumentException("Invalid columns, should not be empty");
+            this.columns = Arrays.asList(columns);
+            return this;
+        }
+
+        /**
+         * Sets the token ranges to scan, instead of the whole ring.
+         * <p/>
+         * This allows to split a scan between several processes, for example by giving each one a
+         * part of {@link Metadata#getTokenRanges()}.
+         *
+         * @param ranges the ranges.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withRanges(Collection<TokenRange> ranges) {
+            this.ranges = new ArrayList<TokenRange>(ranges);
+            return this;
+        }
+
+        /**
+         * Sets the number of sub-ranges each token range is split into.
+         * <p/>
+         * Splitting the ranges further is useful without virtual nodes, where there are few, large
+         * token ranges: this allows more parallelism, and makes retries and progress more fine-grained.
+         *
+         * @param splitsPerRange the number of splits. It must be strictly positive.
+         *                       The default value is {@link #DEFAULT_SPLITS_PER_RANGE}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withSplitsPerRange(int splitsPerRange) {
+            if (splitsPerRange <= 0)
+                throw new IllegalArgumentException("Invalid splitsPerRange, should be > 0, got " + splitsPerRange);
+            this.splitsPerRange = splitsPerRange;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of sub-ranges read concurrently.
+         *
+         * @param maxConcurrentRanges the maximum. It must be strictly positive.
+         *                            The default value is {@link #DEFAULT_MAX_CONCURRENT_RANGES}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withMaxConcurrentRanges(int maxConcurrentRanges) {
+            if (maxConcurrentRanges <= 0)
+                throw new IllegalArgumentException("Invalid maxConcurrentRanges, should be > 0, got " + maxConcurrentRanges);
+            this.maxConcurrentRanges = maxConcurrentRanges;
+            return this;
+        }
+
+        /**
+         * Sets the number of times a failed page request is retried before the scan fails.
+         * <p/>
+         * These retries come on top of those of the {@link com.datastax.driver.core.policies.RetryPolicy}.
+         *
+         * @param maxRetries the number of retries. It must be positive or 0.
+         *                   The default value is {@link #DEFAULT_MAX_RETRIES}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withMaxRetries(int maxRetries) {
+            if (maxRetries < 0)
+                throw new IllegalArgumentException("Invalid maxRetries, should be >= 0, got " + maxRetries);
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Sets the delay before a failed page request is retried. The delay doubles with each attempt
+         * of the same request, up to 64 times this value.
+         *
+         * @param retryDelay the delay before the first retry. The default value is
+         *                   {@link #DEFAULT_RETRY_DELAY_MILLIS} milliseconds.
+         * @param unit       the unit of {@code retryDelay}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withRetryDelay(long retryDelay, TimeUnit unit) {
+            if (retryDelay < 0)
+                throw new IllegalArgumentException("Invalid retryDelay, should be >= 0, got " + retryDelay);
+            this.retryDelayNanos = unit.toNanos(retryDelay);
+            return this;
+        }
+
+        /**
+         * Sets the executor that retries failed page requests, and syncs the checkpoint file.
+         *
+         * @param scheduler the executor, or {@code null} to use a single-threaded executor of the
+         *                  {@link Cluster}, shared with the driver's other helpers but not with its
+         *                  internal tasks (the default).
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withScheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Sets the number of rows per page.
+         *
+         * @param fetchSize the fetch size. It must be strictly positive.
+         *                  By default, the fetch size of {@link QueryOptions} is used.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withFetchSize(int fetchSize) {
+            if (fetchSize <= 0)
+                throw new IllegalArgumentException("Invalid fetchSize, should be > 0, got " + fetchSize);
+            this.fetchSize = fetchSize;
+            return this;
+        }
+
+        /**
+         * Sets the consistency level of the range queries.
+         *
+         * @param consistencyLevel the consistency level.
+         *                         By default, the consistency level of {@link QueryOptions} is used.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withConsistencyLevel(ConsistencyLevel consistencyLevel) {
+            this.consistencyLevel = consistencyLevel;
+            return this;
+        }
+
+        /**
+         * Sets a listener notified of the progress of the scans.
+         *
+         * @param listener the listener.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withProgressListener(ProgressListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Sets the file where the progress of the scans is recorded, to resume them after a failure.
+         * <p/>
+         * As rows are consumed, the scan appends to this file the sub-ranges that it completed, and the
+         * paging state reached in the others. A scan started with an existing
+         * file skips the completed sub-ranges, and resumes the others after their last consumed page; the
+         * file is deleted once all the rows were consumed.
+         * <p/>
+         * Note that:
+         * <ul>
+         * <li>a page counts as consumed once the caller asked for the row after its last one: rows of
+         * the page that was being consumed when the scan stopped are returned again when it resumes;</li>
+         * <li>the sub-ranges of the resumed scan must be the same as the ones of the original scan: same
+         * ranges (or ring, if they were not given) and {@link #withSplitsPerRange(int) splits}. The
+         * progress of a sub-range that does not exist any more is ignored;</li>
+         * <li>paging states are not portable across native protocol versions, nor, in general, across
+         * Cassandra versions.</li>
+         * </ul>
+         *
+         * @param checkpointFile the file.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withCheckpointFile(File checkpointFile) {
+            this.checkpointFile = checkpointFile;
+            return this;
+        }
+
+        /**
+         * Sets the maximum interval between two syncs of the checkpoint file to disk.
+         * <p/>
+         * The records are always written to the operating system immediately, and synced at most this
+         * interval later, even if the scan is idle; this bounds the progress lost if the machine (rather
+         * than the process) crashes. The periodic syncs run on the scheduler (see
+         * {@link #withScheduler(ScheduledExecutorService)}).
+         *
+         * @param checkpointSyncIntervalMillis the interval, in milliseconds. It must be positive or 0
+         *                                     (to sync after every record). The default value is
+         *                                     {@link #DEFAULT_CHECKPOINT_SYNC_INTERVAL_MILLIS}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withCheckpointSyncInterval(long checkpointSyncIntervalMillis) {
+            if (checkpointSyncIntervalMillis < 0)
+                throw new IllegalArgumentException("Invalid checkpointSyncIntervalMillis, should be >= 0, got " + checkpointSyncIntervalMillis);
+            this.checkpointSyncIntervalMillis = checkpointSyncIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Builds the {@link TableScanner} instance.
+         *
+         * @return the {@link TableScanner} instance.
+         */
+        public TableScanner build() {
+            return new TableScanner(this);
+        }
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups statements into {@code UNLOGGED} (or {@code COUNTER}) batches that target a single partition
+ * or a single set of replicas, so that each batch can be sent directly to a replica instead of being
+ * fanned out by its coordinator.
+ * <p/>
+ * Statements are grouped by keyspace and routing key (see {@link Statement#getRoutingKey()}) or, with
+ * {@link Grouping#REPLICAS}, by the set of replicas of that routing key as known by the driver (see
+ * {@link Metadata#getReplicas(String, ByteBuffer)}). A batch is executed as soon as it reaches the
+ * configured number of statements or size, when it has been pending for the configured linger time,
+ * or when {@link #flush()} is called. Since each batch has the routing key of its statements, a
+ * {@link com.datastax.driver.core.policies.TokenAwarePolicy} sends it to one of their replicas.
+ * <p/>
+ * Typical usage:
+ * <pre>
+ * TokenAwareBatcher batcher = TokenAwareBatcher.builder(session)
+ *     .withMaxStatements(50)
+ *     .withLinger(10, TimeUnit.MILLISECONDS)
+ *     .build();
+ * List&lt;ListenableFuture&lt;ResultSet&gt;&gt; futures = new ArrayList&lt;ListenableFuture&lt;ResultSet&gt;&gt;();
+ * for (Event event : events)
+ *     futures.add(batcher.add(insertEvent.bind(event.getSensorId(), event.getTime(), event.getValue())));
+ * batcher.flush();
+ * Futures.allAsList(futures).get();
+ * </pre>
+ * <p/>
+ * Statements that have no keyspace or routing key, as well as {@link BatchStatement}s, are executed
+ * as is. Note that the options of the added statements (consistency level, etc.) are ignored: the
+ * ones given to the {@link Builder} apply to the batches. Counter updates can't be part of
+ * {@code UNLOGGED} batches: to group them, use a separate batcher with
+ * {@link Builder#withBatchType(BatchStatement.Type) COUNTER batches}.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class TokenAwareBatcher {
+
+    /**
+     * How statements are grouped into batches.
+     */
+    public enum Grouping {
+        /**
+         * Statements with the same keyspace and routing key (i.e. that target the same partition)
+         * are grouped together.
+         */
+        PARTITION,
+
+        /**
+         * Statements with the same keyspace and replicas are grouped together. This produces fewer,
+         * larger batches than {@link #PARTITION}; if the driver doesn't know the replicas of a routing
+         * key (for example if metadata is disabled), statements are grouped per partition instead.
+         */
+        REPLICAS
+    }
+
+    /**
+     * The default maximum number of statements in a batch: 100.
+     */
+    public static final int DEFAULT_MAX_STATEMENTS = 100;
+
+    /**
+     * The default maximum size of a batch: 5 kilobytes (Cassandra's default batch size warning threshold).
+     */
+    public static final int DEFAULT_MAX_BYTES = 5 * 1024;
+
+    /**
+     * The default linger time: 10 milliseconds.
+     */
+    public static final long DEFAULT_LINGER_MILLIS = 10;
+
+    private final Session session;
+    private final Grouping grouping;
+    private final BatchStatement.Type batchType;
+    private final int maxStatements;
+    private final int maxBytes;
+    private final long lingerNanos;
+    private final ConsistencyLevel consistencyLevel;
+    private volatile ScheduledExecutorService scheduler;
+
+    // Guarded by this
+    private final Map<Object, PendingBatch> pending = new HashMap<Object, PendingBatch>();
+
+    private TokenAwareBatcher(Session session, Grouping grouping, BatchStatement.Type batchType, int maxStatements, int maxBytes, long lingerNanos, ConsistencyLevel consistencyLevel, ScheduledExecutorService scheduler) {
+        this.session = session;
+        this.grouping = grouping;
+        this.batchType = batchType;
+        this.maxStatements = maxStatements;
+        this.maxBytes = maxBytes;
+        this.lingerNanos = lingerNanos;
+        this.consistencyLevel = consistencyLevel;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Creates a new {@link Builder} instance.
+     *
+     * @param session the session that batches will be executed with.
+     * @return the new builder.
+     */
+    public static TokenAwareBatcher.Builder builder(Session session) {
+        return new Builder(session);
+    }
+
+    /**
+     * Adds a statement to the pending batch of its partition or replicas, executing that batch if
+     * it is full.
+     *
+     * @param statement the statement to add.
+     * @return a future on the result of the batch that {@code statement} ends up in (or of
+     * {@code statement} itself, if it can't be batched).
+     */
+    public ListenableFuture<ResultSet> add(Statement statement) {
+        Object key = groupingKey(statement);
+        if (key == null)
+            return session.executeAsync(statement);
+
+        int size = BatchStatement.sizeOf(statement, protocolVersion());
+        if (lingerNanos > 0 && scheduler == null) {
+            // Use the cluster's executor for user tasks, it only exists once the cluster is initialized
+            Cluster cluster = session.getCluster();
+            cluster.init();
+            scheduler = cluster.manager.userTasksExecutor;
+        }
+        PendingBatch full1 = null, full2 = null;
+        ListenableFuture<ResultSet> future;
+        synchronized (this) {
+            PendingBatch batch = pending.get(key);
+            if (batch != null && batch.bytes + size > maxBytes) {
+                // Don't let this statement make the current batch too big
+                full1 = remove(key);
+                batch = null;
+            }
+            if (batch == null)
+                batch = newBatch(key);
+            batch.statement.add(statement);
+            batch.bytes += size;
+            future = batch.future;
+            if (batch.statement.size() >= maxStatements || batch.bytes >= maxBytes)
+                full2 = remove(key);
+        }
+        execute(full1);
+        execute(full2);
+        return future;
+    }
+
+    /**
+     * Executes all the pending batches.
+     */
+    public void flush() {
+        List<PendingBatch> toExecute;
+        synchronized (this) {
+            toExecute = new ArrayList<PendingBatch>(pending.values());
+            for (PendingBatch batch : toExecute)
+                cancelLinger(batch);
+            pending.clear();
+        }
+        for (PendingBatch batch : toExecute)
+            execute(batch);
+    }
+
+    /**
+     * Returns the number of statements that are waiting to be executed.
+     *
+     * @return the number of pending statements.
+     */
+    public synchronized int getPendingStatements() {
+        int count = 0;
+        for (PendingBatch batch : pending.values())
+            count += batch.statement.size();
+        return count;
+    }
+
+    private Object groupingKey(Statement statement) {
+        if (statement instanceof BatchStatement)
+            return null;
+        String keyspace = statement.getKeyspace();
+        ByteBuffer routingKey = statement.getRoutingKey();
+        if (keyspace == null || routingKey == null)
+            return null;
+
+        if (grouping == Grouping.REPLICAS) {
+            Set<Host> replicas = session.getCluster().getMetadata().getReplicas(Metadata.quote(keyspace), routingKey);
+            if (!replicas.isEmpty())
+                return new GroupingKey(keyspace, replicas);
+        }
+        return new GroupingKey(keyspace, routingKey);
+    }
+
+    private ProtocolVersion protocolVersion() {
+        Cluster.Manager manager = session.getCluster().manager;
+        // The protocol version is not known until the cluster is initialized
+        ProtocolVersion version = manager.connectionFactory == null ? null : manager.protocolVersion();
+        return version == null ? ProtocolVersion.NEWEST_SUPPORTED : version;
+    }
+
+    // Must be called while holding the lock
+    private PendingBatch newBatch(final Object key) {
+        final PendingBatch batch = new PendingBatch(batchType);
+        if (consistencyLevel != null)
+            batch.statement.setConsistencyLevel(consistencyLevel);
+        if (lingerNanos > 0) {
+            batch.linger = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    boolean expired;
+                    synchronized (TokenAwareBatcher.this) {
+                        expired = pending.get(key) == batch;
+                        if (expired)
+                            pending.remove(key);
+                    }
+                    if (expired)
+                        execute(batch);
+                }
+            }, lingerNanos, TimeUnit.NANOSECONDS);
+        }
+        pending.put(key, batch);
+        return batch;
+    }
+
+    // Must be called while holding the lock
+    private PendingBatch remove(Object key) {
+        PendingBatch batch = pending.remove(key);
+        cancelLinger(batch);
+        return batch;
+    }
+
+    private static void cancelLinger(PendingBatch batch) {
+        if (batch.linger != null)
+            batch.linger.cancel(false);
+    }
+
+    private void execute(PendingBatch batch) {
+        if (batch == null)
+            return;
+        final SettableFuture<ResultSet> future = batch.future;
+        ListenableFuture<ResultSet> result;
+        try {
+            result = session.executeAsync(batch.statement);
+        } catch (RuntimeException e) {
+            future.setException(e);
+            return;
+        }
+        Futures.addCallback(result, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet rs) {
+                future.set(rs);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.setException(t);
+            }
+        });
+    }
+
+    private static class PendingBatch {
+        final BatchStatement statement;
+        final SettableFuture<ResultSet> future = SettableFuture.create();
+        int bytes;
+        ScheduledFuture<?> linger;
+
+        PendingBatch(BatchStatement.Type batchType) {
+            this.statement = new BatchStatement(batchType);
+        }
+    }
+
+    private static class GroupingKey {
+        private final String keyspace;
+        private final Object target; // the routing key or the set of replicas
+
+        GroupingKey(String keyspace, Object target) {
+            this.keyspace = keyspace;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this)
+                return true;
+            if (!(other instanceof GroupingKey))
+                return false;
+            GroupingKey that = (GroupingKey) other;
+            return keyspace.equals(that.keyspace) && target.equals(that.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * keyspace.hashCode() + target.hashCode();
+        }
+    }
+
+    /**
+     * Helper class to build {@link TokenAwareBatcher} instances with a fluent API.
+     */
+    public static class Builder {
+
+        private final Session session;
+
+        private Grouping grouping = Grouping.PARTITION;
+
+        private BatchStatement.Type batchType = BatchStatement.Type.UNLOGGED;
+
+        private int maxStatements = DEFAULT_MAX_STATEMENTS;
+
+        private int maxBytes = DEFAULT_MAX_BYTES;
+
+        private long lingerNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_LINGER_MILLIS);
+
+        private ConsistencyLevel consistencyLevel;
+
+        private ScheduledExecutorService scheduler;
+
+        public Builder(Session session) {
+            this.session = session;
+        }
+
+        /**
+         * Sets how statements are grouped into batches.
+         *
+         * @param grouping the grouping. The default is {@link Grouping#PARTITION}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withGrouping(Grouping grouping) {
+            if (grouping == null)
+                throw new IllegalArgumentException("grouping cannot be null");
+            this.grouping = grouping;
+            return this;
+        }
+
+        /**
+         * Sets the type of the batches.
+         *
+         * @param batchType {@link BatchStatement.Type#UNLOGGED UNLOGGED} (the default), or
+         *                  {@link BatchStatement.Type#COUNTER COUNTER} to batch counter updates.
+         * @return this {@link Builder} instance (for method chaining).
+         * @throws IllegalArgumentException if {@code batchType} is {@link BatchStatement.Type#LOGGED LOGGED}:
+         *                                  grouping statements does not make sense for atomic batches.
+         */
+        public Builder withBatchType(BatchStatement.Type batchType) {
+            if (batchType == null || batchType == BatchStatement.Type.LOGGED)
+                throw new IllegalArgumentException("Invalid batchType, should be UNLOGGED or COUNTER, got " + batchType);
+            this.batchType = batchType;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of statements in a batch: a batch is executed as soon as it
+         * reaches that number.
+         *
+         * @param maxStatements the maximum number of statements. It must be strictly positive.
+         *                      The default value is {@link #DEFAULT_MAX_STATEMENTS}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withMaxStatements(int maxStatements) {
+            if (maxStatements <= 0 || maxStatements > 0xFFFF)
+                throw new IllegalArgumentException("Invalid maxStatements, should be > 0 and <= 65535, got " + maxStatements);
+            this.maxStatements = maxStatements;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of a batch, as the number of bytes that its statements take once
+         * serialized: a batch is executed as soon as it reaches that size, and a statement that
+         * would make it bigger goes to a new batch (a statement bigger than this limit is executed
+         * in a batch of its own).
+         *
+         * @param maxBytes the maximum size. It must be strictly positive.
+         *                 The default value is {@link #DEFAULT_MAX_BYTES}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withMaxBytes(int maxBytes) {
+            if (maxBytes <= 0)
+                throw new IllegalArgumentException("Invalid maxBytes, should be > 0, got " + maxBytes);
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Sets how long a batch can wait for more statements after its first statement was added.
+         *
+         * @param linger the linger time, or 0 to only execute batches when they are full or on
+         *               {@link TokenAwareBatcher#flush()}. The default value is
+         *               {@link #DEFAULT_LINGER_MILLIS} milliseconds.
+         * @param unit   the unit of {@code linger}.
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withLinger(long linger, TimeUnit unit) {
+            if (linger < 0)
+                throw new IllegalArgumentException("Invalid linger, should be >= 0, got " + linger);
+            this.lingerNanos = unit.toNanos(linger);
+            return this;
+        }
+
+        /**
+         * Sets the consistency level of the batches.
+         *
+         * @param consistencyLevel the consistency level, or {@code null} to use the default one
+         *                         (see {@link QueryOptions#getConsistencyLevel()}).
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withConsistencyLevel(ConsistencyLevel consistencyLevel) {
+            this.consistencyLevel = consistencyLevel;
+            return this;
+        }
+
+        /**
+         * Sets the executor that executes batches when their linger time expires.
+         *
+         * @param scheduler the executor, or {@code null} to use a single-threaded executor of the
+         *                  {@link Cluster}, shared with the driver's other helpers but not with its
+         *                  internal tasks (the default).
+         * @return this {@link Builder} instance (for method chaining).
+         */
+        public Builder withScheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Build the {@link TokenAwareBatcher} instance.
+         *
+         * @return the {@link TokenAwareBatcher} instance.
+         */
+        public TokenAwareBatcher build() {
+            return new TokenAwareBatcher(session, grouping, batchType, maxStatements, maxBytes, lingerNanos, consistencyLevel, scheduler);
+        }
+    }
+}
@@ -78,7 +78,7 @@ public class TupleValue extends AbstractAddressableByIndexData<TupleValue> {
                 sb.append(", ");
 
             DataType dt = getType(i);
-            sb.append(values[i] == null ? "null" : dt.format(dt.deserialize(values[i], ProtocolVersion.V3)));
+            sb.append(getValue(i) == null ? "null" : dt.format(dt.deserialize(getValue(i), ProtocolVersion.V3)));
         }
         sb.append(")");
         return sb.toString();
@@ -122,6 +122,22 @@ abstract class TypeCodec<T> {
 
     public abstract T deserialize(ByteBuffer bytes);
 
+    /**
+     * Returns the number of bytes {@link #serialize} produces for {@code value}, or -1 if
+     * that can't be known without actually serializing it.
+     */
+    int serializedSize(T value) {
+        return -1;
+    }
+
+    /**
+     * Writes the serialized form of {@code value} at the current position of {@code output}.
+     * Only called when {@link #serializedSize} returned a non-negative size for that value.
+     */
+    void serializeInto(T value, ByteBuffer output) {
+        output.put(serialize(value));
+    }
+
     @SuppressWarnings("unchecked")
     static <T> TypeCodec<T> createFor(DataType.Name name) {
         assert !name.isCollection();
@@ -244,18 +260,75 @@ abstract class TypeCodec<T> {
         return null;
     }
 
-    private static ByteBuffer pack(List<ByteBuffer> buffers, int elements, ProtocolVersion version) {
-        int size = 0;
-        for (ByteBuffer bb : buffers) {
-            int elemSize = sizeOfValue(bb, version);
-            size += elemSize;
+    /**
+     * Serializes the elements of a collection in two passes: the first one computes the size of
+     * each element, the second one writes them all to a single, pre-sized buffer. Elements whose
+     * codec can't compute their size upfront are serialized during the first pass, but are never
+     * copied more than once.
+     */
+    private static class CollectionSerializer {
+        private final ProtocolVersion version;
+        private final int elements;
+        // size of each value, or -1 if it was serialized during the sizing pass
+        private final int[] sizes;
+        private ByteBuffer[] serialized;
+        private int size;
+        private int index;
+
+        // For maps, each of the collection elements is made of two values
+        CollectionSerializer(int elements, int values, ProtocolVersion version) {
+            this.version = version;
+            this.elements = elements;
+            this.sizes = new int[values];
+            this.size = sizeOfCollectionSize(elements, version);
+        }
+
+        <E> void addSize(TypeCodec<E> codec, E element) {
+            int elementSize = element == null ? -1 : codec.serializedSize(element);
+            if (elementSize < 0) {
+                ByteBuffer bb = codec.serialize(element);
+                if (serialized == null)
+                    serialized = new ByteBuffer[sizes.length];
+                serialized[index] = bb;
+                sizes[index] = -1;
+                size += sizeOfValue(bb, version);
+            } else {
+                checkValueSize(elementSize, version);
+                sizes[index] = elementSize;
+                size += sizeOfValueSize(version) + elementSize;
+            }
+            index++;
+        }
+
+        ByteBuffer allocate() {
+            assert index == sizes.length;
+            ByteBuffer output = ByteBuffer.allocate(size);
+            writeCollectionSize(output, elements, version);
+            index = 0;
+            return output;
         }
 
-        ByteBuffer result = ByteBuffer.allocate(sizeOfCollectionSize(elements, version) + size);
-        writeCollectionSize(result, elements, version);
-        for (ByteBuffer bb : buffers)
-            writeCollectionValue(result, bb, version);
-        return (ByteBuffer) result.flip();
+        <E> void write(ByteBuffer output, TypeCodec<E> codec, E element) {
+            int elementSize = sizes[index];
+            if (elementSize < 0) {
+                writeCollectionValue(output, serialized[index], version);
+            } else {
+                writeValueSize(output, elementSize, version);
+                codec.serializeInto(element, output);
+            }
+            index++;
+        }
+    }
+
+    private static <E> ByteBuffer serializeCollection(Collection<E> values, TypeCodec<E> codec, ProtocolVersion version) {
+        CollectionSerializer serializer = new CollectionSerializer(values.size(), values.size(), version);
+        for (E value : values)
+            serializer.addSize(codec, value);
+
+        ByteBuffer output = serializer.allocate();
+        for (E value : values)
+            serializer.write(output, codec, value);
+        return (ByteBuffer) output.flip();
     }
 
     private static void writeCollectionSize(ByteBuffer output, int elements, ProtocolVersion version) {
@@ -324,7 +397,7 @@ abstract class TypeCodec<T> {
         }
     }
 
-    private static ByteBuffer readBytes(ByteBuffer bb, int length) {
+    static ByteBuffer readBytes(ByteBuffer bb, int length) {
         ByteBuffer copy = bb.duplicate();
         copy.limit(copy.position() + length);
         bb.position(bb.position() + length);
@@ -332,19 +405,129 @@ abstract class TypeCodec<T> {
     }
 
     private static ByteBuffer readCollectionValue(ByteBuffer input, ProtocolVersion version) {
-        int size;
+        int size = readValueSize(input, version);
+        return size < 0 ? null : readBytes(input, size);
+    }
+
+    private static int readValueSize(ByteBuffer input, ProtocolVersion version) {
         switch (version) {
             case V1:
             case V2:
-                size = getUnsignedShort(input);
+                return getUnsignedShort(input);
+            case V3:
+                return input.getInt();
+            default:
+                throw version.unsupported();
+        }
+    }
+
+    private static void writeValueSize(ByteBuffer output, int size, ProtocolVersion version) {
+        switch (version) {
+            case V1:
+            case V2:
+                output.putShort((short) size);
                 break;
             case V3:
-                size = input.getInt();
+                output.putInt(size);
                 break;
             default:
                 throw version.unsupported();
         }
-        return size < 0 ? null : readBytes(input, size);
+    }
+
+    private static int sizeOfValueSize(ProtocolVersion version) {
+        switch (version) {
+            case V1:
+            case V2:
+                return 2;
+            case V3:
+                return 4;
+            default:
+                throw version.unsupported();
+        }
+    }
+
+    /*
+     * Primitive arrays: lists and sets of fixed-size numbers are read and written directly in the
+     * collection format, without boxing the elements or slicing a buffer per element.
+     */
+
+    private static final int[] EMPTY_INT_ARRAY = new int[0];
+    private static final long[] EMPTY_LONG_ARRAY = new long[0];
+    private static final double[] EMPTY_DOUBLE_ARRAY = new double[0];
+
+    private static void checkElementSize(int size, int expected) {
+        if (size != expected)
+            throw new InvalidTypeException("Invalid collection element size, expected " + expected + " bytes but got " + size);
+    }
+
+    private static ByteBuffer allocateFixedSizeCollection(int elements, int elementSize, ProtocolVersion version) {
+        ByteBuffer output = ByteBuffer.allocate(sizeOfCollectionSize(elements, version) + elements * (sizeOfValueSize(version) + elementSize));
+        writeCollectionSize(output, elements, version);
+        return output;
+    }
+
+    static int[] deserializeIntArray(ByteBuffer bytes, ProtocolVersion version) {
+        if (bytes == null || bytes.remaining() == 0)
+            return EMPTY_INT_ARRAY;
+        ByteBuffer input = bytes.duplicate();
+        int[] result = new int[readCollectionSize(input, version)];
+        for (int i = 0; i < result.length; i++) {
+            checkElementSize(readValueSize(input, version), 4);
+            result[i] = input.getInt();
+        }
+        return result;
+    }
+
+    static ByteBuffer serializeIntArray(int[] values, ProtocolVersion version) {
+        ByteBuffer output = allocateFixedSizeCollection(values.length, 4, version);
+        for (int value : values) {
+            writeValueSize(output, 4, version);
+            output.putInt(value);
+        }
+        return (ByteBuffer) output.flip();
+    }
+
+    static long[] deserializeLongArray(ByteBuffer bytes, ProtocolVersion version) {
+        if (bytes == null || bytes.remaining() == 0)
+            return EMPTY_LONG_ARRAY;
+        ByteBuffer input = bytes.duplicate();
+        long[] result = new long[readCollectionSize(input, version)];
+        for (int i = 0; i < result.length; i++) {
+            checkElementSize(readValueSize(input, version), 8);
+            result[i] = input.getLong();
+        }
+        return result;
+    }
+
+    static ByteBuffer serializeLongArray(long[] values, ProtocolVersion version) {
+        ByteBuffer output = allocateFixedSizeCollection(values.length, 8, version);
+        for (long value : values) {
+            writeValueSize(output, 8, version);
+            output.putLong(value);
+        }
+        return (ByteBuffer) output.flip();
+    }
+
+    static double[] deserializeDoubleArray(ByteBuffer bytes, ProtocolVersion version) {
+        if (bytes == null || bytes.remaining() == 0)
+            return EMPTY_DOUBLE_ARRAY;
+        ByteBuffer input = bytes.duplicate();
+        double[] result = new double[readCollectionSize(input, version)];
+        for (int i = 0; i < result.length; i++) {
+            checkElementSize(readValueSize(input, version), 8);
+            result[i] = input.getDouble();
+        }
+        return result;
+    }
+
+    static ByteBuffer serializeDoubleArray(double[] values, ProtocolVersion version) {
+        ByteBuffer output = allocateFixedSizeCollection(values.length, 8, version);
+        for (double value : values) {
+            writeValueSize(output, 8, version);
+            output.putDouble(value);
+        }
+        return (ByteBuffer) output.flip();
     }
 
     private static int sizeOfValue(ByteBuffer value, ProtocolVersion version) {
@@ -352,8 +535,7 @@ abstract class TypeCodec<T> {
             case V1:
             case V2:
                 int elemSize = value.remaining();
-                if (elemSize > 65535)
-                    throw new IllegalArgumentException("Native protocol version 2 supports only elements with size up to 65535 bytes - but element size is " + elemSize + " bytes");
+                checkValueSize(elemSize, version);
                 return 2 + elemSize;
             case V3:
                 return value == null ? 4 : 4 + value.remaining();
@@ -362,12 +544,19 @@ abstract class TypeCodec<T> {
         }
     }
 
+    private static void checkValueSize(int elemSize, ProtocolVersion version) {
+        if (elemSize > 65535 && version.compareTo(ProtocolVersion.V3) < 0)
+            throw new IllegalArgumentException("Native protocol version 2 supports only elements with size up to 65535 bytes - but element size is " + elemSize + " bytes");
+    }
+
     static class StringCodec extends TypeCodec<String> {
 
         private final Charset charset;
+        private final boolean isAscii;
 
         private StringCodec(Charset charset) {
             this.charset = charset;
+            this.isAscii = charset.name().equals("US-ASCII");
         }
 
         @Override
@@ -420,9 +609,91 @@ abstract class TypeCodec<T> {
             return ByteBuffer.wrap(value.getBytes(charset));
         }
 
+        @Override
+        int serializedSize(String value) {
+            return isAscii ? asciiLength(value) : utf8Length(value);
+        }
+
+        // Encode directly into the output, without an intermediate byte array. serializedSize() returned a
+        // non-negative size, so the value has no surrogates (and only ASCII characters for the ascii codec).
+        @Override
+        void serializeInto(String value, ByteBuffer output) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    output.put((byte) c);
+                } else if (c < 0x800) {
+                    output.put((byte) (0xC0 | (c >> 6)));
+                    output.put((byte) (0x80 | (c & 0x3F)));
+                } else {
+                    output.put((byte) (0xE0 | (c >> 12)));
+                    output.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    output.put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+        }
+
+        // Returns -1 if some characters are not ASCII, since the encoder replaces those
+        static int asciiLength(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) >= 0x80)
+                    return -1;
+            }
+            return value.length();
+        }
+
+        // Returns -1 if the string contains surrogates: these are rare enough that we let the JDK encoder
+        // handle them (unpaired ones are replaced, and Netty's UTF-8 writer doesn't handle pairs).
+        static int utf8Length(String value) {
+            int n = value.length();
+            int length = n;
+            for (int i = 0; i < n; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80)
+                    continue;
+                if (c < 0x800)
+                    length += 1;
+                else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+                    return -1;
+                else
+                    length += 2;
+            }
+            return length;
+        }
+
         @Override
         public String deserialize(ByteBuffer bytes) {
-            return new String(Bytes.getArray(bytes), charset);
+            int length = bytes.remaining();
+            if (length == 0)
+                return "";
+
+            byte[] array;
+            int offset;
+            if (bytes.hasArray()) {
+                array = bytes.array();
+                offset = bytes.arrayOffset() + bytes.position();
+            } else {
+                array = Bytes.getArray(bytes);
+                offset = 0;
+            }
+            return isAscii(array, offset, length)
+                    ? asciiString(array, offset, length)
+                    : new String(array, offset, length, charset);
+        }
+
+        private static boolean isAscii(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (bytes[i] < 0)
+                    return false;
+            }
+            return true;
+        }
+
+        // ASCII is a subset of both UTF-8 and US-ASCII: bypass the charset decoder (this constructor is
+        // deprecated because it doesn't handle other encodings, but that's exactly what we want here).
+        @SuppressWarnings("deprecation")
+        private static String asciiString(byte[] bytes, int offset, int length) {
+            return new String(bytes, 0, offset, length);
         }
     }
 
@@ -456,6 +727,16 @@ abstract class TypeCodec<T> {
             return bb;
         }
 
+        @Override
+        int serializedSize(Long value) {
+            return 8;
+        }
+
+        @Override
+        void serializeInto(Long value, ByteBuffer output) {
+            output.putLong(value);
+        }
+
         @Override
         public Long deserialize(ByteBuffer bytes) {
             return deserializeNoBoxing(bytes);
@@ -489,6 +770,16 @@ abstract class TypeCodec<T> {
             return value.duplicate();
         }
 
+        @Override
+        int serializedSize(ByteBuffer value) {
+            return value.remaining();
+        }
+
+        @Override
+        void serializeInto(ByteBuffer value, ByteBuffer output) {
+            output.put(value.duplicate());
+        }
+
         @Override
         public ByteBuffer deserialize(ByteBuffer bytes) {
             return bytes.duplicate();
@@ -526,6 +817,16 @@ abstract class TypeCodec<T> {
             return value ? TRUE.duplicate() : FALSE.duplicate();
         }
 
+        @Override
+        int serializedSize(Boolean value) {
+            return 1;
+        }
+
+        @Override
+        void serializeInto(Boolean value, ByteBuffer output) {
+            output.put(value ? (byte) 1 : (byte) 0);
+        }
+
         @Override
         public Boolean deserialize(ByteBuffer bytes) {
             return deserializeNoBoxing(bytes);
@@ -616,6 +917,16 @@ abstract class TypeCodec<T> {
             return bb;
         }
 
+        @Override
+        int serializedSize(Double value) {
+            return 8;
+        }
+
+        @Override
+        void serializeInto(Double value, ByteBuffer output) {
+            output.putDouble(value);
+        }
+
         @Override
         public Double deserialize(ByteBuffer bytes) {
             return deserializeNoBoxing(bytes);
@@ -659,6 +970,16 @@ abstract class TypeCodec<T> {
             return bb;
         }
 
+        @Override
+        int serializedSize(Float value) {
+            return 4;
+        }
+
+        @Override
+        void serializeInto(Float value, ByteBuffer output) {
+            output.putFloat(value);
+        }
+
         @Override
         public Float deserialize(ByteBuffer bytes) {
             return deserializeNoBoxing(bytes);
@@ -739,6 +1060,16 @@ abstract class TypeCodec<T> {
             return bb;
         }
 
+        @Override
+        int serializedSize(Integer value) {
+            return 4;
+        }
+
+        @Override
+        void serializeInto(Integer value, ByteBuffer output) {
+            output.putInt(value);
+        }
+
         @Override
         public Integer deserialize(ByteBuffer bytes) {
             return deserializeNoBoxing(bytes);
@@ -828,6 +1159,16 @@ abstract class TypeCodec<T> {
             return longCodec.serializeNoBoxing(value.getTime());
         }
 
+        @Override
+        int serializedSize(Date value) {
+            return 8;
+        }
+
+        @Override
+        void serializeInto(Date value, ByteBuffer output) {
+            output.putLong(value.getTime());
+        }
+
         @Override
         public Date deserialize(ByteBuffer bytes) {
             return new Date(longCodec.deserializeNoBoxing(bytes));
@@ -861,6 +1202,17 @@ abstract class TypeCodec<T> {
             return bb;
         }
 
+        @Override
+        int serializedSize(UUID value) {
+            return 16;
+        }
+
+        @Override
+        void serializeInto(UUID value, ByteBuffer output) {
+            output.putLong(value.getMostSignificantBits());
+            output.putLong(value.getLeastSignificantBits());
+        }
+
         @Override
         public UUID deserialize(ByteBuffer bytes) {
             return new UUID(bytes.getLong(bytes.position() + 0), bytes.getLong(bytes.position() + 8));
@@ -978,11 +1330,7 @@ abstract class TypeCodec<T> {
 
         @Override
         public ByteBuffer serialize(List<T> value) {
-            List<ByteBuffer> bbs = new ArrayList<ByteBuffer>(value.size());
-            for (T elt : value)
-                bbs.add(eltCodec.serialize(elt));
-
-            return pack(bbs, value.size(), protocolVersion);
+            return serializeCollection(value, eltCodec, protocolVersion);
         }
 
         @Override
@@ -1062,11 +1410,7 @@ abstract class TypeCodec<T> {
 
         @Override
         public ByteBuffer serialize(Set<T> value) {
-            List<ByteBuffer> bbs = new ArrayList<ByteBuffer>(value.size());
-            for (T elt : value)
-                bbs.add(eltCodec.serialize(elt));
-
-            return pack(bbs, value.size(), protocolVersion);
+            return serializeCollection(value, eltCodec, protocolVersion);
         }
 
         @Override
@@ -1167,12 +1511,18 @@ abstract class TypeCodec<T> {
 
         @Override
         public ByteBuffer serialize(Map<K, V> value) {
-            List<ByteBuffer> bbs = new ArrayList<ByteBuffer>(2 * value.size());
+            CollectionSerializer serializer = new CollectionSerializer(value.size(), 2 * value.size(), protocolVersion);
+            for (Map.Entry<K, V> entry : value.entrySet()) {
+                serializer.addSize(keyCodec, entry.getKey());
+                serializer.addSize(valueCodec, entry.getValue());
+            }
+
+            ByteBuffer output = serializer.allocate();
             for (Map.Entry<K, V> entry : value.entrySet()) {
-                bbs.add(keyCodec.serialize(entry.getKey()));
-                bbs.add(valueCodec.serialize(entry.getValue()));
+                serializer.write(output, keyCodec, entry.getKey());
+                serializer.write(output, valueCodec, entry.getValue());
             }
-            return pack(bbs, value.size(), protocolVersion);
+            return (ByteBuffer) output.flip();
         }
 
         @Override
@@ -1213,6 +1563,10 @@ abstract class TypeCodec<T> {
 
         @Override
         public ByteBuffer serialize(UDTValue value) {
+            ByteBuffer serialized = value.serializedIfUnchanged();
+            if (serialized != null)
+                return serialized;
+
             int size = 0;
             for (ByteBuffer v : value.values)
                 size += 4 + (v == null ? 0 : v.remaining());
@@ -1231,14 +1585,8 @@ abstract class TypeCodec<T> {
 
         @Override
         public UDTValue deserialize(ByteBuffer bytes) {
-            ByteBuffer input = bytes.duplicate();
             UDTValue value = definition.newValue();
-
-            int i = 0;
-            while (input.hasRemaining() && i < value.values.length) {
-                int n = input.getInt();
-                value.values[i++] = n < 0 ? null : readBytes(input, n);
-            }
+            value.deserializeLazily(bytes.duplicate());
             return value;
         }
     }
@@ -1297,6 +1645,10 @@ abstract class TypeCodec<T> {
 
         @Override
         public ByteBuffer serialize(TupleValue value) {
+            ByteBuffer serialized = value.serializedIfUnchanged();
+            if (serialized != null)
+                return serialized;
+
             int size = 0;
             for (ByteBuffer v : value.values)
                 size += 4 + (v == null ? 0 : v.remaining());
@@ -1315,14 +1667,8 @@ abstract class TypeCodec<T> {
 
         @Override
         public TupleValue deserialize(ByteBuffer bytes) {
-            ByteBuffer input = bytes.duplicate();
             TupleValue value = type.newValue();
-
-            int i = 0;
-            while (input.hasRemaining() && i < value.values.length) {
-                int n = input.getInt();
-                value.values[i++] = n < 0 ? null : readBytes(input, n);
-            }
+            value.deserializeLazily(bytes.duplicate());
             return value;
         }
     }
@@ -80,7 +80,7 @@ public class UDTValue extends AbstractData<UDTValue> {
             sb.append(getName(i));
             sb.append(":");
             DataType dt = getType(i);
-            sb.append(values[i] == null ? "null" : dt.format(dt.deserialize(values[i], ProtocolVersion.V3)));
+            sb.append(getValue(i) == null ? "null" : dt.format(dt.deserialize(getValue(i), ProtocolVersion.V3)));
         }
         sb.append("}");
         return sb.toString();
@@ -0,0 +1,108 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core.exceptions;
+
+import com.datastax.driver.core.BatchStatement;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exception thrown when a batch was split because it exceeded its maximum size (see
+ * {@link BatchStatement#setMaxSizeInBytes(int)}), and some of the resulting batches failed.
+ * <p/>
+ * The batches are executed in parallel, so the other ones may have been applied, even for a
+ * {@code LOGGED} batch: this exception gives the outcome of each of them.
+ */
+public class SplitBatchException extends DriverException {
+
+    private static final long serialVersionUID = 0;
+
+    private final List<BatchStatement> batches;
+    private final List<Throwable> errors;
+
+    /**
+     * Builds a new instance.
+     *
+     * @param batches the batches that the original batch was split into, in order.
+     * @param errors  the error of each batch, at the same index, or {@code null} for the batches
+     *                that were applied.
+     */
+    public SplitBatchException(List<BatchStatement> batches, List<Throwable> errors) {
+        super(makeMessage(errors), firstError(errors));
+        this.batches = batches;
+        this.errors = errors;
+    }
+
+    private SplitBatchException(String message, Throwable cause, List<BatchStatement> batches, List<Throwable> errors) {
+        super(message, cause);
+        this.batches = batches;
+        this.errors = errors;
+    }
+
+    /**
+     * Returns the batches that failed, along with their error.
+     *
+     * @return a map of the failed batches to their error, in the order of the original batch.
+     */
+    public Map<BatchStatement, Throwable> getErrors() {
+        Map<BatchStatement, Throwable> result = new LinkedHashMap<BatchStatement, Throwable>();
+        for (int i = 0; i < batches.size(); i++) {
+            if (errors.get(i) != null)
+                result.put(batches.get(i), errors.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the batches that were applied successfully.
+     *
+     * @return the applied batches, in the order of the original batch.
+     */
+    public List<BatchStatement> getAppliedBatches() {
+        List<BatchStatement> result = new ArrayList<BatchStatement>();
+        for (int i = 0; i < batches.size(); i++) {
+            if (errors.get(i) == null)
+                result.add(batches.get(i));
+        }
+        return result;
+    }
+
+    private static String makeMessage(List<Throwable> errors) {
+        int failed = 0;
+        for (Throwable error : errors) {
+            if (error != null)
+                failed += 1;
+        }
+        return String.format("%d of the %d batches split from a batch failed, the others were applied (first error: %s)",
+                failed, errors.size(), firstError(errors));
+    }
+
+    private static Throwable firstError(List<Throwable> errors) {
+        for (Throwable error : errors) {
+            if (error != null)
+                return error;
+        }
+        return null;
+    }
+
+    @Override
+    public DriverException copy() {
+        return new SplitBatchException(getMessage(), this, batches, errors);
+    }
+}
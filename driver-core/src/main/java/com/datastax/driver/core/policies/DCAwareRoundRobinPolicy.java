@@ -20,7 +20,6 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
-import com.google.common.collect.AbstractIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +42,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  * If used with a single data center, this policy is equivalent to the
  * {@link RoundRobinPolicy}, but its DC awareness incurs a slight overhead
  * so the latter should be preferred to this policy in that case.
+ * <p/>
+ * Optionally, the policy can also be made aware of the rack of the client
+ * (see {@link Builder#withLocalRack(String)}), in which case the nodes of
+ * the local rack are always tried before the other nodes of the local data
+ * center.
  */
 public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLoadBalancingPolicy {
 
@@ -62,9 +66,14 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
     private final ConcurrentMap<String, CopyOnWriteArrayList<Host>> perDcLiveHosts = new ConcurrentHashMap<String, CopyOnWriteArrayList<Host>>();
     private final AtomicInteger index = new AtomicInteger();
 
+    // Immutable view of perDcLiveHosts used to build query plans, rebuilt on every host state change
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
     @VisibleForTesting
     volatile String localDc;
 
+    private final String localRack;
+
     private final int usedHostsPerRemoteDc;
     private final boolean dontHopForLocalCL;
 
@@ -76,7 +85,7 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
      */
     @Deprecated
     public DCAwareRoundRobinPolicy() {
-        this(null, 0, false, true);
+        this(null, null, 0, false, true);
     }
 
     /**
@@ -84,7 +93,7 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
      * backward-compatibility purposes, it is equivalent to {@code DCAwareRoundRobinPolicy.builder().withLocalDc(localDc).build()}.
      */
     public DCAwareRoundRobinPolicy(String localDc) {
-        this(localDc, 0, false, false);
+        this(localDc, null, 0, false, false);
     }
 
     /**
@@ -93,7 +102,7 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
      * {@code DCAwareRoundRobinPolicy.builder().withLocalDc(localDc).withUsedHostsPerRemoteDc(usedHostsPerRemoteDc).build()}.
      */
     public DCAwareRoundRobinPolicy(String localDc, int usedHostsPerRemoteDc) {
-        this(localDc, usedHostsPerRemoteDc, false, false);
+        this(localDc, null, usedHostsPerRemoteDc, false, false);
     }
 
     /**
@@ -102,13 +111,14 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
      * {@code DCAwareRoundRobinPolicy.builder().withLocalDc(localDc).withUsedHostsPerRemoteDc(usedHostsPerRemoteDc).allowRemoteDCsForLocalConsistencyLevel().build()}.
      */
     public DCAwareRoundRobinPolicy(String localDc, int usedHostsPerRemoteDc, boolean allowRemoteDCsForLocalConsistencyLevel) {
-        this(localDc, usedHostsPerRemoteDc, allowRemoteDCsForLocalConsistencyLevel, false);
+        this(localDc, null, usedHostsPerRemoteDc, allowRemoteDCsForLocalConsistencyLevel, false);
     }
 
-    private DCAwareRoundRobinPolicy(String localDc, int usedHostsPerRemoteDc, boolean allowRemoteDCsForLocalConsistencyLevel, boolean allowEmptyLocalDc) {
+    private DCAwareRoundRobinPolicy(String localDc, String localRack, int usedHostsPerRemoteDc, boolean allowRemoteDCsForLocalConsistencyLevel, boolean allowEmptyLocalDc) {
         if (!allowEmptyLocalDc && Strings.isNullOrEmpty(localDc))
             throw new IllegalArgumentException("Null or empty data center specified for DC-aware policy");
         this.localDc = localDc == null ? UNSET : localDc;
+        this.localRack = localRack;
         this.usedHostsPerRemoteDc = usedHostsPerRemoteDc;
         this.dontHopForLocalCL = !allowRemoteDCsForLocalConsistencyLevel;
     }
@@ -117,6 +127,8 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
     public void init(Cluster cluster, Collection<Host> hosts) {
         if (localDc != UNSET)
             logger.info("Using provided data-center name '{}' for DCAwareRoundRobinPolicy", localDc);
+        if (localRack != null)
+            logger.info("Using provided rack name '{}' for DCAwareRoundRobinPolicy", localRack);
 
         this.configuration = cluster.getConfiguration();
 
@@ -147,6 +159,7 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
         }
 
         this.index.set(new Random().nextInt(Math.max(hosts.size(), 1)));
+        rebuildSnapshot();
 
     }
 
@@ -155,9 +168,51 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
         return dc == null ? localDc : dc;
     }
 
-    @SuppressWarnings("unchecked")
-    private static CopyOnWriteArrayList<Host> cloneList(CopyOnWriteArrayList<Host> list) {
-        return (CopyOnWriteArrayList<Host>) list.clone();
+    /**
+     * Returns the name of the rack that this policy considers "local", if any.
+     *
+     * @return the name of the local rack, or {@code null} if this policy is not rack-aware.
+     */
+    String getLocalRack() {
+        return localRack;
+    }
+
+    // Synchronized so that the last snapshot published always reflects the last change to perDcLiveHosts
+    private synchronized void rebuildSnapshot() {
+        String localDc = this.localDc;
+        Host[] rackHosts = Snapshot.NO_HOSTS;
+        Host[] localHosts = Snapshot.NO_HOSTS;
+        List<Host[]> remoteDcs = new ArrayList<Host[]>();
+        Set<Host> remoteHosts = new HashSet<Host>();
+        for (Map.Entry<String, CopyOnWriteArrayList<Host>> entry : perDcLiveHosts.entrySet()) {
+            Host[] dcHosts = entry.getValue().toArray(Snapshot.NO_HOSTS);
+            if (entry.getKey().equals(localDc)) {
+                if (localRack == null) {
+                    localHosts = dcHosts;
+                } else {
+                    List<Host> inRack = new ArrayList<Host>(dcHosts.length);
+                    List<Host> notInRack = new ArrayList<Host>(dcHosts.length);
+                    for (Host host : dcHosts) {
+                        if (localRack.equals(host.getRack()))
+                            inRack.add(host);
+                        else
+                            notInRack.add(host);
+                    }
+                    rackHosts = inRack.toArray(Snapshot.NO_HOSTS);
+                    localHosts = notInRack.toArray(Snapshot.NO_HOSTS);
+                }
+            } else if (usedHostsPerRemoteDc > 0 && dcHosts.length > 0) {
+                Host[] used = Arrays.copyOf(dcHosts, Math.min(dcHosts.length, usedHostsPerRemoteDc));
+                remoteDcs.add(used);
+                Collections.addAll(remoteHosts, used);
+            }
+        }
+        Host[][] groups = new Host[2 + remoteDcs.size()][];
+        groups[0] = rackHosts;
+        groups[1] = localHosts;
+        for (int i = 0; i < remoteDcs.size(); i++)
+            groups[2 + i] = remoteDcs.get(i);
+        snapshot = new Snapshot(groups, remoteHosts);
     }
 
     /**
@@ -179,13 +234,7 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
         if (dc == UNSET || dc.equals(localDc))
             return HostDistance.LOCAL;
 
-        CopyOnWriteArrayList<Host> dcHosts = perDcLiveHosts.get(dc);
-        if (dcHosts == null || usedHostsPerRemoteDc == 0)
-            return HostDistance.IGNORED;
-
-        // We need to clone, otherwise our subList call is not thread safe
-        dcHosts = cloneList(dcHosts);
-        return dcHosts.subList(0, Math.min(dcHosts.size(), usedHostsPerRemoteDc)).contains(host)
+        return snapshot.remoteHosts.contains(host)
                 ? HostDistance.REMOTE
                 : HostDistance.IGNORED;
     }
@@ -197,7 +246,9 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
      * datacenter first, and then, if none of the local host is reachable,
      * will try up to a configurable number of other host per remote datacenter.
      * The order of the local node in the returned query plan will follow a
-     * Round-robin algorithm.
+     * Round-robin algorithm. If a local rack was provided, the hosts of the
+     * local datacenter that are in that rack are tried first (in a
+     * Round-robin fashion), followed by the other hosts of the local datacenter.
      *
      * @param loggedKeyspace the keyspace currently logged in on for this
      *                       query.
@@ -207,70 +258,7 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
      */
     @Override
     public Iterator<Host> newQueryPlan(String loggedKeyspace, final Statement statement) {
-
-        CopyOnWriteArrayList<Host> localLiveHosts = perDcLiveHosts.get(localDc);
-        final List<Host> hosts = localLiveHosts == null ? Collections.<Host>emptyList() : cloneList(localLiveHosts);
-        final int startIdx = index.getAndIncrement();
-
-        return new AbstractIterator<Host>() {
-
-            private int idx = startIdx;
-            private int remainingLocal = hosts.size();
-
-            // For remote Dcs
-            private Iterator<String> remoteDcs;
-            private List<Host> currentDcHosts;
-            private int currentDcRemaining;
-
-            @Override
-            protected Host computeNext() {
-                while (true) {
-                    if (remainingLocal > 0) {
-                        remainingLocal--;
-                        int c = idx++ % hosts.size();
-                        if (c < 0) {
-                            c += hosts.size();
-                        }
-                        return hosts.get(c);
-                    }
-
-                    if (currentDcHosts != null && currentDcRemaining > 0) {
-                        currentDcRemaining--;
-                        int c = idx++ % currentDcHosts.size();
-                        if (c < 0) {
-                            c += currentDcHosts.size();
-                        }
-                        return currentDcHosts.get(c);
-                    }
-
-                    ConsistencyLevel cl = statement.getConsistencyLevel() == null
-                            ? configuration.getQueryOptions().getConsistencyLevel()
-                            : statement.getConsistencyLevel();
-
-                    if (dontHopForLocalCL && cl.isDCLocal())
-                        return endOfData();
-
-                    if (remoteDcs == null) {
-                        Set<String> copy = new HashSet<String>(perDcLiveHosts.keySet());
-                        copy.remove(localDc);
-                        remoteDcs = copy.iterator();
-                    }
-
-                    if (!remoteDcs.hasNext())
-                        break;
-
-                    String nextRemoteDc = remoteDcs.next();
-                    CopyOnWriteArrayList<Host> nextDcHosts = perDcLiveHosts.get(nextRemoteDc);
-                    if (nextDcHosts != null) {
-                        // Clone for thread safety
-                        List<Host> dcHosts = cloneList(nextDcHosts);
-                        currentDcHosts = dcHosts.subList(0, Math.min(dcHosts.size(), usedHostsPerRemoteDc));
-                        currentDcRemaining = currentDcHosts.size();
-                    }
-                }
-                return endOfData();
-            }
-        };
+        return new QueryPlan(snapshot, index.getAndIncrement(), statement);
     }
 
     @Override
@@ -288,10 +276,13 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
             CopyOnWriteArrayList<Host> newMap = new CopyOnWriteArrayList<Host>(Collections.singletonList(host));
             dcHosts = perDcLiveHosts.putIfAbsent(dc, newMap);
             // If we've successfully put our new host, we're good, otherwise we've been beaten so continue
-            if (dcHosts == null)
+            if (dcHosts == null) {
+                rebuildSnapshot();
                 return;
+            }
         }
-        dcHosts.addIfAbsent(host);
+        if (dcHosts.addIfAbsent(host))
+            rebuildSnapshot();
     }
 
     @Override
@@ -301,8 +292,8 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
     @Override
     public void onDown(Host host) {
         CopyOnWriteArrayList<Host> dcHosts = perDcLiveHosts.get(dc(host));
-        if (dcHosts != null)
-            dcHosts.remove(host);
+        if (dcHosts != null && dcHosts.remove(host))
+            rebuildSnapshot();
     }
 
     @Override
@@ -320,11 +311,90 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
         // nothing to do
     }
 
+    /**
+     * The live hosts, grouped in the order in which query plans try them: the local rack (empty if the
+     * policy is not rack-aware), the rest of the local datacenter, then the hosts used in each remote
+     * datacenter.
+     */
+    private static class Snapshot {
+        static final Host[] NO_HOSTS = new Host[0];
+        static final Snapshot EMPTY = new Snapshot(new Host[][]{ NO_HOSTS, NO_HOSTS }, Collections.<Host>emptySet());
+
+        final Host[][] groups;
+        final Set<Host> remoteHosts;
+
+        Snapshot(Host[][] groups, Set<Host> remoteHosts) {
+            this.groups = groups;
+            this.remoteHosts = remoteHosts;
+        }
+    }
+
+    /**
+     * Iterates over the groups of a snapshot, rotating the start position within each group.
+     * Remote groups are only visited if the consistency level of the statement allows it.
+     */
+    private class QueryPlan implements Iterator<Host> {
+        private final Host[][] groups;
+        private final Statement statement;
+        private int idx;
+        private int group;
+        private int remaining;
+
+        QueryPlan(Snapshot snapshot, int startIdx, Statement statement) {
+            this.groups = snapshot.groups;
+            this.statement = statement;
+            this.idx = startIdx;
+            this.remaining = groups[0].length;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (remaining == 0) {
+                if (++group >= groups.length)
+                    return false;
+                if (group == 2 && !canUseRemoteDcs()) {
+                    group = groups.length;
+                    return false;
+                }
+                remaining = groups[group].length;
+            }
+            return true;
+        }
+
+        @Override
+        public Host next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            remaining--;
+            Host[] hosts = groups[group];
+            int c = idx++ % hosts.length;
+            if (c < 0) {
+                c += hosts.length;
+            }
+            return hosts[c];
+        }
+
+        private boolean canUseRemoteDcs() {
+            if (!dontHopForLocalCL)
+                return true;
+            ConsistencyLevel cl = statement.getConsistencyLevel() == null
+                    ? configuration.getQueryOptions().getConsistencyLevel()
+                    : statement.getConsistencyLevel();
+            return !cl.isDCLocal();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     /**
      * Helper class to build the policy.
      */
     public static class Builder {
         private String localDc;
+        private String localRack;
         private int usedHostsPerRemoteDc;
         private boolean allowRemoteDCsForLocalConsistencyLevel;
 
@@ -349,6 +419,31 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
             return this;
         }
 
+        /**
+         * Sets the name of the rack that will be considered "local" by the policy.
+         * <p/>
+         * This must be the name as known by Cassandra (in other words, the name that appears in
+         * {@code system.peers}, or in the output of admin tools like nodetool). Typically, this is the
+         * rack (or, on cloud deployments, the availability zone) the client runs in.
+         * <p/>
+         * When this is set, query plans return the hosts of the local datacenter that are in this rack
+         * first, and then the other hosts of the local datacenter. The rack does not affect
+         * {@link DCAwareRoundRobinPolicy#distance(Host) distances}: all the hosts of the local datacenter
+         * are still {@code LOCAL}. If this policy is wrapped in a {@link TokenAwarePolicy}, the replicas in
+         * this rack will also be tried first.
+         * <p/>
+         * If this method isn't called, the policy is not rack-aware.
+         *
+         * @param localRack the name of the rack. It should not be {@code null}.
+         * @return this builder.
+         */
+        public Builder withLocalRack(String localRack) {
+            Preconditions.checkArgument(!Strings.isNullOrEmpty(localRack),
+                    "localRack name can't be null or empty. If you don't want the policy to be rack-aware, don't call Builder.withLocalRack");
+            this.localRack = localRack;
+            return this;
+        }
+
         /**
          * Sets the number of hosts per remote datacenter that the policy should consider.
          * <p/>
@@ -397,7 +492,7 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
          * @return the policy.
          */
         public DCAwareRoundRobinPolicy build() {
-            return new DCAwareRoundRobinPolicy(localDc, usedHostsPerRemoteDc, allowRemoteDCsForLocalConsistencyLevel, true);
+            return new DCAwareRoundRobinPolicy(localDc, localRack, usedHostsPerRemoteDc, allowRemoteDCsForLocalConsistencyLevel, true);
         }
     }
 }
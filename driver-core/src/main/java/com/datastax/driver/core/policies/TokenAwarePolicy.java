@@ -30,7 +30,8 @@ import java.util.*;
  * <ul>
  * <li>the {@code distance} method is inherited from the child policy.</li>
  * <li>the iterator return by the {@code newQueryPlan} method will first
- * return the {@code LOCAL} replicas for the query (based on {@link Statement#getRoutingKey})
+ * return the {@code LOCAL} replicas for the query (based on {@link Statement#getRoutingKey},
+ * or {@link Statement#getRoutingToken} if the query has no routing key)
  * <i>if possible</i> (i.e. if the query {@code getRoutingKey} method
  * doesn't return {@code null} and if {@link Metadata#getReplicas}
  * returns a non empty set of replicas for that partition key). If no
@@ -43,12 +44,18 @@ import java.util.*;
  * priority. For example, if you wrap {@link DCAwareRoundRobinPolicy} with this
  * token aware policy, replicas from remote data centers may only be
  * returned after all the host of the local data center.
+ * <p/>
+ * If the child policy (or a policy it wraps) is a {@link DCAwareRoundRobinPolicy}
+ * configured with a {@link DCAwareRoundRobinPolicy.Builder#withLocalRack(String) local rack},
+ * the {@code LOCAL} replicas in that rack are returned before the other
+ * {@code LOCAL} replicas.
  */
 public class TokenAwarePolicy implements ChainableLoadBalancingPolicy, CloseableLoadBalancingPolicy {
 
     private final LoadBalancingPolicy childPolicy;
     private final boolean shuffleReplicas;
     private Metadata clusterMetadata;
+    private String localRack;
 
     /**
      * Creates a new {@code TokenAware} policy.
@@ -86,9 +93,20 @@ public class TokenAwarePolicy implements ChainableLoadBalancingPolicy, Closeable
     @Override
     public void init(Cluster cluster, Collection<Host> hosts) {
         clusterMetadata = cluster.getMetadata();
+        localRack = findLocalRack(childPolicy);
         childPolicy.init(cluster, hosts);
     }
 
+    private static String findLocalRack(LoadBalancingPolicy policy) {
+        while (true) {
+            if (policy instanceof DCAwareRoundRobinPolicy)
+                return ((DCAwareRoundRobinPolicy) policy).getLocalRack();
+            if (!(policy instanceof ChainableLoadBalancingPolicy))
+                return null;
+            policy = ((ChainableLoadBalancingPolicy) policy).getChildPolicy();
+        }
+    }
+
     /**
      * Return the HostDistance for the provided host.
      *
@@ -115,21 +133,27 @@ public class TokenAwarePolicy implements ChainableLoadBalancingPolicy, Closeable
     public Iterator<Host> newQueryPlan(final String loggedKeyspace, final Statement statement) {
 
         ByteBuffer partitionKey = statement.getRoutingKey();
+        Token routingToken = partitionKey == null ? statement.getRoutingToken() : null;
         String keyspace = statement.getKeyspace();
         if (keyspace == null)
             keyspace = loggedKeyspace;
 
-        if (partitionKey == null || keyspace == null)
+        if ((partitionKey == null && routingToken == null) || keyspace == null)
             return childPolicy.newQueryPlan(keyspace, statement);
 
-        final Set<Host> replicas = clusterMetadata.getReplicas(Metadata.quote(keyspace), partitionKey);
+        final Set<Host> replicas = partitionKey != null
+                ? clusterMetadata.getReplicas(Metadata.quote(keyspace), partitionKey)
+                : clusterMetadata.getReplicas(Metadata.quote(keyspace), routingToken);
         if (replicas.isEmpty())
             return childPolicy.newQueryPlan(loggedKeyspace, statement);
 
         final Iterator<Host> iter;
-        if (shuffleReplicas) {
+        if (shuffleReplicas || localRack != null) {
             List<Host> l = Lists.newArrayList(replicas);
-            Collections.shuffle(l);
+            if (shuffleReplicas)
+                Collections.shuffle(l);
+            if (localRack != null)
+                moveLocalRackFirst(l);
             iter = l.iterator();
         } else {
             iter = replicas.iterator();
@@ -161,6 +185,25 @@ public class TokenAwarePolicy implements ChainableLoadBalancingPolicy, Closeable
         };
     }
 
+    // Stable partition: the relative order of the replicas (shuffled or not) is preserved within each group
+    private void moveLocalRackFirst(List<Host> replicas) {
+        List<Host> others = null;
+        int next = 0;
+        for (Host host : replicas) {
+            if (localRack.equals(host.getRack())) {
+                replicas.set(next++, host);
+            } else {
+                if (others == null)
+                    others = new ArrayList<Host>(replicas.size());
+                others.add(host);
+            }
+        }
+        if (others != null) {
+            for (Host host : others)
+                replicas.set(next++, host);
+        }
+    }
+
     @Override
     public void onUp(Host host) {
         childPolicy.onUp(host);
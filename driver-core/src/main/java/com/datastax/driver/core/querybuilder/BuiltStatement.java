@@ -173,6 +173,11 @@ public abstract class BuiltStatement extends RegularStatement {
         }
     }
 
+    // The partition key of the table, or null if this statement was not built from a TableMetadata
+    List<ColumnMetadata> partitionKey() {
+        return partitionKey;
+    }
+
     @Override
     public ByteBuffer getRoutingKey() {
         if (routingKey == null)
@@ -262,6 +267,23 @@ public abstract class BuiltStatement extends RegularStatement {
         return this;
     }
 
+    // Copies the options that were set on this statement (consistency level, fetch size, etc.) to another one
+    void copyOptionsTo(Statement other) {
+        if (getConsistencyLevel() != null)
+            other.setConsistencyLevel(getConsistencyLevel());
+        if (getSerialConsistencyLevel() != null)
+            other.setSerialConsistencyLevel(getSerialConsistencyLevel());
+        if (isTracing())
+            other.enableTracing();
+        if (getRetryPolicy() != null)
+            other.setRetryPolicy(getRetryPolicy());
+        other.setFetchSize(getFetchSize());
+        other.setPrefetchThreshold(getPrefetchThreshold());
+        other.setDefaultTimestamp(getDefaultTimestamp());
+        if (idempotent != null)
+            other.setIdempotent(idempotent);
+    }
+
     // This is a duplicate of the one in SimpleStatement, but I don't want to expose this publicly so...
     static ByteBuffer compose(ByteBuffer... buffers) {
         int totalLength = 0;
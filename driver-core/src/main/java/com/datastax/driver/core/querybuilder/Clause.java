@@ -102,6 +102,10 @@ public abstract class Clause extends Utils.Appendeable {
             return values.isEmpty() ? null : values.get(0);
         }
 
+        List<?> values() {
+            return values;
+        }
+
         @Override
         boolean containsBindMarker() {
             for (Object value : values)
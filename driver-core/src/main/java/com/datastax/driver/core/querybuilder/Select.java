@@ -15,12 +15,10 @@
  */
 package com.datastax.driver.core.querybuilder;
 
+import com.datastax.driver.core.ColumnMetadata;
 import com.datastax.driver.core.TableMetadata;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 /**
  * A built SELECT statement.
@@ -178,6 +176,98 @@ public class Select extends BuiltStatement {
         return this;
     }
 
+    /**
+     * Splits this statement, if it has an IN on its partition key, into one statement per partition.
+     * <p/>
+     * A query like {@code SELECT * FROM t WHERE k IN (1, 2, 3)} can't be routed (it has no single
+     * routing key), and its coordinator has to query the replicas of every partition. The statements
+     * returned by this method, here {@code k=1}, {@code k=2} and {@code k=3}, can be executed in
+     * parallel, each one sent directly to a replica of its partition by a token aware load balancing
+     * policy: {@link com.datastax.driver.core.MultiGet#executeMerged} does that, and returns all their
+     * rows as a single {@code ResultSet}.
+     * <p/>
+     * If the partition key has several columns restricted with an IN, there is one statement per
+     * combination of their values. Duplicate values only yield one statement, as Cassandra only
+     * returns a partition once. The other clauses, and the options of this statement (consistency
+     * level, fetch size, etc.), are the same for all the statements.
+     *
+     * @return the statement of each partition, or a list that only contains this statement if it has
+     * no IN on the partition key (or an IN without values).
+     * @throws IllegalStateException if this statement can't be split: it was not built from a
+     *                               {@link TableMetadata} (so its partition key is unknown), it has bind
+     *                               markers, or it has a LIMIT or an ORDER BY clause (those apply to the
+     *                               rows of all the partitions together).
+     */
+    public List<BuiltStatement> splitPartitionKeyIn() {
+        return splitPartitionKeyIn(this);
+    }
+
+    List<BuiltStatement> splitPartitionKeyIn(BuiltStatement options) {
+        List<ColumnMetadata> partitionKey = partitionKey();
+        if (partitionKey == null)
+            throw new IllegalStateException("Cannot split a statement that was not built from a TableMetadata, its partition key is unknown");
+
+        // The partition key columns restricted with an IN, and their distinct values
+        List<Clause> inClauses = new ArrayList<Clause>();
+        List<List<Object>> inValues = new ArrayList<List<Object>>();
+        for (Clause clause : where.clauses) {
+            if (!(clause instanceof Clause.InClause) || !isPartitionKey(clause.name(), partitionKey))
+                continue;
+            List<?> values = ((Clause.InClause) clause).values();
+            if (values.isEmpty())
+                return Collections.<BuiltStatement>singletonList(options);
+            inClauses.add(clause);
+            inValues.add(new ArrayList<Object>(new LinkedHashSet<Object>(values)));
+        }
+        if (inClauses.isEmpty())
+            return Collections.<BuiltStatement>singletonList(options);
+
+        if (hasBindMarkers)
+            throw new IllegalStateException("Cannot split a statement with bind markers, its values are unknown");
+        if (limit != null || orderings != null)
+            throw new IllegalStateException("Cannot split a statement with a LIMIT or an ORDER BY clause, it would change its results");
+
+        TableMetadata table = partitionKey.get(0).getTable();
+        List<BuiltStatement> statements = new ArrayList<BuiltStatement>();
+        for (List<Object> combination : combinations(inValues)) {
+            Select statement = new Select(table, columnNames, isDistinct);
+            for (Clause clause : where.clauses) {
+                int i = inClauses.indexOf(clause);
+                statement.where.and(i < 0 ? clause : QueryBuilder.eq(clause.name(), combination.get(i)));
+            }
+            statement.allowFiltering = allowFiltering;
+            options.copyOptionsTo(statement);
+            // Each statement targets its own partition
+            statement.setRoutingToken(null);
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    private static boolean isPartitionKey(String name, List<ColumnMetadata> partitionKey) {
+        for (ColumnMetadata column : partitionKey)
+            if (column.getName().equals(name))
+                return true;
+        return false;
+    }
+
+    // The cartesian product of the given lists, in order
+    private static List<List<Object>> combinations(List<List<Object>> lists) {
+        List<List<Object>> combinations = Collections.singletonList(Collections.<Object>emptyList());
+        for (List<Object> values : lists) {
+            List<List<Object>> extended = new ArrayList<List<Object>>(combinations.size() * values.size());
+            for (List<Object> combination : combinations) {
+                for (Object value : values) {
+                    List<Object> l = new ArrayList<Object>(combination);
+                    l.add(value);
+                    extended.add(l);
+                }
+            }
+            combinations = extended;
+        }
+        return combinations;
+    }
+
     /**
      * The WHERE clause of a SELECT statement.
      */
@@ -202,6 +292,21 @@ public class Select extends BuiltStatement {
             return this;
         }
 
+        /**
+         * Splits the SELECT statement this WHERE clause is part of, if it has an IN on
+         * its partition key, into one statement per partition.
+         * <p/>
+         * See {@link Select#splitPartitionKeyIn()} for details; the options set on this
+         * WHERE clause are used for all the statements.
+         *
+         * @return the statement of each partition, or a list that only contains this
+         * statement if it has no IN on the partition key.
+         * @throws IllegalStateException if the statement can't be split.
+         */
+        public List<BuiltStatement> splitPartitionKeyIn() {
+            return statement.splitPartitionKeyIn(this);
+        }
+
         /**
          * Adds an ORDER BY clause to the SELECT statement this WHERE clause if
          * part of.
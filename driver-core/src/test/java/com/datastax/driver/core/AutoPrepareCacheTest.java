@@ -0,0 +1,143 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.SyntaxError;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class AutoPrepareCacheTest {
+
+    private static final String QUERY = "SELECT * FROM ks.t";
+
+    private Cluster cluster;
+    private AutoPrepareCache cache;
+    private List<SettableFuture<PreparedStatement>> prepares;
+    private long now;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        // Never initialized, the session is only used to prepare
+        cluster = Cluster.builder()
+                .addContactPoint("127.0.0.1")
+                .withQueryOptions(new QueryOptions().setAutoPrepareThreshold(1))
+                .build();
+        prepares = new CopyOnWriteArrayList<SettableFuture<PreparedStatement>>();
+        SessionManager session = spy(new SessionManager(cluster));
+        doAnswer(new Answer<ListenableFuture<PreparedStatement>>() {
+            @Override
+            public ListenableFuture<PreparedStatement> answer(InvocationOnMock invocation) throws Throwable {
+                SettableFuture<PreparedStatement> future = SettableFuture.create();
+                prepares.add(future);
+                return future;
+            }
+        }).when(session).prepareAsync(anyString());
+
+        cache = new AutoPrepareCache(session, 10);
+        now = 0;
+        cache.clock = new Clock() {
+            @Override
+            public long currentTime() {
+                return now;
+            }
+        };
+    }
+
+    @AfterMethod(groups = "unit")
+    public void teardown() {
+        cluster.close();
+    }
+
+    @Test(groups = "unit")
+    public void should_retry_with_backoff_after_transient_failure() {
+        execute(2);
+        assertThat(prepares).hasSize(1);
+        prepares.get(0).setException(new NoHostAvailableException(Collections.<InetSocketAddress, Throwable>emptyMap()));
+
+        // Not before the delay
+        now = 999;
+        execute(1);
+        assertThat(prepares).hasSize(1);
+
+        now = 1000;
+        execute(1);
+        assertThat(prepares).hasSize(2);
+        prepares.get(1).set(prepared());
+
+        assertThat(cache.maybeBind(new SimpleStatement(QUERY))).isInstanceOf(BoundStatement.class);
+    }
+
+    @Test(groups = "unit")
+    public void should_double_the_delay_and_give_up_after_max_attempts() {
+        long[] delays = {1000, 2000, 4000, 8000};
+        execute(2);
+        for (long delay : delays) {
+            prepares.get(prepares.size() - 1).setException(new NoHostAvailableException(Collections.<InetSocketAddress, Throwable>emptyMap()));
+            int attempts = prepares.size();
+            now += delay - 1;
+            execute(1);
+            assertThat(prepares).hasSize(attempts);
+            now += 1;
+            execute(1);
+            assertThat(prepares).hasSize(attempts + 1);
+        }
+        assertThat(prepares).hasSize(5);
+
+        prepares.get(4).setException(new NoHostAvailableException(Collections.<InetSocketAddress, Throwable>emptyMap()));
+        now += 3600 * 1000;
+        execute(1);
+        assertThat(prepares).hasSize(5);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_retry_after_syntax_error() {
+        execute(2);
+        assertThat(prepares).hasSize(1);
+        prepares.get(0).setException(new SyntaxError("line 1:0 no viable alternative at input 'SELEC'"));
+
+        now = 3600 * 1000;
+        execute(1);
+        assertThat(prepares).hasSize(1);
+    }
+
+    private void execute(int times) {
+        for (int i = 0; i < times; i++)
+            assertThat(cache.maybeBind(new SimpleStatement(QUERY))).isInstanceOf(SimpleStatement.class);
+    }
+
+    private static PreparedStatement prepared() {
+        ColumnDefinitions variables = new ColumnDefinitions(new ColumnDefinitions.Definition[0]);
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        when(prepared.getVariables()).thenReturn(variables);
+        when(prepared.getPreparedId()).thenReturn(new PreparedId(MD5Digest.wrap(new byte[16]), variables, null, null, ProtocolVersion.V3));
+        return prepared;
+    }
+}
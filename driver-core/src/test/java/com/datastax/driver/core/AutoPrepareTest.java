@@ -0,0 +1,89 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.codahale.metrics.Counter;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.utils.CassandraVersion;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.fail;
+
+@CassandraVersion(major = 2.0)
+public class AutoPrepareTest extends CCMBridge.PerClassSingleNodeCluster {
+
+    private static final int THRESHOLD = 2;
+
+    @Override
+    protected Cluster.Builder configure(Cluster.Builder builder) {
+        return builder.withQueryOptions(new QueryOptions().setAutoPrepareThreshold(THRESHOLD));
+    }
+
+    @Override
+    protected Collection<String> getTableDefinitions() {
+        return Collections.singletonList("CREATE TABLE auto_prepare (k int PRIMARY KEY, v bigint)");
+    }
+
+    @Test(groups = "short")
+    public void should_execute_frequent_simple_statements_as_bound_statements() throws InterruptedException {
+        String query = "INSERT INTO auto_prepare (k, v) VALUES (?, ?)";
+        Counter hits = cluster.getMetrics().getAutoPrepareHits();
+        long initialHits = hits.getCount();
+
+        for (int i = 0; i <= THRESHOLD; i++)
+            session.execute(new SimpleStatement(query, i, (long) i));
+        assertThat(hits.getCount()).isEqualTo(initialHits);
+
+        // The query is now being prepared in the background
+        int i = THRESHOLD + 1;
+        while (hits.getCount() == initialHits && i < 100) {
+            session.execute(new SimpleStatement(query, i, (long) i));
+            i += 1;
+            Thread.sleep(50);
+        }
+        assertThat(hits.getCount()).isEqualTo(initialHits + 1);
+        assertThat(session.execute("SELECT v FROM auto_prepare WHERE k = ?", i - 1).one().getLong("v")).isEqualTo(i - 1);
+    }
+
+    @Test(groups = "short")
+    public void should_execute_as_is_when_values_do_not_match_prepared_types() throws InterruptedException {
+        String query = "SELECT * FROM auto_prepare WHERE k = ?";
+        Counter hits = cluster.getMetrics().getAutoPrepareHits();
+        Counter misses = cluster.getMetrics().getAutoPrepareMisses();
+        long initialHits = hits.getCount();
+        for (int i = 0; hits.getCount() == initialHits && i < 100; i++) {
+            session.execute(new SimpleStatement(query, 1));
+            Thread.sleep(50);
+        }
+        assertThat(hits.getCount()).isEqualTo(initialHits + 1);
+
+        // A string can't be bound to an int variable, so the statement is sent as is (and rejected by
+        // Cassandra, as it would have been without auto-prepare)
+        long initialMisses = misses.getCount();
+        try {
+            session.execute(new SimpleStatement(query, "1"));
+            fail("Expected an InvalidQueryException");
+        } catch (InvalidQueryException e) {
+            // expected
+        }
+        assertThat(misses.getCount()).isEqualTo(initialMisses + 1);
+        assertThat(hits.getCount()).isEqualTo(initialHits + 1);
+    }
+}
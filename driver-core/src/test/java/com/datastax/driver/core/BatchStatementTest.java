@@ -19,10 +19,13 @@ import com.datastax.driver.core.exceptions.UnsupportedFeatureException;
 import com.datastax.driver.core.utils.CassandraVersion;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 public class BatchStatementTest extends CCMBridge.PerClassSingleNodeCluster {
@@ -113,4 +116,71 @@ public class BatchStatementTest extends CCMBridge.PerClassSingleNodeCluster {
             session.execute("DELETE FROM test WHERE k='key1'");
         }
     }
+
+    @Test(groups = "unit")
+    public void should_split_batch_exceeding_max_size() {
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+        batch.setConsistencyLevel(ConsistencyLevel.QUORUM);
+        Token token = Token.M3PToken.FACTORY.fromString("42");
+        batch.setRoutingToken(token);
+        List<Statement> statements = new ArrayList<Statement>();
+        for (int i = 0; i < 10; i++) {
+            Statement statement = new SimpleStatement(String.format("INSERT INTO test (k, v) VALUES ('key', %d)", i));
+            statements.add(statement);
+            batch.add(statement);
+        }
+        // 1 (kind) + 4 (query length) + query + 2 (number of values)
+        int size = 1 + 4 + "INSERT INTO test (k, v) VALUES ('key', 0)".length() + 2;
+        assertEquals(batch.getSizeInBytes(), 10 * size);
+        assertNull(batch.split());
+
+        // Statements added before the maximum size was set are accounted for
+        batch.setMaxSizeInBytes(3 * size + 1);
+        List<BatchStatement> batches = batch.split();
+
+        assertEquals(batches.size(), 4);
+        List<Statement> split = new ArrayList<Statement>();
+        for (BatchStatement b : batches) {
+            assertTrue(b.size() <= 3);
+            assertEquals(b.batchType, BatchStatement.Type.UNLOGGED);
+            assertEquals(b.getConsistencyLevel(), ConsistencyLevel.QUORUM);
+            assertEquals(b.getRoutingToken(), token);
+            split.addAll(b.getStatements());
+        }
+        assertEquals(split, statements);
+
+        batch.clear();
+        batch.add(statements.get(0));
+        assertEquals(batch.getSizeInBytes(), size);
+        assertNull(batch.split());
+    }
+
+    @Test(groups = "short")
+    public void should_execute_batch_split_by_size() throws Throwable {
+        PreparedStatement st = session.prepare("INSERT INTO test (k, v) VALUES (?, ?)");
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED).setMaxSizeInBytes(100);
+        for (int i = 0; i < 20; i++)
+            batch.add(st.bind("split", i));
+        assertTrue(batch.getSizeInBytes() > 100);
+
+        session.execute(batch);
+
+        assertEquals(session.execute("SELECT * FROM test WHERE k = 'split'").all().size(), 20);
+        session.execute("DELETE FROM test WHERE k='split'");
+    }
+
+    @Test(groups = "short")
+    public void should_execute_batch_split_by_size_with_a_single_timestamp() throws Throwable {
+        PreparedStatement st = session.prepare("INSERT INTO test (k, v) VALUES (?, ?)");
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED).setMaxSizeInBytes(100);
+        // In a single batch, the deletion wins over the insertions that have the same timestamp
+        batch.add(new SimpleStatement("DELETE FROM test WHERE k = 'split_timestamp'"));
+        for (int i = 0; i < 20; i++)
+            batch.add(st.bind("split_timestamp", i));
+        assertTrue(batch.split().size() > 1);
+
+        session.execute(batch);
+
+        assertEquals(session.execute("SELECT * FROM test WHERE k = 'split_timestamp'").all().size(), 0);
+    }
 }
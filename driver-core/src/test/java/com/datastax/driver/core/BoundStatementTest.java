@@ -17,13 +17,21 @@ package com.datastax.driver.core;
 
 import com.datastax.driver.core.exceptions.InvalidTypeException;
 import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class BoundStatementTest extends CCMBridge.PerClassSingleNodeCluster {
 
@@ -66,4 +74,55 @@ public class BoundStatementTest extends CCMBridge.PerClassSingleNodeCluster {
             fail("Expected index error");
         } catch (IndexOutOfBoundsException e) { /* expected */ }
     }
-}
\ No newline at end of file
+
+    @Test(groups = "unit")
+    public void should_encode_deferred_values_like_serialized_ones() {
+        ColumnDefinitions variables = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+                new ColumnDefinitions.Definition("ks", "t", "b", DataType.cboolean()),
+                new ColumnDefinitions.Definition("ks", "t", "i", DataType.cint()),
+                new ColumnDefinitions.Definition("ks", "t", "l", DataType.bigint()),
+                new ColumnDefinitions.Definition("ks", "t", "f", DataType.cfloat()),
+                new ColumnDefinitions.Definition("ks", "t", "d", DataType.cdouble()),
+                new ColumnDefinitions.Definition("ks", "t", "ts", DataType.timestamp()),
+                new ColumnDefinitions.Definition("ks", "t", "a", DataType.ascii()),
+                new ColumnDefinitions.Definition("ks", "t", "s", DataType.text()),
+                new ColumnDefinitions.Definition("ks", "t", "s2", DataType.text()),
+                new ColumnDefinitions.Definition("ks", "t", "n", DataType.text())
+        });
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        when(prepared.getVariables()).thenReturn(variables);
+        when(prepared.getPreparedId()).thenReturn(new PreparedId(null, variables, null, null, ProtocolVersion.V3));
+
+        Date now = new Date();
+        BoundStatement statement = new BoundStatement(prepared)
+                .setBool(0, true)
+                .setInt("i", -42)
+                .setLong(2, Long.MAX_VALUE)
+                .setFloat(3, 1.5f)
+                .setDouble(4, -0.25)
+                .setDate(5, now)
+                .setString(6, "ascii")
+                .setString(7, "caf\u00e9 \u20ac")
+                .setString(8, "\ud83d\ude00") // surrogates are serialized eagerly
+                .setString(9, null);
+
+        List<ByteBuffer> values = statement.wrapper.valueList();
+        assertThat(values).isInstanceOf(BoundStatement.DataWrapper.DeferredValueList.class);
+        ByteBuf deferred = Unpooled.buffer();
+        CBUtil.writeValueList(values, deferred);
+        assertThat(deferred.readableBytes()).isEqualTo(CBUtil.sizeOfValueList(values));
+
+        ByteBuf serialized = Unpooled.buffer();
+        CBUtil.writeValueList(Arrays.asList(statement.wrapper.serializedValues()), serialized);
+        assertThat(deferred).isEqualTo(serialized);
+
+        assertThat(statement.getBool(0)).isTrue();
+        assertThat(statement.getInt(1)).isEqualTo(-42);
+        assertThat(statement.getLong(2)).isEqualTo(Long.MAX_VALUE);
+        assertThat(statement.getFloat(3)).isEqualTo(1.5f);
+        assertThat(statement.getDouble(4)).isEqualTo(-0.25);
+        assertThat(statement.getDate(5)).isEqualTo(now);
+        assertThat(statement.getString(7)).isEqualTo("caf\u00e9 \u20ac");
+        assertThat(statement.isNull(9)).isTrue();
+    }
+}
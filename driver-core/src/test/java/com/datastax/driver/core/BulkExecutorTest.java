@@ -0,0 +1,247 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class BulkExecutorTest {
+
+    @Test(groups = "unit")
+    public void should_bound_requests_in_flight() throws Exception {
+        RecordingSession recording = new RecordingSession();
+        final BulkExecutor executor = BulkExecutor.builder(recording.session).withMaxInFlight(3).build();
+        final AtomicInteger consumed = new AtomicInteger();
+        final Iterator<Statement> statements = new Iterator<Statement>() {
+            @Override
+            public boolean hasNext() {
+                return consumed.get() < 10;
+            }
+
+            @Override
+            public Statement next() {
+                consumed.incrementAndGet();
+                return new SimpleStatement("INSERT INTO t (k) VALUES (1)");
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        BulkExecutor.Result r;
+        try {
+            Future<BulkExecutor.Result> result = producer.submit(new Callable<BulkExecutor.Result>() {
+                @Override
+                public BulkExecutor.Result call() throws Exception {
+                    return executor.execute(statements);
+                }
+            });
+
+            for (int completed = 0; completed < 10; completed++) {
+                SettableFuture<ResultSet> future = recording.awaitPending(completed);
+                // The producer is blocked as long as 3 requests are in flight
+                if (completed < 7) {
+                    waitFor(executor, 3);
+                    assertThat(consumed.get()).isEqualTo(completed + 3);
+                }
+                future.set(mock(ResultSet.class));
+            }
+            r = result.get(1, TimeUnit.SECONDS);
+        } finally {
+            producer.shutdownNow();
+            recording.close();
+        }
+
+        assertThat(r.getSucceeded()).isEqualTo(10);
+        assertThat(r.getFailed()).isEqualTo(0);
+        assertThat(executor.getSubmitted()).isEqualTo(10);
+        assertThat(executor.getInFlight()).isEqualTo(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_keep_sending_to_other_hosts_when_one_is_saturated() throws Exception {
+        final Statement a1 = new SimpleStatement("a1"), a2 = new SimpleStatement("a2"), a3 = new SimpleStatement("a3");
+        final Statement b1 = new SimpleStatement("b1"), b2 = new SimpleStatement("b2");
+        Host hostA = mock(Host.class), hostB = mock(Host.class);
+        Metadata metadata = mock(Metadata.class);
+        for (Statement statement : Arrays.asList(a1, a2, a3))
+            when(metadata.getFirstReplica(statement)).thenReturn(hostA);
+        for (Statement statement : Arrays.asList(b1, b2))
+            when(metadata.getFirstReplica(statement)).thenReturn(hostB);
+        Cluster cluster = mock(Cluster.class);
+        when(cluster.getMetadata()).thenReturn(metadata);
+        RecordingSession recording = new RecordingSession();
+        when(recording.session.getCluster()).thenReturn(cluster);
+        final BulkExecutor executor = BulkExecutor.builder(recording.session)
+                .withMaxInFlight(10)
+                .withMaxInFlightPerHost(1)
+                .build();
+
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        BulkExecutor.Result r;
+        try {
+            Future<BulkExecutor.Result> result = producer.submit(new Callable<BulkExecutor.Result>() {
+                @Override
+                public BulkExecutor.Result call() throws Exception {
+                    return executor.execute(Arrays.asList(a1, a2, a3, b1, b2));
+                }
+            });
+
+            // a2 and a3 wait for a1, but don't hold back b1
+            recording.awaitPending(1);
+            waitFor(executor, 2);
+            assertThat(recording.executed).containsExactly(a1, b1);
+
+            recording.pending.get(1).set(mock(ResultSet.class));
+            assertThat(recording.executed).containsExactly(a1, b1, b2);
+
+            recording.pending.get(0).set(mock(ResultSet.class));
+            assertThat(recording.executed).containsExactly(a1, b1, b2, a2);
+
+            recording.pending.get(2).set(mock(ResultSet.class));
+            recording.pending.get(3).set(mock(ResultSet.class));
+            assertThat(recording.executed).containsExactly(a1, b1, b2, a2, a3);
+            recording.pending.get(4).set(mock(ResultSet.class));
+            r = result.get(1, TimeUnit.SECONDS);
+        } finally {
+            producer.shutdownNow();
+            recording.close();
+        }
+
+        assertThat(r.getSucceeded()).isEqualTo(5);
+        assertThat(executor.getSubmitted()).isEqualTo(5);
+        assertThat(executor.getInFlight()).isEqualTo(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_apply_failure_handler() throws Exception {
+        final Statement flaky = new SimpleStatement("flaky");
+        final Statement broken = new SimpleStatement("broken");
+        final Statement fatal = new SimpleStatement("fatal");
+        final Map<Statement, Integer> attempts = new ConcurrentHashMap<Statement, Integer>();
+        final List<Integer> brokenStackDepths = new CopyOnWriteArrayList<Integer>();
+        Session session = mock(Session.class);
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+                Statement statement = (Statement) invocation.getArguments()[0];
+                Integer previous = attempts.get(statement);
+                attempts.put(statement, previous == null ? 1 : previous + 1);
+                if (statement == broken)
+                    brokenStackDepths.add(Thread.currentThread().getStackTrace().length);
+                SettableFuture<ResultSet> future = SettableFuture.create();
+                if (statement == broken || statement == fatal || (statement == flaky && previous == null))
+                    future.setException(new RuntimeException(((SimpleStatement) statement).getQueryString()));
+                else
+                    future.set(mock(ResultSet.class));
+                return RecordingSession.resultSetFuture(future);
+            }
+        });
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        BulkExecutor executor = BulkExecutor.builder(session)
+                .withRetryDelay(0, TimeUnit.MILLISECONDS)
+                .withScheduler(scheduler)
+                .withFailureHandler(new BulkExecutor.FailureHandler() {
+                    @Override
+                    public Decision onFailure(Statement statement, Throwable error, int attempts) {
+                        if (statement == fatal)
+                            return Decision.ABORT;
+                        return attempts < 3 ? Decision.RETRY : Decision.SKIP;
+                    }
+                })
+                .build();
+
+        Statement ok = new SimpleStatement("ok");
+        Statement notExecuted = new SimpleStatement("not executed");
+        BulkExecutor.Result result, abortedResult;
+        try {
+            result = executor.execute(Arrays.asList(ok, flaky, broken));
+            // Separate run, an abort would race with the retries scheduled above
+            abortedResult = executor.execute(Arrays.asList(fatal, notExecuted));
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+        assertThat(result.getSucceeded()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.isAborted()).isFalse();
+        assertThat(result.getFailures()).hasSize(1);
+        assertThat(result.getFailures().get(0).getStatement()).isSameAs(broken);
+        assertThat(abortedResult.getSucceeded()).isEqualTo(0);
+        assertThat(abortedResult.getFailed()).isEqualTo(1);
+        assertThat(abortedResult.isAborted()).isTrue();
+        assertThat(abortedResult.getFailures()).hasSize(1);
+        assertThat(abortedResult.getFailures().get(0).getStatement()).isSameAs(fatal);
+        assertThat(attempts).containsEntry(flaky, 2).containsEntry(broken, 3).containsEntry(fatal, 1)
+                .doesNotContainKey(notExecuted);
+        assertThat(executor.getRetried()).isEqualTo(3);
+        // Retries are scheduled, not executed recursively from the failure callback
+        assertThat(brokenStackDepths).hasSize(3);
+        assertThat(brokenStackDepths.get(2)).isEqualTo(brokenStackDepths.get(1));
+    }
+
+    @Test(groups = "unit")
+    public void should_stop_when_interrupted() throws Exception {
+        // Executions never complete
+        RecordingSession recording = new RecordingSession();
+        final BulkExecutor executor = BulkExecutor.builder(recording.session).withMaxInFlight(2).build();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    executor.execute(Collections.nCopies(10, new SimpleStatement("INSERT INTO t (k) VALUES (1)")));
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            }
+        };
+        try {
+            producer.start();
+            waitFor(executor, 2);
+            producer.interrupt();
+            producer.join(1000);
+        } finally {
+            recording.close();
+        }
+
+        assertThat(producer.isAlive()).isFalse();
+        assertThat(error.get()).isInstanceOf(InterruptedException.class);
+        assertThat(recording.executed).hasSize(2);
+    }
+
+    private static void waitFor(BulkExecutor executor, int inFlight) throws InterruptedException {
+        for (int i = 0; i < 100 && executor.getInFlight() != inFlight; i++)
+            TimeUnit.MILLISECONDS.sleep(10);
+        // Give the producer a chance to (wrongly) go further
+        TimeUnit.MILLISECONDS.sleep(20);
+        assertThat(executor.getInFlight()).isEqualTo(inFlight);
+    }
+}
@@ -125,4 +125,24 @@ public class CassandraTypeParserTest {
                 .isFrozen()
                 .hasTypeArguments(DataType.cint(), DataType.cint());
     }
+
+    @Test(groups = "unit")
+    public void should_return_cached_instances_for_identical_type_strings() {
+        String s = "org.apache.cassandra.db.marshal.UserType(foo,70686f6e65,6e616d65:org.apache.cassandra.db.marshal.UTF8Type,6e756d626572:org.apache.cassandra.db.marshal.UTF8Type)";
+        DataType first = CassandraTypeParser.parseOne(s);
+        DataType second = CassandraTypeParser.parseOne(new String(s));
+        assertSame(second, first);
+
+        s = "org.apache.cassandra.db.marshal.CompositeType(org.apache.cassandra.db.marshal.Int32Type,org.apache.cassandra.db.marshal.ReversedType(org.apache.cassandra.db.marshal.UTF8Type))";
+        CassandraTypeParser.ParseResult r1 = CassandraTypeParser.parseWithComposite(s);
+        CassandraTypeParser.ParseResult r2 = CassandraTypeParser.parseWithComposite(new String(s));
+        assertSame(r2, r1);
+        assertEquals(r1.reversed, Arrays.asList(false, true));
+    }
+
+    @Test(groups = "unit", expectedExceptions = UnsupportedOperationException.class)
+    public void should_not_allow_modifying_cached_parse_results() {
+        String s = "org.apache.cassandra.db.marshal.CompositeType(org.apache.cassandra.db.marshal.Int32Type,org.apache.cassandra.db.marshal.UTF8Type)";
+        CassandraTypeParser.parseWithComposite(s).types.add(DataType.text());
+    }
 }
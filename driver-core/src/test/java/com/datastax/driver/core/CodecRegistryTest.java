@@ -0,0 +1,222 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.fail;
+
+public class CodecRegistryTest {
+
+    /**
+     * Maps a timestamp to its number of milliseconds since the epoch, without going through a Date.
+     */
+    static class TimestampAsMillisCodec extends Codec<Long> {
+        TimestampAsMillisCodec() {
+            super(DataType.timestamp(), Long.class);
+        }
+
+        @Override
+        public ByteBuffer serialize(Long value, ProtocolVersion protocolVersion) {
+            return value == null ? null : TypeCodec.longCodec.serializeNoBoxing(value);
+        }
+
+        @Override
+        public Long deserialize(ByteBuffer bytes, ProtocolVersion protocolVersion) {
+            return bytes == null || bytes.remaining() == 0 ? null : TypeCodec.longCodec.deserializeNoBoxing(bytes);
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_find_built_in_codecs() {
+        CodecRegistry registry = new CodecRegistry();
+
+        Codec<String> codec = registry.codecFor(DataType.text(), String.class);
+        ByteBuffer bytes = codec.serialize("foo", ProtocolVersion.V3);
+        assertThat(codec.deserialize(bytes, ProtocolVersion.V3)).isEqualTo("foo");
+
+        Codec<List> listCodec = registry.codecFor(DataType.list(DataType.cint()), List.class);
+        assertThat(listCodec.deserialize(null, ProtocolVersion.V3)).isEmpty();
+
+        // Lookups are cached
+        assertThat(registry.codecFor(DataType.text(), String.class)).isSameAs(codec);
+    }
+
+    @Test(groups = "unit")
+    public void should_find_registered_codecs() {
+        TimestampAsMillisCodec codec = new TimestampAsMillisCodec();
+        CodecRegistry registry = new CodecRegistry().register(codec);
+
+        assertThat(registry.codecFor(DataType.timestamp(), Long.class)).isSameAs(codec);
+        // Built-in conversion still available
+        assertThat(registry.codecFor(DataType.timestamp(), Date.class).getJavaType()).isEqualTo(Date.class);
+    }
+
+    @Test(groups = "unit")
+    public void should_prefer_last_registered_codec() {
+        CodecRegistry registry = new CodecRegistry();
+        registry.codecFor(DataType.timestamp(), Date.class);
+
+        Codec<Date> override = new Codec<Date>(DataType.timestamp(), Date.class) {
+            @Override
+            public ByteBuffer serialize(Date value, ProtocolVersion protocolVersion) {
+                return null;
+            }
+
+            @Override
+            public Date deserialize(ByteBuffer bytes, ProtocolVersion protocolVersion) {
+                return null;
+            }
+        };
+        registry.register(new TimestampAsMillisCodec(), override);
+        assertThat(registry.codecFor(DataType.timestamp(), Date.class)).isSameAs(override);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_cache_stale_codec_when_lookup_races_with_registration() throws Exception {
+        final CountDownLatch inLookup = new CountDownLatch(1);
+        final CountDownLatch registered = new CountDownLatch(1);
+        // Pauses the first lookup that goes through it, until another codec is registered
+        Codec<Long> pausing = new TimestampAsMillisCodec() {
+            private final AtomicBoolean paused = new AtomicBoolean();
+
+            @Override
+            public DataType getCqlType() {
+                if (paused.compareAndSet(false, true)) {
+                    inLookup.countDown();
+                    Uninterruptibles.awaitUninterruptibly(registered);
+                }
+                return super.getCqlType();
+            }
+        };
+        final CodecRegistry registry = new CodecRegistry().register(pausing);
+
+        Thread lookup = new Thread() {
+            @Override
+            public void run() {
+                registry.codecFor(DataType.timestamp(), Date.class);
+            }
+        };
+        lookup.start();
+        inLookup.await();
+        Codec<Date> override = new DateCodec();
+        registry.register(override);
+        registered.countDown();
+        lookup.join();
+
+        // The lookup found the built-in codec, but must not have cached it
+        assertThat(registry.codecFor(DataType.timestamp(), Date.class)).isSameAs(override);
+    }
+
+    static class DateCodec extends Codec<Date> {
+        DateCodec() {
+            super(DataType.timestamp(), Date.class);
+        }
+
+        @Override
+        public ByteBuffer serialize(Date value, ProtocolVersion protocolVersion) {
+            return DataType.timestamp().serialize(value, protocolVersion);
+        }
+
+        @Override
+        public Date deserialize(ByteBuffer bytes, ProtocolVersion protocolVersion) {
+            return (Date) DataType.timestamp().deserialize(bytes, protocolVersion);
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_fail_if_no_codec_found() {
+        try {
+            new CodecRegistry().codecFor(DataType.text(), Long.class);
+            fail("Expected an InvalidTypeException");
+        } catch (InvalidTypeException e) {
+            // expected
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_use_registry_to_get_values_from_row() {
+        CodecRegistry registry = new CodecRegistry().register(new TimestampAsMillisCodec());
+        ColumnDefinitions defs = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+                new ColumnDefinitions.Definition("ks", "t", "ts", DataType.timestamp()),
+                new ColumnDefinitions.Definition("ks", "t", "v", DataType.text())
+        });
+        List<ByteBuffer> data = Arrays.asList(
+                TypeCodec.longCodec.serializeNoBoxing(1234L),
+                DataType.text().serialize("foo", ProtocolVersion.V3));
+        Row row = ArrayBackedRow.fromData(defs, null, ProtocolVersion.V3, registry, data);
+
+        assertThat(row.get(0, Long.class)).isEqualTo(1234L);
+        assertThat(row.get("ts", Date.class)).isEqualTo(new Date(1234L));
+        assertThat(row.get("v", String.class)).isEqualTo("foo");
+    }
+
+    @Test(groups = "unit")
+    public void should_use_built_in_codecs_to_set_values() {
+        TupleValue value = TupleType.of(DataType.timestamp(), DataType.text()).newValue();
+        value.set(0, new Date(1234L), Date.class);
+        value.set(1, "foo", String.class);
+
+        assertThat(value.getDate(0)).isEqualTo(new Date(1234L));
+        assertThat(value.get(1, String.class)).isEqualTo("foo");
+    }
+
+    @Test(groups = "unit")
+    public void should_share_decoded_strings_for_cached_columns() {
+        CodecRegistry registry = new CodecRegistry().cacheStrings("ks", "t", "status", 2);
+        ColumnDefinitions defs = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+                new ColumnDefinitions.Definition("ks", "t", "status", DataType.text()),
+                new ColumnDefinitions.Definition("ks", "t", "v", DataType.text())
+        });
+        StringCache[] caches = registry.stringCachesFor(defs);
+        assertThat(caches[0]).isNotNull();
+        assertThat(caches[1]).isNull();
+
+        Row row1 = ArrayBackedRow.fromData(defs, null, ProtocolVersion.V3, registry, caches, textRow("active", "foo"));
+        Row row2 = ArrayBackedRow.fromData(defs, null, ProtocolVersion.V3, registry, caches, textRow("active", "foo"));
+        assertThat(row1.getString("status")).isEqualTo("active").isSameAs(row2.getString(0));
+        assertThat(row1.getString("v")).isEqualTo("foo").isNotSameAs(row2.getString(1));
+
+        // Once full, the cache still decodes other values
+        Row row3 = ArrayBackedRow.fromData(defs, null, ProtocolVersion.V3, registry, caches, textRow("inactive", "foo"));
+        Row row4 = ArrayBackedRow.fromData(defs, null, ProtocolVersion.V3, registry, caches, textRow("d\u00e9leted", "foo"));
+        assertThat(row3.getString(0)).isEqualTo("inactive");
+        assertThat(row4.getString(0)).isEqualTo("d\u00e9leted").isNotSameAs(row4.getString(0));
+        assertThat(caches[0].size()).isEqualTo(2);
+
+        assertThat(new CodecRegistry().stringCachesFor(defs)).isNull();
+    }
+
+    @Test(groups = "unit", expectedExceptions = IllegalArgumentException.class)
+    public void should_not_allow_unbounded_string_cache() {
+        new CodecRegistry().cacheStrings("ks", "t", "status", 0);
+    }
+
+    private static List<ByteBuffer> textRow(String... values) {
+        List<ByteBuffer> data = new ArrayList<ByteBuffer>();
+        for (String value : values)
+            data.add(DataType.text().serialize(value, ProtocolVersion.V3));
+        return data;
+    }
+}
@@ -17,6 +17,8 @@ package com.datastax.driver.core;
 
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 public class ColumnDefinitionsTest {
@@ -69,4 +71,27 @@ public class ColumnDefinitionsTest {
 
         assertTrue(defs.getType("column").equals(DataType.text()));
     }
+
+    @Test(groups = "unit")
+    public void should_resolve_indexes_by_name() {
+
+        ColumnDefinitions defs = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+                new ColumnDefinitions.Definition("ks", "cf", "foo", DataType.text()),
+                new ColumnDefinitions.Definition("ks", "cf", "Bar", DataType.text()),
+                new ColumnDefinitions.Definition("ks", "cf", "FOO", DataType.cint()),
+                new ColumnDefinitions.Definition("ks", "cf", "foo", DataType.cfloat())
+        });
+
+        assertEquals(defs.findAllIdx("foo"), new int[]{0, 2, 3});
+        assertEquals(defs.findAllIdx("Foo"), new int[]{0, 2, 3});
+        assertEquals(defs.findAllIdx("\"foo\""), new int[]{0, 3});
+        assertEquals(defs.findAllIdx("\"FOO\""), new int[]{2});
+        assertEquals(defs.getIndexOf("bar"), 1);
+        assertEquals(defs.getIndexOf("\"Bar\""), 1);
+
+        assertFalse(defs.contains("\"bar\""));
+        assertFalse(defs.contains("\"Foo\""));
+        assertFalse(defs.contains("baz"));
+        assertEquals(defs.getIndexOf("baz"), -1);
+    }
 }
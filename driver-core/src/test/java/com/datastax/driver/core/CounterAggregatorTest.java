@@ -0,0 +1,259 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.fail;
+
+public class CounterAggregatorTest {
+
+    private RecordingSession recording;
+    private Session session;
+    private PreparedStatement incr;
+    private List<Statement> executed;
+    private List<SettableFuture<ResultSet>> pending;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        // Never initialized: batches are grouped per partition key
+        recording = new RecordingSession();
+        session = recording.session;
+        executed = recording.executed;
+        pending = recording.pending;
+
+        // UPDATE ks.t SET c = c + ? WHERE k = ?
+        ColumnDefinitions variables = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+                new ColumnDefinitions.Definition("ks", "t", "c", DataType.counter()),
+                new ColumnDefinitions.Definition("ks", "t", "k", DataType.cint())
+        });
+        incr = mock(PreparedStatement.class);
+        when(incr.getVariables()).thenReturn(variables);
+        when(incr.getPreparedId()).thenReturn(new PreparedId(MD5Digest.wrap(new byte[16]), variables, null, new int[]{1}, ProtocolVersion.V3));
+        when(incr.bind(Matchers.<Object[]>anyVararg())).thenAnswer(new Answer<BoundStatement>() {
+            @Override
+            public BoundStatement answer(InvocationOnMock invocation) throws Throwable {
+                return new BoundStatement((PreparedStatement) invocation.getMock()).bind(invocation.getArguments());
+            }
+        });
+    }
+
+    @AfterMethod(groups = "unit")
+    public void teardown() {
+        recording.close();
+    }
+
+    @Test(groups = "unit")
+    public void should_merge_increments_per_key() {
+        CounterAggregator aggregator = CounterAggregator.builder(session)
+                .withFlushInterval(0, TimeUnit.MILLISECONDS)
+                .build();
+
+        aggregator.increment(incr, 1, 1);
+        aggregator.increment(incr, 2, 2);
+        aggregator.increment(incr, 3, 1);
+        aggregator.increment(incr, -3, 1);
+        assertThat(executed).isEmpty();
+        assertThat(aggregator.getPendingCounters()).isEqualTo(2);
+
+        ListenableFuture<Void> future = aggregator.flush();
+        assertThat(executed).hasSize(2);
+        for (Statement statement : executed) {
+            BatchStatement batch = (BatchStatement) statement;
+            assertThat(batch.batchType).isEqualTo(BatchStatement.Type.COUNTER);
+            assertThat(batch.size()).isEqualTo(1);
+            BoundStatement update = (BoundStatement) batch.getStatements().iterator().next();
+            int k = update.getInt(1);
+            assertThat(update.getLong(0)).isEqualTo(k == 1 ? 1 : 2);
+        }
+        assertThat(aggregator.getIncrements()).isEqualTo(4);
+        assertThat(aggregator.getWrites()).isEqualTo(2);
+        assertThat(aggregator.getPendingCounters()).isEqualTo(0);
+
+        assertThat(future.isDone()).isFalse();
+        pending.get(0).set(mock(ResultSet.class));
+        pending.get(1).set(mock(ResultSet.class));
+        assertThat(future.isDone()).isTrue();
+
+        // Nothing left to write
+        aggregator.flush();
+        assertThat(executed).hasSize(2);
+    }
+
+    @Test(groups = "unit")
+    public void should_flush_when_too_many_pending_counters() {
+        CounterAggregator aggregator = CounterAggregator.builder(session)
+                .withFlushInterval(0, TimeUnit.MILLISECONDS)
+                .withMaxPendingCounters(3)
+                .build();
+
+        aggregator.increment(incr, 1, 1);
+        aggregator.increment(incr, 1, 2);
+        aggregator.increment(incr, 1, 2);
+        assertThat(executed).isEmpty();
+        aggregator.increment(incr, 1, 3);
+        assertThat(executed).hasSize(3);
+        assertThat(aggregator.getPendingCounters()).isEqualTo(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_log_failure_of_flush_triggered_by_pending_counters() {
+        Logger logger = Logger.getLogger(CounterAggregator.class);
+        MemoryAppender logs = new MemoryAppender();
+        Level originalLevel = logger.getLevel();
+        logger.setLevel(Level.WARN);
+        logger.addAppender(logs);
+        try {
+            CounterAggregator aggregator = CounterAggregator.builder(session)
+                    .withFlushInterval(0, TimeUnit.MILLISECONDS)
+                    .withMaxPendingCounters(1)
+                    .build();
+
+            aggregator.increment(incr, 1, 1);
+            assertThat(pending).hasSize(1);
+            pending.get(0).setException(new WriteTimeoutException(ConsistencyLevel.ONE, WriteType.COUNTER, 0, 1));
+
+            assertThat(aggregator.getFailedWrites()).isEqualTo(1);
+            assertThat(logs.get()).contains("Error while writing aggregated counters");
+        } finally {
+            logger.removeAppender(logs);
+            logger.setLevel(originalLevel);
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_count_failed_writes_and_reject_increments_after_close() throws Exception {
+        CounterAggregator aggregator = CounterAggregator.builder(session)
+                .withFlushInterval(0, TimeUnit.MILLISECONDS)
+                .build();
+
+        aggregator.increment(incr, 1, 1);
+        aggregator.increment(incr, 1, 2);
+        ListenableFuture<Void> future = aggregator.close();
+        pending.get(0).set(mock(ResultSet.class));
+        pending.get(1).setException(new WriteTimeoutException(ConsistencyLevel.ONE, WriteType.COUNTER, 0, 1));
+        assertThat(future.isDone()).isTrue();
+        assertThat(aggregator.getFailedWrites()).isEqualTo(1);
+
+        try {
+            aggregator.increment(incr, 1, 1);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_not_be_affected_by_reuse_of_key_array() {
+        CounterAggregator aggregator = CounterAggregator.builder(session)
+                .withFlushInterval(0, TimeUnit.MILLISECONDS)
+                .build();
+
+        Object[] key = new Object[]{1};
+        aggregator.increment(incr, 1, key);
+        key[0] = 2;
+        aggregator.increment(incr, 1, key);
+        aggregator.increment(incr, 1, 1);
+        aggregator.flush();
+
+        Map<Integer, Long> deltas = deltas();
+        assertThat(deltas).hasSize(2).containsEntry(1, 2L).containsEntry(2, 1L);
+    }
+
+    @Test(groups = "unit")
+    public void should_write_all_increments_accepted_while_closing() throws Exception {
+        // Only the flush of close() writes: the more counters, the longer it races with the increments
+        final CounterAggregator aggregator = CounterAggregator.builder(session)
+                .withFlushInterval(0, TimeUnit.MILLISECONDS)
+                .withMaxPendingCounters(Integer.MAX_VALUE)
+                .build();
+        final AtomicInteger accepted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 4; i++) {
+                final int thread = i;
+                executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            // New counters, the insertion is what races with close()
+                            for (int k = thread; ; k += 4) {
+                                aggregator.increment(incr, 1, k);
+                                accepted.incrementAndGet();
+                            }
+                        } catch (IllegalStateException e) {
+                            // closed
+                        }
+                    }
+                });
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+            aggregator.close();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long written = 0;
+        for (long delta : deltas().values())
+            written += delta;
+        assertThat(written).isEqualTo(accepted.get());
+    }
+
+    @Test(groups = "unit", expectedExceptions = InvalidTypeException.class)
+    public void should_reject_key_that_does_not_match_statement() {
+        CounterAggregator.builder(session)
+                .withFlushInterval(0, TimeUnit.MILLISECONDS)
+                .build()
+                .increment(incr, 1, "not an int");
+    }
+
+    // The deltas written so far, per key
+    private Map<Integer, Long> deltas() {
+        Map<Integer, Long> deltas = new HashMap<Integer, Long>();
+        for (Statement statement : executed) {
+            for (Statement update : ((BatchStatement) statement).getStatements()) {
+                int k = ((BoundStatement) update).getInt(1);
+                long delta = ((BoundStatement) update).getLong(0);
+                Long previous = deltas.get(k);
+                deltas.put(k, previous == null ? delta : previous + delta);
+            }
+        }
+        return deltas;
+    }
+}
@@ -18,8 +18,10 @@ package com.datastax.driver.core;
 import com.datastax.driver.core.exceptions.UnsupportedFeatureException;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import static org.testng.Assert.*;
 
@@ -68,4 +70,88 @@ public class FetchingTest extends CCMBridge.PerClassSingleNodeCluster {
             throw e;
         }
     }
+
+    @Test(groups = "short")
+    public void should_prefetch_next_page_when_below_threshold() throws Throwable {
+
+        try {
+
+            String key = "prefetch_test";
+            for (int i = 0; i < 20; i++)
+                session.execute(String.format("INSERT INTO test (k, v) VALUES ('%s', %d)", key, i));
+
+            SimpleStatement st = new SimpleStatement(String.format("SELECT v FROM test WHERE k='%s'", key));
+            st.setFetchSize(5);
+            st.setPrefetchThreshold(2);
+            ResultSet rs = session.execute(st);
+
+            // Consuming 4 rows leaves 1 row in the page, which should trigger a background fetch
+            for (int i = 0; i < 4; i++)
+                assertEquals(rs.one().getInt(0), i);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (rs.getAvailableWithoutFetching() == 1 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(rs.getAvailableWithoutFetching(), 6);
+
+            for (int i = 4; i < 20; i++)
+                assertEquals(rs.one().getInt(0), i);
+            assertTrue(rs.isExhausted());
+            assertTrue(rs.isFullyFetched());
+
+        } catch (UnsupportedFeatureException e) {
+            // This is expected when testing the protocol v1
+            if (cluster.getConfiguration().getProtocolOptions().getProtocolVersionEnum() != ProtocolVersion.V1)
+                throw e;
+        } catch (Throwable e) {
+            errorOut();
+            throw e;
+        }
+    }
+
+    @Test(groups = "short")
+    public void should_visit_all_rows_across_pages() throws Throwable {
+
+        try {
+
+            String key = "visit_test";
+            for (int i = 0; i < 23; i++)
+                session.execute(String.format("INSERT INTO test (k, v) VALUES ('%s', %d)", key, i));
+
+            SimpleStatement st = new SimpleStatement(String.format("SELECT v FROM test WHERE k='%s'", key));
+            st.setFetchSize(5);
+
+            final List<Integer> sync = new ArrayList<Integer>();
+            ResultSet rs = session.execute(st);
+            rs.visit(new RowVisitor() {
+                @Override
+                public boolean visit(Row row) {
+                    sync.add(row.getInt(0));
+                    return true;
+                }
+            });
+            assertEquals(sync.size(), 23);
+            assertTrue(rs.isExhausted());
+
+            final List<Integer> async = new ArrayList<Integer>();
+            rs = session.execute(st);
+            rs.visitAsync(new RowVisitor() {
+                @Override
+                public boolean visit(Row row) {
+                    async.add(row.getInt(0));
+                    // Stop in the middle of the 3rd page
+                    return async.size() < 12;
+                }
+            }).get();
+            assertEquals(async, sync.subList(0, 12));
+            assertEquals(rs.one().getInt(0), 12);
+
+        } catch (UnsupportedFeatureException e) {
+            // This is expected when testing the protocol v1
+            if (cluster.getConfiguration().getProtocolOptions().getProtocolVersionEnum() != ProtocolVersion.V1)
+                throw e;
+        } catch (Throwable e) {
+            errorOut();
+            throw e;
+        }
+    }
 }
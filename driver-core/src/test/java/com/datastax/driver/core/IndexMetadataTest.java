@@ -196,7 +196,7 @@ public class IndexMetadataTest extends CCMBridge.PerClassSingleNodeCluster {
                 wrap("org.apache.cassandra.db.marshal.UTF8Type"), // validator
                 wrap("{\"foo\" : \"bar\", \"class_name\" : \"dummy.DummyIndex\"}") // index options
         );
-        Row row = ArrayBackedRow.fromData(defs, M3PToken.FACTORY, ProtocolVersion.V3, data);
+        Row row = ArrayBackedRow.fromData(defs, M3PToken.FACTORY, ProtocolVersion.V3, CodecRegistry.BUILT_IN, data);
         ColumnMetadata column = ColumnMetadata.fromRaw(table, Raw.fromRow(row, VersionNumber.parse("2.1")));
         IndexMetadata index = column.getIndex();
         assertThat(index).hasName("custom_index")
@@ -231,7 +231,7 @@ public class IndexMetadataTest extends CCMBridge.PerClassSingleNodeCluster {
                 wrap("org.apache.cassandra.db.marshal.BytesType"), // validator
                 wrap("null") // index options
         );
-        Row row = ArrayBackedRow.fromData(defs, M3PToken.FACTORY, ProtocolVersion.V3, data);
+        Row row = ArrayBackedRow.fromData(defs, M3PToken.FACTORY, ProtocolVersion.V3, CodecRegistry.BUILT_IN, data);
         ColumnMetadata column = ColumnMetadata.fromRaw(table, Raw.fromRow(row, VersionNumber.parse("2.1")));
         IndexMetadata index = column.getIndex();
 
@@ -0,0 +1,73 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.SplitBatchException;
+import com.google.common.util.concurrent.SettableFuture;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.fail;
+
+public class MergedResultSetFutureTest {
+
+    @Test(groups = "unit")
+    public void should_report_the_outcome_of_each_batch() throws Exception {
+        BatchStatement b1 = new BatchStatement(), b2 = new BatchStatement(), b3 = new BatchStatement();
+        SettableFuture<ResultSet> f1 = SettableFuture.create(), f2 = SettableFuture.create(), f3 = SettableFuture.create();
+        List<ResultSetFuture> sources = Arrays.asList(
+                RecordingSession.resultSetFuture(f1),
+                RecordingSession.resultSetFuture(f2),
+                RecordingSession.resultSetFuture(f3));
+        MergedResultSetFuture future = new MergedResultSetFuture(Arrays.asList(b1, b2, b3), sources);
+
+        RuntimeException error1 = new RuntimeException("b1"), error3 = new RuntimeException("b3");
+        f3.setException(error3);
+        assertThat(future.isDone()).isFalse();
+        f2.set(mock(ResultSet.class));
+        f1.setException(error1);
+
+        try {
+            future.get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(SplitBatchException.class);
+            SplitBatchException splitError = (SplitBatchException) e.getCause();
+            assertThat(splitError.getCause()).isSameAs(error1);
+            assertThat(splitError.getErrors()).hasSize(2).containsEntry(b1, error1).containsEntry(b3, error3);
+            assertThat(splitError.getErrors().keySet()).containsExactly(b1, b3);
+            assertThat(splitError.getAppliedBatches()).containsExactly(b2);
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_merge_results_when_all_batches_succeed() throws Exception {
+        SettableFuture<ResultSet> f1 = SettableFuture.create(), f2 = SettableFuture.create();
+        MergedResultSetFuture future = new MergedResultSetFuture(
+                Arrays.asList(new BatchStatement(), new BatchStatement()),
+                Arrays.asList(RecordingSession.resultSetFuture(f1), RecordingSession.resultSetFuture(f2)));
+
+        f1.set(mock(ResultSet.class));
+        f2.set(mock(ResultSet.class));
+
+        assertThat(future.get()).isInstanceOf(MergedResultSet.class);
+    }
+}
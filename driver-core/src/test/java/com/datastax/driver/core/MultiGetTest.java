@@ -0,0 +1,210 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.datastax.driver.core.exceptions.ReadTimeoutException;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.fail;
+
+public class MultiGetTest {
+
+    private RecordingSession recording;
+    private Session session;
+    private List<SettableFuture<ResultSet>> pending;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        // Never initialized: replicas are unknown, so only the global limit applies
+        recording = new RecordingSession();
+        session = recording.session;
+        pending = recording.pending;
+    }
+
+    @AfterMethod(groups = "unit")
+    public void teardown() {
+        recording.close();
+    }
+
+    @Test(groups = "unit")
+    public void should_return_results_in_key_order_with_per_key_errors() {
+        ColumnDefinitions variables = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+                new ColumnDefinitions.Definition("ks", "t", "k", DataType.cint())
+        });
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        when(prepared.getVariables()).thenReturn(variables);
+        when(prepared.getPreparedId()).thenReturn(new PreparedId(null, variables, null, null, ProtocolVersion.V3));
+        when(prepared.bind(Matchers.<Object[]>anyVararg())).thenAnswer(new Answer<BoundStatement>() {
+            @Override
+            public BoundStatement answer(InvocationOnMock invocation) throws Throwable {
+                return new BoundStatement((PreparedStatement) invocation.getMock()).bind(invocation.getArguments());
+            }
+        });
+
+        List<Object[]> keys = Arrays.asList(new Object[]{1}, new Object[]{"not an int"}, new Object[]{3});
+        ListenableFuture<List<MultiGet.Result>> future = MultiGet.builder(session).build().executeAsync(prepared, keys);
+
+        assertThat(pending).hasSize(2);
+        ResultSet rs3 = mock(ResultSet.class);
+        pending.get(1).set(rs3);
+        assertThat(future.isDone()).isFalse();
+        ReadTimeoutException timeout = new ReadTimeoutException(ConsistencyLevel.ONE, 0, 1, false);
+        pending.get(0).setException(timeout);
+        assertThat(future.isDone()).isTrue();
+
+        List<MultiGet.Result> results = getUninterruptibly(future);
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).isSuccess()).isFalse();
+        assertThat(results.get(0).getError()).isSameAs(timeout);
+        assertThat(((BoundStatement) results.get(0).getStatement()).getInt(0)).isEqualTo(1);
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThat(results.get(1).getError()).isInstanceOf(InvalidTypeException.class);
+        assertThat(results.get(1).getStatement()).isNull();
+        assertThat(results.get(2).isSuccess()).isTrue();
+        assertThat(results.get(2).getResultSet()).isSameAs(rs3);
+    }
+
+    @Test(groups = "unit")
+    public void should_bound_reads_in_flight() {
+        List<Statement> statements = new ArrayList<Statement>();
+        for (int i = 0; i < 10; i++)
+            statements.add(new SimpleStatement("SELECT * FROM t WHERE k = " + i));
+
+        ListenableFuture<List<MultiGet.Result>> future = MultiGet.builder(session).withMaxInFlight(3).build().executeAsync(statements);
+
+        for (int completed = 0; completed < 10; completed++) {
+            assertThat(pending.size() - completed).isEqualTo(Math.min(3, 10 - completed));
+            pending.get(completed).set(mock(ResultSet.class));
+        }
+        assertThat(future.isDone()).isTrue();
+        List<MultiGet.Result> results = getUninterruptibly(future);
+        for (int i = 0; i < 10; i++) {
+            assertThat(results.get(i).getStatement()).isSameAs(statements.get(i));
+            assertThat(results.get(i).getResultSet()).isNotNull();
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_complete_immediately_when_no_key() {
+        ListenableFuture<List<MultiGet.Result>> future = MultiGet.builder(session).build().executeAsync(Collections.<Statement>emptyList());
+        assertThat(getUninterruptibly(future)).isEmpty();
+    }
+
+    @Test(groups = "unit")
+    public void should_merge_rows_of_all_reads_in_order() {
+        List<Statement> statements = new ArrayList<Statement>();
+        for (int i = 0; i < 3; i++)
+            statements.add(new SimpleStatement("SELECT * FROM t WHERE k = " + i));
+        Row a = mock(Row.class), b = mock(Row.class), c = mock(Row.class);
+
+        ListenableFuture<ResultSet> future = MultiGet.builder(session).build().executeMergedAsync(statements);
+        pending.get(2).set(resultSet(c));
+        pending.get(1).set(resultSet());
+        pending.get(0).set(resultSet(a, b));
+
+        ResultSet rs = getUninterruptibly(future);
+        assertThat(rs.getAvailableWithoutFetching()).isEqualTo(3);
+        final List<Row> visited = new ArrayList<Row>();
+        rs.visit(new RowVisitor() {
+            @Override
+            public boolean visit(Row row) {
+                visited.add(row);
+                return visited.size() < 2;
+            }
+        });
+        assertThat(visited).containsExactly(a, b);
+        assertThat(rs.isExhausted()).isFalse();
+        assertThat(rs.one()).isSameAs(c);
+        assertThat(rs.isExhausted()).isTrue();
+        assertThat(rs.one()).isNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_fail_merged_read_if_any_read_fails() throws Exception {
+        List<Statement> statements = Arrays.<Statement>asList(new SimpleStatement("SELECT * FROM t WHERE k = 1"),
+                new SimpleStatement("SELECT * FROM t WHERE k = 2"));
+
+        ListenableFuture<ResultSet> future = MultiGet.builder(session).build().executeMergedAsync(statements);
+        ReadTimeoutException timeout = new ReadTimeoutException(ConsistencyLevel.ONE, 0, 1, false);
+        pending.get(0).set(resultSet());
+        pending.get(1).setException(timeout);
+
+        try {
+            future.get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isSameAs(timeout);
+        }
+    }
+
+    // A fully fetched result set with the given rows
+    private static ResultSet resultSet(Row... rows) {
+        final Queue<Row> queue = new LinkedList<Row>(Arrays.asList(rows));
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.isFullyFetched()).thenReturn(true);
+        when(rs.isExhausted()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return queue.isEmpty();
+            }
+        });
+        when(rs.getAvailableWithoutFetching()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                return queue.size();
+            }
+        });
+        when(rs.one()).thenAnswer(new Answer<Row>() {
+            @Override
+            public Row answer(InvocationOnMock invocation) throws Throwable {
+                return queue.poll();
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                RowVisitor visitor = (RowVisitor) invocation.getArguments()[0];
+                while (!queue.isEmpty())
+                    if (!visitor.visit(queue.poll()))
+                        break;
+                return null;
+            }
+        }).when(rs).visit(any(RowVisitor.class));
+        return rs;
+    }
+
+    private static <V> V getUninterruptibly(ListenableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.policies.ConstantReconnectionPolicy;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class PhiAccrualConvictionPolicyTest {
+
+    PoolingOptions poolingOptions;
+    Host host;
+    Cluster.Manager manager;
+    ConvictionPolicy.PhiAccrualConvictionPolicy policy;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        poolingOptions = new PoolingOptions().setConvictionPhiThreshold(8);
+        host = mock(Host.class);
+        manager = mock(Cluster.Manager.class);
+        manager.reconnectionExecutor = mock(ScheduledThreadPoolExecutor.class);
+        policy = (ConvictionPolicy.PhiAccrualConvictionPolicy) new ConvictionPolicy.PhiAccrualConvictionPolicy.Factory(poolingOptions, manager)
+                .create(host, new ConstantReconnectionPolicy(1000));
+    }
+
+    @Test(groups = "unit")
+    public void should_not_compute_phi_without_enough_samples() {
+        long now = System.nanoTime();
+        policy.recordArrival(now - SECONDS.toNanos(20));
+        policy.recordArrival(now - SECONDS.toNanos(10));
+
+        assertThat(policy.phi(now)).isEqualTo(0.0);
+
+        // falls back to the default behavior: convict when the last connection fails
+        policy.signalConnectionsOpening(1);
+        assertThat(policy.signalConnectionFailure(null)).isTrue();
+    }
+
+    @Test(groups = "unit")
+    public void should_compute_phi_from_mean_interval() {
+        long now = System.nanoTime();
+        recordArrivals(now, 20, MILLISECONDS.toNanos(100));
+
+        assertThat(policy.phi(now)).isEqualTo(0.0);
+        // 1 second is 10 mean intervals: phi = 10 * log10(e)
+        assertThat(policy.phi(now + SECONDS.toNanos(1))).isEqualTo(10 / Math.log(10), offset(0.001));
+    }
+
+    @Test(groups = "unit")
+    public void should_not_convict_host_that_responded_recently() {
+        recordArrivals(System.nanoTime(), 20, MILLISECONDS.toNanos(100));
+
+        policy.signalConnectionsOpening(2);
+        assertThat(policy.signalConnectionFailure(null)).isFalse();
+        // last connection failed, but the host was responsive until now
+        assertThat(policy.signalConnectionFailure(null)).isFalse();
+    }
+
+    @Test(groups = "unit")
+    public void should_allow_reconnection_right_away_when_suspected() {
+        recordArrivals(System.nanoTime(), 20, MILLISECONDS.toNanos(100));
+
+        policy.signalConnectionsOpening(2);
+        assertThat(policy.signalConnectionFailure(null)).isFalse();
+        // a connection failed but others remain: new connections are delayed
+        assertThat(policy.canReconnectNow()).isFalse();
+
+        assertThat(policy.signalConnectionFailure(null)).isFalse();
+        // the host is suspected: the pool should not wait for the reconnection delay
+        assertThat(policy.canReconnectNow()).isTrue();
+    }
+
+    @Test(groups = "unit")
+    public void should_convict_suspected_host_once_phi_reaches_threshold() throws Exception {
+        // phi is about 6.5, it will reach 8 in about 340 ms
+        recordArrivals(System.nanoTime() - MILLISECONDS.toNanos(1500), 20, MILLISECONDS.toNanos(100));
+
+        policy.signalConnectionsOpening(1);
+        assertThat(policy.signalConnectionFailure(null)).isFalse();
+
+        ArgumentCaptor<Runnable> recheck = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+        verify(manager.reconnectionExecutor).schedule(recheck.capture(), delay.capture(), eq(NANOSECONDS));
+        assertThat(NANOSECONDS.toMillis(delay.getValue())).isBetween(200L, 342L);
+
+        // too early: checks again later
+        recheck.getValue().run();
+        verify(manager, never()).triggerOnDown(any(Host.class), anyBoolean());
+        verify(manager.reconnectionExecutor, times(2)).schedule(any(Runnable.class), anyLong(), eq(NANOSECONDS));
+
+        MILLISECONDS.sleep(400);
+        recheck.getValue().run();
+        verify(manager).triggerOnDown(host, true);
+        assertThat(policy.phi()).isEqualTo(0.0);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_convict_suspected_host_that_reconnected() throws Exception {
+        recordArrivals(System.nanoTime() - MILLISECONDS.toNanos(1500), 20, MILLISECONDS.toNanos(100));
+
+        policy.signalConnectionsOpening(1);
+        assertThat(policy.signalConnectionFailure(null)).isFalse();
+        // the pool is reconnecting
+        policy.signalConnectionsOpening(1);
+
+        MILLISECONDS.sleep(400);
+        policy.recheck();
+        verify(manager, never()).triggerOnDown(any(Host.class), anyBoolean());
+    }
+
+    @Test(groups = "unit")
+    public void should_convict_host_that_has_been_silent_for_too_long() {
+        recordArrivals(System.nanoTime() - SECONDS.toNanos(10), 20, MILLISECONDS.toNanos(100));
+
+        policy.signalConnectionsOpening(1);
+        assertThat(policy.signalConnectionFailure(null)).isTrue();
+        // samples are reset once convicted
+        assertThat(policy.phi()).isEqualTo(0.0);
+    }
+
+    @Test(groups = "unit")
+    public void should_behave_like_default_policy_when_threshold_reset() {
+        recordArrivals(System.nanoTime(), 20, MILLISECONDS.toNanos(100));
+        poolingOptions.setConvictionPhiThreshold(0);
+
+        policy.signalConnectionsOpening(1);
+        assertThat(policy.signalConnectionFailure(null)).isTrue();
+    }
+
+    private void recordArrivals(long last, int count, long interval) {
+        for (int i = count - 1; i >= 0; i--)
+            policy.recordArrival(last - i * interval);
+    }
+}
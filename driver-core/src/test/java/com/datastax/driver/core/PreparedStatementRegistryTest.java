@@ -0,0 +1,107 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PreparedStatementRegistryTest {
+
+    @Test(groups = "unit")
+    public void should_return_the_registered_instance_for_a_known_id() {
+        PreparedStatementRegistry registry = new PreparedStatementRegistry();
+        DefaultPreparedStatement ps1 = statement(1, "SELECT * FROM t");
+        DefaultPreparedStatement ps2 = statement(1, "SELECT * FROM t");
+
+        assertThat(registry.add(ps1)).isSameAs(ps1);
+        assertThat(registry.add(ps2)).isSameAs(ps1);
+        assertThat(registry.get(ps2.getPreparedId().id)).isSameAs(ps1);
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test(groups = "unit")
+    public void should_order_statements_by_usage() {
+        PreparedStatementRegistry registry = new PreparedStatementRegistry();
+        DefaultPreparedStatement cold = statement(1, "SELECT * FROM cold");
+        DefaultPreparedStatement warm = statement(2, "SELECT * FROM warm");
+        DefaultPreparedStatement hot = statement(3, "SELECT * FROM hot");
+        DefaultPreparedStatement recent = statement(4, "SELECT * FROM warm");
+        for (DefaultPreparedStatement ps : new DefaultPreparedStatement[]{cold, warm, hot, recent})
+            registry.add(ps);
+
+        hot.uses = 10;
+        hot.lastUsed = 1;
+        warm.uses = 5;
+        warm.lastUsed = 1;
+        recent.uses = 5;
+        recent.lastUsed = 2;
+
+        assertThat(registry.byUsage()).containsExactly(hot, recent, warm, cold);
+        assertThat(registry.usage()).containsOnly(
+                entry("SELECT * FROM hot", 10L),
+                entry("SELECT * FROM warm", 10L),
+                entry("SELECT * FROM cold", 0L));
+    }
+
+    @Test(groups = "unit")
+    public void should_order_statements_while_usage_changes() throws InterruptedException {
+        final PreparedStatementRegistry registry = new PreparedStatementRegistry();
+        final List<DefaultPreparedStatement> statements = new ArrayList<DefaultPreparedStatement>();
+        for (int i = 0; i < 100; i++) {
+            DefaultPreparedStatement statement = statement(i, "SELECT * FROM t" + i);
+            statements.add(statement);
+            registry.add(statement);
+        }
+
+        final AtomicBoolean stop = new AtomicBoolean();
+        Thread executor = new Thread() {
+            @Override
+            public void run() {
+                Random random = new Random();
+                while (!stop.get()) {
+                    DefaultPreparedStatement statement = statements.get(random.nextInt(statements.size()));
+                    statement.uses = random.nextInt(10);
+                    statement.lastUsed = random.nextInt(10);
+                }
+            }
+        };
+        executor.start();
+        try {
+            for (int i = 0; i < 10000; i++)
+                assertThat(registry.byUsage()).hasSize(100);
+        } finally {
+            stop.set(true);
+            executor.join();
+        }
+    }
+
+    private static DefaultPreparedStatement statement(int id, String query) {
+        DefaultPreparedStatement statement = mock(DefaultPreparedStatement.class);
+        PreparedId preparedId = new PreparedId(MD5Digest.wrap(new byte[]{(byte) id}), null, null, null, ProtocolVersion.V3);
+        when(statement.getPreparedId()).thenReturn(preparedId);
+        when(statement.getQueryString()).thenReturn(query);
+        return statement;
+    }
+}
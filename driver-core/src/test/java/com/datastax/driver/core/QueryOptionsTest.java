@@ -16,13 +16,22 @@
 package com.datastax.driver.core;
 
 import com.google.common.collect.Lists;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
 import org.scassandra.http.client.PreparedStatementPreparation;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.datastax.driver.core.Assertions.assertThat;
 import static com.datastax.driver.core.TestUtils.nonQuietClusterCloseOptions;
@@ -38,6 +47,8 @@ public class QueryOptionsTest {
     Session session = null;
     Host host1, host2, host3;
 
+    PrepareTracker node1Prepares;
+
 
     @BeforeMethod(groups = "short")
     public void beforeMethod() {
@@ -46,11 +57,22 @@ public class QueryOptionsTest {
 
         queryOptions = new QueryOptions();
         loadBalancingPolicy = new SortingLoadBalancingPolicy();
+        node1Prepares = new PrepareTracker(CCMBridge.ipOfNode(1));
         cluster = Cluster.builder()
                 .addContactPoint(CCMBridge.ipOfNode(2))
                 .withLoadBalancingPolicy(loadBalancingPolicy)
                 .withQueryOptions(queryOptions)
-                .withNettyOptions(nonQuietClusterCloseOptions)
+                .withNettyOptions(new NettyOptions() {
+                    @Override
+                    public void afterChannelInitialized(SocketChannel channel) throws Exception {
+                        channel.pipeline().addBefore("dispatcher", "prepareTracker", node1Prepares.newHandler());
+                    }
+
+                    @Override
+                    public void onClusterClose(EventLoopGroup eventLoopGroup) {
+                        nonQuietClusterCloseOptions.onClusterClose(eventLoopGroup);
+                    }
+                })
                 .build();
 
         session = cluster.connect();
@@ -69,7 +91,7 @@ public class QueryOptionsTest {
         // Prepare the statement
         String query = "select sansa_stark from the_known_world";
         PreparedStatement statement = session.prepare(query);
-        assertThat(cluster.manager.preparedQueries).containsValue(statement);
+        assertThat(cluster.manager.preparedQueries.get(statement.getPreparedId().id)).isSameAs(statement);
 
         // Ensure prepared properly based on expectation.
         List<PreparedStatementPreparation> preparationOne = scassandra.node(1).activityClient().retrievePreparedStatementPreparations();
@@ -215,6 +237,136 @@ public class QueryOptionsTest {
         valideReprepareOnUp(false);
     }
 
+    /**
+     * <p>
+     * Validates that, when a node comes back up, the most used statements are re-prepared first and before
+     * the node is used, with a bounded number of requests in flight, and that the others are re-prepared
+     * in the background.
+     * </p>
+     *
+     * @test_category prepared_statements:prepared
+     * @expected_result the hottest statements are re-prepared in order before the node is marked up, the
+     * others afterwards, and there are never more PREPARE requests in flight than allowed.
+     */
+    @Test(groups = "short")
+    public void should_reprepare_hottest_statements_first_and_others_in_background() throws Exception {
+        cluster.manager.reprepareHotSetSize = 6;
+        cluster.manager.reprepareConnections = 1;
+        cluster.manager.reprepareMaxInFlight = 2;
+
+        // The registry only references statements weakly
+        List<PreparedStatement> statements = new ArrayList<PreparedStatement>();
+        List<String> hottestFirst = new ArrayList<String>();
+        for (int i = 0; i < 8; i++) {
+            String query = "select column" + i + " from the_known_world";
+            PreparedStatement statement = session.prepare(query);
+            for (int j = 0; j < i; j++)
+                PreparedStatementRegistry.recordUsage(statement);
+            statements.add(statement);
+            hottestFirst.add(0, query);
+        }
+
+        scassandra.node(1).activityClient().clearAllRecordedActivity();
+        scassandra.node(1).stop();
+        assertThat(cluster).host(1).goesDownWithin(10, TimeUnit.SECONDS);
+        node1Prepares.maxInFlight.set(0);
+
+        // Hold the threads of the executor that runs the background preparations
+        final CountDownLatch blocked = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            cluster.manager.blockingExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        final BlockingQueue<List<PreparedStatementPreparation>> preparedWhenUp = new LinkedBlockingQueue<List<PreparedStatementPreparation>>();
+        cluster.register(new StateListenerBase() {
+            @Override
+            public void onUp(Host host) {
+                if (host.equals(host1))
+                    preparedWhenUp.add(scassandra.node(1).activityClient().retrievePreparedStatementPreparations());
+            }
+        });
+        try {
+            scassandra.node(1).start();
+            assertThat(cluster).host(1).comesUpWithin(60, TimeUnit.SECONDS);
+
+            List<PreparedStatementPreparation> preparations = preparedWhenUp.poll(10, TimeUnit.SECONDS);
+            assertThat(preparations).isNotNull();
+            assertThat(queries(preparations)).containsExactlyElementsOf(hottestFirst.subList(0, 6));
+        } finally {
+            blocked.countDown();
+        }
+
+        List<PreparedStatementPreparation> preparations = null;
+        for (int i = 0; i < 100; i++) {
+            preparations = scassandra.node(1).activityClient().retrievePreparedStatementPreparations();
+            if (preparations.size() == 8)
+                break;
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        assertThat(queries(preparations)).containsExactlyElementsOf(hottestFirst);
+        assertThat(node1Prepares.maxInFlight.get()).isBetween(1, 2);
+    }
+
+    private static List<String> queries(List<PreparedStatementPreparation> preparations) {
+        List<String> queries = new ArrayList<String>();
+        for (PreparedStatementPreparation preparation : preparations)
+            queries.add(preparation.getPreparedStatementText());
+        return queries;
+    }
+
+    /**
+     * Tracks how many PREPARE requests are in flight to a node.
+     */
+    static class PrepareTracker {
+        final String address;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        PrepareTracker(String address) {
+            this.address = address;
+        }
+
+        ChannelDuplexHandler newHandler() {
+            return new ChannelDuplexHandler() {
+                // Stream ids of the PREPARE requests in flight on this channel
+                final Set<Integer> streamIds = new ConcurrentSkipListSet<Integer>();
+
+                @Override
+                public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+                    if (msg instanceof Requests.Prepare && isTracked(ctx) && streamIds.add(((Message) msg).getStreamId())) {
+                        int n = inFlight.incrementAndGet();
+                        while (true) {
+                            int max = maxInFlight.get();
+                            if (n <= max || maxInFlight.compareAndSet(max, n))
+                                break;
+                        }
+                    }
+                    super.write(ctx, msg, promise);
+                }
+
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                    if (msg instanceof Message.Response && streamIds.remove(((Message) msg).getStreamId()))
+                        inFlight.decrementAndGet();
+                    super.channelRead(ctx, msg);
+                }
+
+                private boolean isTracked(ChannelHandlerContext ctx) {
+                    InetSocketAddress remote = (InetSocketAddress) ctx.channel().remoteAddress();
+                    return remote != null && remote.getAddress().getHostAddress().equals(address);
+                }
+            };
+        }
+    }
+
     @AfterMethod(groups = "short")
     public void afterMethod() {
         if (cluster != null)
@@ -0,0 +1,108 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * A mock {@link Session} for the unit tests of the helpers that execute statements: each call to
+ * {@code executeAsync} is recorded, and returns a future that the test completes.
+ * <p/>
+ * The session's cluster is never initialized, so the replicas of statements are unknown. Call
+ * {@link #close()} after each test.
+ */
+class RecordingSession {
+
+    final Cluster cluster = Cluster.builder().addContactPoint("127.0.0.1").build();
+    final Session session = mock(Session.class);
+
+    // In execution order
+    final List<Statement> executed = new CopyOnWriteArrayList<Statement>();
+    final List<SettableFuture<ResultSet>> pending = new CopyOnWriteArrayList<SettableFuture<ResultSet>>();
+
+    RecordingSession() {
+        when(session.getCluster()).thenReturn(cluster);
+        when(session.executeAsync(any(Statement.class))).thenAnswer(new Answer<ResultSetFuture>() {
+            @Override
+            public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+                SettableFuture<ResultSet> future = SettableFuture.create();
+                executed.add((Statement) invocation.getArguments()[0]);
+                pending.add(future);
+                return resultSetFuture(future);
+            }
+        });
+    }
+
+    /**
+     * Waits for the {@code i}-th execution (the executing thread might not have reached it yet), and returns its future.
+     */
+    SettableFuture<ResultSet> awaitPending(int i) throws InterruptedException {
+        for (int attempt = 0; attempt < 100 && pending.size() <= i; attempt++)
+            TimeUnit.MILLISECONDS.sleep(10);
+        assertThat(pending.size()).as("executions").isGreaterThan(i);
+        return pending.get(i);
+    }
+
+    BoundStatement bound(int i) {
+        return (BoundStatement) executed.get(i);
+    }
+
+    void close() {
+        cluster.close();
+    }
+
+    /**
+     * Returns a mock {@link ResultSetFuture} that completes with {@code future}.
+     */
+    static ResultSetFuture resultSetFuture(final SettableFuture<ResultSet> future) {
+        ResultSetFuture resultSetFuture = mock(ResultSetFuture.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                future.addListener((Runnable) invocation.getArguments()[0], (Executor) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(resultSetFuture).addListener(any(Runnable.class), any(Executor.class));
+        try {
+            when(resultSetFuture.get()).thenAnswer(new Answer<ResultSet>() {
+                @Override
+                public ResultSet answer(InvocationOnMock invocation) throws Throwable {
+                    return future.get();
+                }
+            });
+        } catch (Exception e) {
+            throw new AssertionError(e); // can't happen, this is only stubbing
+        }
+        when(resultSetFuture.isDone()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return future.isDone();
+            }
+        });
+        return resultSetFuture;
+    }
+}
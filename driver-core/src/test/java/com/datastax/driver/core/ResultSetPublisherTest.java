@@ -0,0 +1,296 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.google.common.util.concurrent.ForwardingListenableFuture;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ResultSetPublisherTest {
+
+    @Test(groups = "unit")
+    public void should_not_execute_query_until_rows_are_requested() {
+        Session session = mock(Session.class);
+        Statement statement = new SimpleStatement("SELECT * FROM foo");
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new ResultSetPublisher(session, statement).subscribe(subscriber);
+        verify(session, never()).executeAsync(any(Statement.class));
+
+        SettableFuture<ResultSet> future = SettableFuture.create();
+        when(session.executeAsync(statement)).thenReturn(new TestResultSetFuture(future));
+        subscriber.subscription.request(1);
+        verify(session).executeAsync(statement);
+    }
+
+    @Test(groups = "unit")
+    public void should_fetch_pages_on_demand() {
+        FakeResultSet rs = new FakeResultSet(2, 2, 1);
+        RecordingSubscriber subscriber = subscribe(rs);
+
+        subscriber.subscription.request(2);
+        assertThat(subscriber.rows).hasSize(2);
+        assertThat(rs.fetches).isEqualTo(0);
+
+        // Next page is only fetched once more rows are requested
+        subscriber.subscription.request(2);
+        assertThat(rs.fetches).isEqualTo(1);
+        assertThat(subscriber.rows).hasSize(2);
+        rs.completeFetch();
+        assertThat(subscriber.rows).hasSize(4);
+        assertThat(subscriber.completed).isFalse();
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        rs.completeFetch();
+        assertThat(subscriber.rows).hasSize(5);
+        assertThat(subscriber.completed).isTrue();
+        assertThat(subscriber.error).isNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_stop_fetching_when_cancelled() {
+        FakeResultSet rs = new FakeResultSet(1, 1);
+        RecordingSubscriber subscriber = subscribe(rs);
+
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1);
+        assertThat(subscriber.rows).hasSize(1);
+        assertThat(rs.fetches).isEqualTo(0);
+        assertThat(subscriber.completed).isFalse();
+    }
+
+    @Test(groups = "unit")
+    public void should_signal_fetch_errors() {
+        FakeResultSet rs = new FakeResultSet(1, 1);
+        RecordingSubscriber subscriber = subscribe(rs);
+
+        subscriber.subscription.request(2);
+        RuntimeException error = new RuntimeException("page failed");
+        rs.failFetch(error);
+        assertThat(subscriber.rows).hasSize(1);
+        assertThat(subscriber.error).isSameAs(error);
+    }
+
+    @Test(groups = "unit")
+    public void should_signal_error_on_invalid_request() {
+        FakeResultSet rs = new FakeResultSet(1);
+        RecordingSubscriber subscriber = subscribe(rs);
+
+        subscriber.subscription.request(0);
+        assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test(groups = "unit")
+    public void should_only_prefetch_pages_within_demand() {
+        FakeResultSet rs = new FakeResultSet(3, 3, 3);
+        RecordingSubscriber subscriber = subscribe(rs, 2);
+
+        // Fewer rows than the threshold are left, but they cover the demand
+        subscriber.subscription.request(2);
+        assertThat(subscriber.rows).hasSize(2);
+        assertThat(rs.fetches).isEqualTo(0);
+
+        subscriber.subscription.request(1);
+        assertThat(subscriber.rows).hasSize(3);
+        assertThat(rs.fetches).isEqualTo(0);
+
+        // The next page is fetched while the current one is consumed
+        subscriber.subscription.request(5);
+        assertThat(rs.fetches).isEqualTo(1);
+        rs.completeFetch();
+        assertThat(subscriber.rows).hasSize(6);
+        assertThat(rs.fetches).isEqualTo(2);
+        rs.completeFetch();
+        assertThat(subscriber.rows).hasSize(8);
+        assertThat(subscriber.completed).isFalse();
+    }
+
+    private static RecordingSubscriber subscribe(ResultSet rs) {
+        return subscribe(rs, 0);
+    }
+
+    private static RecordingSubscriber subscribe(ResultSet rs, final int prefetchThreshold) {
+        Session session = mock(Session.class);
+        Statement statement = new SimpleStatement("SELECT * FROM foo");
+        SettableFuture<ResultSet> future = SettableFuture.create();
+        future.set(rs);
+        when(session.executeAsync(statement)).thenReturn(new TestResultSetFuture(future));
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new ResultSetPublisher(session, statement) {
+            @Override
+            int takeOverPrefetching(ResultSet rs) {
+                return prefetchThreshold;
+            }
+        }.subscribe(subscriber);
+        return subscriber;
+    }
+
+    static class RecordingSubscriber implements Subscriber<Row> {
+        Subscription subscription;
+        final List<Row> rows = new ArrayList<Row>();
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Row row) {
+            rows.add(row);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    /**
+     * A result set whose pages are made of mock rows, and whose fetches are completed manually.
+     */
+    static class FakeResultSet implements ResultSet {
+        private final Queue<Integer> pageSizes = new LinkedList<Integer>();
+        private int available;
+        private SettableFuture<Void> inProgress;
+        int fetches;
+
+        FakeResultSet(Integer... pageSizes) {
+            this.pageSizes.addAll(Arrays.asList(pageSizes));
+            this.available = this.pageSizes.poll();
+        }
+
+        void completeFetch() {
+            available += pageSizes.poll();
+            SettableFuture<Void> future = inProgress;
+            inProgress = null;
+            future.set(null);
+        }
+
+        void failFetch(Throwable t) {
+            SettableFuture<Void> future = inProgress;
+            inProgress = null;
+            future.setException(t);
+        }
+
+        @Override
+        public Row one() {
+            if (available == 0)
+                throw new AssertionError("Should not block on one()");
+            available--;
+            return mock(Row.class);
+        }
+
+        @Override
+        public int getAvailableWithoutFetching() {
+            return available;
+        }
+
+        @Override
+        public boolean isFullyFetched() {
+            return pageSizes.isEmpty();
+        }
+
+        @Override
+        public ListenableFuture<Void> fetchMoreResults() {
+            if (inProgress == null) {
+                fetches++;
+                inProgress = SettableFuture.create();
+            }
+            return inProgress;
+        }
+
+        @Override
+        public boolean isExhausted() {
+            return available == 0 && isFullyFetched();
+        }
+
+        @Override
+        public ColumnDefinitions getColumnDefinitions() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Row> all() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterator<Row> iterator() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ExecutionInfo getExecutionInfo() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ExecutionInfo> getAllExecutionInfo() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean wasApplied() {
+            return true;
+        }
+
+        @Override
+        public void visit(RowVisitor visitor) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ListenableFuture<Void> visitAsync(RowVisitor visitor) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    static class TestResultSetFuture extends ForwardingListenableFuture.SimpleForwardingListenableFuture<ResultSet> implements ResultSetFuture {
+        TestResultSetFuture(ListenableFuture<ResultSet> delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public ResultSet getUninterruptibly() {
+            return Futures.getUnchecked(this);
+        }
+
+        @Override
+        public ResultSet getUninterruptibly(long timeout, TimeUnit unit) throws TimeoutException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ScanCheckpointTest {
+
+    private static final Token.Factory FACTORY = Token.M3PToken.FACTORY;
+
+    private File file;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() throws Exception {
+        file = File.createTempFile("scan", ".checkpoint");
+        file.deleteOnExit();
+    }
+
+    @Test(groups = "unit")
+    public void should_ignore_last_record_if_cut_off() throws Exception {
+        ScanCheckpoint checkpoint = ScanCheckpoint.open(file, 0, null);
+        checkpoint.pageConsumed(range(0, 10), new byte[]{1, 2});
+        checkpoint.pageConsumed(range(0, 10), new byte[]{3, 4, 5, 6});
+        checkpoint.close(false);
+
+        // Cut in the middle of the paging state of the last record, leaving an even number of hex digits
+        String content = Files.toString(file, Charsets.UTF_8);
+        int cut = content.indexOf("0x03040506") + "0x0304".length();
+        Files.write(content.substring(0, cut), file, Charsets.UTF_8);
+
+        checkpoint = ScanCheckpoint.open(file, 0, null);
+        assertThat(checkpoint.getPagingState(range(0, 10))).isEqualTo(new byte[]{1, 2});
+        // The cut-off record is dropped, so new records are still readable
+        checkpoint.rangeCompleted(range(10, 20));
+        checkpoint.close(false);
+        assertThat(Files.toString(file, Charsets.UTF_8)).doesNotContain("0x0304");
+
+        checkpoint = ScanCheckpoint.open(file, 0, null);
+        assertThat(checkpoint.getPagingState(range(0, 10))).isEqualTo(new byte[]{1, 2});
+        assertThat(checkpoint.isCompleted(range(10, 20))).isTrue();
+        checkpoint.close(false);
+    }
+
+    @Test(groups = "unit")
+    public void should_ignore_corrupted_record() throws Exception {
+        ScanCheckpoint checkpoint = ScanCheckpoint.open(file, 0, null);
+        checkpoint.pageConsumed(range(0, 10), new byte[]{1, 2});
+        checkpoint.pageConsumed(range(0, 10), new byte[]{3, 4});
+        checkpoint.close(false);
+
+        String content = Files.toString(file, Charsets.UTF_8);
+        Files.write(content.replace("0x0304", "0x0305"), file, Charsets.UTF_8);
+
+        checkpoint = ScanCheckpoint.open(file, 0, null);
+        assertThat(checkpoint.getPagingState(range(0, 10))).isEqualTo(new byte[]{1, 2});
+        checkpoint.close(false);
+    }
+
+    @Test(groups = "unit")
+    public void should_sync_periodically_until_closed() throws Exception {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        ScheduledFuture<?> syncTask = mock(ScheduledFuture.class);
+        doReturn(syncTask).when(scheduler).scheduleWithFixedDelay(any(Runnable.class), eq(1000L), eq(1000L), eq(TimeUnit.MILLISECONDS));
+
+        ScanCheckpoint checkpoint = ScanCheckpoint.open(file, 1000, scheduler);
+        ArgumentCaptor<Runnable> sync = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).scheduleWithFixedDelay(sync.capture(), eq(1000L), eq(1000L), eq(TimeUnit.MILLISECONDS));
+
+        checkpoint.rangeCompleted(range(0, 10));
+        sync.getValue().run();
+
+        checkpoint.close(false);
+        verify(syncTask).cancel(false);
+        // No-op once closed
+        sync.getValue().run();
+    }
+
+    private static TokenRange range(long start, long end) {
+        return new TokenRange(FACTORY.fromString(Long.toString(start)), FACTORY.fromString(Long.toString(end)), FACTORY);
+    }
+}
@@ -330,6 +330,25 @@ public class SchemaChangesTest extends CCMBridge.PerClassSingleNodeCluster {
     }
 
 
+    @Test(groups = "short", dataProvider = "existingKeyspaceName")
+    public void should_reuse_unchanged_metadata_on_full_refresh(String keyspace) throws Exception {
+        execute(CREATE_TABLE, keyspace);
+        for (SchemaChangeListener listener : listeners)
+            verify(listener, timeout(NOTIF_TIMEOUT_MS).times(1)).onTableAdded(any(TableMetadata.class));
+
+        KeyspaceMetadata ksBefore = cluster1.getMetadata().getKeyspace(keyspace);
+        TableMetadata tableBefore = ksBefore.getTable("table1");
+
+        cluster1.manager.submitSchemaRefresh(null, null, null).get();
+
+        KeyspaceMetadata ksAfter = cluster1.getMetadata().getKeyspace(keyspace);
+        assertThat(ksAfter).isSameAs(ksBefore);
+        assertThat(ksAfter.getTable("table1")).isSameAs(tableBefore);
+        // nothing changed, so there should be no notifications
+        verify(listener1, after(1000).never()).onTableChanged(any(TableMetadata.class), any(TableMetadata.class));
+        verify(listener1, never()).onKeyspaceChanged(any(KeyspaceMetadata.class), any(KeyspaceMetadata.class));
+    }
+
     /**
      * Ensures that calling {@link Metadata#newToken(String)} on a Cluster that has schema
      * metadata disabled will throw a {@link IllegalStateException}.
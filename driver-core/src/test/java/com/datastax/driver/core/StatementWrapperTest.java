@@ -83,6 +83,17 @@ public class StatementWrapperTest extends CCMBridge.PerClassSingleNodeCluster {
         assertThat(retryPolicy.customStatementsHandled.get()).isEqualTo(1);
     }
 
+    @Test(groups = "unit")
+    public void should_delegate_routing_token_to_wrapped_statement() {
+        Statement wrapped = new SimpleStatement("SELECT * FROM t WHERE token(k) > ? AND token(k) <= ?", 0L, 10L);
+        Token token = Token.M3PToken.FACTORY.fromString("10");
+
+        new CustomStatement(wrapped).setRoutingToken(token);
+
+        assertThat(wrapped.getRoutingToken()).isEqualTo(token);
+        assertThat(new CustomStatement(wrapped).getRoutingToken()).isEqualTo(token);
+    }
+
     /**
      * A custom wrapper that's just used to mark statements.
      */
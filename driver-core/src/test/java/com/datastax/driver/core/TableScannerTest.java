@@ -0,0 +1,242 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.ReadTimeoutException;
+import com.google.common.util.concurrent.SettableFuture;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.fail;
+
+public class TableScannerTest {
+
+    private static final Token.Factory FACTORY = Token.M3PToken.FACTORY;
+
+    private RecordingSession recording;
+    private Session session;
+    private TableMetadata table;
+    private List<Statement> executed;
+    private List<SettableFuture<ResultSet>> pending;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        // Never initialized: replicas are unknown, the ranges are given to the scanner
+        recording = new RecordingSession();
+        session = recording.session;
+        executed = recording.executed;
+        pending = recording.pending;
+
+        ColumnDefinitions variables = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+                new ColumnDefinitions.Definition("ks", "t", "partition key token", DataType.bigint()),
+                new ColumnDefinitions.Definition("ks", "t", "partition key token", DataType.bigint())
+        });
+        final PreparedStatement prepared = mock(PreparedStatement.class);
+        when(prepared.getVariables()).thenReturn(variables);
+        when(prepared.getPreparedId()).thenReturn(new PreparedId(null, variables, null, null, ProtocolVersion.V3));
+        when(prepared.bind()).thenAnswer(new Answer<BoundStatement>() {
+            @Override
+            public BoundStatement answer(InvocationOnMock invocation) throws Throwable {
+                return new BoundStatement(prepared);
+            }
+        });
+
+        when(session.prepare(anyString())).thenReturn(prepared);
+
+        KeyspaceMetadata keyspace = mock(KeyspaceMetadata.class);
+        when(keyspace.getName()).thenReturn("ks");
+        ColumnMetadata k = mock(ColumnMetadata.class);
+        when(k.getName()).thenReturn("k");
+        table = mock(TableMetadata.class);
+        when(table.getName()).thenReturn("t");
+        when(table.getKeyspace()).thenReturn(keyspace);
+        when(table.getPartitionKey()).thenReturn(Collections.singletonList(k));
+    }
+
+    @AfterMethod(groups = "unit")
+    public void teardown() {
+        recording.close();
+    }
+
+    @Test(groups = "unit")
+    public void should_scan_ranges_with_bounded_concurrency_and_backpressure() {
+        List<TokenRange> ranges = Arrays.asList(range(0, 10), range(10, 20), range(20, 30));
+        final List<TokenRange> completed = new ArrayList<TokenRange>();
+        TableScanner scanner = TableScanner.builder(session, table)
+                .withRanges(ranges)
+                .withMaxConcurrentRanges(2)
+                .withProgressListener(new TableScanner.ProgressListener() {
+                    @Override
+                    public void onRangeCompleted(TokenRange range, long rows, TableScanner.Scan scan) {
+                        completed.add(range);
+                    }
+                })
+                .build();
+        assertThat(scanner.getQuery()).isEqualTo("SELECT * FROM ks.t WHERE token(k) > ? AND token(k) <= ?");
+
+        TableScanner.Scan scan = scanner.scan();
+        assertThat(executed).hasSize(2);
+        assertThat(recording.bound(0).getLong(0)).isEqualTo(0L);
+        assertThat(recording.bound(0).getLong(1)).isEqualTo(10L);
+        assertThat(recording.bound(0).getRoutingToken()).isEqualTo(token(10));
+
+        Row a1 = mock(Row.class), a2 = mock(Row.class), a3 = mock(Row.class), b1 = mock(Row.class), c1 = mock(Row.class);
+        pending.get(0).set(page(new byte[]{1}, a1, a2));
+        pending.get(1).set(page(null, b1));
+
+        assertThat(scan.next()).isSameAs(a1);
+        // The next page of the first range is requested once its first page is handed over
+        assertThat(executed).hasSize(3);
+        assertThat(recording.bound(2).getLong(0)).isEqualTo(0L);
+        assertThat(recording.bound(2).getPagingState()).isEqualTo(java.nio.ByteBuffer.wrap(new byte[]{1}));
+        assertThat(scan.next()).isSameAs(a2);
+        assertThat(scan.next()).isSameAs(b1);
+        // The second range is done: the third one starts
+        assertThat(executed).hasSize(4);
+        assertThat(recording.bound(3).getLong(1)).isEqualTo(30L);
+
+        pending.get(2).set(page(null, a3));
+        pending.get(3).set(page(null, c1));
+        assertThat(scan.next()).isSameAs(a3);
+        assertThat(scan.next()).isSameAs(c1);
+        assertThat(scan.hasNext()).isFalse();
+
+        assertThat(completed).containsExactly(range(10, 20), range(0, 10), range(20, 30));
+        assertThat(scan.getCompletedRanges()).isEqualTo(3);
+        assertThat(scan.getTotalRanges()).isEqualTo(3);
+        assertThat(scan.getRows()).isEqualTo(5);
+    }
+
+    @Test(groups = "unit")
+    public void should_retry_failed_page_after_delay_then_fail() throws Exception {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        TableScanner.Scan scan = TableScanner.builder(session, table)
+                .withRanges(Collections.singletonList(range(0, 10)))
+                .withMaxRetries(2)
+                .withRetryDelay(50, TimeUnit.MILLISECONDS)
+                .withScheduler(scheduler)
+                .build()
+                .scan();
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+
+        ReadTimeoutException timeout = new ReadTimeoutException(ConsistencyLevel.ONE, 0, 1, false);
+        pending.get(0).setException(timeout);
+        // Not retried inline, but scheduled
+        assertThat(executed).hasSize(1);
+        verify(scheduler).schedule(retry.capture(), eq(TimeUnit.MILLISECONDS.toNanos(50)), eq(TimeUnit.NANOSECONDS));
+        retry.getValue().run();
+        assertThat(executed).hasSize(2);
+        assertThat(recording.bound(1).getLong(1)).isEqualTo(10L);
+
+        // The delay doubles
+        pending.get(1).setException(timeout);
+        verify(scheduler).schedule(retry.capture(), eq(TimeUnit.MILLISECONDS.toNanos(100)), eq(TimeUnit.NANOSECONDS));
+        retry.getValue().run();
+        assertThat(executed).hasSize(3);
+
+        pending.get(2).setException(timeout);
+        verifyNoMoreInteractions(scheduler);
+        try {
+            scan.hasNext();
+            fail("Expected a ReadTimeoutException");
+        } catch (ReadTimeoutException e) {
+            // expected
+        }
+        assertThat(scan.hasNext()).isFalse();
+    }
+
+    @Test(groups = "unit")
+    public void should_resume_from_checkpoint() throws Exception {
+        File file = File.createTempFile("scan", ".checkpoint");
+        file.deleteOnExit();
+        TableScanner scanner = TableScanner.builder(session, table)
+                .withRanges(Arrays.asList(range(0, 10), range(10, 20), range(20, 30)))
+                .withCheckpointFile(file)
+                .withScheduler(mock(ScheduledExecutorService.class))
+                .build();
+
+        TableScanner.Scan scan = scanner.scan();
+        assertThat(executed).hasSize(3);
+        Row a1 = mock(Row.class), b1 = mock(Row.class), c1 = mock(Row.class);
+        pending.get(0).set(page(new byte[]{1}, a1));
+        pending.get(1).set(page(null, b1));
+        pending.get(2).set(page(null, c1));
+        assertThat(scan.next()).isSameAs(a1);
+        assertThat(scan.next()).isSameAs(b1);
+        assertThat(scan.next()).isSameAs(c1);
+        // Consumed: the first page of ]0,10], and ]10,20]. The page of ]20,30] is still being consumed.
+        scan.cancel();
+        assertThat(scan.hasNext()).isFalse();
+        assertThat(file).exists();
+
+        executed.clear();
+        pending.clear();
+        scan = scanner.scan();
+        assertThat(scan.getCompletedRanges()).isEqualTo(1);
+        assertThat(executed).hasSize(2);
+        assertThat(recording.bound(0).getLong(1)).isEqualTo(10L);
+        assertThat(recording.bound(0).getPagingState()).isEqualTo(java.nio.ByteBuffer.wrap(new byte[]{1}));
+        assertThat(recording.bound(1).getLong(1)).isEqualTo(30L);
+        assertThat(recording.bound(1).getPagingState()).isNull();
+
+        Row a2 = mock(Row.class);
+        pending.get(0).set(page(null, a2));
+        pending.get(1).set(page(null, c1));
+        assertThat(scan.next()).isSameAs(a2);
+        assertThat(scan.next()).isSameAs(c1);
+        assertThat(scan.hasNext()).isFalse();
+        assertThat(scan.getCompletedRanges()).isEqualTo(3);
+        assertThat(file).doesNotExist();
+    }
+
+    private static Token token(long value) {
+        return FACTORY.fromString(Long.toString(value));
+    }
+
+    private static TokenRange range(long start, long end) {
+        return new TokenRange(token(start), token(end), FACTORY);
+    }
+
+    // A page with the given rows, followed by another one if pagingState is not null
+    private static ResultSet page(byte[] pagingState, Row... rows) {
+        final Queue<Row> queue = new LinkedList<Row>(Arrays.asList(rows));
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getAvailableWithoutFetching()).thenReturn(rows.length);
+        when(rs.one()).thenAnswer(new Answer<Row>() {
+            @Override
+            public Row answer(InvocationOnMock invocation) throws Throwable {
+                return queue.poll();
+            }
+        });
+        ExecutionInfo info = mock(ExecutionInfo.class);
+        when(info.getPagingStateUnsafe()).thenReturn(pagingState);
+        when(rs.getExecutionInfo()).thenReturn(info);
+        return rs;
+    }
+}
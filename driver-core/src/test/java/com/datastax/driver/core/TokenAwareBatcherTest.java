@@ -0,0 +1,175 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.fail;
+
+public class TokenAwareBatcherTest {
+
+    private RecordingSession recording;
+    private Session session;
+    private List<Statement> executed;
+    private List<SettableFuture<ResultSet>> pending;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        // Never initialized: the batcher only needs its metadata
+        recording = new RecordingSession();
+        session = recording.session;
+        executed = recording.executed;
+        pending = recording.pending;
+    }
+
+    @AfterMethod(groups = "unit")
+    public void teardown() {
+        recording.close();
+    }
+
+    @Test(groups = "unit")
+    public void should_group_statements_per_partition() {
+        TokenAwareBatcher batcher = TokenAwareBatcher.builder(session)
+                .withMaxStatements(3)
+                .withLinger(0, TimeUnit.MILLISECONDS)
+                .build();
+
+        ListenableFuture<ResultSet> a1 = batcher.add(insert("ks", 1));
+        ListenableFuture<ResultSet> b1 = batcher.add(insert("ks", 2));
+        batcher.add(insert("ks", 1));
+        batcher.add(insert("other_ks", 1));
+        ListenableFuture<ResultSet> a3 = batcher.add(insert("ks", 1));
+
+        // The batch for partition 1 of ks is full
+        assertThat(executed).hasSize(1);
+        BatchStatement batch = (BatchStatement) executed.get(0);
+        assertThat(batch.batchType).isEqualTo(BatchStatement.Type.UNLOGGED);
+        assertThat(batch.size()).isEqualTo(3);
+        assertThat(batch.getKeyspace()).isEqualTo("ks");
+        assertThat(batch.getRoutingKey()).isEqualTo(TypeCodec.intCodec.serializeNoBoxing(1));
+        assertThat(a1).isSameAs(a3);
+        assertThat(a1.isDone()).isFalse();
+        pending.get(0).set(mock(ResultSet.class));
+        assertThat(a1.isDone()).isTrue();
+        assertThat(b1.isDone()).isFalse();
+        assertThat(batcher.getPendingStatements()).isEqualTo(2);
+
+        batcher.flush();
+        assertThat(executed).hasSize(3);
+        assertThat(batcher.getPendingStatements()).isEqualTo(0);
+        pending.get(1).set(mock(ResultSet.class));
+        pending.get(2).set(mock(ResultSet.class));
+        assertThat(b1.isDone()).isTrue();
+    }
+
+    @Test(groups = "unit")
+    public void should_fail_all_statements_of_failed_batch() throws Exception {
+        TokenAwareBatcher batcher = TokenAwareBatcher.builder(session)
+                .withLinger(0, TimeUnit.MILLISECONDS)
+                .build();
+
+        ListenableFuture<ResultSet> a1 = batcher.add(insert("ks", 1));
+        ListenableFuture<ResultSet> a2 = batcher.add(insert("ks", 1));
+        ListenableFuture<ResultSet> b1 = batcher.add(insert("ks", 2));
+        batcher.flush();
+        assertThat(executed).hasSize(2);
+
+        int failedBatch = ((BatchStatement) executed.get(0)).size() == 2 ? 0 : 1;
+        WriteTimeoutException timeout = new WriteTimeoutException(ConsistencyLevel.ONE, WriteType.UNLOGGED_BATCH, 0, 1);
+        pending.get(failedBatch).setException(timeout);
+        pending.get(1 - failedBatch).set(mock(ResultSet.class));
+
+        for (ListenableFuture<ResultSet> future : Arrays.asList(a1, a2)) {
+            try {
+                future.get();
+                fail("Expected an ExecutionException");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isSameAs(timeout);
+            }
+        }
+        assertThat(b1.get()).isNotNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_not_exceed_max_bytes() {
+        Statement statement = insert("ks", 1);
+        int size = BatchStatement.sizeOf(statement, ProtocolVersion.NEWEST_SUPPORTED);
+        TokenAwareBatcher batcher = TokenAwareBatcher.builder(session)
+                .withMaxBytes(size * 2 + 1)
+                .withLinger(0, TimeUnit.MILLISECONDS)
+                .build();
+
+        for (int i = 0; i < 5; i++)
+            batcher.add(insert("ks", 1));
+        batcher.flush();
+
+        assertThat(executed).hasSize(3);
+        assertThat(((BatchStatement) executed.get(0)).size()).isEqualTo(2);
+        assertThat(((BatchStatement) executed.get(1)).size()).isEqualTo(2);
+        assertThat(((BatchStatement) executed.get(2)).size()).isEqualTo(1);
+    }
+
+    @Test(groups = "unit")
+    public void should_execute_non_routable_statements_as_is() {
+        TokenAwareBatcher batcher = TokenAwareBatcher.builder(session).build();
+        Statement statement = new SimpleStatement("INSERT INTO ks.t (k, v) VALUES (1, 1)");
+
+        batcher.add(statement);
+
+        assertThat(executed).containsExactly(statement);
+        assertThat(batcher.getPendingStatements()).isEqualTo(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_execute_batches_after_linger_time() throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            TokenAwareBatcher batcher = TokenAwareBatcher.builder(session)
+                    .withLinger(10, TimeUnit.MILLISECONDS)
+                    .withScheduler(scheduler)
+                    .build();
+
+            ListenableFuture<ResultSet> future = batcher.add(insert("ks", 1));
+
+            recording.awaitPending(0).set(mock(ResultSet.class));
+            assertThat(future.isDone()).isTrue();
+            assertThat(executed).hasSize(1);
+            assertThat(batcher.getPendingStatements()).isEqualTo(0);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static Statement insert(String keyspace, int k) {
+        return new SimpleStatement("INSERT INTO t (k, v) VALUES (?, ?)", k, k)
+                .setKeyspace(keyspace)
+                .setRoutingKey(TypeCodec.intCodec.serializeNoBoxing(k));
+    }
+}
@@ -15,15 +15,15 @@
  */
 package com.datastax.driver.core;
 
+import com.datastax.driver.core.exceptions.InvalidTypeException;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.nio.ByteBuffer;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.nio.charset.Charset;
+import java.util.*;
 
 import static com.datastax.driver.core.DataType.text;
 
@@ -70,4 +70,150 @@ public class TypeCodecTest {
 
         listType.serialize(list);
     }
+
+    @Test(groups = "unit")
+    public void should_encode_primitive_arrays_like_collections() {
+        for (ProtocolVersion version : new ProtocolVersion[]{ ProtocolVersion.V2, ProtocolVersion.V3 }) {
+            ByteBuffer ints = TypeCodec.serializeIntArray(new int[]{ 1, -2, 3 }, version);
+            Assert.assertEquals(ints, TypeCodec.<Integer>listOf(DataType.cint(), version).serialize(Lists.newArrayList(1, -2, 3)));
+            Assert.assertEquals(TypeCodec.deserializeIntArray(ints, version), new int[]{ 1, -2, 3 });
+
+            ByteBuffer longs = TypeCodec.<Long>listOf(DataType.bigint(), version).serialize(Lists.newArrayList(1L, Long.MAX_VALUE));
+            Assert.assertEquals(TypeCodec.deserializeLongArray(longs, version), new long[]{ 1L, Long.MAX_VALUE });
+            Assert.assertEquals(TypeCodec.serializeLongArray(new long[]{ 1L, Long.MAX_VALUE }, version), longs);
+
+            ByteBuffer doubles = TypeCodec.serializeDoubleArray(new double[]{ 0.5, -1.25 }, version);
+            Assert.assertEquals(TypeCodec.<Double>listOf(DataType.cdouble(), version).deserialize(doubles), Lists.newArrayList(0.5, -1.25));
+        }
+        Assert.assertEquals(TypeCodec.deserializeIntArray(null, ProtocolVersion.V3).length, 0);
+    }
+
+    @Test(groups = "unit")
+    public void should_get_and_set_primitive_arrays() {
+        TupleValue value = TupleType.of(DataType.list(DataType.cint()), DataType.set(DataType.cdouble())).newValue();
+        value.setIntArray(0, new int[]{ 3, 1, 2 });
+        value.setDoubleArray(1, new double[]{ 1.5 });
+
+        Assert.assertEquals(value.getList(0, Integer.class), Lists.newArrayList(3, 1, 2));
+        Assert.assertEquals(value.getIntArray(0), new int[]{ 3, 1, 2 });
+        Assert.assertEquals(value.getDoubleArray(1), new double[]{ 1.5 });
+
+        try {
+            value.getLongArray(0);
+            Assert.fail("Expected an InvalidTypeException");
+        } catch (InvalidTypeException e) {
+            // expected
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_serialize_collections_in_a_single_buffer() {
+        List<String> strings = Lists.newArrayList("", "ascii", "caf\u00e9", "\u20ac", "\ud83d\ude00", "lone \ud83d", "lone \ude00");
+        List<UUID> uuids = Lists.newArrayList(UUID.randomUUID(), UUID.randomUUID());
+        for (ProtocolVersion version : new ProtocolVersion[]{ ProtocolVersion.V2, ProtocolVersion.V3 }) {
+            TypeCodec<List<String>> textList = TypeCodec.listOf(DataType.text(), version);
+            Assert.assertEquals(textList.serialize(strings), pack(version, strings.size(), elements(TypeCodec.utf8StringCodec, strings)));
+
+            TypeCodec<List<String>> asciiList = TypeCodec.listOf(DataType.ascii(), version);
+            Assert.assertEquals(asciiList.serialize(strings), pack(version, strings.size(), elements(TypeCodec.asciiStringCodec, strings)));
+
+            TypeCodec<Set<UUID>> uuidSet = TypeCodec.setOf(DataType.uuid(), version);
+            Set<UUID> set = new LinkedHashSet<UUID>(uuids);
+            Assert.assertEquals(uuidSet.serialize(set), pack(version, set.size(), elements(TypeCodec.uuidCodec, set)));
+            Assert.assertEquals(uuidSet.deserialize(uuidSet.serialize(set)), set);
+
+            Map<String, Long> map = new LinkedHashMap<String, Long>();
+            map.put("a", 1L);
+            map.put("\u00e9t\u00e9", Long.MIN_VALUE);
+            List<ByteBuffer> entries = Lists.newArrayList();
+            for (Map.Entry<String, Long> entry : map.entrySet()) {
+                entries.add(TypeCodec.utf8StringCodec.serialize(entry.getKey()));
+                entries.add(TypeCodec.longCodec.serialize(entry.getValue()));
+            }
+            TypeCodec<Map<String, Long>> mapCodec = TypeCodec.mapOf(DataType.text(), DataType.bigint(), version);
+            Assert.assertEquals(mapCodec.serialize(map), pack(version, map.size(), entries));
+            Assert.assertEquals(mapCodec.deserialize(mapCodec.serialize(map)), map);
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_decode_strings_from_any_buffer() {
+        for (String value : new String[]{ "", "ascii", "caf\u00e9", "\ud83d\ude00" }) {
+            byte[] utf8 = value.getBytes(Charset.forName("UTF-8"));
+            Assert.assertEquals(TypeCodec.utf8StringCodec.deserialize(ByteBuffer.wrap(utf8)), value);
+
+            // slice of a bigger array
+            ByteBuffer padded = ByteBuffer.allocate(utf8.length + 4);
+            padded.put((byte) 'x').put((byte) 'x').put(utf8).flip();
+            padded.position(2);
+            Assert.assertEquals(TypeCodec.utf8StringCodec.deserialize(padded.slice()), value);
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length);
+            direct.put(utf8).flip();
+            Assert.assertEquals(TypeCodec.utf8StringCodec.deserialize(direct), value);
+        }
+        // Non-ASCII bytes in an ASCII column are still replaced, as the charset decoder does
+        Assert.assertEquals(TypeCodec.asciiStringCodec.deserialize(ByteBuffer.wrap(new byte[]{ 'a', (byte) 0xC3 })), "a\ufffd");
+    }
+
+    @Test(groups = "unit")
+    public void should_decode_tuple_fields_lazily() {
+        TupleType type = TupleType.of(DataType.cint(), DataType.text(), DataType.cdouble());
+        TupleValue original = type.newValue(1, "foo", 2.5);
+        TypeCodec<TupleValue> codec = TypeCodec.tupleOf(type);
+        ByteBuffer serialized = codec.serialize(original);
+
+        TupleValue value = codec.deserialize(serialized);
+        Assert.assertNull(value.values[0]);
+        Assert.assertEquals(value.getString(1), "foo");
+        // only the fields up to the one that was read have been split
+        Assert.assertNotNull(value.values[0]);
+        Assert.assertNotNull(value.values[1]);
+        Assert.assertNull(value.values[2]);
+        // unmodified values are written back as is
+        Assert.assertSame(value.serializedIfUnchanged().array(), serialized.array());
+        Assert.assertEquals(codec.serialize(value), serialized);
+        Assert.assertEquals(value, original);
+        Assert.assertEquals(value.hashCode(), original.hashCode());
+
+        value.setInt(0, 42);
+        Assert.assertNull(value.serializedIfUnchanged());
+        Assert.assertEquals(codec.deserialize(codec.serialize(value)), type.newValue(42, "foo", 2.5));
+
+        // trailing fields can be omitted
+        ByteBuffer truncated = ByteBuffer.allocate(8);
+        truncated.putInt(4).putInt(7).flip();
+        TupleValue partial = codec.deserialize(truncated);
+        Assert.assertTrue(partial.isNull(2));
+        Assert.assertEquals(partial.getInt(0), 7);
+    }
+
+    private static <T> List<ByteBuffer> elements(TypeCodec<T> codec, Iterable<T> values) {
+        List<ByteBuffer> l = Lists.newArrayList();
+        for (T value : values)
+            l.add(codec.serialize(value));
+        return l;
+    }
+
+    // Reference encoding: each element serialized on its own, then copied after the collection size
+    private static ByteBuffer pack(ProtocolVersion version, int elements, List<ByteBuffer> values) {
+        boolean v3 = version == ProtocolVersion.V3;
+        int size = v3 ? 4 : 2;
+        for (ByteBuffer value : values)
+            size += (v3 ? 4 : 2) + value.remaining();
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        if (v3)
+            bb.putInt(elements);
+        else
+            bb.putShort((short) elements);
+        for (ByteBuffer value : values) {
+            if (v3)
+                bb.putInt(value.remaining());
+            else
+                bb.putShort((short) value.remaining());
+            bb.put(value.duplicate());
+        }
+        bb.flip();
+        return bb;
+    }
 }
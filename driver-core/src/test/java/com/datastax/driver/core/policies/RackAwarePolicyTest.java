@@ -0,0 +1,160 @@
+/*
+ *      Copyright (C) 2012-2015 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core.policies;
+
+import com.datastax.driver.core.*;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+public class RackAwarePolicyTest {
+    @Mock
+    Cluster cluster;
+
+    @Mock
+    Metadata metadata;
+
+    @Mock
+    Statement statement;
+
+    @Mock
+    Host host1, host2, host3, host4, host5;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+
+        mockHost(host1, "dc1", "rack1");
+        mockHost(host2, "dc1", "rack1");
+        mockHost(host3, "dc1", "rack2");
+        mockHost(host4, "dc1", "rack2");
+        mockHost(host5, "dc2", "rack1");
+
+        when(cluster.getMetadata()).thenReturn(metadata);
+        when(statement.getConsistencyLevel()).thenReturn(ConsistencyLevel.ONE);
+    }
+
+    private static void mockHost(Host host, String dc, String rack) {
+        when(host.getDatacenter()).thenReturn(dc);
+        when(host.getRack()).thenReturn(rack);
+        when(host.isUp()).thenReturn(true);
+    }
+
+    @Test(groups = "unit")
+    public void should_return_local_rack_hosts_first() {
+        DCAwareRoundRobinPolicy policy = DCAwareRoundRobinPolicy.builder()
+                .withLocalDc("dc1")
+                .withLocalRack("rack1")
+                .build();
+        policy.init(cluster, Lists.newArrayList(host1, host2, host3, host4, host5));
+
+        for (int i = 0; i < 4; i++) {
+            List<Host> plan = Lists.newArrayList(policy.newQueryPlan(null, statement));
+            assertThat(plan).hasSize(4);
+            assertThat(plan.subList(0, 2)).containsOnly(host1, host2);
+            assertThat(plan.subList(2, 4)).containsOnly(host3, host4);
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_round_robin_within_local_rack() {
+        DCAwareRoundRobinPolicy policy = DCAwareRoundRobinPolicy.builder()
+                .withLocalDc("dc1")
+                .withLocalRack("rack1")
+                .build();
+        policy.init(cluster, Lists.newArrayList(host1, host2, host3, host4, host5));
+
+        Host first1 = policy.newQueryPlan(null, statement).next();
+        Host first2 = policy.newQueryPlan(null, statement).next();
+        assertThat(Sets.newHashSet(first1, first2)).containsOnly(host1, host2);
+    }
+
+    @Test(groups = "unit")
+    public void should_ignore_racks_when_no_local_rack() {
+        DCAwareRoundRobinPolicy policy = DCAwareRoundRobinPolicy.builder()
+                .withLocalDc("dc1")
+                .build();
+        policy.init(cluster, Lists.newArrayList(host1, host2, host3, host4, host5));
+
+        List<Host> plan = Lists.newArrayList(policy.newQueryPlan(null, statement));
+        assertThat(plan).containsOnly(host1, host2, host3, host4);
+    }
+
+    @Test(groups = "unit")
+    public void should_update_query_plans_on_host_state_changes() {
+        DCAwareRoundRobinPolicy policy = DCAwareRoundRobinPolicy.builder()
+                .withLocalDc("dc1")
+                .withLocalRack("rack1")
+                .withUsedHostsPerRemoteDc(1)
+                .build();
+        policy.init(cluster, Lists.newArrayList(host1, host2, host3, host4, host5));
+        assertThat(policy.distance(host5)).isEqualTo(HostDistance.REMOTE);
+
+        policy.onDown(host1);
+        policy.onDown(host5);
+        List<Host> plan = Lists.newArrayList(policy.newQueryPlan(null, statement));
+        assertThat(plan).hasSize(3);
+        assertThat(plan.get(0)).isEqualTo(host2);
+        assertThat(plan.subList(1, 3)).containsOnly(host3, host4);
+        assertThat(policy.distance(host5)).isEqualTo(HostDistance.IGNORED);
+
+        policy.onUp(host1);
+        policy.onUp(host5);
+        plan = Lists.newArrayList(policy.newQueryPlan(null, statement));
+        assertThat(plan).hasSize(5);
+        assertThat(plan.subList(0, 2)).containsOnly(host1, host2);
+        assertThat(plan.subList(2, 4)).containsOnly(host3, host4);
+        assertThat(plan.get(4)).isEqualTo(host5);
+        assertThat(policy.distance(host5)).isEqualTo(HostDistance.REMOTE);
+    }
+
+    @Test(groups = "unit", expectedExceptions = IllegalArgumentException.class)
+    public void should_reject_empty_local_rack() {
+        DCAwareRoundRobinPolicy.builder().withLocalRack("");
+    }
+
+    @Test(groups = "unit")
+    public void should_return_local_rack_replicas_first_with_token_aware_policy() {
+        ByteBuffer routingKey = ByteBuffer.allocate(4);
+        when(statement.getRoutingKey()).thenReturn(routingKey);
+        when(statement.getKeyspace()).thenReturn("ks");
+        // host3 comes first in the replica set, but host1 is in the local rack
+        when(metadata.getReplicas(anyString(), any(ByteBuffer.class)))
+                .thenReturn(Sets.newLinkedHashSet(Lists.newArrayList(host3, host1)));
+
+        TokenAwarePolicy policy = new TokenAwarePolicy(DCAwareRoundRobinPolicy.builder()
+                .withLocalDc("dc1")
+                .withLocalRack("rack1")
+                .build(), false);
+        policy.init(cluster, Lists.newArrayList(host1, host2, host3, host4, host5));
+
+        List<Host> plan = Lists.newArrayList(policy.newQueryPlan(null, statement));
+        assertThat(plan).hasSize(4);
+        assertThat(plan.subList(0, 2)).containsExactly(host1, host3);
+        assertThat(plan.subList(2, 4)).containsExactly(host2, host4);
+    }
+}
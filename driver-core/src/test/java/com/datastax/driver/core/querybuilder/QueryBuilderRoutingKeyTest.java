@@ -21,6 +21,7 @@ import org.testng.annotations.Test;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import static com.datastax.driver.core.querybuilder.QueryBuilder.*;
 import static org.testng.Assert.assertEquals;
@@ -138,4 +139,21 @@ public class QueryBuilderRoutingKeyTest extends CCMBridge.PerClassSingleNodeClus
         assertEquals(batch.toString(), batch_query);
         // TODO: rs = session.execute(batch); // Not guaranteed to be valid CQL
     }
+
+    @Test(groups = "short")
+    public void should_execute_split_in_query() throws Exception {
+        TableMetadata table = cluster.getMetadata().getKeyspace(keyspace).getTable(TABLE_INT);
+        for (int k = 100; k < 105; k++)
+            session.execute(insertInto(table).values(new String[]{"k", "a"}, new Object[]{k, k * 2}));
+
+        Select.Where query = select().from(table).where(in("k", 104, 100, 102));
+        ResultSet rs = MultiGet.builder(session).build().executeMerged(query.splitPartitionKeyIn());
+
+        List<Row> rows = rs.all();
+        assertEquals(rows.size(), 3);
+        assertEquals(rows.get(0).getInt("k"), 104);
+        assertEquals(rows.get(1).getInt("k"), 100);
+        assertEquals(rows.get(2).getInt("k"), 102);
+        assertEquals(rows.get(2).getInt("a"), 204);
+    }
 }
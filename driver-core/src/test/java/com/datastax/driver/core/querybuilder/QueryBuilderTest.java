@@ -33,6 +33,8 @@ import java.util.*;
 import static com.datastax.driver.core.DataType.cint;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.testng.Assert.*;
 
 public class QueryBuilderTest {
@@ -956,4 +958,88 @@ public class QueryBuilderTest {
         assertThat(query.hasValues()).isFalse();
     }
 
+    @Test(groups = "unit")
+    public void should_split_in_on_partition_key() {
+        TableMetadata table = mockTable("foo", "k");
+        Select.Where select = select().from(table).where(in("k", 1, 2, 2, 3)).and(eq("c", 1));
+        select.setConsistencyLevel(ConsistencyLevel.QUORUM).setFetchSize(10);
+
+        List<BuiltStatement> statements = select.splitPartitionKeyIn();
+
+        assertThat(statements).hasSize(3);
+        for (int i = 0; i < 3; i++) {
+            BuiltStatement statement = statements.get(i);
+            assertThat(statement.toString()).isEqualTo(String.format("SELECT * FROM ks.foo WHERE k=%d AND c=1;", i + 1));
+            assertThat(statement.getRoutingKey()).isEqualTo(cint().serialize(i + 1, ProtocolVersion.NEWEST_SUPPORTED));
+            assertThat(statement.getConsistencyLevel()).isEqualTo(ConsistencyLevel.QUORUM);
+            assertThat(statement.getFetchSize()).isEqualTo(10);
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_split_in_on_composite_partition_key() {
+        TableMetadata table = mockTable("foo", "a", "b");
+        List<BuiltStatement> statements = select("v").from(table).where(in("a", 1, 2)).and(in("b", 3, 4)).splitPartitionKeyIn();
+
+        assertThat(statements).hasSize(4);
+        assertThat(statements.get(0).toString()).isEqualTo("SELECT v FROM ks.foo WHERE a=1 AND b=3;");
+        assertThat(statements.get(1).toString()).isEqualTo("SELECT v FROM ks.foo WHERE a=1 AND b=4;");
+        assertThat(statements.get(2).toString()).isEqualTo("SELECT v FROM ks.foo WHERE a=2 AND b=3;");
+        assertThat(statements.get(3).toString()).isEqualTo("SELECT v FROM ks.foo WHERE a=2 AND b=4;");
+        for (BuiltStatement statement : statements)
+            assertThat(statement.getRoutingKey()).isNotNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_not_split_without_in_on_partition_key() {
+        TableMetadata table = mockTable("foo", "k");
+        Select.Where select = select().from(table).where(eq("k", 1)).and(in("c", 1, 2));
+        assertThat(select.splitPartitionKeyIn()).containsExactly(select);
+
+        select = select().from(table).where(in("k"));
+        assertThat(select.splitPartitionKeyIn()).containsExactly(select);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_split_when_results_would_change() {
+        TableMetadata table = mockTable("foo", "k");
+        try {
+            select().from(table).where(in("k", 1, 2)).limit(1).splitPartitionKeyIn();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Cannot split a statement with a LIMIT or an ORDER BY clause, it would change its results");
+        }
+
+        try {
+            select().from(table).where(in("k", bindMarker())).splitPartitionKeyIn();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Cannot split a statement with bind markers, its values are unknown");
+        }
+
+        try {
+            select().from("ks", "foo").where(in("k", 1, 2)).splitPartitionKeyIn();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Cannot split a statement that was not built from a TableMetadata, its partition key is unknown");
+        }
+    }
+
+    private static TableMetadata mockTable(String name, String... partitionKey) {
+        KeyspaceMetadata keyspace = mock(KeyspaceMetadata.class);
+        when(keyspace.getName()).thenReturn("ks");
+        TableMetadata table = mock(TableMetadata.class);
+        when(table.getName()).thenReturn(name);
+        when(table.getKeyspace()).thenReturn(keyspace);
+        List<ColumnMetadata> columns = new ArrayList<ColumnMetadata>();
+        for (String columnName : partitionKey) {
+            ColumnMetadata column = mock(ColumnMetadata.class);
+            when(column.getName()).thenReturn(columnName);
+            when(column.getType()).thenReturn(cint());
+            when(column.getTable()).thenReturn(table);
+            columns.add(column);
+        }
+        when(table.getPartitionKey()).thenReturn(columns);
+        return table;
+    }
 }
@@ -82,6 +82,7 @@ public class MailboxServiceIT {
                         systemProperty("cassandra.contactpoints").value(CCMBridge.IP_PREFIX + 1),
                         bundle("reference:file:target/classes"),
                         mavenBundle("com.codahale.metrics", "metrics-core", "3.0.2"),
+                        mavenBundle("org.reactivestreams", "reactive-streams", "1.0.0"),
                         mavenBundle("org.slf4j", "slf4j-api", "1.7.5"),
                         mavenBundle("org.slf4j", "slf4j-simple", "1.7.5").noStart(),
                         systemPackages("org.testng", "org.junit", "org.junit.runner", "org.junit.runner.manipulation",
@@ -16,6 +16,8 @@
 package com.datastax.driver.mapping;
 
 import com.datastax.driver.core.*;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.exceptions.DriverInternalError;
 import com.datastax.driver.core.querybuilder.Delete;
 import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
@@ -26,6 +28,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import org.slf4j.Logger;
@@ -377,6 +380,83 @@ public class Mapper<T> {
         return Futures.transform(session().executeAsync(getQuery(objects)), mapOneFunction);
     }
 
+    /**
+     * Fetch entities based on their primary keys.
+     * <p/>
+     * This method is basically equivalent to calling {@link #get} for each key, except that the reads
+     * are executed concurrently and spread over the replicas that own the keys (see {@link MultiGet}).
+     *
+     * @param primaryKeys the primary key of each entity to fetch, or more precisely
+     *                    the values for the columns of said primary key in the order of the primary key.
+     * @param options     the {@link Option}s to include in the GET queries.
+     * @return the entities fetched, in the order of {@code primaryKeys}, with {@code null} for the
+     * ones that don't exist.
+     * @throws IllegalArgumentException if the number of values provided for a key differs from
+     *                                  the number of columns composing the PRIMARY KEY of the mapped class, or if
+     *                                  at least one of those values is {@code null}.
+     */
+    public List<T> getAll(Collection<Object[]> primaryKeys, Option... options) {
+        List<MultiGet.Result> results = MultiGet.builder(session()).build().execute(getAllQueries(primaryKeys, options));
+        List<T> entities = new ArrayList<T>(results.size());
+        for (MultiGet.Result result : results) {
+            if (!result.isSuccess()) {
+                Throwable error = result.getError();
+                if (error instanceof DriverException)
+                    // Re-create the exception to get a stack trace from the current thread, like Session.execute does
+                    throw ((DriverException) error).copy();
+                if (error instanceof Error)
+                    throw (Error) error;
+                throw new DriverInternalError("Unexpected exception thrown", error);
+            }
+            entities.add(mapAliased(result.getResultSet()).one());
+        }
+        return entities;
+    }
+
+    /**
+     * Fetch entities based on their primary keys asynchronously.
+     * <p/>
+     * This method is basically equivalent to calling {@link #getAsync} for each key, except that the
+     * reads are spread over the replicas that own the keys, with a bounded number of them in flight
+     * (see {@link MultiGet}). To handle the errors of each key separately, use {@link MultiGet} with
+     * the statements returned by {@link #getQuery}.
+     *
+     * @param primaryKeys the primary key of each entity to fetch, or more precisely
+     *                    the values for the columns of said primary key in the order of the primary key.
+     * @param options     the {@link Option}s to include in the GET queries.
+     * @return a future on the entities fetched, in the order of {@code primaryKeys}, with {@code null}
+     * for the ones that don't exist. If a read fails, the future fails with the error of the first
+     * failed key.
+     * @throws IllegalArgumentException if the number of values provided for a key differs from
+     *                                  the number of columns composing the PRIMARY KEY of the mapped class, or if
+     *                                  at least one of those values is {@code null}.
+     */
+    public ListenableFuture<List<T>> getAllAsync(Collection<Object[]> primaryKeys, Option... options) {
+        return Futures.transform(MultiGet.builder(session()).build().executeAsync(getAllQueries(primaryKeys, options)), new AsyncFunction<List<MultiGet.Result>, List<T>>() {
+            @Override
+            public ListenableFuture<List<T>> apply(List<MultiGet.Result> results) {
+                List<T> entities = new ArrayList<T>(results.size());
+                for (MultiGet.Result result : results) {
+                    if (!result.isSuccess())
+                        return Futures.immediateFailedFuture(result.getError());
+                    entities.add(mapAliased(result.getResultSet()).one());
+                }
+                return Futures.immediateFuture(entities);
+            }
+        });
+    }
+
+    private List<Statement> getAllQueries(Collection<Object[]> primaryKeys, Option... options) {
+        EnumMap<Option.Type, Option> opts = new EnumMap<Option.Type, Option>(defaultGetOptions);
+        for (Option option : options)
+            opts.put(option.type, option);
+
+        List<Statement> statements = new ArrayList<Statement>(primaryKeys.size());
+        for (Object[] primaryKey : primaryKeys)
+            statements.add(getQuery(Arrays.asList(primaryKey), opts));
+        return statements;
+    }
+
     /**
      * Creates a query that can be used to delete the provided entity.
      * <p/>
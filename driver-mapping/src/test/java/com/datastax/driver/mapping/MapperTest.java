@@ -16,6 +16,7 @@
 package com.datastax.driver.mapping;
 
 import com.datastax.driver.core.*;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
 import com.datastax.driver.core.utils.CassandraVersion;
 import com.datastax.driver.core.utils.UUIDs;
 import com.datastax.driver.mapping.annotations.*;
@@ -25,10 +26,12 @@ import org.testng.annotations.Test;
 
 import java.net.InetAddress;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 /**
  * Basic tests for the mapping module.
@@ -419,6 +422,35 @@ public class MapperTest extends CCMBridge.PerClassSingleNodeCluster {
     }
 
 
+    @Test(groups = "short")
+    public void should_get_all_entities_in_key_order() throws Exception {
+        Mapper<User> m = new MappingManager(session).mapper(User.class);
+        User u1 = new User("Paul", "paul@yahoo.com", User.Gender.MALE);
+        User u2 = new User("Paule", "paule@yahoo.com", User.Gender.FEMALE);
+        m.save(u1);
+        m.save(u2);
+        List<Object[]> keys = Arrays.asList(new Object[]{u2.getUserId()}, new Object[]{UUIDs.random()}, new Object[]{u1.getUserId()});
+
+        assertThat(m.getAll(keys)).containsExactly(u2, null, u1);
+        assertThat(m.getAllAsync(keys).get()).containsExactly(u2, null, u1);
+        assertThat(m.getAll(Collections.<Object[]>emptyList())).isEmpty();
+
+        // A single node can't satisfy CL THREE, so every read fails
+        Mapper.Option three = Mapper.Option.consistencyLevel(ConsistencyLevel.THREE);
+        try {
+            m.getAll(keys, three);
+            fail("Expected a NoHostAvailableException");
+        } catch (NoHostAvailableException e) {
+            // expected
+        }
+        try {
+            m.getAllAsync(keys, three).get();
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(NoHostAvailableException.class);
+        }
+    }
+
     @Test(groups = "short")
     public void should_return_table_metadata() throws Exception {
         MappingManager manager = new MappingManager(session);